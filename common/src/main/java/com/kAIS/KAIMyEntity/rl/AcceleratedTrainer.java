@@ -0,0 +1,173 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 가속 학습 - 클라이언트 틱(20 TPS)과 분리된 워커 스레드에서 env.tick 반복
+ *
+ * - 워커: 렌더러 동기화를 끈 환경을 CPU가 허용하는 만큼 (또는 cap까지) 스텝
+ * - 렌더 스레드: poll()로 최신 스냅샷만 가져와 표시 (환경 객체에 직접 접근하지 않음)
+ * - 로그: 워커에서 나온 메시지는 큐에 모았다가 렌더 스레드에서 전달 (초과분 버림)
+ *
+ * 속도 제한은 Config.maxStepsPerSecond (0 = 무제한), 실행 중 변경도 반영.
+ */
+public final class AcceleratedTrainer {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final long SNAPSHOT_INTERVAL_NANOS = 50_000_000L; // 50ms
+    private static final long RATE_WINDOW_NANOS = 500_000_000L;      // 0.5s
+    private static final int MAX_PENDING_LOGS = 200;
+
+    private final RLEnvironmentCore env;
+    private final float deltaTime;
+
+    private Thread worker;
+    private volatile boolean running = false;
+    private volatile RLEnvironmentCore.Snapshot latest;
+    private volatile float stepsPerSecond = 0f;
+
+    private Consumer<String> originalLogCallback;
+    private final ConcurrentLinkedQueue<String> pendingLogs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingLogCount = new AtomicInteger();
+
+    /**
+     * @param deltaTime 스텝당 시뮬레이션 시간 (일반 모드의 틱 dt와 같게)
+     */
+    public AcceleratedTrainer(RLEnvironmentCore env, float deltaTime) {
+        this.env = env;
+        this.deltaTime = deltaTime;
+    }
+
+    /**
+     * 워커 시작 (환경이 학습 중이어야 함)
+     */
+    public synchronized void start() {
+        if (running || !env.isInitialized()) return;
+
+        originalLogCallback = env.getLogCallback();
+        env.setLogCallback(this::enqueueLog);
+        env.setRendererSync(false);
+        latest = env.captureSnapshot();
+
+        running = true;
+        worker = new Thread(this::run, "RL-Accelerated-Trainer");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Accelerated training started (cap {} steps/s)", env.getConfig().maxStepsPerSecond);
+    }
+
+    /**
+     * 워커 정지 후 렌더러 동기화 복구 (렌더 스레드에서 호출)
+     */
+    public synchronized void stop() {
+        if (!running && worker == null) return;
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+
+        env.setLogCallback(originalLogCallback);
+        drainLogs();
+        env.setRendererSync(true);
+        stepsPerSecond = 0f;
+        logger.info("Accelerated training stopped");
+    }
+
+    private void run() {
+        long windowStart = System.nanoTime();
+        long lastSnapshot = windowStart;
+        long paceStart = windowStart;
+        long windowSteps = 0;
+        long pacedSteps = 0;
+        int lastCap = env.getConfig().maxStepsPerSecond;
+
+        try {
+            while (running && env.isTraining()) {
+                env.tick(deltaTime);
+                windowSteps++;
+                pacedSteps++;
+
+                long now = System.nanoTime();
+
+                // 속도 제한: 누적 스텝 기준으로 앞서 있으면 대기
+                int cap = env.getConfig().maxStepsPerSecond;
+                if (cap != lastCap) {
+                    paceStart = now;
+                    pacedSteps = 0;
+                    lastCap = cap;
+                } else if (cap > 0) {
+                    long due = paceStart + pacedSteps * 1_000_000_000L / cap;
+                    if (due > now) {
+                        LockSupport.parkNanos(due - now);
+                        now = System.nanoTime();
+                    }
+                }
+
+                if (now - lastSnapshot >= SNAPSHOT_INTERVAL_NANOS) {
+                    latest = env.captureSnapshot();
+                    lastSnapshot = now;
+                }
+                if (now - windowStart >= RATE_WINDOW_NANOS) {
+                    stepsPerSecond = windowSteps * 1e9f / (now - windowStart);
+                    windowStart = now;
+                    windowSteps = 0;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Accelerated training crashed", e);
+            enqueueLog("ERROR: accelerated training stopped: " + e.getMessage());
+        } finally {
+            latest = env.captureSnapshot();
+            running = false;
+        }
+    }
+
+    // ========== 렌더 스레드 API ==========
+
+    /**
+     * 최신 스냅샷을 렌더러에 반영하고 대기 중인 로그 전달
+     * @return 최신 스냅샷 (아직 없으면 null)
+     */
+    public RLEnvironmentCore.Snapshot poll() {
+        RLEnvironmentCore.Snapshot s = latest;
+        env.applySnapshot(s);
+        drainLogs();
+        return s;
+    }
+
+    private void enqueueLog(String msg) {
+        if (pendingLogCount.incrementAndGet() > MAX_PENDING_LOGS) {
+            pendingLogCount.decrementAndGet();
+            return;
+        }
+        pendingLogs.offer(msg);
+    }
+
+    private void drainLogs() {
+        String msg;
+        while ((msg = pendingLogs.poll()) != null) {
+            pendingLogCount.decrementAndGet();
+            if (originalLogCallback != null) originalLogCallback.accept(msg);
+        }
+    }
+
+    /** 워커가 돌고 있는지 (학습이 끝나면 스스로 멈춤) */
+    public boolean isRunning() { return running; }
+
+    /** 최근 0.5초 구간의 실측 스텝/초 */
+    public float getStepsPerSecond() { return stepsPerSecond; }
+
+    public RLEnvironmentCore.Snapshot getLatest() { return latest; }
+}
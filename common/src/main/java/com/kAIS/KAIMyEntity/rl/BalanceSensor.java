@@ -0,0 +1,60 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.MassProperties;
+
+/**
+ * 링크 변환 → 질량중심 / ZMP (관측 항목과 종료 조건용)
+ *
+ * - 링크 FK는 환경이 스텝당 한 번 계산해 넘김 (다른 센서와 같은 world 버퍼)
+ * - update()는 할당 없이 MassProperties 1회
+ */
+final class BalanceSensor {
+    private final MassProperties mass;
+
+    private BalanceSensor(MassProperties mass) {
+        this.mass = mass;
+    }
+
+    /**
+     * URDF 모델에서 구성. 트리가 없거나 질량 정보가 없으면 null
+     */
+    static BalanceSensor build(URDFModel model) {
+        KinematicTree tree = model != null ? model.getKinematicTree() : null;
+        if (tree == null) return null;
+        MassProperties mass = MassProperties.compile(tree);
+        return mass.getTotalMass() > 0 ? new BalanceSensor(mass) : null;
+    }
+
+    /**
+     * 링크 변환(트리 FK 결과)으로 갱신
+     */
+    void update(float[] world, float dt) {
+        mass.update(world, dt);
+    }
+
+    /**
+     * 유한 차분 기록을 버리고 현재 자세로 다시 시작 (에피소드 리셋 후)
+     */
+    void reset(float[] world) {
+        mass.reset();
+        update(world, 0f);
+    }
+
+    // ========== 상태 직렬화 (체크포인트) ==========
+
+    int stateBytes() {
+        return mass.stateBytes();
+    }
+
+    void writeState(java.nio.ByteBuffer buf) {
+        mass.writeState(buf);
+    }
+
+    void readState(java.nio.ByteBuffer buf) {
+        mass.readState(buf);
+    }
+
+    MassProperties getMassProperties() { return mass; }
+}
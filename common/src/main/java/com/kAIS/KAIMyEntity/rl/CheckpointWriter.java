@@ -0,0 +1,217 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 크래시 안전 비동기 체크포인트 기록기
+ *
+ * - 학습 스레드는 스냅샷 ByteBuffer만 넘김 (submit은 즉시 반환)
+ * - 기록 스레드: {name}.tmp 쓰기 → fsync → 원자적 rename → 디렉토리 fsync → 오래된 파일 정리
+ * - 대기 중인 기록은 최대 1개 (밀리면 오래된 스냅샷을 버리고 최신만 기록)
+ *
+ * 파일: MAGIC | version | payload 길이 | payload | CRC32(payload)
+ * 크래시로 잘리거나 깨진 파일은 CRC로 걸러지고 그 이전 체크포인트로 복구.
+ */
+public final class CheckpointWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGIC = 0x4B524C43; // "KRLC"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".kckpt";
+
+    private final Path dir;
+    private final int keep;
+    private final ThreadPoolExecutor executor;
+
+    private volatile long lastWrittenSequence = -1;
+    private volatile long lastWriteNanos = 0;
+
+    public CheckpointWriter(Path dir, int keep) throws IOException {
+        this.dir = dir;
+        this.keep = Math.max(1, keep);
+        Files.createDirectories(dir);
+
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), r -> {
+                    Thread t = new Thread(r, "RL-Checkpoint-Writer");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * 스냅샷 기록 예약 (학습 스레드에서 호출, 대기 없음)
+     * @param payload  스냅샷 (position 0 ~ limit), 이후 호출자가 수정하면 안 됨
+     * @param sequence 단조 증가 번호 (파일 이름/정렬용, 보통 누적 스텝)
+     */
+    public void submit(ByteBuffer payload, long sequence) {
+        executor.execute(() -> {
+            try {
+                write(payload, sequence);
+            } catch (IOException e) {
+                logger.error("Checkpoint write failed: {}", sequence, e);
+            }
+        });
+    }
+
+    private void write(ByteBuffer payload, long sequence) throws IOException {
+        long start = System.nanoTime();
+        Path target = dir.resolve(String.format("%s%012d%s", PREFIX, sequence, SUFFIX));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+
+        ByteBuffer data = payload.duplicate();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(MAGIC).putInt(VERSION).putInt(data.remaining()).flip();
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        trailer.putLong(crc.getValue()).flip();
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, data, trailer};
+            while (trailer.hasRemaining()) ch.write(parts);
+            ch.force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        prune();
+
+        lastWrittenSequence = sequence;
+        lastWriteNanos = System.nanoTime() - start;
+        logger.debug("Checkpoint written: {} ({} bytes, {} ms)", target.getFileName(),
+                payload.remaining(), lastWriteNanos / 1_000_000);
+    }
+
+    /** rename을 디스크에 반영 (지원하지 않는 플랫폼이면 무시) */
+    private void syncDirectory() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Windows 등은 디렉토리 fsync 불가
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> files = listCheckpoints(dir);
+        for (int i = keep; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    // ========== 복구 ==========
+
+    /**
+     * 유효한 최신 체크포인트 payload (없으면 null)
+     * CRC가 맞지 않는 파일은 건너뛰고 이전 것을 시도
+     */
+    public ByteBuffer loadLatest() {
+        try {
+            for (Path p : listCheckpoints(dir)) {
+                ByteBuffer payload = read(p);
+                if (payload != null) {
+                    logger.info("Checkpoint found: {}", p.getFileName());
+                    return payload;
+                }
+                logger.warn("Skipping corrupt checkpoint: {}", p.getFileName());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to list checkpoints in {}", dir, e);
+        }
+        return null;
+    }
+
+    private static ByteBuffer read(Path p) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(p));
+            if (buf.remaining() < 20 || buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            int len = buf.getInt();
+            if (len < 0 || buf.remaining() != len + 8) return null;
+
+            ByteBuffer payload = buf.slice(buf.position(), len);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (buf.getLong(buf.position() + len) != crc.getValue()) return null;
+            return payload;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** 체크포인트 파일 목록 (최신 → 오래된 순) */
+    private static List<Path> listCheckpoints(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return files;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()));
+        return files;
+    }
+
+    // ========== 종료 ==========
+
+    /** 대기 중인 기록을 마치고 종료 */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Checkpoint writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== 직렬화 헬퍼 ==========
+
+    static int stringBytes(String s) {
+        return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static void putString(ByteBuffer buf, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(b.length);
+        buf.put(b);
+    }
+
+    static String getString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    static void putFloats(ByteBuffer buf, float[] a) {
+        buf.putInt(a.length);
+        buf.asFloatBuffer().put(a);
+        buf.position(buf.position() + a.length * 4);
+    }
+
+    static float[] getFloats(ByteBuffer buf) {
+        float[] a = new float[buf.getInt()];
+        buf.asFloatBuffer().get(a);
+        buf.position(buf.position() + a.length * 4);
+        return a;
+    }
+
+    public Path getDirectory() { return dir; }
+    public long getLastWrittenSequence() { return lastWrittenSequence; }
+    public long getLastWriteMillis() { return lastWriteNanos / 1_000_000; }
+}
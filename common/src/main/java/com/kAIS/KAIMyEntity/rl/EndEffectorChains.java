@@ -0,0 +1,89 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 말단(end-effector) 위치 계산 (컴파일된 KinematicTree 기반)
+ *
+ * - 말단 = 자식 조인트가 없는 링크 (루트 제외), 경로에 움직이는 조인트가 있는 것만
+ * - 환경 관절 순서 → 트리 조인트 순서 매핑을 미리 계산
+ * - compute()는 할당 없이 트리 FK 1회 후 루트 좌표계 기준 말단 위치를 out[e*3..]에 기록
+ * - read()는 이미 계산된 링크 변환에서 말단 위치만 꺼냄 (환경이 스텝마다 공유하는 FK 결과용)
+ */
+final class EndEffectorChains {
+    private final KinematicTree tree;
+    private final int[] endLinks;     // 말단별 트리 링크 인덱스
+    private final int[] envIndex;     // 트리 조인트별 환경 관절 인덱스 (-1: 고정/미포함)
+    private final String[] names;
+
+    // 스크래치 (할당 없음)
+    private final float[] q;
+    private final float[] world;
+
+    private EndEffectorChains(KinematicTree tree, List<Integer> endLinks, List<String> jointNames) {
+        this.tree = tree;
+        this.endLinks = endLinks.stream().mapToInt(Integer::intValue).toArray();
+        this.names = new String[this.endLinks.length];
+        for (int e = 0; e < names.length; e++) names[e] = tree.getLinkName(this.endLinks[e]);
+
+        envIndex = new int[tree.getJointCount()];
+        for (int j = 0; j < envIndex.length; j++) {
+            envIndex[j] = tree.isMovable(j) ? jointNames.indexOf(tree.getJointName(j)) : -1;
+        }
+        q = new float[tree.getJointCount()];
+        world = tree.newTransformBuffer();
+    }
+
+    /**
+     * URDF 모델에서 말단 구성. 말단이 없으면 null
+     */
+    static EndEffectorChains build(URDFModel model, List<String> jointNames) {
+        KinematicTree tree = model != null ? model.getKinematicTree() : null;
+        if (tree == null) return null;
+
+        List<Integer> ends = new ArrayList<>();
+        for (var link : model.links) {
+            int l = tree.indexOfLink(link.name);
+            if (l <= 0 || !tree.isLeafLink(l)) continue;
+
+            boolean movable = false;
+            for (int j = KinematicTree.getParentJoint(l); j >= 0; j = KinematicTree.getParentJoint(tree.getParentLink(j))) {
+                movable |= tree.isMovable(j);
+            }
+            if (!movable) continue; // 고정 말단은 추적 의미 없음
+            ends.add(l);
+        }
+        return ends.isEmpty() ? null : new EndEffectorChains(tree, ends, jointNames);
+    }
+
+    /**
+     * 관절 위치 q(환경 순서)로 모든 말단 위치 계산 → out[e*3 + {0,1,2}]
+     */
+    void compute(float[] envQ, float[] out, int offset) {
+        for (int j = 0; j < q.length; j++) {
+            int qi = envIndex[j];
+            q[j] = qi >= 0 ? envQ[qi] : 0f;
+        }
+        tree.forward(q, world);
+        read(world, out, offset);
+    }
+
+    /**
+     * 링크 변환(같은 트리의 FK 결과)에서 말단 위치 → out[e*3 + {0,1,2}]
+     */
+    void read(float[] world, float[] out, int offset) {
+        for (int e = 0; e < endLinks.length; e++) {
+            int t = endLinks[e] * KinematicTree.STRIDE + 12;
+            out[offset + e * 3] = world[t];
+            out[offset + e * 3 + 1] = world[t + 1];
+            out[offset + e * 3 + 2] = world[t + 2];
+        }
+    }
+
+    int getCount() { return endLinks.length; }
+    String getName(int e) { return names[e]; }
+}
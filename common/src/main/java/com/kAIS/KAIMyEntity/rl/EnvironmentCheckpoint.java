@@ -0,0 +1,228 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore.ActionMode;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore.Config;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore.JointState;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore.SimpleAgent;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore.Statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * RLEnvironmentCore 학습 상태 직렬화 (체크포인트, PBT 복사, 평가 스냅샷 공용)
+ *
+ * 레이아웃: STATE_VERSION | 관절 수 | 정책 관측 차원 | 에피소드 | RNG 시드 | LATENT 프라이어 스탬프
+ *  | 에피소드 상태 | 관절별 이름 + 9 float | 센서 블록 [있음 1B][길이 4B][상태] ×2
+ *  | 히스토리 | Config | 통계 | 에이전트
+ * 파일 기록/CRC/복구는 CheckpointWriter 담당
+ */
+final class EnvironmentCheckpoint {
+    static final int STATE_VERSION = 4;
+
+    private EnvironmentCheckpoint() {}
+
+    /**
+     * 학습 상태 전체를 하나의 ByteBuffer로 직렬화 (flip된 상태로 반환)
+     * RNG는 내부 시드를 읽을 수 없으므로 새 시드로 재설정하고 그 시드를 저장
+     */
+    static ByteBuffer snapshot(RLEnvironmentCore env) {
+        long resetSeed = env.resetRandom.nextLong();
+        env.resetRandom.setSeed(resetSeed);
+
+        int n = env.jointStates.size();
+        int size = 4 * 4 + 8 + 1 + 8 + 4 * 4 + 4 * 4 + 3 * 4;
+        for (JointState js : env.jointStates) size += CheckpointWriter.stringBytes(js.name) + 9 * 4;
+        size += 2 * 5 + (env.balanceSensor != null ? env.balanceSensor.stateBytes() : 0)
+                + (env.groundContact != null ? env.groundContact.stateBytes() : 0);
+        size += 1 + (env.history != null ? env.history.stateBytes() : 0);
+        size += env.config.stateBytes() + env.stats.stateBytes() + env.agent.stateBytes();
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(STATE_VERSION);
+        buf.putInt(n);
+        buf.putInt(env.getPolicyObservationDim());
+        buf.putInt(env.episodeCount);
+        buf.putLong(resetSeed);
+
+        // LATENT 행동이면 어떤 프라이어의 잠재 공간인지 기록 (다른 프라이어로는 복원 불가)
+        boolean latent = env.config.actionMode == ActionMode.LATENT && env.motionPrior != null;
+        buf.put((byte) (latent ? 1 : 0));
+        buf.putLong(latent ? env.motionPrior.getSourceStamp() : 0L);
+
+        buf.putInt(env.stepCount);
+        buf.putFloat(env.episodeReward);
+        buf.putFloat(env.lastReward);
+        buf.putFloat(env.episodeTime);
+        buf.putInt(env.referenceMotionIndex);
+        buf.putFloat(env.referenceStartTime);
+        buf.putInt(env.referenceStartState);
+        buf.putFloat(env.prevRootHeight);
+        buf.putFloat(env.prevRootPosition[0]);
+        buf.putFloat(env.prevRootPosition[1]);
+        buf.putFloat(env.prevRootPosition[2]);
+
+        for (JointState js : env.jointStates) {
+            CheckpointWriter.putString(buf, js.name);
+            buf.putFloat(env.state.position[js.id]);
+            buf.putFloat(env.state.velocity[js.id]);
+            buf.putFloat(env.state.torque[js.id]);
+            buf.putFloat(js.minLimit);
+            buf.putFloat(js.maxLimit);
+            buf.putFloat(env.state.target[js.id]);
+            buf.putFloat(env.state.targetVelocity[js.id]);
+            buf.putFloat(js.initialPosition);
+            buf.putFloat(0f); // 예약
+        }
+
+        // 센서 블록: [있음 1B][길이 4B][상태] - 복원 쪽 센서 구성이 달라도 길이로 건너뜀
+        buf.put((byte) (env.balanceSensor != null ? 1 : 0));
+        buf.putInt(env.balanceSensor != null ? env.balanceSensor.stateBytes() : 0);
+        if (env.balanceSensor != null) env.balanceSensor.writeState(buf);
+        buf.put((byte) (env.groundContact != null ? 1 : 0));
+        buf.putInt(env.groundContact != null ? env.groundContact.stateBytes() : 0);
+        if (env.groundContact != null) env.groundContact.writeState(buf);
+
+        buf.put((byte) (env.history != null ? 1 : 0));
+        if (env.history != null) env.history.writeState(buf);
+
+        env.config.writeState(buf);
+        env.stats.writeState(buf);
+        env.agent.writeState(buf);
+
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * snapshot() 결과로 상태 복원. 관절 구성이 다르면 예외
+     * Config를 먼저 적용한 뒤 관측 구성(히스토리)을 다시 만들어 차원을 맞춤
+     */
+    static void restore(RLEnvironmentCore env, ByteBuffer buf) throws IOException {
+        buf = buf.duplicate();
+        if (buf.getInt() != STATE_VERSION) throw new IOException("Unsupported checkpoint version");
+        int n = buf.getInt();
+        int policyDim = buf.getInt();
+        if (n != env.jointStates.size()) {
+            throw new IllegalStateException("Joint count mismatch: " + n + " != " + env.jointStates.size());
+        }
+        int savedEpisodes = buf.getInt();
+        long resetSeed = buf.getLong();
+        boolean savedLatent = buf.get() != 0;
+        long savedPriorStamp = buf.getLong();
+
+        int savedStep = buf.getInt();
+        float savedEpisodeReward = buf.getFloat();
+        float savedLastReward = buf.getFloat();
+        float savedEpisodeTime = buf.getFloat();
+        int savedMotionIndex = buf.getInt();
+        float savedStartTime = buf.getFloat();
+        int savedStartState = buf.getInt();
+        float savedPrevHeight = buf.getFloat();
+        float[] savedPrevRoot = {buf.getFloat(), buf.getFloat(), buf.getFloat()};
+
+        float[] jointData = new float[n * 9];
+        for (int i = 0; i < n; i++) {
+            String name = CheckpointWriter.getString(buf);
+            if (!name.equals(env.jointStates.get(i).name)) {
+                throw new IllegalStateException("Joint mismatch at " + i + ": " + name);
+            }
+            for (int k = 0; k < 9; k++) jointData[i * 9 + k] = buf.getFloat();
+        }
+
+        int balancePos = sensorStatePosition(buf, env.balanceSensor != null ? env.balanceSensor.stateBytes() : -1);
+        int groundPos = sensorStatePosition(buf, env.groundContact != null ? env.groundContact.stateBytes() : -1);
+
+        boolean hasHistory = buf.get() != 0;
+        int historyPos = buf.position();
+        if (hasHistory) {
+            buf.position(historyPos + 4);
+            buf.position(buf.position() + 4 + buf.getInt() * 4);
+        }
+
+        // 임시 객체로 전부 읽고 검증한 뒤에만 반영 (실패 시 현재 상태 유지)
+        Config restoredConfig = new Config();
+        restoredConfig.readState(buf);
+        boolean restoredLatent = restoredConfig.actionMode == ActionMode.LATENT && env.motionPrior != null;
+        if (savedLatent != restoredLatent
+                || (savedLatent && savedPriorStamp != env.motionPrior.getSourceStamp())) {
+            throw new IllegalStateException("Motion prior mismatch: checkpoint "
+                    + (savedLatent ? Long.toHexString(savedPriorStamp) : "none") + ", current "
+                    + (restoredLatent ? Long.toHexString(env.motionPrior.getSourceStamp()) : "none"));
+        }
+        boolean restoredHasHistory = restoredConfig.historyLength > 1 || restoredConfig.includeActionHistory;
+        int restoredObsDim = env.compileObservationLayout(restoredConfig).getSize();
+        int restoredActionDim = env.actionDimFor(restoredConfig);
+        int frame = restoredObsDim + (restoredConfig.includeActionHistory ? restoredActionDim : 0);
+        int restoredDim = restoredHasHistory ? Math.max(1, restoredConfig.historyLength) * frame : restoredObsDim;
+        if (policyDim != restoredDim || hasHistory != restoredHasHistory) {
+            throw new IllegalStateException("Observation layout mismatch: " + policyDim + " != " + restoredDim);
+        }
+
+        Statistics restoredStats = new Statistics();
+        restoredStats.readState(buf);
+        SimpleAgent restoredAgent = new SimpleAgent(restoredActionDim, () -> policyDim);
+        restoredAgent.readState(buf);
+
+        env.config.copyFrom(restoredConfig);
+        env.rebuildObservationLayout();
+        if (env.history != null) {
+            buf.position(historyPos);
+            env.history.readState(buf);
+        }
+        env.stats.copyFrom(restoredStats);
+        env.agent = restoredAgent;
+        env.applyNormalizationMask();
+
+        // 에피소드/관절 상태
+        env.episodeCount = savedEpisodes;
+        env.resetRandom.setSeed(resetSeed);
+        env.stepCount = savedStep;
+        env.episodeReward = savedEpisodeReward;
+        env.lastReward = savedLastReward;
+        env.episodeTime = savedEpisodeTime;
+        env.referenceMotionIndex = savedMotionIndex;
+        env.referenceStartTime = savedStartTime;
+        env.referenceStartState = env.referencePool != null && savedStartState < env.referencePool.size() ? savedStartState : -1;
+        env.prevRootHeight = savedPrevHeight;
+        env.prevRootPosition = savedPrevRoot;
+        env.isDone = false;
+        env.resumePending = true;
+
+        for (int i = 0; i < n; i++) {
+            JointState js = env.jointStates.get(i);
+            env.state.position[js.id] = jointData[i * 9];
+            env.state.velocity[js.id] = jointData[i * 9 + 1];
+            env.state.torque[js.id] = jointData[i * 9 + 2];
+            js.minLimit = jointData[i * 9 + 3];
+            js.maxLimit = jointData[i * 9 + 4];
+            env.state.target[js.id] = jointData[i * 9 + 5];
+            env.state.targetVelocity[js.id] = jointData[i * 9 + 6];
+            js.initialPosition = jointData[i * 9 + 7];
+        }
+
+        // 센서는 저장된 루트 위치/유한 차분 기록을 이어받음 (resetBalance처럼 스폰 지점으로 되돌리지 않음)
+        float[] world = env.updateLinkPoses();
+        if (env.balanceSensor != null) {
+            if (balancePos >= 0) env.balanceSensor.readState(buf.position(balancePos));
+            else env.balanceSensor.reset(world);
+        }
+        if (env.groundContact != null) {
+            if (groundPos >= 0) env.groundContact.readState(buf.position(groundPos));
+            else env.groundContact.reset(world);
+        }
+    }
+
+    /**
+     * 센서 블록을 건너뛰며 상태 시작 위치 반환
+     * @param expected 현재 센서의 상태 크기 (센서 없음 = -1)
+     * @return 저장된 상태가 없거나 크기가 다르면 -1 (그 센서는 현재 자세로 다시 시작)
+     */
+    private static int sensorStatePosition(ByteBuffer buf, int expected) {
+        boolean present = buf.get() != 0;
+        int length = buf.getInt();
+        int start = buf.position();
+        buf.position(start + length);
+        return present && length == expected ? start : -1;
+    }
+}
@@ -0,0 +1,228 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.MassProperties;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
+
+/**
+ * 키네마틱 접지 - FK 링크 위치 → 복셀 바닥 접촉으로 루트 높이/수평 이동 결정 (동역학 없음)
+ *
+ * - 루트는 항상 직립 (회전 없음), 링크 원점이 접촉점
+ * - 공중: 중력으로 낙하 / 바닥을 뚫은 접촉점이 있으면 가장 깊은 만큼 루트를 들어 올림
+ * - 연속 두 스텝 접촉한 점은 미끄러지지 않음 → 그 점들의 루트 상대 수평 이동의 반대로 루트 이동 (보행)
+ * - 좌표: FK는 URDF(z-up, x-forward), 복셀은 마크 월드(y-up) - 렌더러와 같은 축 변환 (x, y, z) → (-y, z, -x)
+ *
+ * 링크 FK는 환경이 스텝당 한 번 계산해 넘김. update()는 할당 없이 접촉점당 복셀 조회 몇 번.
+ */
+final class GroundContactSensor {
+    /** 접촉 판정 높이 여유 (m) */
+    private static final float CONTACT_TOLERANCE = 0.01f;
+    /** 이보다 높은 단차는 벽으로 취급 (접촉 없음) */
+    private static final int MAX_STEP_UP = 2;
+    /** 리셋 시 바닥을 찾는 최대 깊이 (블록) */
+    private static final int MAX_SPAWN_DROP = 64;
+
+    private final KinematicTree tree;
+
+    // 스크래치 (할당 없음)
+    private final float[] offset;      // 링크 원점의 루트 상대 위치 (마크 축) [l*3]
+    private final float[] prevOffset;
+    private final float[] depth;       // 바닥 침투 깊이 (접촉 아님 = -∞)
+    private final boolean[] contact;
+    private final boolean[] prevContact;
+
+    private VoxelOccupancy ground = VoxelOccupancy.flatGround(-1);
+    private double spawnX = 0.5, spawnY = 2, spawnZ = 0.5;
+    private float groundLevel;
+    private double rootX, rootY, rootZ;
+    private float fallSpeed;
+    private int contactCount;
+
+    private GroundContactSensor(KinematicTree tree) {
+        this.tree = tree;
+        int links = tree.getLinkCount();
+        offset = new float[links * 3];
+        prevOffset = new float[links * 3];
+        depth = new float[links];
+        contact = new boolean[links];
+        prevContact = new boolean[links];
+    }
+
+    /**
+     * URDF 모델에서 구성. 트리가 없으면 null
+     */
+    static GroundContactSensor build(URDFModel model) {
+        KinematicTree tree = model != null ? model.getKinematicTree() : null;
+        return tree != null ? new GroundContactSensor(tree) : null;
+    }
+
+    /**
+     * 접촉 월드와 스폰 위치 (다음 reset()부터 적용). 스폰 지점 아래로 처음 만나는 바닥에 내려놓음
+     */
+    void setGround(VoxelOccupancy ground, double x, double y, double z) {
+        this.ground = ground != null ? ground : VoxelOccupancy.EMPTY;
+        spawnX = x;
+        spawnY = y;
+        spawnZ = z;
+    }
+
+    /**
+     * 스폰 지점에 가장 낮은 링크가 바닥에 닿도록 배치 (속도 0, 접촉 기록 초기화)
+     */
+    void reset(float[] world) {
+        readOffsets(world);
+        int bx = (int) Math.floor(spawnX), bz = (int) Math.floor(spawnZ);
+        int top = (int) Math.floor(spawnY);
+        for (int i = 0; i < MAX_SPAWN_DROP && !ground.isSolid(bx, top - 1, bz); i++) top--;
+        groundLevel = top;
+
+        float lowest = 0f;
+        for (int l = 1; l < contact.length; l++) lowest = Math.min(lowest, offset[l * 3 + 1]);
+        rootX = spawnX;
+        rootY = top - lowest;
+        rootZ = spawnZ;
+        fallSpeed = 0f;
+        resolveContacts();
+        System.arraycopy(offset, 0, prevOffset, 0, offset.length);
+        System.arraycopy(contact, 0, prevContact, 0, contact.length);
+    }
+
+    /**
+     * 링크 변환(트리 FK 결과)으로 한 스텝 진행
+     */
+    void update(float[] world, float dt) {
+        readOffsets(world);
+
+        fallSpeed += MassProperties.GRAVITY * dt;
+        rootY -= fallSpeed * dt;
+        if (resolveContacts()) fallSpeed = 0f;
+
+        // 고정된 접촉점 기준 수평 이동
+        float dx = 0f, dz = 0f;
+        int anchored = 0;
+        for (int l = 1; l < contact.length; l++) {
+            if (contact[l] && prevContact[l]) {
+                dx += offset[l * 3] - prevOffset[l * 3];
+                dz += offset[l * 3 + 2] - prevOffset[l * 3 + 2];
+                anchored++;
+            }
+        }
+        if (anchored > 0) {
+            rootX -= dx / anchored;
+            rootZ -= dz / anchored;
+        }
+        System.arraycopy(offset, 0, prevOffset, 0, offset.length);
+        System.arraycopy(contact, 0, prevContact, 0, contact.length);
+    }
+
+    /** 링크 변환 → 링크 원점의 루트 상대 위치 (마크 축) */
+    private void readOffsets(float[] world) {
+        for (int l = 0; l < contact.length; l++) {
+            int t = l * KinematicTree.STRIDE;
+            offset[l * 3] = -world[t + 13];
+            offset[l * 3 + 1] = world[t + 14];
+            offset[l * 3 + 2] = -world[t + 12];
+        }
+    }
+
+    /**
+     * 침투한 만큼 루트를 올리고 접촉 플래그 갱신
+     * @return 바닥에 닿아 있으면 true
+     */
+    private boolean resolveContacts() {
+        float lift = 0f;
+        boolean touching = false;
+        for (int l = 1; l < contact.length; l++) {
+            float d = penetration(l);
+            depth[l] = d;
+            if (d >= -CONTACT_TOLERANCE) {
+                touching = true;
+                lift = Math.max(lift, d);
+            }
+        }
+        rootY += lift;
+        contactCount = 0;
+        for (int l = 1; l < contact.length; l++) {
+            contact[l] = depth[l] - lift >= -CONTACT_TOLERANCE;
+            if (contact[l]) contactCount++;
+        }
+        return touching;
+    }
+
+    /**
+     * 링크 l 원점의 바닥 침투 깊이 (블록 윗면 - 점 높이). 여유 안의 바닥이 없거나 벽이면 -∞
+     */
+    private float penetration(int l) {
+        double px = rootX + offset[l * 3];
+        double py = rootY + offset[l * 3 + 1];
+        double pz = rootZ + offset[l * 3 + 2];
+        int bx = (int) Math.floor(px), bz = (int) Math.floor(pz);
+        int by = (int) Math.floor(py - CONTACT_TOLERANCE);
+        if (!ground.isSolid(bx, by, bz)) return Float.NEGATIVE_INFINITY;
+        int top = by + 1;
+        for (int i = 0; i < MAX_STEP_UP && ground.isSolid(bx, top, bz); i++) top++;
+        if (ground.isSolid(bx, top, bz)) return Float.NEGATIVE_INFINITY;
+        return (float) (top - py);
+    }
+
+    // ========== 상태 직렬화 (체크포인트) ==========
+
+    /** 루트/스폰 위치, 낙하 속도, 직전 스텝 접촉 기록 (접촉 월드 자체는 저장하지 않음 - setGround로 다시 지정) */
+    int stateBytes() {
+        return 4 + 6 * 8 + 3 * 4 + prevOffset.length * 4 + contact.length * 2;
+    }
+
+    void writeState(java.nio.ByteBuffer buf) {
+        buf.putInt(contact.length);
+        buf.putDouble(rootX);
+        buf.putDouble(rootY);
+        buf.putDouble(rootZ);
+        buf.putDouble(spawnX);
+        buf.putDouble(spawnY);
+        buf.putDouble(spawnZ);
+        buf.putFloat(groundLevel);
+        buf.putFloat(fallSpeed);
+        buf.putInt(contactCount);
+        for (float v : prevOffset) buf.putFloat(v);
+        for (int l = 0; l < contact.length; l++) {
+            buf.put((byte) (contact[l] ? 1 : 0));
+            buf.put((byte) (prevContact[l] ? 1 : 0));
+        }
+    }
+
+    void readState(java.nio.ByteBuffer buf) {
+        int links = buf.getInt();
+        if (links != contact.length) throw new IllegalStateException("Link count mismatch: " + links + " != " + contact.length);
+        rootX = buf.getDouble();
+        rootY = buf.getDouble();
+        rootZ = buf.getDouble();
+        spawnX = buf.getDouble();
+        spawnY = buf.getDouble();
+        spawnZ = buf.getDouble();
+        groundLevel = buf.getFloat();
+        fallSpeed = buf.getFloat();
+        contactCount = buf.getInt();
+        for (int i = 0; i < prevOffset.length; i++) prevOffset[i] = buf.getFloat();
+        for (int l = 0; l < contact.length; l++) {
+            contact[l] = buf.get() != 0;
+            prevContact[l] = buf.get() != 0;
+        }
+    }
+
+    /**
+     * 루트 위치 → out (x, z는 스폰 기준, y는 스폰 바닥 기준 높이)
+     */
+    float[] getRootPosition(float[] out) {
+        out[0] = (float) (rootX - spawnX);
+        out[1] = (float) (rootY - groundLevel);
+        out[2] = (float) (rootZ - spawnZ);
+        return out;
+    }
+
+    int getContactCount() { return contactCount; }
+
+    boolean isInContact(int link) { return contact[link]; }
+
+    KinematicTree getTree() { return tree; }
+}
@@ -0,0 +1,355 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import com.kAIS.KAIMyEntity.urdf.vmd.VMDLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PCA 모션 프라이어 - 리타게팅된 VMD 포즈의 주성분으로 저차원 행동 공간 구성
+ *
+ * - 오프라인: 모든 모션을 sampleDt 간격으로 샘플링 → 관절 공분산 → 야코비 고유분해 → 상위 k축
+ * - 행동: 잠재 계수 z ∈ [-1, 1]^k, 축 i 방향으로 ±range·σ_i
+ * - 디코드: q = mean + B·z (B = J×k 평탄 행렬, 미리 계산), 할당 없음
+ *
+ * 파일 (KAIMyEntity/priors/{로봇}.kpca): MAGIC | version | 출처 스탬프 | 관절 이름 | mean | B | 고유값
+ * 출처 스탬프 = VMD 파일 이름/크기/수정 시각 해시 → 라이브러리가 바뀌면 다시 계산
+ */
+public final class MotionPrior {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGIC = 0x4B504341; // "KPCA"
+    private static final int VERSION = 1;
+    private static final int JACOBI_SWEEPS = 50;
+
+    private final String[] jointNames;
+    private final int jointCount;
+    private final int latentDim;
+    private final float[] mean;
+    private final float[] basis;       // [j * latentDim + i]
+    private final float[] eigenvalues; // 상위 k개 (내림차순)
+    private final float totalVariance;
+    private final long sourceStamp;
+
+    private MotionPrior(String[] jointNames, int latentDim, float[] mean, float[] basis,
+                        float[] eigenvalues, float totalVariance, long sourceStamp) {
+        this.jointNames = jointNames;
+        this.jointCount = jointNames.length;
+        this.latentDim = latentDim;
+        this.mean = mean;
+        this.basis = basis;
+        this.eigenvalues = eigenvalues;
+        this.totalVariance = totalVariance;
+        this.sourceStamp = sourceStamp;
+    }
+
+    // ========== 오프라인 계산 ==========
+
+    /**
+     * 모션 목록으로 PCA 기저 계산
+     *
+     * @param fallback       모션에 없는 관절 기본값
+     * @param lower          관절 하한 (샘플 클램프)
+     * @param upper          관절 상한
+     * @param sampleDt       샘플링 간격 (초)
+     * @param latentDim      잠재 차원 (<= 0이면 varianceTarget으로 결정)
+     * @param varianceTarget 누적 설명 분산 목표 (latentDim <= 0일 때)
+     * @param range          z = ±1이 대응하는 표준편차 배수
+     * @return 샘플이 2개 미만이면 null
+     */
+    public static MotionPrior fit(List<URDFMotion> motions, List<String> jointNames,
+                                  float[] fallback, float[] lower, float[] upper,
+                                  float sampleDt, int latentDim, float varianceTarget, float range,
+                                  long sourceStamp) {
+        int n = jointNames.size();
+        if (n == 0 || sampleDt <= 0f) return null;
+
+        // 스트리밍 평균/공분산 (포즈를 저장하지 않음)
+        double[] sum = new double[n];
+        double[] outer = new double[n * n];
+        float[] pose = new float[n];
+        long samples = 0;
+
+        for (URDFMotion m : motions) {
+            if (m == null || m.keys.isEmpty()) continue;
+            float duration = m.duration();
+            int frames = Math.max(1, (int) Math.floor(duration / sampleDt) + 1);
+            for (int f = 0; f < frames; f++) {
+                m.samplePose(Math.min(f * sampleDt, duration), jointNames, fallback, pose, 0);
+                for (int a = 0; a < n; a++) {
+                    float q = Math.max(lower[a], Math.min(upper[a], pose[a]));
+                    pose[a] = q;
+                    sum[a] += q;
+                }
+                for (int a = 0; a < n; a++) {
+                    double qa = pose[a];
+                    int row = a * n;
+                    for (int b = a; b < n; b++) outer[row + b] += qa * pose[b];
+                }
+                samples++;
+            }
+        }
+        if (samples < 2) {
+            logger.warn("MotionPrior: not enough poses ({})", samples);
+            return null;
+        }
+
+        double[] mu = new double[n];
+        for (int a = 0; a < n; a++) mu[a] = sum[a] / samples;
+        double[] cov = new double[n * n];
+        for (int a = 0; a < n; a++) {
+            for (int b = a; b < n; b++) {
+                double c = (outer[a * n + b] - samples * mu[a] * mu[b]) / (samples - 1);
+                cov[a * n + b] = c;
+                cov[b * n + a] = c;
+            }
+        }
+
+        double[] vectors = new double[n * n]; // 열 = 고유벡터
+        double[] values = jacobiEigen(cov, vectors, n);
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(values[y], values[x]));
+
+        double total = 0;
+        for (double v : values) total += Math.max(0, v);
+
+        int k = latentDim;
+        if (k <= 0) {
+            double acc = 0;
+            k = 0;
+            while (k < n && (total <= 0 || acc / total < varianceTarget)) {
+                acc += Math.max(0, values[order[k]]);
+                k++;
+            }
+        }
+        k = Math.max(1, Math.min(n, k));
+
+        float[] mean = new float[n];
+        for (int a = 0; a < n; a++) mean[a] = (float) mu[a];
+        float[] basis = new float[n * k];
+        float[] eig = new float[k];
+        for (int i = 0; i < k; i++) {
+            int col = order[i];
+            double lambda = Math.max(0, values[col]);
+            eig[i] = (float) lambda;
+            double s = range * Math.sqrt(lambda);
+            for (int a = 0; a < n; a++) basis[a * k + i] = (float) (vectors[a * n + col] * s);
+        }
+
+        MotionPrior prior = new MotionPrior(jointNames.toArray(new String[0]), k, mean, basis, eig,
+                (float) total, sourceStamp);
+        logger.info("MotionPrior: {} poses, {} joints -> {} latent ({}% variance)",
+                samples, n, k, String.format("%.1f", prior.getExplainedVarianceRatio() * 100));
+        return prior;
+    }
+
+    /**
+     * 대칭 행렬 고유분해 (순환 야코비). a는 파괴됨
+     * @param vectors 출력, 열 = 고유벡터
+     * @return 고유값 (정렬 안 됨)
+     */
+    private static double[] jacobiEigen(double[] a, double[] vectors, int n) {
+        Arrays.fill(vectors, 0);
+        for (int i = 0; i < n; i++) vectors[i * n + i] = 1;
+
+        for (int sweep = 0; sweep < JACOBI_SWEEPS; sweep++) {
+            double off = 0;
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) off += a[p * n + q] * a[p * n + q];
+            }
+            if (off < 1e-20) break;
+
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double apq = a[p * n + q];
+                    if (Math.abs(apq) < 1e-30) continue;
+                    double theta = (a[q * n + q] - a[p * n + p]) / (2 * apq);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0) t = 1;
+                    double c = 1 / Math.sqrt(t * t + 1);
+                    double s = t * c;
+
+                    for (int r = 0; r < n; r++) {
+                        double arp = a[r * n + p], arq = a[r * n + q];
+                        a[r * n + p] = c * arp - s * arq;
+                        a[r * n + q] = s * arp + c * arq;
+                    }
+                    for (int r = 0; r < n; r++) {
+                        double apr = a[p * n + r], aqr = a[q * n + r];
+                        a[p * n + r] = c * apr - s * aqr;
+                        a[q * n + r] = s * apr + c * aqr;
+                    }
+                    for (int r = 0; r < n; r++) {
+                        double vrp = vectors[r * n + p], vrq = vectors[r * n + q];
+                        vectors[r * n + p] = c * vrp - s * vrq;
+                        vectors[r * n + q] = s * vrp + c * vrq;
+                    }
+                }
+            }
+        }
+
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = a[i * n + i];
+        return values;
+    }
+
+    /**
+     * VMD 라이브러리 폴더의 모든 *.vmd를 로봇에 리타게팅해 PCA 계산
+     * cacheFile이 같은 출처 스탬프로 이미 있으면 그것을 읽음
+     */
+    public static MotionPrior fromLibrary(File vmdDir, URDFModel robot, List<String> jointNames,
+                                          float[] fallback, float[] lower, float[] upper,
+                                          float sampleDt, int latentDim, float varianceTarget, float range,
+                                          Path cacheFile) {
+        File[] files = vmdDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".vmd"));
+        if (files == null || files.length == 0) {
+            logger.warn("MotionPrior: no VMD files in {}", vmdDir);
+            return null;
+        }
+        Arrays.sort(files);
+
+        long stamp = 1125899906842597L;
+        for (File f : files) {
+            stamp = 31 * stamp + f.getName().hashCode();
+            stamp = 31 * stamp + f.length();
+            stamp = 31 * stamp + f.lastModified();
+        }
+        stamp = 31 * stamp + Float.floatToIntBits(sampleDt);
+        stamp = 31 * stamp + latentDim;
+        stamp = 31 * stamp + Float.floatToIntBits(varianceTarget);
+        stamp = 31 * stamp + Float.floatToIntBits(range);
+
+        if (cacheFile != null && Files.exists(cacheFile)) {
+            MotionPrior cached = load(cacheFile);
+            if (cached != null && cached.sourceStamp == stamp && cached.matches(jointNames)) {
+                logger.info("MotionPrior: using cached {}", cacheFile.getFileName());
+                return cached;
+            }
+        }
+
+        List<URDFMotion> motions = new ArrayList<>();
+        for (File f : files) {
+            URDFMotion m = VMDLoader.load(f, robot);
+            if (m != null) motions.add(m);
+        }
+        MotionPrior prior = fit(motions, jointNames, fallback, lower, upper,
+                sampleDt, latentDim, varianceTarget, range, stamp);
+        if (prior != null && cacheFile != null) {
+            try {
+                prior.save(cacheFile);
+            } catch (IOException e) {
+                logger.warn("MotionPrior: cache not written: {}", e.getMessage());
+            }
+        }
+        return prior;
+    }
+
+    // ========== 디코드 ==========
+
+    /**
+     * 잠재 계수 → 관절 목표 (out[0 .. jointCount)), 할당 없음
+     */
+    public void decode(float[] z, int offset, float[] out) {
+        int k = latentDim;
+        for (int j = 0; j < jointCount; j++) {
+            float v = mean[j];
+            int row = j * k;
+            for (int i = 0; i < k; i++) v += basis[row + i] * z[offset + i];
+            out[j] = v;
+        }
+    }
+
+    /**
+     * 관절 포즈 → 잠재 계수 (직교 기저 투영, 모방 목표 변환 등)
+     */
+    public void encode(float[] q, float[] out, int offset) {
+        int k = latentDim;
+        for (int i = 0; i < k; i++) {
+            double dot = 0, norm = 0;
+            for (int j = 0; j < jointCount; j++) {
+                float b = basis[j * k + i];
+                dot += b * (q[j] - mean[j]);
+                norm += b * b;
+            }
+            out[offset + i] = norm > 0 ? (float) (dot / norm) : 0f;
+        }
+    }
+
+    public boolean matches(List<String> names) {
+        if (names.size() != jointCount) return false;
+        for (int i = 0; i < jointCount; i++) {
+            if (!jointNames[i].equals(names.get(i))) return false;
+        }
+        return true;
+    }
+
+    // ========== 저장/로드 ==========
+
+    public void save(Path file) throws IOException {
+        int size = 4 + 4 + 8 + 4 + 4 + 4;
+        for (String name : jointNames) size += CheckpointWriter.stringBytes(name);
+        size += (4 + mean.length * 4) + (4 + basis.length * 4) + (4 + eigenvalues.length * 4);
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(sourceStamp);
+        buf.putInt(jointCount).putInt(latentDim).putFloat(totalVariance);
+        for (String name : jointNames) CheckpointWriter.putString(buf, name);
+        CheckpointWriter.putFloats(buf, mean);
+        CheckpointWriter.putFloats(buf, basis);
+        CheckpointWriter.putFloats(buf, eigenvalues);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, buf.array());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** 읽기 실패/형식 불일치 시 null */
+    public static MotionPrior load(Path file) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long stamp = buf.getLong();
+            int n = buf.getInt();
+            int k = buf.getInt();
+            float total = buf.getFloat();
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) names[i] = CheckpointWriter.getString(buf);
+            float[] mean = CheckpointWriter.getFloats(buf);
+            float[] basis = CheckpointWriter.getFloats(buf);
+            float[] eig = CheckpointWriter.getFloats(buf);
+            if (mean.length != n || basis.length != n * k || eig.length != k) return null;
+            return new MotionPrior(names, k, mean, basis, eig, total, stamp);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("MotionPrior: failed to read {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public int getLatentDim() { return latentDim; }
+    public int getJointCount() { return jointCount; }
+
+    /** 출처 스탬프 (VMD 파일 목록 + 계산 설정 해시) - 체크포인트가 같은 프라이어로 학습됐는지 확인용 */
+    public long getSourceStamp() { return sourceStamp; }
+
+    /** 상위 k축이 설명하는 분산 비율 */
+    public float getExplainedVarianceRatio() {
+        if (totalVariance <= 0) return 1f;
+        float sum = 0;
+        for (float e : eigenvalues) sum += e;
+        return sum / totalVariance;
+    }
+}
@@ -0,0 +1,312 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import com.kAIS.KAIMyEntity.urdf.control.BlockCollisionManager;
+import net.minecraft.world.level.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 멀티 에이전트 환경 - 여러 로봇이 하나의 물리 월드와 블록 충돌 영역을 공유
+ *
+ * - 에이전트마다 독립 RLEnvironmentCore (관절/보상/에피소드 상태 분리)
+ * - 관측/행동은 하나의 평탄 버퍼에 에이전트별 구간으로 배치
+ *     observations[getObservationOffset(i) .. + getObservationDim(i))
+ *     actions[getActionOffset(i) .. + getActionDim(i))
+ * - 보상/종료는 에이전트별 배열 (rewards[i], dones[i])
+ * - 물리 월드 step은 틱당 1회, 블록 충돌 스캔은 전 에이전트를 덮는 영역 하나
+ *
+ * 사용:
+ *   fromRenderers(틱 루프의 모델 목록) 또는 addAgent()로 구성
+ *   외부 정책 → actions 채움 → step(dt) → observations/rewards/dones 읽기
+ *   내장 에이전트 → startTraining(mode) 후 매 틱 tick(dt)
+ */
+public class MultiAgentEnvironment {
+    private static final Logger logger = LogManager.getLogger();
+
+    /** 에이전트 바깥으로 더 스캔할 블록 수 */
+    private static final int COLLISION_MARGIN = 4;
+    /** BlockCollisionManager 스캔 반경 상한 */
+    private static final int MAX_SCAN_RADIUS = 16;
+
+    private final List<RLEnvironmentCore> envs = new ArrayList<>();
+    private final List<URDFModelOpenGLWithSTL> renderers = new ArrayList<>();
+
+    // 에이전트별 월드 기준 위치 (충돌 영역 계산용) [i*3 + {x,y,z}]
+    private double[] anchors = new double[0];
+
+    // 평탄 버퍼 레이아웃
+    private int[] obsOffsets = new int[0];
+    private int[] actionOffsets = new int[0];
+    private float[] observations = new float[0];
+    private float[] actions = new float[0];
+    private float[] rewards = new float[0];
+    private boolean[] dones = new boolean[0];
+
+    // 공유 블록 충돌 (지연 생성)
+    private BlockCollisionManager collision;
+    private boolean spreadWarned = false;
+
+    private Consumer<String> logCallback;
+
+    // ========== 에이전트 구성 ==========
+
+    /**
+     * 렌더러마다 에이전트 하나 (같은 렌더러 중복/초기화 실패는 건너뜀)
+     * 렌더러는 ClientTickLoop처럼 tickUpdateShared로 한 월드에서 함께 업데이트되는 목록이어야 함
+     */
+    public static MultiAgentEnvironment fromRenderers(Collection<URDFModelOpenGLWithSTL> renderers) {
+        MultiAgentEnvironment multi = new MultiAgentEnvironment();
+        for (URDFModelOpenGLWithSTL renderer : renderers) {
+            if (renderer != null && !multi.renderers.contains(renderer)) multi.addAgent(renderer);
+        }
+        return multi;
+    }
+
+    /**
+     * 로봇 추가 - 독립 환경을 만들어 렌더러에 연결
+     * @return 에이전트 인덱스 (초기화 실패 시 -1)
+     */
+    public int addAgent(URDFModelOpenGLWithSTL renderer) {
+        RLEnvironmentCore env = RLEnvironmentCore.create();
+        int index = envs.size();
+        env.setLogCallback(msg -> log("[agent " + index + "] " + msg));
+        env.initialize(renderer);
+        if (!env.isInitialized()) {
+            log("WARN: agent " + index + " failed to initialize");
+            return -1;
+        }
+
+        envs.add(env);
+        renderers.add(renderer);
+        anchors = Arrays.copyOf(anchors, envs.size() * 3);
+        layout();
+        return index;
+    }
+
+    /**
+     * 모든 에이전트 설정 변경 후 재초기화 (관측 차원이 바뀔 수 있으므로 레이아웃 재계산)
+     */
+    public void configure(Consumer<RLEnvironmentCore.Config> editor) {
+        for (int i = 0; i < envs.size(); i++) {
+            editor.accept(envs.get(i).getConfig());
+            envs.get(i).initialize(renderers.get(i));
+        }
+        layout();
+    }
+
+    public void clear() {
+        for (RLEnvironmentCore env : envs) {
+            env.stopTraining();
+        }
+        envs.clear();
+        renderers.clear();
+        anchors = new double[0];
+        layout();
+    }
+
+    /**
+     * 에이전트별 구간 오프셋 계산 및 평탄 버퍼 할당
+     */
+    private void layout() {
+        int n = envs.size();
+        int[] obsDims = new int[n];
+        int[] actionDims = new int[n];
+        for (int i = 0; i < n; i++) {
+            obsDims[i] = envs.get(i).getPolicyObservationDim();
+            actionDims[i] = envs.get(i).getActionDim();
+        }
+        obsOffsets = new int[n];
+        actionOffsets = new int[n];
+
+        observations = new float[sliceOffsets(obsDims, obsOffsets)];
+        actions = new float[sliceOffsets(actionDims, actionOffsets)];
+        rewards = new float[n];
+        dones = new boolean[n];
+    }
+
+    /**
+     * 에이전트 순서대로 이어 붙인 구간의 시작 오프셋 (offsets[i] = dims[0..i) 합)
+     * @return 전체 길이
+     */
+    static int sliceOffsets(int[] dims, int[] offsets) {
+        int total = 0;
+        for (int i = 0; i < dims.length; i++) {
+            offsets[i] = total;
+            total += dims[i];
+        }
+        return total;
+    }
+
+    // ========== 환경 인터페이스 ==========
+
+    /**
+     * 전 에이전트 리셋
+     * @return 평탄 관측 버퍼 (내부 배열, 복사하지 않음)
+     */
+    public float[] reset() {
+        for (int i = 0; i < envs.size(); i++) {
+            envs.get(i).reset();
+            rewards[i] = 0f;
+            dones[i] = false;
+        }
+        gatherObservations();
+        return observations;
+    }
+
+    /**
+     * 외부 행동으로 한 스텝 - actions 버퍼의 각 구간을 해당 에이전트에 적용
+     * 끝난 에이전트는 개별 자동 리셋 (dones[i] = true로 표시)
+     */
+    public void step(float deltaTime) {
+        for (int i = 0; i < envs.size(); i++) {
+            RLEnvironmentCore env = envs.get(i);
+            rewards[i] = env.step(actions, actionOffsets[i], deltaTime);
+            dones[i] = env.isLastStepDone();
+        }
+        gatherObservations();
+    }
+
+    /**
+     * 내장 에이전트로 한 틱 (각 환경의 tick) 후 평탄 버퍼 갱신
+     */
+    public void tick(float deltaTime) {
+        for (int i = 0; i < envs.size(); i++) {
+            RLEnvironmentCore env = envs.get(i);
+            boolean stepped = env.isTraining() && env.getAgentMode() != RLEnvironmentCore.AgentMode.MANUAL;
+            env.tick(deltaTime);
+            rewards[i] = stepped ? env.getLastReward() : 0f;
+            dones[i] = stepped && env.isLastStepDone();
+        }
+        gatherObservations();
+    }
+
+    /**
+     * 공유 물리 월드 1회 step
+     * ClientTickLoop에 등록되지 않은 로봇만으로 돌릴 때 사용 (등록된 경우 틱 루프가 step)
+     */
+    public void stepWorld(float deltaTime) {
+        URDFModelOpenGLWithSTL.tickUpdateShared(renderers, deltaTime);
+    }
+
+    private void gatherObservations() {
+        for (int i = 0; i < envs.size(); i++) {
+            envs.get(i).writePolicyObservation(observations, obsOffsets[i]);
+        }
+    }
+
+    // ========== 학습 제어 ==========
+
+    public void startTraining(RLEnvironmentCore.AgentMode mode) {
+        for (RLEnvironmentCore env : envs) {
+            env.startTraining(mode);
+        }
+        gatherObservations();
+    }
+
+    public void stopTraining() {
+        for (RLEnvironmentCore env : envs) {
+            env.stopTraining();
+        }
+    }
+
+    /**
+     * 모든 에이전트를 하나의 텔레메트리 파일에 연결 (태그 접두사 agent{i}/)
+     */
+    public void setTelemetry(TrainingTelemetry telemetry) {
+        for (int i = 0; i < envs.size(); i++) {
+            envs.get(i).setTelemetry(telemetry, "agent" + i + "/");
+        }
+    }
+
+    // ========== 공유 블록 충돌 ==========
+
+    /**
+     * 에이전트의 월드 기준 위치 설정 (엔티티 위치 등)
+     */
+    public void setAgentAnchor(int agent, double x, double y, double z) {
+        anchors[agent * 3] = x;
+        anchors[agent * 3 + 1] = y;
+        anchors[agent * 3 + 2] = z;
+    }
+
+    /**
+     * 모든 에이전트를 덮는 하나의 블록 충돌 영역 갱신
+     * - 중심 = 에이전트 기준 위치의 AABB 중심
+     * - 반경 = AABB 반폭 + 여유 (상한 16)
+     */
+    public void updateSharedCollision(Level level) {
+        if (level == null || envs.isEmpty()) return;
+        if (collision == null) {
+            collision = new BlockCollisionManager();
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < envs.size(); i++) {
+            double x = anchors[i * 3], y = anchors[i * 3 + 1], z = anchors[i * 3 + 2];
+            minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+            minZ = Math.min(minZ, z); maxZ = Math.max(maxZ, z);
+        }
+
+        double halfExtent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) * 0.5;
+        int radius = (int) Math.ceil(halfExtent) + COLLISION_MARGIN;
+        if (radius > MAX_SCAN_RADIUS && !spreadWarned) {
+            log("WARN: agents spread too far for one collision region (radius " + radius
+                    + " > " + MAX_SCAN_RADIUS + ")");
+            spreadWarned = true;
+        }
+        collision.setScanRadius(radius);
+        collision.updateCollisionArea(level,
+                (minX + maxX) * 0.5, (minY + maxY) * 0.5, (minZ + maxZ) * 0.5);
+    }
+
+    public void cleanup() {
+        stopTraining();
+        if (collision != null) {
+            collision.cleanup();
+            collision = null;
+        }
+    }
+
+    // ========== 정보 조회 ==========
+
+    public int getAgentCount() { return envs.size(); }
+    public RLEnvironmentCore getEnvironment(int agent) { return envs.get(agent); }
+
+    /** 평탄 관측 버퍼 (내부 배열) */
+    public float[] getObservations() { return observations; }
+    /** 평탄 행동 버퍼 (내부 배열, step() 전에 채움) */
+    public float[] getActions() { return actions; }
+    public float[] getRewards() { return rewards; }
+    public boolean[] getDones() { return dones; }
+
+    public int getObservationOffset(int agent) { return obsOffsets[agent]; }
+    public int getObservationDim(int agent) { return envs.get(agent).getPolicyObservationDim(); }
+    public int getActionOffset(int agent) { return actionOffsets[agent]; }
+    public int getActionDim(int agent) { return envs.get(agent).getActionDim(); }
+    public int getTotalObservationDim() { return observations.length; }
+    public int getTotalActionDim() { return actions.length; }
+
+    public BlockCollisionManager getCollisionManager() { return collision; }
+
+    // ========== 유틸리티 ==========
+
+    public void setLogCallback(Consumer<String> callback) {
+        this.logCallback = callback;
+    }
+
+    private void log(String msg) {
+        logger.info(msg);
+        if (logCallback != null) {
+            logCallback.accept(msg);
+        }
+    }
+}
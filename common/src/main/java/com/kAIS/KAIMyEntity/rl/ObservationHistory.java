@@ -0,0 +1,113 @@
+package com.kAIS.KAIMyEntity.rl;
+
+/**
+ * 관측/행동 히스토리 링 버퍼 (프레임 스태킹용)
+ *
+ * - 프레임 = [관측 obsDim | (옵션) 직전 행동 actionDim]
+ * - 새 프레임은 슬롯에 한 번만 기록, 기존 프레임은 이동하지 않음
+ * - 스택 뷰(오래된 것 → 최신)는 System.arraycopy 최대 2회로 출력 버퍼에 구체화
+ *
+ * 리셋 시 첫 프레임으로 전 슬롯을 채우므로 스택 뷰는 항상 K 프레임 길이.
+ */
+public final class ObservationHistory {
+    private final int length;
+    private final int obsDim;
+    private final int actionDim;
+    private final int frameSize;
+    private final float[] frames;
+
+    /** 다음에 기록할 슬롯 = 가장 오래된 프레임 */
+    private int head = 0;
+
+    /**
+     * @param length    스택할 프레임 수 K (>= 1)
+     * @param obsDim    단일 관측 차원
+     * @param actionDim 행동 히스토리 차원 (0이면 행동 미포함)
+     */
+    public ObservationHistory(int length, int obsDim, int actionDim) {
+        this.length = Math.max(1, length);
+        this.obsDim = obsDim;
+        this.actionDim = Math.max(0, actionDim);
+        this.frameSize = obsDim + this.actionDim;
+        this.frames = new float[this.length * frameSize];
+    }
+
+    /**
+     * 에피소드 시작: 모든 슬롯을 초기 관측(+ 0 행동)으로 채움
+     */
+    public void reset(float[] obs) {
+        head = 0;
+        write(obs, null);
+        for (int k = 1; k < length; k++) {
+            System.arraycopy(frames, 0, frames, k * frameSize, frameSize);
+        }
+        head = 0;
+    }
+
+    /**
+     * 새 프레임 추가 (가장 오래된 슬롯 덮어쓰기)
+     *
+     * @param obs    새 관측 (obsDim)
+     * @param action 이 관측을 만든 행동 (null이면 0)
+     */
+    public void push(float[] obs, float[] action) {
+        write(obs, action);
+    }
+
+    private void write(float[] obs, float[] action) {
+        int base = head * frameSize;
+        System.arraycopy(obs, 0, frames, base, Math.min(obs.length, obsDim));
+
+        if (actionDim > 0) {
+            int a = base + obsDim;
+            if (action != null) {
+                int n = Math.min(action.length, actionDim);
+                System.arraycopy(action, 0, frames, a, n);
+                for (int i = n; i < actionDim; i++) frames[a + i] = 0f;
+            } else {
+                for (int i = 0; i < actionDim; i++) frames[a + i] = 0f;
+            }
+        }
+
+        head = (head + 1) % length;
+    }
+
+    /**
+     * 스택 뷰를 out[offset..offset+getStackedDim())에 기록 (오래된 것 → 최신)
+     * 링이 head에서 끊기므로 [head, K) + [0, head) 두 구간 복사
+     */
+    public void copyStacked(float[] out, int offset) {
+        int tail = (length - head) * frameSize;
+        System.arraycopy(frames, head * frameSize, out, offset, tail);
+        if (head > 0) {
+            System.arraycopy(frames, 0, out, offset + tail, head * frameSize);
+        }
+    }
+
+    // ========== 상태 직렬화 (체크포인트) ==========
+
+    int stateBytes() {
+        return 8 + frames.length * 4;
+    }
+
+    void writeState(java.nio.ByteBuffer buf) {
+        buf.putInt(head);
+        buf.putInt(frames.length);
+        buf.asFloatBuffer().put(frames);
+        buf.position(buf.position() + frames.length * 4);
+    }
+
+    void readState(java.nio.ByteBuffer buf) {
+        int h = buf.getInt();
+        int n = buf.getInt();
+        if (n != frames.length) throw new IllegalStateException("History size mismatch: " + n + " != " + frames.length);
+        buf.asFloatBuffer().get(frames);
+        buf.position(buf.position() + n * 4);
+        head = h;
+    }
+
+    public int getLength() { return length; }
+    public int getFrameSize() { return frameSize; }
+    public int getStackedDim() { return length * frameSize; }
+    public boolean includesActions() { return actionDim > 0; }
+}
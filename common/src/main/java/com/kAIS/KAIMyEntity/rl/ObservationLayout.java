@@ -0,0 +1,158 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 관측 레이아웃 - 선언적 센서 항목 목록을 평탄 배열 구성으로 컴파일
+ *
+ * - Spec: 항목(Term) 이름 / 센서 종류 / 추가 스케일 / 정규화 여부만 선언
+ * - 컴파일 (RLEnvironmentCore.initialize 시 1회): 항목별 오프셋/크기 + 원소별 affine(scale, bias)와 clip 범위
+ * - 채우기: 센서가 원시값을 자기 구간에 쓰고 → apply()가 전 원소에 한 번에 scale/bias/clip 적용
+ *
+ * 소비자 (히스토리 스태커, 정규화, 외부 브리지)는 getSize/getTerms/getElementNames로 구성을 조회.
+ * 센서 추가 = Source 값 + RLEnvironmentCore의 원시값 읽기/스케일 정의 한 곳씩.
+ */
+public final class ObservationLayout {
+
+    /**
+     * 센서 종류 (원시값 출처)
+     */
+    public enum Source {
+        JOINT_POSITION,  // 관절 위치 → 관절 한계 기준 [-1, 1]
+        JOINT_VELOCITY,  // 관절 속도 / maxVelocity
+        ROOT_HEIGHT,     // 루트 높이 → [minHeight, maxHeight] 기준 [0, 1]
+        ROOT_VELOCITY,   // 루트 수평 속도 (x, z) / 목표 속도
+        SPEED_ERROR,     // (목표 속도 - 현재 수평 속도) / 목표 속도
+        COM_POSITION,    // 질량중심 (지지 중심 기준 x, y / 지지면 기준 높이 → 목표 높이 기준)
+        COM_VELOCITY,    // 질량중심 속도 (x, y, z) / maxVelocity
+        ZMP              // ZMP - 지지 중심 (x, y, m)
+    }
+
+    /**
+     * 선언 항목
+     * @param scale     컴파일된 기본 스케일에 곱하는 추가 배율 (양수, clip 범위도 함께 스케일)
+     * @param normalize false면 러닝 정규화를 건너뜀 (이미 범위가 정해진 값 등)
+     */
+    public record TermSpec(String name, Source source, float scale, boolean normalize) {
+        public TermSpec(String name, Source source) {
+            this(name, source, 1f, true);
+        }
+    }
+
+    /**
+     * 컴파일된 항목 (out[offset .. offset + size))
+     */
+    public record Term(String name, Source source, int offset, int size) { }
+
+    /**
+     * 기존 관측 순서 그대로의 기본 Spec
+     */
+    public static List<TermSpec> defaultSpec(boolean includeVelocities) {
+        List<TermSpec> spec = new ArrayList<>();
+        spec.add(new TermSpec("joint_pos", Source.JOINT_POSITION));
+        if (includeVelocities) spec.add(new TermSpec("joint_vel", Source.JOINT_VELOCITY));
+        spec.add(new TermSpec("root_height", Source.ROOT_HEIGHT));
+        spec.add(new TermSpec("root_vel", Source.ROOT_VELOCITY));
+        spec.add(new TermSpec("speed_error", Source.SPEED_ERROR));
+        return spec;
+    }
+
+    // ========== 컴파일 결과 ==========
+
+    private final List<Term> terms;
+    private final String[] elementNames;
+    private final float[] scale;
+    private final float[] bias;
+    private final float[] lower;
+    private final float[] upper;
+    private final boolean[] normalized;
+
+    private ObservationLayout(Builder b) {
+        this.terms = Collections.unmodifiableList(new ArrayList<>(b.terms));
+        int n = b.names.size();
+        this.elementNames = b.names.toArray(new String[0]);
+        this.scale = new float[n];
+        this.bias = new float[n];
+        this.lower = new float[n];
+        this.upper = new float[n];
+        this.normalized = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            float[] e = b.elements.get(i);
+            scale[i] = e[0];
+            bias[i] = e[1];
+            lower[i] = e[2];
+            upper[i] = e[3];
+            normalized[i] = e[4] != 0f;
+        }
+    }
+
+    /**
+     * 원시값 → 관측값 (out[offset .. offset + getSize())에 제자리 적용)
+     */
+    public void apply(float[] out, int offset) {
+        for (int i = 0; i < scale.length; i++) {
+            float v = out[offset + i] * scale[i] + bias[i];
+            out[offset + i] = v < lower[i] ? lower[i] : (v > upper[i] ? upper[i] : v);
+        }
+    }
+
+    public int getSize() { return scale.length; }
+    public List<Term> getTerms() { return terms; }
+    public String[] getElementNames() { return elementNames.clone(); }
+    public String getElementName(int i) { return elementNames[i]; }
+
+    /** 원소별 러닝 정규화 적용 여부 */
+    public boolean isNormalized(int i) { return normalized[i]; }
+
+    public Term findTerm(String name) {
+        for (Term t : terms) {
+            if (t.name().equals(name)) return t;
+        }
+        return null;
+    }
+
+    // ========== 빌더 (RLEnvironmentCore 컴파일용) ==========
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private final List<Term> terms = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<float[]> elements = new ArrayList<>();
+        private TermSpec current;
+        private int termStart;
+
+        Builder begin(TermSpec spec) {
+            end();
+            current = spec;
+            termStart = names.size();
+            return this;
+        }
+
+        /**
+         * 원소 추가: value = clip(raw * scale + bias, lower, upper) × spec.scale (양수)
+         */
+        Builder element(String suffix, float scale, float bias, float lower, float upper) {
+            float s = current.scale();
+            names.add(suffix.isEmpty() ? current.name() : current.name() + "/" + suffix);
+            elements.add(new float[]{scale * s, bias * s, lower * s, upper * s, current.normalize() ? 1f : 0f});
+            return this;
+        }
+
+        private void end() {
+            if (current != null) {
+                terms.add(new Term(current.name(), current.source(), termStart, names.size() - termStart));
+                current = null;
+            }
+        }
+
+        ObservationLayout build() {
+            end();
+            return new ObservationLayout(this);
+        }
+    }
+}
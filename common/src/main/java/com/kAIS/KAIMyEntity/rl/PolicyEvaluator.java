@@ -0,0 +1,292 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 정책 평가 - 고정 정책으로 시드 고정 에피소드 M개를 헤드리스 환경에서 병렬 실행
+ *
+ * - 원본 환경의 스냅샷(가중치/정규화/Config)을 스레드별 환경에 복원, INFERENCE 모드 (탐색 없음, 학습 없음)
+ * - 에피소드 i는 시드 (seed + i)로 리셋 → 스레드 수/실행 순서와 무관하게 같은 결과
+ * - 리턴/길이의 평균, 표준편차, 부트스트랩 백분위 신뢰구간
+ * - JSON 요약 (에피소드별 값 포함) → 다른 빌드/정책 결과와 비교
+ */
+public final class PolicyEvaluator {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * 평가 설정
+     */
+    public static class Settings {
+        public int episodes = 100;
+        public int threads = Runtime.getRuntime().availableProcessors();
+        public long seed = 1L;
+        public float deltaTime = 0.05f;
+        public int bootstrapSamples = 2000;
+        public float confidence = 0.95f;
+    }
+
+    /**
+     * 지표 요약 (ciLow/ciHigh = 평균의 부트스트랩 신뢰구간)
+     */
+    public record Metric(double mean, double std, double ciLow, double ciHigh, double min, double max) { }
+
+    /**
+     * 평가 결과
+     * @param fallRate 최대 길이 전에 끝난(종료 조건) 에피소드 비율
+     */
+    public record Result(int episodes, long seed, Metric episodeReturn, Metric episodeLength, double fallRate,
+                         float[] returns, int[] lengths, long totalSteps, long wallMillis, long policyChecksum) {
+        public double stepsPerSecond() {
+            return wallMillis > 0 ? totalSteps * 1000.0 / wallMillis : 0;
+        }
+    }
+
+    private final Settings settings;
+
+    public PolicyEvaluator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Settings getSettings() { return settings; }
+
+    // ========== 실행 ==========
+
+    /**
+     * 동기 평가 (호출 스레드에서 환경 준비 후 워커 풀에서 실행, 끝날 때까지 대기)
+     */
+    public Result evaluate(RLEnvironmentCore source, URDFModelOpenGLWithSTL renderer) {
+        return evaluateAsync(source, renderer).join();
+    }
+
+    /**
+     * 비동기 평가. 원본 스냅샷과 워커 환경 준비는 호출 스레드(원본 환경 소유 스레드)에서 수행
+     */
+    public CompletableFuture<Result> evaluateAsync(RLEnvironmentCore source, URDFModelOpenGLWithSTL renderer) {
+        if (!source.isInitialized()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Environment not initialized"));
+        }
+        ByteBuffer snapshot = source.snapshotState();
+        long checksum = source.getAgent().policyChecksum();
+        MotionPrior prior = source.getMotionPrior();
+
+        int threads = Math.max(1, Math.min(settings.threads, settings.episodes));
+        List<RLEnvironmentCore> envs = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            RLEnvironmentCore env = RLEnvironmentCore.create();
+            env.setEpisodeLogging(false);
+            env.setRendererSync(false);
+            env.getConfig().copyFrom(source.getConfig());
+            env.setObservationSpec(source.getObservationSpec());
+            env.setMotionPrior(prior);
+            env.initialize(renderer);
+            try {
+                env.restoreState(snapshot);
+            } catch (IOException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            env.startTraining(RLEnvironmentCore.AgentMode.INFERENCE);
+            envs.add(env);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "RL-Evaluator");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Thread main = new Thread(() -> {
+            try {
+                future.complete(run(envs, pool, checksum));
+            } catch (Throwable e) {
+                logger.error("Evaluation failed", e);
+                future.completeExceptionally(e);
+            } finally {
+                pool.shutdown();
+            }
+        }, "RL-Evaluator-Main");
+        main.setDaemon(true);
+        main.start();
+        return future;
+    }
+
+    private Result run(List<RLEnvironmentCore> envs, ExecutorService pool, long checksum) {
+        int m = settings.episodes;
+        float[] returns = new float[m];
+        int[] lengths = new int[m];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (RLEnvironmentCore env : envs) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < m) {
+                    runEpisode(env, settings.seed + i);
+                    returns[i] = env.getStats().getLastEpisodeReward();
+                    lengths[i] = env.getStats().getLastEpisodeLength();
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+
+        long wall = (System.nanoTime() - start) / 1_000_000;
+        long steps = 0;
+        int falls = 0;
+        int maxSteps = envs.get(0).getConfig().maxEpisodeSteps;
+        double[] r = new double[m];
+        double[] l = new double[m];
+        for (int i = 0; i < m; i++) {
+            r[i] = returns[i];
+            l[i] = lengths[i];
+            steps += lengths[i];
+            if (lengths[i] < maxSteps) falls++;
+        }
+
+        Random boot = new Random(settings.seed ^ 0x9E3779B97F4A7C15L);
+        Result result = new Result(m, settings.seed, summarize(r, boot), summarize(l, boot),
+                m > 0 ? (double) falls / m : 0, returns, lengths, steps, wall, checksum);
+        logger.info("Evaluation: {} episodes, return {} [{}, {}], length {} ({} steps/s)", m,
+                fmt(result.episodeReturn().mean()), fmt(result.episodeReturn().ciLow()),
+                fmt(result.episodeReturn().ciHigh()), fmt(result.episodeLength().mean()),
+                fmt(result.stepsPerSecond()));
+        return result;
+    }
+
+    /**
+     * 시드로 리셋 후 에피소드 하나 끝까지 실행 (종료 시 통계에 기록됨)
+     */
+    private void runEpisode(RLEnvironmentCore env, long seed) {
+        env.reseed(seed);
+        env.reset();
+        do {
+            env.tick(settings.deltaTime);
+        } while (!env.isLastStepDone());
+    }
+
+    // ========== 통계 ==========
+
+    private Metric summarize(double[] x, Random random) {
+        int n = x.length;
+        if (n == 0) return new Metric(0, 0, 0, 0, 0, 0);
+
+        double mean = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (double v : x) {
+            mean += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        mean /= n;
+        double var = 0;
+        for (double v : x) var += (v - mean) * (v - mean);
+        double std = n > 1 ? Math.sqrt(var / (n - 1)) : 0;
+
+        // 부트스트랩: 복원 추출 평균의 백분위
+        int b = Math.max(1, settings.bootstrapSamples);
+        double[] means = new double[b];
+        for (int k = 0; k < b; k++) {
+            double s = 0;
+            for (int i = 0; i < n; i++) s += x[random.nextInt(n)];
+            means[k] = s / n;
+        }
+        Arrays.sort(means);
+        double alpha = (1 - settings.confidence) / 2;
+        double lo = means[(int) Math.floor(alpha * (b - 1))];
+        double hi = means[(int) Math.ceil((1 - alpha) * (b - 1))];
+        return new Metric(mean, std, lo, hi, min, max);
+    }
+
+    // ========== JSON 요약 ==========
+
+    /**
+     * 결과를 JSON으로 기록 (tmp → rename)
+     * @param label 비교용 식별자 (빌드/정책 이름 등)
+     */
+    public void writeJson(Result result, String label, Path file) throws IOException {
+        StringBuilder sb = new StringBuilder(256 + result.episodes() * 16);
+        sb.append("{\n");
+        field(sb, "label", quote(label)).append(",\n");
+        field(sb, "timestamp", quote(Instant.now().toString())).append(",\n");
+        field(sb, "episodes", Integer.toString(result.episodes())).append(",\n");
+        field(sb, "seed", Long.toString(result.seed())).append(",\n");
+        field(sb, "delta_time", fmt(settings.deltaTime)).append(",\n");
+        field(sb, "confidence", fmt(settings.confidence)).append(",\n");
+        field(sb, "bootstrap_samples", Integer.toString(settings.bootstrapSamples)).append(",\n");
+        field(sb, "policy_checksum", quote(Long.toHexString(result.policyChecksum()))).append(",\n");
+        field(sb, "return", metricJson(result.episodeReturn())).append(",\n");
+        field(sb, "length", metricJson(result.episodeLength())).append(",\n");
+        field(sb, "fall_rate", fmt(result.fallRate())).append(",\n");
+        field(sb, "total_steps", Long.toString(result.totalSteps())).append(",\n");
+        field(sb, "wall_ms", Long.toString(result.wallMillis())).append(",\n");
+        field(sb, "steps_per_second", fmt(result.stepsPerSecond())).append(",\n");
+
+        StringBuilder arr = new StringBuilder("[");
+        for (int i = 0; i < result.returns().length; i++) {
+            if (i > 0) arr.append(", ");
+            arr.append(fmt(result.returns()[i]));
+        }
+        field(sb, "episode_returns", arr.append(']').toString()).append(",\n");
+        arr.setLength(0);
+        arr.append('[');
+        for (int i = 0; i < result.lengths().length; i++) {
+            if (i > 0) arr.append(", ");
+            arr.append(result.lengths()[i]);
+        }
+        field(sb, "episode_lengths", arr.append(']').toString()).append('\n');
+        sb.append("}\n");
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String metricJson(Metric m) {
+        return String.format(Locale.ROOT,
+                "{\"mean\": %s, \"std\": %s, \"ci_low\": %s, \"ci_high\": %s, \"min\": %s, \"max\": %s}",
+                fmt(m.mean()), fmt(m.std()), fmt(m.ciLow()), fmt(m.ciHigh()), fmt(m.min()), fmt(m.max()));
+    }
+
+    private static StringBuilder field(StringBuilder sb, String name, String value) {
+        return sb.append("  \"").append(name).append("\": ").append(value);
+    }
+
+    private static String quote(String s) {
+        StringBuilder q = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> q.append("\\\"");
+                case '\\' -> q.append("\\\\");
+                case '\n' -> q.append("\\n");
+                default -> {
+                    if (c < 0x20) q.append(String.format("\\u%04x", (int) c));
+                    else q.append(c);
+                }
+            }
+        }
+        return q.append('"').toString();
+    }
+
+    private static String fmt(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return "null";
+        return String.format(Locale.ROOT, "%.6g", v);
+    }
+}
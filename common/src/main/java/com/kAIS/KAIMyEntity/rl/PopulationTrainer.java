@@ -0,0 +1,465 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PBT (Population Based Training) - 헤드리스 환경 집단을 공유 워커 풀에서 학습
+ *
+ * - 멤버마다 독립 RLEnvironmentCore (렌더러는 초기화 때 관절 정보만 읽고 이후 쓰지 않음)
+ * - 작업 단위: 멤버 하나를 stepsPerTask 스텝 진행 → 다시 풀에 제출
+ *   ForkJoinPool 워크 스틸링으로 느린 멤버가 나머지를 막지 않음 (세대 배리어 없음, 비동기 PBT)
+ * - readyInterval 스텝마다 멤버가 자기 평가:
+ *     하위 truncation 비율이면 상위 멤버의 최근 스냅샷을 복사(exploit) → 하이퍼파라미터 섭동(explore)
+ *   복사는 상위 멤버가 자기 스레드에서 게시한 스냅샷으로만 하므로 다른 멤버 환경을 직접 건드리지 않음
+ *
+ * 적합도: 보상 가중치도 섭동하므로 기본은 평균 에피소드 길이 (멤버 간 보상 척도가 다름)
+ *
+ * 기록 (TrainingTelemetry 연결 시):
+ *   member{i}/episode/*       - 멤버별 에피소드 지표 (RLEnvironmentCore와 동일)
+ *   member{i}/pbt/*           - 평가 시점의 적합도/하이퍼파라미터/복사 원본
+ *   pbt/best_fitness 등       - x축 = 집단 누적 스텝 (단일 학습과 같은 CPU 예산에서 비교용)
+ *
+ * GUI: 모션 에디터 "PBT" 버튼으로 시작/정지, 정지 시 최고 멤버를 편집기 환경으로 복사 (exportBest)
+ */
+public final class PopulationTrainer {
+    private static final Logger logger = LogManager.getLogger();
+
+    public enum Objective {
+        EPISODE_LENGTH, // 평균 에피소드 길이 (넘어지지 않고 버틴 스텝)
+        EPISODE_REWARD  // 평균 에피소드 보상 (보상 가중치를 섭동하지 않을 때만 의미 있음)
+    }
+
+    /**
+     * PBT 설정
+     */
+    public static class Settings {
+        public int populationSize = 8;
+        public int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        public float deltaTime = 0.05f;
+        public int stepsPerTask = 500;          // 작업 하나의 스텝 수 (작을수록 스틸링이 고르게)
+        public int readyInterval = 20000;       // 평가/exploit 간격 (멤버 스텝)
+        public float truncationFraction = 0.25f; // 하위/상위 비율
+        public float perturbFactor = 0.2f;      // explore: ×(1 ± factor)
+        public float resampleProbability = 0.25f; // explore: 초기 범위에서 다시 뽑을 확률
+        public float initSpread = 2f;           // 초기값: 기준 × [1/spread, spread] 로그 균등
+        public long stepBudget = 0;             // 집단 누적 스텝 상한 (0 = stop()까지)
+        public Objective objective = Objective.EPISODE_LENGTH;
+        public long seed = 42L;
+    }
+
+    // ========== 하이퍼파라미터 ==========
+
+    private interface Getter { float get(RLEnvironmentCore env); }
+    private interface Setter { void set(RLEnvironmentCore env, float value); }
+
+    private record Hyperparameter(String name, float min, float max, Getter getter, Setter setter) { }
+
+    private static final List<Hyperparameter> HYPERPARAMETERS = List.of(
+        new Hyperparameter("kp", 5f, 500f, e -> e.getConfig().kp, (e, v) -> e.getConfig().kp = v),
+        new Hyperparameter("kd", 0.5f, 50f, e -> e.getConfig().kd, (e, v) -> e.getConfig().kd = v),
+        new Hyperparameter("learning_rate", 1e-5f, 1e-1f,
+            e -> e.getAgent().getLearningRate(), (e, v) -> e.getAgent().setLearningRate(v)),
+        new Hyperparameter("height_reward_weight", 0.05f, 10f,
+            e -> e.getConfig().heightRewardWeight, (e, v) -> e.getConfig().heightRewardWeight = v),
+        new Hyperparameter("speed_match_weight", 0.01f, 5f,
+            e -> e.getConfig().speedMatchWeight, (e, v) -> e.getConfig().speedMatchWeight = v),
+        new Hyperparameter("control_cost_weight", 1e-4f, 1f,
+            e -> e.getConfig().controlCostWeight, (e, v) -> e.getConfig().controlCostWeight = v),
+        new Hyperparameter("symmetry_reward_weight", 0.01f, 2f,
+            e -> e.getConfig().symmetryRewardWeight, (e, v) -> e.getConfig().symmetryRewardWeight = v)
+    );
+
+    // ========== 멤버 ==========
+
+    /**
+     * 집단 구성원. env는 한 번에 하나의 작업만 다루므로 잠금 없음
+     */
+    private static final class Member {
+        final int index;
+        final RLEnvironmentCore env;
+        final Random random;
+
+        long steps = 0;
+        long lastReadySteps = 0;
+        long nanos = 0;
+        int windowEpisodes = 0;
+        double windowSum = 0;
+        int exploits = 0;
+
+        // 다른 멤버 스레드가 읽는 값
+        volatile double fitness = Double.NaN;
+        volatile ByteBuffer published;
+
+        int tagFitness, tagDonor;
+        int[] tagHyper;
+
+        Member(int index, RLEnvironmentCore env, long seed) {
+            this.index = index;
+            this.env = env;
+            this.random = new Random(seed);
+        }
+    }
+
+    /**
+     * 멤버별 결과 (cpuMillis = 이 멤버를 진행하는 데 쓴 워커 시간)
+     */
+    public record MemberResult(int index, double fitness, long steps, long cpuMillis, int exploits,
+                               Map<String, Float> hyperparameters) { }
+
+    private final Settings settings;
+    private final List<Member> members = new ArrayList<>();
+    private final AtomicLong populationSteps = new AtomicLong();
+    private final ConcurrentLinkedQueue<Member> runnable = new ConcurrentLinkedQueue<>();
+    private final Object rankLock = new Object();
+
+    private ForkJoinPool pool;
+    private volatile boolean running = false;
+    private TrainingTelemetry telemetry;
+    private int tagBestFitness, tagMeanFitness;
+    private Consumer<String> logCallback;
+
+    public PopulationTrainer(Settings settings) {
+        this.settings = settings;
+    }
+
+    public void setTelemetry(TrainingTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setLogCallback(Consumer<String> callback) {
+        this.logCallback = callback;
+    }
+
+    // ========== 시작/정지 ==========
+
+    /**
+     * 집단 생성 후 학습 시작 (렌더 스레드에서 호출 - 렌더러에서 관절 정보를 읽음)
+     * @param base 멤버 Config의 기준 (하이퍼파라미터는 여기서 initSpread 범위로 흩뿌림)
+     */
+    public synchronized void start(URDFModelOpenGLWithSTL renderer, RLEnvironmentCore.Config base) {
+        if (running) return;
+        if (!populate(env -> env.initialize(renderer), base)) return;
+
+        pool = new ForkJoinPool(Math.max(1, settings.threads), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("RL-PBT-Worker-" + t.getPoolIndex());
+            return t;
+        }, null, true);
+
+        running = true;
+        for (Member m : members) schedule(m);
+        log(String.format("PBT started: %d members on %d threads", members.size(), pool.getParallelism()));
+    }
+
+    /**
+     * 멤버 환경 생성 + 하이퍼파라미터 흩뿌림 + 학습 시작 (워커 풀은 만들지 않음)
+     * @param initializer 멤버 환경 초기화 (렌더러 또는 헤드리스 모델)
+     * @return 모든 멤버가 초기화됐는지
+     */
+    boolean populate(Consumer<RLEnvironmentCore> initializer, RLEnvironmentCore.Config base) {
+        members.clear();
+        runnable.clear();
+        populationSteps.set(0);
+
+        Random seeder = new Random(settings.seed);
+        for (int i = 0; i < settings.populationSize; i++) {
+            RLEnvironmentCore env = RLEnvironmentCore.create();
+            env.setEpisodeLogging(false);
+            env.setRendererSync(false);
+            env.getConfig().copyFrom(base);
+            initializer.accept(env);
+            if (!env.isInitialized()) {
+                log("ERROR: PBT member " + i + " failed to initialize");
+                return false;
+            }
+
+            Member m = new Member(i, env, seeder.nextLong());
+            env.reseed(m.random.nextLong());
+            // 멤버 0은 기준 설정 그대로 (단일 학습 대조군)
+            if (i > 0) {
+                for (Hyperparameter h : HYPERPARAMETERS) {
+                    float f = (float) Math.pow(settings.initSpread, m.random.nextDouble() * 2 - 1);
+                    h.setter().set(env, clamp(h.getter().get(env) * f, h));
+                }
+            }
+            if (telemetry != null) registerTags(m);
+            env.startTraining(RLEnvironmentCore.AgentMode.LEARNING);
+            members.add(m);
+        }
+        if (telemetry != null) {
+            tagBestFitness = telemetry.tag("pbt/best_fitness");
+            tagMeanFitness = telemetry.tag("pbt/mean_fitness");
+        }
+        return true;
+    }
+
+    /**
+     * 학습 정지 후 멤버별 결과 기록
+     */
+    public synchronized void stop() {
+        if (pool == null) return;
+        running = false;
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("PBT workers did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool = null;
+
+        for (MemberResult r : getResults()) {
+            log(String.format("PBT member %d: fitness=%.2f, steps=%d, cpu=%dms, exploits=%d, %s",
+                    r.index(), r.fitness(), r.steps(), r.cpuMillis(), r.exploits(), r.hyperparameters()));
+        }
+        log("PBT stopped: populationSteps=" + populationSteps.get());
+    }
+
+    /**
+     * stepBudget 도달까지 대기
+     * @return 시간 안에 끝났는지
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (running) {
+            if (System.nanoTime() >= deadline) return false;
+            Thread.sleep(10);
+        }
+        stop();
+        return true;
+    }
+
+    // ========== 워커 작업 ==========
+
+    private void runChunk(Member m) {
+        if (!running) return;
+        RLEnvironmentCore env = m.env;
+        RLEnvironmentCore.Statistics stats = env.getStats();
+
+        long start = System.nanoTime();
+        try {
+            for (int k = 0; k < settings.stepsPerTask; k++) {
+                env.tick(settings.deltaTime);
+                if (env.isLastStepDone()) {
+                    m.windowEpisodes++;
+                    m.windowSum += settings.objective == Objective.EPISODE_LENGTH
+                            ? stats.getLastEpisodeLength() : stats.getLastEpisodeReward();
+                }
+            }
+            m.steps += settings.stepsPerTask;
+
+            if (m.steps - m.lastReadySteps >= settings.readyInterval && m.windowEpisodes > 0) {
+                ready(m);
+            }
+        } catch (RuntimeException e) {
+            logger.error("PBT member {} crashed", m.index, e);
+            log("ERROR: PBT member " + m.index + " stopped: " + e.getMessage());
+            return; // 이 멤버만 탈락, 나머지는 계속
+        } finally {
+            m.nanos += System.nanoTime() - start;
+        }
+
+        long total = populationSteps.addAndGet(settings.stepsPerTask);
+        if (settings.stepBudget > 0 && total >= settings.stepBudget) {
+            running = false;
+            return;
+        }
+        if (running) schedule(m);
+    }
+
+    /**
+     * 멤버를 실행 대기열 끝에 넣고 작업 하나 제출.
+     * 작업은 자기 멤버가 아니라 대기열 맨 앞 멤버를 실행 → 워커 로컬 큐 순서와 무관하게 멤버가 번갈아 돎
+     * (작업 수 = 대기 멤버 수이므로 poll은 항상 성공)
+     */
+    private void schedule(Member m) {
+        runnable.offer(m);
+        ForkJoinPool p = pool;
+        if (p != null) p.execute(this::runNext);
+    }
+
+    private void runNext() {
+        Member m = runnable.poll();
+        if (m != null) runChunk(m);
+    }
+
+    private void ready(Member m) {
+        double fitness = m.windowSum / m.windowEpisodes;
+        m.windowSum = 0;
+        m.windowEpisodes = 0;
+        m.lastReadySteps = m.steps;
+        evaluate(m, fitness);
+    }
+
+    /**
+     * 멤버 index가 주어진 적합도로 평가 시점에 도달한 것처럼 처리 (그 멤버의 작업이 돌지 않을 때만 호출)
+     * @return 복사 원본 멤버 번호 (복사하지 않았으면 -1)
+     */
+    int evaluate(int index, double fitness) {
+        Member donor = evaluate(members.get(index), fitness);
+        return donor != null ? donor.index : -1;
+    }
+
+    /**
+     * 평가 시점: 적합도 갱신 → 스냅샷 게시 → 하위권이면 exploit/explore
+     * @return 복사 원본 (없으면 null)
+     */
+    private Member evaluate(Member m, double fitness) {
+        m.fitness = fitness;
+        m.published = m.env.snapshotState();
+
+        Member donor = null;
+        double best = Double.NEGATIVE_INFINITY, sum = 0;
+        int ranked = 0;
+        synchronized (rankLock) {
+            List<Member> order = new ArrayList<>();
+            for (Member o : members) {
+                if (!Double.isNaN(o.fitness) && o.published != null) order.add(o);
+            }
+            order.sort((a, b) -> Double.compare(b.fitness, a.fitness));
+            ranked = order.size();
+            for (Member o : order) sum += o.fitness;
+            if (ranked > 0) best = order.get(0).fitness;
+
+            int cut = Math.max(1, (int) (ranked * settings.truncationFraction));
+            int rank = order.indexOf(m);
+            if (ranked >= 2 && rank >= ranked - cut) {
+                Member candidate = order.get(m.random.nextInt(Math.min(cut, ranked - 1)));
+                if (candidate.fitness > m.fitness) donor = candidate;
+            }
+        }
+
+        if (donor != null) exploit(m, donor);
+
+        if (telemetry != null) {
+            long step = populationSteps.get();
+            telemetry.scalar(m.tagFitness, m.steps, m.fitness);
+            for (int i = 0; i < HYPERPARAMETERS.size(); i++) {
+                telemetry.scalar(m.tagHyper[i], m.steps, HYPERPARAMETERS.get(i).getter().get(m.env));
+            }
+            telemetry.scalar(tagBestFitness, step, best);
+            telemetry.scalar(tagMeanFitness, step, sum / Math.max(1, ranked));
+        }
+        return donor;
+    }
+
+    /**
+     * 상위 멤버의 게시된 스냅샷(가중치/정규화/Config/통계)을 복사한 뒤 하이퍼파라미터 섭동
+     */
+    private void exploit(Member m, Member donor) {
+        ByteBuffer snapshot = donor.published;
+        double donorFitness = donor.fitness;
+        try {
+            m.env.restoreState(snapshot);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("PBT exploit {} <- {} failed: {}", m.index, donor.index, e.getMessage());
+            return;
+        }
+
+        for (Hyperparameter h : HYPERPARAMETERS) {
+            float v;
+            if (m.random.nextFloat() < settings.resampleProbability) {
+                double lo = Math.log(h.min()), hi = Math.log(h.max());
+                v = (float) Math.exp(lo + m.random.nextDouble() * (hi - lo));
+            } else {
+                float f = m.random.nextBoolean() ? 1f + settings.perturbFactor : 1f - settings.perturbFactor;
+                v = h.getter().get(m.env) * f;
+            }
+            h.setter().set(m.env, clamp(v, h));
+        }
+
+        m.env.reseed(m.random.nextLong());
+        m.env.reset();
+        m.exploits++;
+        // 복사 직후 적합도는 원본 것 (다음 평가 전까지 곧바로 다시 복사되지 않도록)
+        m.fitness = donorFitness;
+        m.published = null;
+
+        if (telemetry != null) telemetry.scalar(m.tagDonor, m.steps, donor.index);
+        logger.debug("PBT member {} <- member {} (fitness {})", m.index, donor.index, donorFitness);
+    }
+
+    private void registerTags(Member m) {
+        String prefix = "member" + m.index + "/";
+        m.env.setTelemetry(telemetry, prefix);
+        m.tagFitness = telemetry.tag(prefix + "pbt/fitness");
+        m.tagDonor = telemetry.tag(prefix + "pbt/exploit_from");
+        m.tagHyper = new int[HYPERPARAMETERS.size()];
+        for (int i = 0; i < HYPERPARAMETERS.size(); i++) {
+            m.tagHyper[i] = telemetry.tag(prefix + "pbt/" + HYPERPARAMETERS.get(i).name());
+        }
+    }
+
+    private static float clamp(float v, Hyperparameter h) {
+        return Math.max(h.min(), Math.min(h.max(), v));
+    }
+
+    // ========== 결과 ==========
+
+    /**
+     * 멤버별 결과 (적합도 내림차순). 실행 중에는 근사값
+     */
+    public List<MemberResult> getResults() {
+        List<MemberResult> results = new ArrayList<>();
+        for (Member m : members) {
+            Map<String, Float> hyper = new LinkedHashMap<>();
+            for (Hyperparameter h : HYPERPARAMETERS) hyper.put(h.name(), h.getter().get(m.env));
+            results.add(new MemberResult(m.index, m.fitness, m.steps, m.nanos / 1_000_000, m.exploits, hyper));
+        }
+        results.sort((a, b) -> Double.compare(
+                Double.isNaN(b.fitness()) ? Double.NEGATIVE_INFINITY : b.fitness(),
+                Double.isNaN(a.fitness()) ? Double.NEGATIVE_INFINITY : a.fitness()));
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * 최고 멤버의 게시된 스냅샷을 다른 환경(보통 GUI 싱글톤)에 복사
+     * @return 복사 여부
+     */
+    public boolean exportBest(RLEnvironmentCore target) {
+        Member best = null;
+        for (Member m : members) {
+            if (m.published != null && (best == null || m.fitness > best.fitness)) best = m;
+        }
+        if (best == null) return false;
+        try {
+            target.restoreState(best.published);
+            log(String.format("PBT best member %d exported (fitness %.2f)", best.index, best.fitness));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log("WARN: PBT export failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean isRunning() { return running; }
+    public long getPopulationSteps() { return populationSteps.get(); }
+    public int getPopulationSize() { return members.size(); }
+    RLEnvironmentCore getMemberEnvironment(int index) { return members.get(index).env; }
+    public Settings getSettings() { return settings; }
+
+    private void log(String msg) {
+        logger.info(msg);
+        if (logCallback != null) {
+            logCallback.accept(msg);
+        }
+    }
+}
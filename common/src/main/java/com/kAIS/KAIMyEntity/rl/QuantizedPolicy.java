@@ -0,0 +1,191 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * int8 양자화 정책 추론 (SimpleAgent 선형 tanh 정책용)
+ *
+ * - 가중치: 출력 채널별 대칭 스케일 (scale_j = max|w_ij| / 127), 채널마다 입력 방향 연속 배치
+ * - 입력: 호출마다 동적 대칭 양자화 (정규화를 먼저 적용한 뒤 max|x| / 127)
+ * - 누산: int8 × int8 → int32, 출력 = tanh(acc · s_x · scale_j)
+ * - 배치: 로봇 여러 대의 관측을 한 번에 처리 (가중치가 캐시에 남아 있는 동안 연속 실행)
+ *
+ * 내부 루프는 분기 없는 단순 byte 곱-합이라 C2 자동 벡터화 대상.
+ * 추론 전용: 가중치/정규화 통계는 생성 시점 값으로 고정.
+ */
+public final class QuantizedPolicy {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final int obsDim;
+    private final int actionDim;
+    private final byte[] weights;  // [j * obsDim + i]
+    private final float[] scales;  // 출력 채널별
+
+    // 정규화 (고정 통계, 비활성이면 null)
+    private final float[] normMean;
+    private final float[] normInvStd;
+    private final float[] normLow;
+    private final float[] normHigh;
+
+    // 스크래치 (인스턴스당 한 스레드)
+    private final float[] xf;
+    private final byte[] xq;
+
+    private QuantizedPolicy(float[][] w, RunningNormalizer normalizer, boolean normalize) {
+        this.obsDim = w.length;
+        this.actionDim = obsDim > 0 ? w[0].length : 0;
+        this.weights = new byte[obsDim * actionDim];
+        this.scales = new float[actionDim];
+        this.xf = new float[obsDim];
+        this.xq = new byte[obsDim];
+
+        for (int j = 0; j < actionDim; j++) {
+            float max = 0f;
+            for (int i = 0; i < obsDim; i++) max = Math.max(max, Math.abs(w[i][j]));
+            float scale = max > 0 ? max / 127f : 1f;
+            scales[j] = scale;
+            int base = j * obsDim;
+            for (int i = 0; i < obsDim; i++) {
+                weights[base + i] = (byte) Math.max(-127, Math.min(127, Math.round(w[i][j] / scale)));
+            }
+        }
+
+        if (normalize && normalizer != null && normalizer.getDim() == obsDim) {
+            normMean = new float[obsDim];
+            normInvStd = new float[obsDim];
+            normLow = new float[obsDim];
+            normHigh = new float[obsDim];
+            normalizer.exportAffine(normMean, normInvStd, normLow, normHigh);
+        } else {
+            normMean = normInvStd = normLow = normHigh = null;
+        }
+    }
+
+    /**
+     * 에이전트의 현재 가중치/정규화 통계로 생성
+     */
+    public static QuantizedPolicy fromAgent(RLEnvironmentCore.SimpleAgent agent) {
+        return new QuantizedPolicy(agent.weights(), agent.getObservationNormalizer(), agent.isNormalizingObservations());
+    }
+
+    // ========== 추론 ==========
+
+    /**
+     * 관측 하나 → 행동 (out[outOffset .. + actionDim)), 할당 없음
+     */
+    public void act(float[] obs, int obsOffset, float[] out, int outOffset) {
+        // 1. 정규화 + max|x| (float 한 번 순회)
+        float max = 0f;
+        if (normMean != null) {
+            for (int i = 0; i < obsDim; i++) {
+                float v = (obs[obsOffset + i] - normMean[i]) * normInvStd[i];
+                v = v < normLow[i] ? normLow[i] : (v > normHigh[i] ? normHigh[i] : v);
+                xf[i] = v;
+                max = Math.max(max, Math.abs(v));
+            }
+        } else {
+            for (int i = 0; i < obsDim; i++) {
+                float v = obs[obsOffset + i];
+                xf[i] = v;
+                max = Math.max(max, Math.abs(v));
+            }
+        }
+
+        // 2. 입력 양자화
+        float sx = max > 0 ? max / 127f : 1f;
+        float inv = 1f / sx;
+        for (int i = 0; i < obsDim; i++) {
+            xq[i] = (byte) Math.round(xf[i] * inv);
+        }
+
+        // 3. int8 × int8 → int32 누산, 채널 스케일로 복원
+        for (int j = 0; j < actionDim; j++) {
+            int base = j * obsDim;
+            int acc = 0;
+            for (int i = 0; i < obsDim; i++) {
+                acc += xq[i] * weights[base + i];
+            }
+            out[outOffset + j] = (float) Math.tanh(acc * sx * scales[j]);
+        }
+    }
+
+    /**
+     * 여러 로봇 관측 일괄 추론
+     * @param obs     [r * obsDim + i]
+     * @param out     [r * actionDim + j]
+     * @param count   로봇 수
+     */
+    public void actBatch(float[] obs, float[] out, int count) {
+        for (int r = 0; r < count; r++) {
+            act(obs, r * obsDim, out, r * actionDim);
+        }
+    }
+
+    // ========== 정확도/처리량 확인 ==========
+
+    /**
+     * 기록된 관측에 대해 float 정책과 비교
+     * @param maxAbsError  행동 원소 최대 절대 오차
+     * @param meanAbsError 평균 절대 오차
+     * @param floatNanos   float 정책 1회 평균 (ns)
+     * @param quantNanos   양자화 정책 1회 평균 (ns)
+     */
+    public record Report(int samples, float maxAbsError, float meanAbsError, double floatNanos, double quantNanos) {
+        public double speedup() { return quantNanos > 0 ? floatNanos / quantNanos : 0; }
+    }
+
+    /**
+     * 정확도 비교 + 간단 처리량 측정 (워밍업 후 반복 측정, JIT 안정화용)
+     * @param observations 정책 입력 관측 (환경 getPolicyObservation()으로 기록한 것)
+     */
+    public static Report check(RLEnvironmentCore.SimpleAgent agent, QuantizedPolicy q, float[][] observations,
+                               int iterations) {
+        int n = observations.length;
+        if (n == 0) return new Report(0, 0f, 0f, 0, 0);
+        float[] qa = new float[q.actionDim];
+
+        float maxErr = 0f;
+        double sumErr = 0;
+        for (float[] obs : observations) {
+            float[] fa = agent.floatPolicyAction(obs); // quantizedInference가 켜져 있어도 float 기준
+            q.act(obs, 0, qa, 0);
+            for (int j = 0; j < qa.length; j++) {
+                float e = Math.abs(fa[j] - qa[j]);
+                maxErr = Math.max(maxErr, e);
+                sumErr += e;
+            }
+        }
+
+        int reps = Math.max(1, iterations);
+        float sink = 0f;
+        for (int w = 0; w < 2; w++) { // 워밍업 1회 + 측정 1회
+            long t0 = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                for (float[] obs : observations) sink += agent.floatPolicyAction(obs)[0];
+            }
+            long t1 = System.nanoTime();
+            for (int r = 0; r < reps; r++) {
+                for (float[] obs : observations) {
+                    q.act(obs, 0, qa, 0);
+                    sink += qa[0];
+                }
+            }
+            long t2 = System.nanoTime();
+            if (w == 1) {
+                double calls = (double) reps * n;
+                Report report = new Report(n, maxErr, (float) (sumErr / ((double) n * qa.length)),
+                        (t1 - t0) / calls, (t2 - t1) / calls);
+                logger.debug("Quantized policy check (sink {}): {}", sink, report);
+                return report;
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    public int getObservationDim() { return obsDim; }
+    public int getActionDim() { return actionDim; }
+
+    /** 가중치 메모리 (바이트) */
+    public int getWeightBytes() { return weights.length + scales.length * 4; }
+}
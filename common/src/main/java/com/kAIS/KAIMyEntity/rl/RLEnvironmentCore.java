@@ -1,9 +1,23 @@
 package com.kAIS.KAIMyEntity.rl;
 
+import com.kAIS.KAIMyEntity.urdf.JointRegistry;
+import com.kAIS.KAIMyEntity.urdf.JointStateStore;
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
 import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.MassProperties;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -32,39 +46,114 @@ public class RLEnvironmentCore {
         return instance;
     }
     
+    /**
+     * 싱글톤과 별개인 독립 환경 생성 (멀티 에이전트용, GUI와 무관)
+     */
+    public static RLEnvironmentCore create() {
+        return new RLEnvironmentCore();
+    }
+    
     // ========== 환경 상태 ==========
     private URDFModelOpenGLWithSTL renderer;
     
-    private final Config config = new Config();
-    private final List<JointState> jointStates = new ArrayList<>();
+    final Config config = new Config();
+    final List<JointState> jointStates = new ArrayList<>();
+    JointStateStore state;   // 관절 위치/속도/토크/목표 (JointState.id로 인덱싱)
     private final Map<String, Integer> jointIndexMap = new HashMap<>();
     
     // 에피소드 상태
-    private int stepCount = 0;
-    private int episodeCount = 0;
-    private float episodeReward = 0f;
-    private float lastReward = 0f;
-    private boolean isDone = false;
+    int stepCount = 0;
+    int episodeCount = 0;
+    float episodeReward = 0f;
+    float lastReward = 0f;
+    boolean isDone = false;
+    private boolean lastStepDone = false; // 자동 리셋 후에도 유지되는 직전 스텝 종료 여부
     private boolean isInitialized = false;
     
     // 학습 상태
-    private boolean trainingActive = false;
-    private AgentMode agentMode = AgentMode.MANUAL;
-    private SimpleAgent agent;
+    private volatile boolean trainingActive = false;
+    private volatile AgentMode agentMode = AgentMode.MANUAL;
+    
+    // false면 렌더러에 쓰지 않음 (가속 학습 워커 스레드에서 실행 중)
+    private volatile boolean rendererSync = true;
+    SimpleAgent agent;
     
     // 이전 상태 (보상 계산용)
-    private float[] prevRootPosition = new float[3];
-    private float prevRootHeight = 1.0f;
+    float[] prevRootPosition = new float[3];
+    float prevRootHeight = 1.0f;
+    
+    // 참조 상태 초기화 (RSI)
+    private final List<URDFMotion> referenceMotions = new ArrayList<>();
+    ReferenceStatePool referencePool;
+    final Random resetRandom = new Random();
+    int referenceStartState = -1;
+    
+    // 추적 보상 (DeepMimic): 제어 주기로 미리 샘플링한 참조 트랙
+    private final List<ReferenceTrack> referenceTracks = new ArrayList<>();
+    private EndEffectorChains endEffectorChains;
+    int referenceMotionIndex = 0;
+    float referenceStartTime = 0f;
+    float episodeTime = 0f;
+    private float[] trackingEndEffectors = new float[0];
+    
+    // 링크 FK (스텝당 1회 계산, 균형/접지/자기 충돌/말단 추적 센서가 같은 버퍼를 읽음)
+    private KinematicTree linkTree;
+    private int[] linkJointIds = new int[0];        // 트리 조인트별 상태 저장소 ID (-1: 고정/환경 미포함)
+    private float[] linkQ = new float[0];
+    private float[] linkWorld;
+    
+    // 질량중심 / ZMP (링크 inertial이 있는 모델에서만, 관측 항목과 종료 조건용)
+    BalanceSensor balanceSensor;
+    
+    // 키네마틱 접지 (kinematicGroundContact일 때 initialize에서 구축, 루트 높이/이동의 출처)
+    GroundContactSensor groundContact;
+    private VoxelOccupancy groundOccupancy = VoxelOccupancy.flatGround(-1);
+    private final double[] groundSpawn = {0.5, 2.0, 0.5};
+    
+    // 자기 충돌 (selfCollisionPenaltyWeight > 0일 때 initialize에서 구축)
+    private SelfCollisionSensor selfCollisionSensor;
+    private float lastSelfPenetration = 0f;
+    
+    // 관측 레이아웃 (선언적 Spec → initialize 시 컴파일, null Spec = 기본 구성)
+    private List<ObservationLayout.TermSpec> observationSpec;
+    private ObservationLayout observationLayout;
+    private float[] observationBuffer = new float[0];
+    
+    // 관측 히스토리 (프레임 스태킹, historyLength > 1 또는 행동 히스토리 사용 시)
+    ObservationHistory history;
+    private float[] policyObsBuffer = new float[0];
+    private float[] nextPolicyObsBuffer = new float[0];
+    
+    // 외부 행동 슬라이스 복사용 (step())
+    private float[] externalAction = new float[0];
+    
+    // 모션 프라이어 (LATENT 행동 모드, 적용은 다음 initialize()부터)
+    MotionPrior motionPrior;
+    private float[] latentScratch = new float[0];
+    private float[] decodedTargets = new float[0];
     
     // 통계
-    private final Statistics stats = new Statistics();
+    final Statistics stats = new Statistics();
+    
+    // 텔레메트리 (선택, TensorBoard 이벤트 파일)
+    private TrainingTelemetry telemetry;
+    private int tagEpisodeReward, tagEpisodeLength, tagAverageReward, tagStepReward;
+    
+    // 체크포인트 (선택)
+    private CheckpointWriter checkpointWriter;
+    boolean resumePending = false; // 복원 직후 startTraining은 리셋하지 않음
+    
+    // 오프 폴리시 학습용 리플레이 (선택, 디스크 스필)
+    private SegmentedReplayBuffer replayBuffer;
     
     // 콜백
     private Consumer<String> logCallback;
+    private boolean episodeLogging = true; // false면 에피소드 종료 로그 생략 (PBT 멤버 등)
     
     // ========== 초기화 ==========
     
     private RLEnvironmentCore() {
+        observationLayout = compileObservationLayout(config);
         logger.info("RLEnvironmentCore created");
     }
     
@@ -72,51 +161,150 @@ public class RLEnvironmentCore {
      * 렌더러 연결 및 환경 초기화
      */
     public void initialize(URDFModelOpenGLWithSTL renderer) {
+        claimJoints(false); // 이전 저장소/관절 구성의 소유권 해제
         this.renderer = renderer;
+        resumePending = false;
         
         if (renderer == null) {
             log("WARN: Renderer is null");
             isInitialized = false;
             return;
         }
-        
-        // 관절 정보 수집 - 렌더러의 API 사용
+        initializeJoints(renderer.getRobotModel(), renderer.getJointRegistry());
+    }
+    
+    /**
+     * 렌더러 없이 모델만으로 초기화 (헤드리스 - 관절 상태는 항상 모델 저장소의 복사본)
+     * 링크 메시가 렌더러에 있으므로 자기 충돌 페널티는 적용되지 않음
+     */
+    void initialize(URDFModel model) {
+        claimJoints(false);
+        this.renderer = null;
+        resumePending = false;
+        initializeJoints(model, model.getJointRegistry());
+    }
+    
+    private void initializeJoints(URDFModel model, JointRegistry registry) {
+        // 관절 정보 수집 - 레지스트리 ID 사용 (렌더러가 있으면 VMD 별칭이 등록된 레지스트리)
         jointStates.clear();
         jointIndexMap.clear();
         
-        List<String> jointNames = renderer.getMovableJointNames();
-        if (jointNames == null || jointNames.isEmpty()) {
+        List<String> jointNames = new ArrayList<>();
+        for (URDFJoint joint : model.joints) {
+            if (joint.isMovable()) jointNames.add(joint.name);
+        }
+        if (jointNames.isEmpty()) {
             log("WARN: No movable joints found");
             isInitialized = false;
             return;
         }
         
+        // 관절 상태 저장소 (렌더러 동기화 중이면 렌더러 모델의 배열을 그대로 사용, 아니면 분리된 복사본)
+        state = rendererSync && renderer != null ? registry.getStateStore() : registry.getStateStore().copy();
+        
         int idx = 0;
         for (String jointName : jointNames) {
-            float[] limits = renderer.getJointLimits(jointName);
-            float lower = (limits != null && limits.length >= 2) ? limits[0] : (float)-Math.PI;
-            float upper = (limits != null && limits.length >= 2) ? limits[1] : (float)Math.PI;
-            float currentPos = renderer.getJointPosition(jointName);
+            int id = registry.resolve(jointName);
+            URDFJoint.Limit limit = registry.isValid(id) ? registry.joint(id).limit : null;
+            float lower = limit != null ? limit.lower : (float)-Math.PI;
+            float upper = limit != null ? limit.upper : (float)Math.PI;
+            float currentPos = registry.isValid(id) ? state.position[id] : 0f;
             
             JointState js = new JointState();
             js.name = jointName;
-            js.position = currentPos;
-            js.velocity = 0f;
-            js.torque = 0f;
+            js.id = id;
             js.minLimit = lower;
             js.maxLimit = upper;
-            js.targetPosition = currentPos;
             js.initialPosition = currentPos;
+            state.velocity[id] = 0f;
+            state.torque[id] = 0f;
+            state.target[id] = currentPos;
+            state.targetVelocity[id] = 0f;
             
             jointStates.add(js);
             jointIndexMap.put(jointName, idx++);
         }
         
-        // 에이전트 초기화
-        agent = new SimpleAgent(jointStates.size(), this::getObservationDim);
+        // 프라이어 호환 확인 (행동 차원이 바뀌므로 관측 구성보다 먼저 - 행동 히스토리 크기에 반영)
+        if (motionPrior != null && !motionPrior.matches(jointNames)) {
+            log("WARN: Motion prior does not match joints, LATENT falls back to POSITION");
+            motionPrior = null;
+        }
+        
+        // 관측 히스토리 (설정 변경은 다음 initialize()부터 적용)
+        rebuildObservationLayout();
+        
+        // 에이전트 초기화 (정책 입력 = 스택된 관측)
+        agent = new SimpleAgent(getActionDim(), this::getPolicyObservationDim);
+        agent.setNormalizeObservations(config.normalizeObservations);
+        agent.setQuantizedInference(config.quantizedInference);
+        applyNormalizationMask();
+        
+        // 링크 FK 공용 버퍼 (환경 관절 → 트리 조인트 매핑은 여기서 한 번만)
+        linkTree = model.getKinematicTree();
+        if (linkTree != null) {
+            linkJointIds = new int[linkTree.getJointCount()];
+            for (int j = 0; j < linkJointIds.length; j++) {
+                Integer i = linkTree.isMovable(j) ? jointIndexMap.get(linkTree.getJointName(j)) : null;
+                linkJointIds[j] = i != null ? jointStates.get(i).id : -1;
+            }
+            linkQ = new float[linkTree.getJointCount()];
+            linkWorld = linkTree.newTransformBuffer();
+        } else {
+            linkJointIds = new int[0];
+            linkQ = new float[0];
+            linkWorld = null;
+        }
+        
+        // 말단 체인 (추적 보상의 end-effector 항)
+        endEffectorChains = EndEffectorChains.build(model, jointNames);
+        trackingEndEffectors = new float[endEffectorChains != null ? endEffectorChains.getCount() * 3 : 0];
+        
+        // 질량중심 / ZMP
+        balanceSensor = BalanceSensor.build(model);
+        
+        // 키네마틱 접지 (FK + 복셀 바닥, 물리 엔진 없음)
+        groundContact = config.kinematicGroundContact
+                ? GroundContactSensor.build(model) : null;
+        if (config.kinematicGroundContact && groundContact == null) {
+            log("WARN: No kinematic tree, ground contact disabled");
+        }
+        if (groundContact != null) {
+            groundContact.setGround(groundOccupancy, groundSpawn[0], groundSpawn[1], groundSpawn[2]);
+        }
+        resetBalance();
+        
+        // 자기 충돌 (캡슐 맞춤 + ACM 샘플링, 페널티를 쓰는 경우만)
+        selfCollisionSensor = config.selfCollisionPenaltyWeight > 0 && renderer != null
+                ? SelfCollisionSensor.build(renderer, config.selfCollisionSamples) : null;
+        lastSelfPenetration = 0f;
+        
+        // 관절 구성이 바뀌었을 수 있으므로 RSI 풀/참조 트랙 재생성
+        rebuildReferenceData();
         
         isInitialized = true;
-        log("Initialized: " + jointStates.size() + " joints, obs=" + getObservationDim() + ", act=" + getActionDim());
+        if (trainingActive) claimJoints(true);
+        log("Initialized: " + jointStates.size() + " joints, obs=" + getObservationDim()
+                + ", policyObs=" + getPolicyObservationDim() + ", act=" + getActionDim());
+    }
+    
+    /**
+     * Config의 관측 설정으로 히스토리/정책 입력 버퍼 재생성
+     */
+    void rebuildObservationLayout() {
+        observationLayout = compileObservationLayout(config);
+        observationBuffer = new float[observationLayout.getSize()];
+        if (config.historyLength > 1 || config.includeActionHistory) {
+            history = new ObservationHistory(config.historyLength, getObservationDim(),
+                    config.includeActionHistory ? getActionDim() : 0);
+        } else {
+            history = null;
+        }
+        policyObsBuffer = new float[getPolicyObservationDim()];
+        nextPolicyObsBuffer = new float[getPolicyObservationDim()];
+        externalAction = new float[getActionDim()];
+        latentScratch = new float[getActionDim()];
+        decodedTargets = new float[jointStates.size()];
     }
     
     // ========== 메인 틱 (GUI에서 호출) ==========
@@ -128,38 +316,33 @@ public class RLEnvironmentCore {
         if (!isInitialized || !trainingActive) return;
         if (agentMode == AgentMode.MANUAL) return;
         
-        // 1. 관측 수집
-        float[] observation = getObservation();
+        // 1. 관측 수집 (히스토리 사용 시 스택된 뷰)
+        float[] observation = fillPolicyObservation(policyObsBuffer);
         
         // 2. 에이전트에서 행동 얻기
         float[] action = agent.selectAction(observation, agentMode);
         
-        // 3. 행동 적용
-        applyAction(action);
-        
-        // 4. 물리 시뮬레이션 (간단 버전)
-        simulatePhysics(deltaTime);
-        
-        // 5. 새 관측
-        float[] newObservation = getObservation();
-        
-        // 6. 보상 계산
-        float reward = calculateReward(action);
-        lastReward = reward;
-        episodeReward += reward;
+        // 3~7. 행동 적용 → 시뮬레이션 → 보상 → 종료 판정
+        boolean terminated = advance(action, deltaTime);
+        float reward = lastReward;
         
-        // 7. 종료 조건
-        stepCount++;
-        boolean terminated = checkTermination();
-        boolean truncated = stepCount >= config.maxEpisodeSteps;
-        isDone = terminated || truncated;
+        // 새 관측 (히스토리에 한 번 기록된 뒤의 스택)
+        float[] newObservation = fillPolicyObservation(nextPolicyObsBuffer);
         
         // 8. 에이전트 학습 (경험 저장)
         if (agentMode == AgentMode.LEARNING) {
+            if (replayBuffer != null) {
+                // 행동 정책 밀도는 정규화 통계가 갱신되기 전(행동을 고른 시점)으로 기록
+                replayBuffer.add(observation, action, reward, newObservation, isDone,
+                        agent.logDensity(observation, action));
+            }
             agent.storeExperience(observation, action, reward, newObservation, isDone);
             
-            // 배치 학습 (일정 스텝마다)
+            // 배치 학습 (일정 스텝마다, replaySampleSize > 0이면 중요도 비율로 보정한 과거 전이를 섞음)
             if (stepCount % config.updateInterval == 0) {
+                if (replayBuffer != null && config.replaySampleSize > 0) {
+                    agent.storeReplay(replayBuffer, config.replaySampleSize);
+                }
                 agent.update();
             }
         }
@@ -174,8 +357,58 @@ public class RLEnvironmentCore {
         prevRootHeight = prevRootPosition[1];
     }
     
+    /**
+     * 한 스텝 진행 (행동 적용 → 시뮬레이션 → 히스토리 → 보상 → 종료 판정)
+     * @return 실패 종료(terminated) 여부; 시간 초과 포함 종료는 isDone
+     */
+    private boolean advance(float[] action, float deltaTime) {
+        applyAction(action);
+        
+        // 물리 시뮬레이션 (간단 버전)
+        simulatePhysics(deltaTime);
+        episodeTime += deltaTime;
+        recordHistory(action);
+        
+        float reward = calculateReward(action);
+        lastReward = reward;
+        episodeReward += reward;
+        if (telemetry != null) {
+            telemetry.histogramSample(tagStepReward, reward);
+        }
+        
+        stepCount++;
+        boolean terminated = checkTermination();
+        boolean truncated = stepCount >= config.maxEpisodeSteps;
+        isDone = terminated || truncated;
+        lastStepDone = isDone;
+        return terminated;
+    }
+    
     // ========== 환경 인터페이스 ==========
     
+    /**
+     * 외부 행동으로 한 스텝 (멀티 에이전트 / 외부 정책용)
+     * - actions[offset .. offset + getActionDim()) 구간을 행동으로 사용
+     * - 에피소드가 끝나면 자동 리셋, 종료 여부는 isLastStepDone()
+     * @return 이번 스텝 보상
+     */
+    public float step(float[] actions, int offset, float deltaTime) {
+        if (!isInitialized) return 0f;
+        
+        System.arraycopy(actions, offset, externalAction, 0, externalAction.length);
+        boolean terminated = advance(externalAction, deltaTime);
+        float reward = lastReward;
+        
+        if (isDone) {
+            endEpisode(terminated ? "terminated" : "truncated");
+            if (!trainingActive) reset(); // endEpisode는 학습 중일 때만 리셋
+        }
+        
+        prevRootPosition = getRootPosition();
+        prevRootHeight = prevRootPosition[1];
+        return reward;
+    }
+    
     /**
      * 환경 리셋
      */
@@ -186,34 +419,48 @@ public class RLEnvironmentCore {
         episodeReward = 0f;
         lastReward = 0f;
         isDone = false;
+        episodeTime = 0f;
+        
+        // 참조 상태 선택 (RSI): 풀에서 O(관절 수) 복사
+        referenceStartState = -1;
+        referenceMotionIndex = 0;
+        referenceStartTime = 0f;
+        if (referencePool != null && resetRandom.nextFloat() < config.referenceInitProbability) {
+            referenceStartState = referencePool.sampleIndex(resetRandom);
+            referenceMotionIndex = referencePool.motionIndex(referenceStartState);
+            referenceStartTime = referencePool.time(referenceStartState);
+        }
         
         // 관절 초기화
-        Random rand = config.randomizeInitial ? new Random() : null;
-        
-        for (JointState js : jointStates) {
+        for (int i = 0; i < jointStates.size(); i++) {
+            JointState js = jointStates.get(i);
             float initPos = js.initialPosition;
+            float initVel = 0f;
             
-            if (rand != null) {
+            if (referenceStartState >= 0) {
+                initPos = referencePool.position(referenceStartState, i);
+                initVel = referencePool.velocity(referenceStartState, i);
+            } else if (config.randomizeInitial) {
                 float range = (js.maxLimit - js.minLimit) * config.initNoiseScale;
-                initPos += (rand.nextFloat() - 0.5f) * range;
+                initPos += (resetRandom.nextFloat() - 0.5f) * range;
                 initPos = clamp(initPos, js.minLimit, js.maxLimit);
             }
             
-            js.position = initPos;
-            js.velocity = 0f;
-            js.torque = 0f;
-            js.targetPosition = initPos;
-            
-            // 렌더러에 적용
-            if (renderer != null) {
-                renderer.setJointTarget(js.name, initPos);
-            }
+            state.position[js.id] = initPos;
+            state.velocity[js.id] = initVel;
+            state.torque[js.id] = 0f;
+            state.target[js.id] = initPos;
         }
+        resetBalance();
         
         prevRootPosition = getRootPosition();
         prevRootHeight = prevRootPosition[1];
         
-        return getObservation();
+        float[] obs = getObservation();
+        if (history != null) {
+            history.reset(obs);
+        }
+        return obs;
     }
     
     /**
@@ -221,6 +468,10 @@ public class RLEnvironmentCore {
      */
     private void applyAction(float[] action) {
         if (action == null) return;
+        if (config.actionMode == ActionMode.LATENT && motionPrior != null) {
+            applyLatentAction(action);
+            return;
+        }
         
         int numActions = Math.min(action.length, jointStates.size());
         
@@ -230,134 +481,316 @@ public class RLEnvironmentCore {
             
             switch (config.actionMode) {
                 case TORQUE:
-                    js.torque = a * config.maxTorque;
+                    state.torque[js.id] = a * config.maxTorque;
                     break;
                     
                 case POSITION:
+                case LATENT: // 프라이어 없음
                     // [-1,1] -> [min, max]
-                    js.targetPosition = js.minLimit + (a + 1f) / 2f * (js.maxLimit - js.minLimit);
+                    state.target[js.id] = js.minLimit + (a + 1f) / 2f * (js.maxLimit - js.minLimit);
                     break;
                     
                 case VELOCITY:
-                    js.targetVelocity = a * config.maxVelocity;
+                    state.targetVelocity[js.id] = a * config.maxVelocity;
                     break;
                     
                 case DELTA_POSITION:
                     // 현재 위치에서 델타 적용
                     float delta = a * config.maxDeltaPosition;
-                    js.targetPosition = clamp(js.position + delta, js.minLimit, js.maxLimit);
+                    state.target[js.id] = clamp(state.position[js.id] + delta, js.minLimit, js.maxLimit);
                     break;
             }
-            
-            // 렌더러에 적용
-            if (renderer != null && config.actionMode != ActionMode.TORQUE) {
-                renderer.setJointTarget(js.name, js.targetPosition);
-            }
         }
     }
     
     /**
-     * 간단한 물리 시뮬레이션
+     * 잠재 계수 → 프라이어 디코드 → 관절 목표 위치 (버퍼 재사용)
+     */
+    private void applyLatentAction(float[] action) {
+        int k = Math.min(action.length, latentScratch.length);
+        for (int i = 0; i < k; i++) latentScratch[i] = clamp(action[i], -1f, 1f);
+        for (int i = k; i < latentScratch.length; i++) latentScratch[i] = 0f;
+        motionPrior.decode(latentScratch, 0, decodedTargets);
+        
+        for (int i = 0; i < jointStates.size(); i++) {
+            JointState js = jointStates.get(i);
+            state.target[js.id] = clamp(decodedTargets[i], js.minLimit, js.maxLimit);
+        }
+    }
+    
+    /**
+     * 간단한 물리 시뮬레이션 (관절 상태 저장소 배열을 직접 갱신 - 렌더러 동기화 중이면 곧바로 표시됨)
      */
     private void simulatePhysics(float dt) {
+        float[] pos = state.position;
+        float[] vel = state.velocity;
+        float[] torque = state.torque;
         for (JointState js : jointStates) {
+            int id = js.id;
             // PD 제어 (Position 모드)
             if (config.actionMode == ActionMode.POSITION || 
-                config.actionMode == ActionMode.DELTA_POSITION) {
-                float error = js.targetPosition - js.position;
-                float deriv = -js.velocity;
-                js.torque = config.kp * error + config.kd * deriv;
-                js.torque = clamp(js.torque, -config.maxTorque, config.maxTorque);
+                config.actionMode == ActionMode.DELTA_POSITION ||
+                config.actionMode == ActionMode.LATENT) {
+                float error = state.target[id] - pos[id];
+                float deriv = -vel[id];
+                torque[id] = clamp(config.kp * error + config.kd * deriv, -config.maxTorque, config.maxTorque);
             }
             
             // 속도 제어 모드
             if (config.actionMode == ActionMode.VELOCITY) {
-                float velError = js.targetVelocity - js.velocity;
-                js.torque = config.kp * velError;
-                js.torque = clamp(js.torque, -config.maxTorque, config.maxTorque);
+                float velError = state.targetVelocity[id] - vel[id];
+                torque[id] = clamp(config.kp * velError, -config.maxTorque, config.maxTorque);
             }
             
             // 적분
-            float acceleration = js.torque; // 단순화: I=1
-            js.velocity += acceleration * dt;
-            js.velocity *= config.damping;
-            js.position += js.velocity * dt;
+            float acceleration = torque[id]; // 단순화: I=1
+            vel[id] += acceleration * dt;
+            vel[id] *= config.damping;
+            pos[id] += vel[id] * dt;
             
             // 관절 제한
-            if (js.position < js.minLimit) {
-                js.position = js.minLimit;
-                js.velocity = Math.max(0, js.velocity);
-            } else if (js.position > js.maxLimit) {
-                js.position = js.maxLimit;
-                js.velocity = Math.min(0, js.velocity);
+            if (pos[id] < js.minLimit) {
+                pos[id] = js.minLimit;
+                vel[id] = Math.max(0, vel[id]);
+            } else if (pos[id] > js.maxLimit) {
+                pos[id] = js.maxLimit;
+                vel[id] = Math.min(0, vel[id]);
             }
         }
         
-        // 실제 모델 상태 동기화
-        syncWithRenderer();
+        // 링크 FK 1회 → 센서 공유 (보상 계산도 이 결과를 그대로 사용)
+        float[] world = updateLinkPoses();
+        
+        // 질량중심 / ZMP
+        if (balanceSensor != null) {
+            balanceSensor.update(world, dt);
+        }
+        
+        // 복셀 바닥 접촉 → 루트 높이/수평 이동
+        if (groundContact != null) {
+            groundContact.update(world, dt);
+        }
     }
     
     /**
-     * 렌더러와 상태 동기화
+     * 현재 관절 위치로 링크 변환 계산 (트리가 없으면 null)
      */
-    private void syncWithRenderer() {
-        if (renderer == null) return;
-        
-        for (JointState js : jointStates) {
-            renderer.setJointTarget(js.name, js.position);
+    float[] updateLinkPoses() {
+        if (linkTree == null) return null;
+        for (int j = 0; j < linkQ.length; j++) {
+            int id = linkJointIds[j];
+            linkQ[j] = id >= 0 ? state.position[id] : 0f;
         }
+        linkTree.forward(linkQ, linkWorld);
+        return linkWorld;
+    }
+    
+    /**
+     * 질량중심 유한 차분 기록 초기화 + 접지 루트를 스폰 지점에 재배치
+     * (에피소드 리셋처럼 자세가 불연속으로 바뀐 뒤)
+     */
+    private void resetBalance() {
+        float[] world = updateLinkPoses();
+        if (balanceSensor != null) balanceSensor.reset(world);
+        if (groundContact != null) groundContact.reset(world);
     }
     
     // ========== 관측 (Observation) ==========
     
     public float[] getObservation() {
-        List<Float> obs = new ArrayList<>();
+        float[] obs = new float[observationLayout.getSize()];
+        fillObservation(obs, 0);
+        return obs;
+    }
+    
+    /**
+     * 관측을 out[offset .. offset + getObservationDim())에 기록
+     * 센서별 원시값을 각 항목 구간에 쓴 뒤 레이아웃의 scale/bias/clip을 한 번에 적용
+     */
+    private void fillObservation(float[] out, int offset) {
+        float[] rootPos = getRootPosition();
+        float[] rootVel = getRootVelocity();
+        int n = jointStates.size();
         
-        // 1. 관절 위치 (정규화 [-1, 1])
-        for (JointState js : jointStates) {
-            float range = js.maxLimit - js.minLimit;
-            float norm = range > 0 ? 2f * (js.position - js.minLimit) / range - 1f : 0f;
-            obs.add(clamp(norm, -1f, 1f));
+        for (ObservationLayout.Term term : observationLayout.getTerms()) {
+            int o = offset + term.offset();
+            switch (term.source()) {
+                case JOINT_POSITION -> {
+                    for (int i = 0; i < n; i++) out[o + i] = state.position[jointStates.get(i).id];
+                }
+                case JOINT_VELOCITY -> {
+                    for (int i = 0; i < n; i++) out[o + i] = state.velocity[jointStates.get(i).id];
+                }
+                case ROOT_HEIGHT -> out[o] = rootPos[1];
+                case ROOT_VELOCITY -> {
+                    out[o] = rootVel[0];
+                    out[o + 1] = rootVel[2];
+                }
+                case SPEED_ERROR -> out[o] = (float) Math.sqrt(rootVel[0] * rootVel[0] + rootVel[2] * rootVel[2]);
+                case COM_POSITION -> {
+                    MassProperties mp = balanceSensor != null ? balanceSensor.getMassProperties() : null;
+                    out[o] = mp != null ? mp.getCenterOfMass()[0] - mp.getSupportCenter()[0] : 0f;
+                    out[o + 1] = mp != null ? mp.getCenterOfMass()[1] - mp.getSupportCenter()[1] : 0f;
+                    out[o + 2] = mp != null ? mp.getCenterOfMassHeight() : 0f;
+                }
+                case COM_VELOCITY -> {
+                    float[] v = balanceSensor != null ? balanceSensor.getMassProperties().getCenterOfMassVelocity() : null;
+                    for (int k = 0; k < 3; k++) out[o + k] = v != null ? v[k] : 0f;
+                }
+                case ZMP -> {
+                    MassProperties mp = balanceSensor != null ? balanceSensor.getMassProperties() : null;
+                    out[o] = mp != null ? mp.getZmp()[0] - mp.getSupportCenter()[0] : 0f;
+                    out[o + 1] = mp != null ? mp.getZmp()[1] - mp.getSupportCenter()[1] : 0f;
+                }
+            }
         }
-        
-        // 2. 관절 속도 (스케일링)
-        if (config.includeVelocities) {
-            for (JointState js : jointStates) {
-                obs.add(js.velocity / config.maxVelocity);
+        observationLayout.apply(out, offset);
+    }
+    
+    /**
+     * Spec → 레이아웃 컴파일 (센서별 정규화 스케일은 여기 한 곳에서 정의)
+     */
+    ObservationLayout compileObservationLayout(Config cfg) {
+        List<ObservationLayout.TermSpec> spec = observationSpec != null
+                ? observationSpec : ObservationLayout.defaultSpec(cfg.includeVelocities);
+        float inf = Float.POSITIVE_INFINITY;
+        float speedScale = cfg.targetSpeed > 0 ? cfg.targetSpeed : 1f;
+        float heightRange = cfg.maxHeight - cfg.minHeight;
+        
+        ObservationLayout.Builder b = ObservationLayout.builder();
+        for (ObservationLayout.TermSpec term : spec) {
+            b.begin(term);
+            switch (term.source()) {
+                case JOINT_POSITION -> {
+                    // [min, max] → [-1, 1]
+                    for (JointState js : jointStates) {
+                        float range = js.maxLimit - js.minLimit;
+                        if (range > 0) b.element(js.name, 2f / range, -2f * js.minLimit / range - 1f, -1f, 1f);
+                        else b.element(js.name, 0f, 0f, -1f, 1f);
+                    }
+                }
+                case JOINT_VELOCITY -> {
+                    for (JointState js : jointStates) b.element(js.name, 1f / cfg.maxVelocity, 0f, -inf, inf);
+                }
+                case ROOT_HEIGHT -> {
+                    if (heightRange > 0) b.element("", 1f / heightRange, -cfg.minHeight / heightRange, -inf, inf);
+                    else b.element("", 0f, 0.5f, -inf, inf);
+                }
+                case ROOT_VELOCITY -> {
+                    b.element("x", 1f / speedScale, 0f, -inf, inf);
+                    b.element("z", 1f / speedScale, 0f, -inf, inf);
+                }
+                case SPEED_ERROR -> b.element("", -1f / speedScale, cfg.targetSpeed / speedScale, -inf, inf);
+                case COM_POSITION -> {
+                    // 지지 중심 기준 (m), 높이는 목표 높이 기준
+                    b.element("x", 1f, 0f, -inf, inf);
+                    b.element("y", 1f, 0f, -inf, inf);
+                    b.element("height", cfg.targetHeight > 0 ? 1f / cfg.targetHeight : 1f, 0f, -inf, inf);
+                }
+                case COM_VELOCITY -> {
+                    b.element("x", 1f / cfg.maxVelocity, 0f, -inf, inf);
+                    b.element("y", 1f / cfg.maxVelocity, 0f, -inf, inf);
+                    b.element("z", 1f / cfg.maxVelocity, 0f, -inf, inf);
+                }
+                case ZMP -> {
+                    b.element("x", 1f, 0f, -inf, inf);
+                    b.element("y", 1f, 0f, -inf, inf);
+                }
             }
         }
+        return b.build();
+    }
+    
+    /**
+     * 정책 입력 원소 이름 (히스토리 사용 시 "t-k/" 접두사, 행동 히스토리는 "action/관절")
+     * 외부 브리지가 관측 벡터를 해석할 때 사용
+     */
+    public String[] getPolicyObservationNames() {
+        String[] obsNames = observationLayout.getElementNames();
+        if (history == null) return obsNames;
         
-        // 3. 루트 바디 높이 (정규화)
-        float[] rootPos = getRootPosition();
-        float heightRange = config.maxHeight - config.minHeight;
-        obs.add(heightRange > 0 ? (rootPos[1] - config.minHeight) / heightRange : 0.5f);
-        
-        // 4. 루트 속도 (수평)
-        float[] rootVel = getRootVelocity();
-        float speedScale = config.targetSpeed > 0 ? config.targetSpeed : 1f;
-        obs.add(rootVel[0] / speedScale); // x
-        obs.add(rootVel[2] / speedScale); // z
-        
-        // 5. 목표 속도와의 차이
-        float currentSpeed = (float)Math.sqrt(rootVel[0]*rootVel[0] + rootVel[2]*rootVel[2]);
-        obs.add(speedScale > 0 ? (config.targetSpeed - currentSpeed) / speedScale : 0f);
+        String[] names = new String[history.getStackedDim()];
+        int k = history.getLength();
+        int idx = 0;
+        for (int f = 0; f < k; f++) {
+            String prefix = "t-" + (k - 1 - f) + "/";
+            for (String name : obsNames) names[idx++] = prefix + name;
+            if (history.includesActions()) {
+                boolean latent = config.actionMode == ActionMode.LATENT && motionPrior != null;
+                for (int a = 0; a < getActionDim(); a++) {
+                    names[idx++] = prefix + "action/" + (latent ? "z" + a : jointStates.get(a).name);
+                }
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * 정책 입력 원소별 정규화 제외 마스크 (Spec의 normalize=false 항목, 히스토리 프레임마다 반복)
+     */
+    void applyNormalizationMask() {
+        int obsDim = observationLayout.getSize();
+        boolean any = false;
+        for (int i = 0; i < obsDim; i++) any |= !observationLayout.isNormalized(i);
+        if (!any) {
+            agent.getObservationNormalizer().setPassThrough(null);
+            return;
+        }
         
-        // float[] 변환
-        float[] result = new float[obs.size()];
-        for (int i = 0; i < obs.size(); i++) {
-            result[i] = obs.get(i);
+        boolean[] mask = new boolean[getPolicyObservationDim()];
+        int frame = history != null ? history.getFrameSize() : obsDim;
+        for (int f = 0; f + frame <= mask.length; f += frame) {
+            for (int i = 0; i < obsDim; i++) mask[f + i] = !observationLayout.isNormalized(i);
+        }
+        agent.getObservationNormalizer().setPassThrough(mask);
+    }
+    
+    /**
+     * 정책 입력 관측 - 히스토리 사용 시 K 프레임 스택, 아니면 단일 관측
+     */
+    public float[] getPolicyObservation() {
+        return fillPolicyObservation(new float[getPolicyObservationDim()]);
+    }
+    
+    /**
+     * 정책 관측을 out[offset .. offset + getPolicyObservationDim())에 기록
+     */
+    public void writePolicyObservation(float[] out, int offset) {
+        if (history != null) {
+            history.copyStacked(out, offset);
+        } else {
+            fillObservation(out, offset);
+        }
+    }
+    
+    private float[] fillPolicyObservation(float[] out) {
+        if (history == null) {
+            fillObservation(out, 0);
+            return out;
+        }
+        history.copyStacked(out, 0);
+        return out;
+    }
+    
+    private void recordHistory(float[] action) {
+        if (history != null) {
+            fillObservation(observationBuffer, 0);
+            history.push(observationBuffer, action);
         }
-        return result;
     }
     
     private float[] getRootPosition() {
+        if (groundContact != null) {
+            return groundContact.getRootPosition(new float[3]);
+        }
+        
         // 관절 평균 높이로 추정 (실제 구현에서는 루트 바디 위치 사용)
         float avgHeight = 1.0f;
         if (!jointStates.isEmpty()) {
             float sum = 0;
             for (JointState js : jointStates) {
                 float range = js.maxLimit - js.minLimit;
-                sum += range > 0 ? (js.position - js.minLimit) / range : 0.5f;
+                sum += range > 0 ? (state.position[js.id] - js.minLimit) / range : 0.5f;
             }
             avgHeight = 0.5f + sum / jointStates.size() * 0.5f;
         }
@@ -406,7 +839,7 @@ public class RLEnvironmentCore {
         // 5. 관절 속도 페널티 (급격한 움직임 방지)
         float velocityPenalty = 0f;
         for (JointState js : jointStates) {
-            velocityPenalty += js.velocity * js.velocity;
+            velocityPenalty += state.velocity[js.id] * state.velocity[js.id];
         }
         reward -= velocityPenalty * config.velocityPenaltyWeight;
         
@@ -415,7 +848,7 @@ public class RLEnvironmentCore {
         for (JointState js : jointStates) {
             float range = js.maxLimit - js.minLimit;
             float margin = 0.1f * range;
-            if (js.position < js.minLimit + margin || js.position > js.maxLimit - margin) {
+            if (state.position[js.id] < js.minLimit + margin || state.position[js.id] > js.maxLimit - margin) {
                 limitPenalty += 0.1f;
             }
         }
@@ -424,6 +857,55 @@ public class RLEnvironmentCore {
         // 7. 대칭 보상 (양쪽 관절 유사하게)
         reward += calculateSymmetryReward() * config.symmetryRewardWeight;
         
+        // 8. 참조 모션 추적 보상
+        reward += calculateTrackingReward() * config.trackingRewardWeight;
+        
+        // 9. 자기 충돌 페널티 (캡슐 침투 깊이 합계, m)
+        if (selfCollisionSensor != null) {
+            lastSelfPenetration = selfCollisionSensor.penetration(linkWorld);
+            reward -= lastSelfPenetration * config.selfCollisionPenaltyWeight;
+        }
+        
+        return reward;
+    }
+    
+    /**
+     * DeepMimic 스타일 추적 보상 - 현재 에피소드 시간에 맞는 참조 프레임과 비교
+     * (관절 위치 / 관절 속도 / 말단 위치 오차의 지수 커널 가중합)
+     */
+    private float calculateTrackingReward() {
+        if (referenceTracks.isEmpty()) return 0f;
+        
+        ReferenceTrack track = referenceTracks.get(Math.min(referenceMotionIndex, referenceTracks.size() - 1));
+        if (track == null) return 0f;
+        int frame = track.frameAt(referenceStartTime + episodeTime);
+        
+        float poseErr = 0f;
+        float velErr = 0f;
+        for (int i = 0; i < jointStates.size(); i++) {
+            JointState js = jointStates.get(i);
+            float dp = track.position(frame, i) - state.position[js.id];
+            float dv = track.velocity(frame, i) - state.velocity[js.id];
+            poseErr += dp * dp;
+            velErr += dv * dv;
+        }
+        
+        float reward = config.trackingPoseWeight * (float) Math.exp(-config.trackingPoseScale * poseErr)
+                + config.trackingVelocityWeight * (float) Math.exp(-config.trackingVelocityScale * velErr);
+        
+        int ee = track.getEndEffectorCount();
+        if (ee > 0 && endEffectorChains != null) {
+            endEffectorChains.read(linkWorld, trackingEndEffectors, 0);
+            float eeErr = 0f;
+            for (int e = 0; e < ee; e++) {
+                for (int k = 0; k < 3; k++) {
+                    float d = track.endEffector(frame, e, k) - trackingEndEffectors[e * 3 + k];
+                    eeErr += d * d;
+                }
+            }
+            reward += config.trackingEndEffectorWeight * (float) Math.exp(-config.trackingEndEffectorScale * eeErr);
+        }
+        
         return reward;
     }
     
@@ -440,7 +922,7 @@ public class RLEnvironmentCore {
                 Integer rightIdx = jointIndexMap.get(rightName);
                 if (rightIdx != null) {
                     JointState rightJs = jointStates.get(rightIdx);
-                    float diff = Math.abs(js.position - rightJs.position);
+                    float diff = Math.abs(state.position[js.id] - state.position[rightJs.id]);
                     symmetry += 1f - Math.min(diff / (float)Math.PI, 1f);
                     pairs++;
                 }
@@ -463,12 +945,38 @@ public class RLEnvironmentCore {
             return true;
         }
         
+        // 질량중심 / ZMP 체크 (링크 질량이 있는 모델, 0 = 사용 안 함)
+        if (balanceSensor != null) {
+            MassProperties mp = balanceSensor.getMassProperties();
+            if (config.minComHeight > 0 && mp.getCenterOfMassHeight() < config.minComHeight) {
+                log("Terminated: CoM too low (" + String.format("%.2f", mp.getCenterOfMassHeight()) + ")");
+                return true;
+            }
+            if (config.maxZmpOffset > 0 && mp.getZmpOffset() > config.maxZmpOffset) {
+                log("Terminated: ZMP outside support (" + String.format("%.2f", mp.getZmpOffset()) + ")");
+                return true;
+            }
+        }
+        
         return false;
     }
     
     public boolean isHealthy() {
         float[] rootPos = getRootPosition();
-        return rootPos[1] >= config.minHeight && rootPos[1] <= config.maxHeight;
+        if (rootPos[1] < config.minHeight || rootPos[1] > config.maxHeight) return false;
+        if (balanceSensor != null) {
+            MassProperties mp = balanceSensor.getMassProperties();
+            if (config.minComHeight > 0 && mp.getCenterOfMassHeight() < config.minComHeight) return false;
+            if (config.maxZmpOffset > 0 && mp.getZmpOffset() > config.maxZmpOffset) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 질량중심 / ZMP 계산기 (링크 질량 정보가 없으면 null)
+     */
+    public MassProperties getMassProperties() {
+        return balanceSensor != null ? balanceSensor.getMassProperties() : null;
     }
     
     // ========== 에피소드 관리 ==========
@@ -477,13 +985,29 @@ public class RLEnvironmentCore {
         episodeCount++;
         stats.recordEpisode(episodeReward, stepCount);
         
-        log(String.format("Episode %d ended (%s): reward=%.2f, steps=%d", 
-            episodeCount, reason, episodeReward, stepCount));
+        if (episodeLogging) {
+            log(String.format("Episode %d ended (%s): reward=%.2f, steps=%d", 
+                episodeCount, reason, episodeReward, stepCount));
+        }
+        
+        if (telemetry != null) {
+            long globalStep = stats.getTotalSteps();
+            telemetry.scalar(tagEpisodeReward, globalStep, episodeReward);
+            telemetry.scalar(tagEpisodeLength, globalStep, stepCount);
+            telemetry.scalar(tagAverageReward, globalStep, stats.getAverageReward());
+            telemetry.histogramFlush(tagStepReward, globalStep);
+        }
         
         // 자동 리셋
         if (trainingActive) {
             reset();
         }
+        
+        // 주기적 체크포인트 (리셋 직후 상태)
+        if (checkpointWriter != null && config.checkpointInterval > 0
+                && episodeCount % config.checkpointInterval == 0) {
+            checkpoint();
+        }
     }
     
     // ========== 학습 제어 ==========
@@ -496,21 +1020,188 @@ public class RLEnvironmentCore {
         
         agentMode = mode;
         trainingActive = true;
-        reset();
+        claimJoints(true);
+        if (resumePending) {
+            resumePending = false; // 체크포인트의 진행 중 에피소드를 그대로 이어감
+        } else {
+            reset();
+        }
         
         log("Training started: mode=" + mode);
     }
     
     public void stopTraining() {
         trainingActive = false;
+        claimJoints(false);
         log("Training stopped");
     }
     
+    /**
+     * 텔레메트리 연결 (null이면 해제). 태그는 여기서 한 번만 등록
+     */
+    public void setTelemetry(TrainingTelemetry telemetry) {
+        setTelemetry(telemetry, "");
+    }
+    
+    /**
+     * @param prefix 태그 접두사 (멀티 에이전트에서 "agent0/" 등)
+     */
+    public void setTelemetry(TrainingTelemetry telemetry, String prefix) {
+        this.telemetry = telemetry;
+        if (telemetry == null) return;
+        tagEpisodeReward = telemetry.tag(prefix + "episode/reward");
+        tagEpisodeLength = telemetry.tag(prefix + "episode/length");
+        tagAverageReward = telemetry.tag(prefix + "episode/avg_reward_100");
+        tagStepReward = telemetry.tag(prefix + "step/reward");
+    }
+    
+    public TrainingTelemetry getTelemetry() { return telemetry; }
+    
+    /**
+     * 리플레이 버퍼 연결 (LEARNING 모드 전이를 모두 기록). 차원이 다르면 연결하지 않음
+     */
+    public void setReplayBuffer(SegmentedReplayBuffer buffer) {
+        if (buffer != null && (buffer.getObservationDim() != getPolicyObservationDim()
+                || buffer.getActionDim() != getActionDim())) {
+            log("WARN: Replay buffer shape " + buffer.getObservationDim() + "x" + buffer.getActionDim()
+                    + " does not match env " + getPolicyObservationDim() + "x" + getActionDim());
+            return;
+        }
+        this.replayBuffer = buffer;
+    }
+    
+    public SegmentedReplayBuffer getReplayBuffer() { return replayBuffer; }
+    
     public void setAgentMode(AgentMode mode) {
         this.agentMode = mode;
         log("Agent mode: " + mode);
     }
     
+    // ========== 참조 모션 (RSI) ==========
+    
+    /**
+     * 참조 모션 설정 - 리셋 상태 풀을 미리 샘플링
+     */
+    public void setReferenceMotion(URDFMotion motion) {
+        setReferenceMotions(motion != null ? List.of(motion) : List.of());
+    }
+    
+    /**
+     * 여러 참조 모션 설정 (길이에 비례해 샘플 배분)
+     */
+    public void setReferenceMotions(List<URDFMotion> motions) {
+        referenceMotions.clear();
+        for (URDFMotion m : motions) {
+            if (m != null && !m.keys.isEmpty()) referenceMotions.add(m);
+        }
+        rebuildReferenceData();
+    }
+    
+    public void clearReferenceMotions() {
+        referenceMotions.clear();
+        referencePool = null;
+        referenceTracks.clear();
+    }
+    
+    private void rebuildReferenceData() {
+        referencePool = null;
+        referenceTracks.clear();
+        if (referenceMotions.isEmpty() || jointStates.isEmpty()) return;
+        
+        int n = jointStates.size();
+        float[] lower = new float[n];
+        float[] upper = new float[n];
+        float[] fallback = new float[n];
+        for (int i = 0; i < n; i++) {
+            JointState js = jointStates.get(i);
+            lower[i] = js.minLimit;
+            upper[i] = js.maxLimit;
+            fallback[i] = js.initialPosition;
+        }
+        
+        referencePool = ReferenceStatePool.build(referenceMotions, getJointNames(),
+                lower, upper, fallback, config.referenceStatePoolSize, resetRandom.nextLong());
+        if (referencePool != null) {
+            log("Reference state pool: " + referencePool.size() + " states from "
+                    + referenceMotions.size() + " motion(s)");
+        }
+        
+        // 추적 보상용 밀집 트랙 (모션 순서 = 풀의 motionIndex, 빈 모션은 null 자리)
+        if (config.timeStep <= 0f) {
+            log("WARN: timeStep must be positive, tracking reward disabled");
+            return;
+        }
+        for (URDFMotion m : referenceMotions) {
+            referenceTracks.add(ReferenceTrack.build(m, getJointNames(), fallback,
+                    config.timeStep, endEffectorChains));
+        }
+    }
+    
+    public boolean hasReferencePool() { return referencePool != null; }
+    public ReferenceStatePool getReferencePool() { return referencePool; }
+    
+    /** 현재 에피소드가 시작된 풀 상태 인덱스 (RSI 미사용 시 -1) */
+    public int getReferenceStartState() { return referenceStartState; }
+    
+    // ========== 체크포인트 ==========
+    
+    public void setCheckpointWriter(CheckpointWriter writer) {
+        this.checkpointWriter = writer;
+    }
+    
+    public CheckpointWriter getCheckpointWriter() { return checkpointWriter; }
+    
+    /**
+     * 현재 상태 스냅샷을 기록 스레드에 넘김 (학습 스레드는 복사만 수행)
+     */
+    public void checkpoint() {
+        if (checkpointWriter == null || !isInitialized) return;
+        
+        long start = System.nanoTime();
+        ByteBuffer snapshot = snapshotState();
+        long micros = (System.nanoTime() - start) / 1000;
+        if (micros > 1000) {
+            logger.warn("Checkpoint snapshot took {} us ({} bytes)", micros, snapshot.remaining());
+        }
+        checkpointWriter.submit(snapshot, stats.getTotalSteps());
+    }
+    
+    /**
+     * 가장 최근의 유효한 체크포인트에서 학습 상태 복원
+     * @return 복원 성공 여부 (체크포인트 없음/관절 구성 불일치 시 false)
+     */
+    public boolean resumeFromCheckpoint() {
+        if (checkpointWriter == null || !isInitialized) return false;
+        
+        ByteBuffer payload = checkpointWriter.loadLatest();
+        if (payload == null) return false;
+        
+        try {
+            restoreState(payload);
+        } catch (IOException | RuntimeException e) {
+            log("WARN: Checkpoint not restored: " + e.getMessage());
+            return false;
+        }
+        log(String.format("Resumed from checkpoint: episode=%d, totalSteps=%d",
+                episodeCount, stats.getTotalSteps()));
+        return true;
+    }
+    
+    /**
+     * 학습 상태 전체를 하나의 ByteBuffer로 직렬화
+     * (가중치, 경험 버퍼, 정규화 통계, RNG, 관절/에피소드 상태, 균형/접지 센서, 히스토리, Config, 통계)
+     */
+    public ByteBuffer snapshotState() {
+        return EnvironmentCheckpoint.snapshot(this);
+    }
+    
+    /**
+     * snapshotState() 결과로 상태 복원. 관절 구성/관측 차원이 다르면 예외 (현재 상태 유지)
+     */
+    public void restoreState(ByteBuffer buf) throws IOException {
+        EnvironmentCheckpoint.restore(this, buf);
+    }
+    
     // ========== 수동 제어 ==========
     
     /**
@@ -521,13 +1212,9 @@ public class RLEnvironmentCore {
         if (idx == null) return;
         
         JointState js = jointStates.get(idx);
-        js.position = clamp(position, js.minLimit, js.maxLimit);
-        js.targetPosition = js.position;
-        js.velocity = 0;
-        
-        if (renderer != null) {
-            renderer.setJointTarget(name, js.position);
-        }
+        state.position[js.id] = clamp(position, js.minLimit, js.maxLimit);
+        state.target[js.id] = state.position[js.id];
+        state.velocity[js.id] = 0;
     }
     
     /**
@@ -537,9 +1224,11 @@ public class RLEnvironmentCore {
         if (!isInitialized) return;
         
         // 랜덤 행동으로 한 스텝
-        float[] action = agent.selectAction(getObservation(), AgentMode.RANDOM);
+        float[] action = agent.selectAction(getPolicyObservation(), AgentMode.RANDOM);
         applyAction(action);
         simulatePhysics(config.timeStep);
+        episodeTime += config.timeStep;
+        recordHistory(action);
         
         float reward = calculateReward(action);
         lastReward = reward;
@@ -549,23 +1238,156 @@ public class RLEnvironmentCore {
         log(String.format("Manual step %d: reward=%.4f", stepCount, reward));
     }
     
+    // ========== 렌더러 분리 (가속 학습) ==========
+    
+    /**
+     * 렌더러 동기화 on/off. off인 동안 환경은 렌더러 저장소의 복사본만 갱신하고,
+     * 표시는 렌더 스레드가 captureSnapshot() 결과를 applySnapshot()으로 반영.
+     * 다시 켜면 복사본을 렌더러 저장소에 한 번 되돌려 쓰고 이후로는 같은 배열을 공유
+     */
+    public void setRendererSync(boolean enabled) {
+        if (renderer == null || state == null) {
+            this.rendererSync = enabled;
+            return;
+        }
+        claimJoints(false);
+        this.rendererSync = enabled;
+        JointStateStore shared = renderer.getJointStateStore();
+        if (enabled) {
+            if (state != shared) shared.copyFrom(state);
+            state = shared;
+        } else if (state == shared) {
+            state = shared.copy();
+        }
+        if (trainingActive) claimJoints(true);
+    }
+    
+    /**
+     * 학습 중 렌더러 저장소를 공유하면 환경 관절을 외부 소유로 표시
+     * → 컨트롤러(키네마틱/ODE/ABA)가 같은 관절을 한 번 더 적분하지 않음. 복사본이면 표시할 필요 없음
+     */
+    private void claimJoints(boolean owned) {
+        if (state == null || renderer == null || state != renderer.getJointStateStore()) return;
+        for (JointState js : jointStates) {
+            if (js.id >= 0 && js.id < state.size()) state.external[js.id] = owned;
+        }
+    }
+    
+    public boolean isRendererSync() { return rendererSync; }
+    
+    /**
+     * 키네마틱 접지용 복셀 월드와 스폰 위치 (마크 월드 좌표, 다음 reset()부터 적용)
+     * 학습 워커 스레드에서 돌 때는 월드 대신 VoxelGrid.capture()로 복사한 격자를 넘길 것
+     */
+    public void setGround(VoxelOccupancy occupancy, double x, double y, double z) {
+        groundOccupancy = occupancy != null ? occupancy : VoxelOccupancy.EMPTY;
+        groundSpawn[0] = x;
+        groundSpawn[1] = y;
+        groundSpawn[2] = z;
+        if (groundContact != null) groundContact.setGround(groundOccupancy, x, y, z);
+    }
+    
+    /**
+     * 표시용 상태 스냅샷 (학습 스레드에서 호출, 불변 객체)
+     */
+    public Snapshot captureSnapshot() {
+        float[] positions = new float[jointStates.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = state.position[jointStates.get(i).id];
+        }
+        return new Snapshot(episodeCount, stepCount, episodeReward, lastReward,
+                stats.getAverageReward(), stats.getBestReward(), stats.getTotalSteps(),
+                isHealthy(), positions);
+    }
+    
+    /**
+     * 스냅샷의 관절 위치를 렌더러에 반영 (렌더 스레드에서 호출)
+     */
+    public void applySnapshot(Snapshot snapshot) {
+        if (renderer == null || snapshot == null) return;
+        int n = Math.min(snapshot.jointPositions().length, jointStates.size());
+        for (int i = 0; i < n; i++) {
+            renderer.setJointTarget(jointStates.get(i).id, snapshot.jointPositions()[i]);
+        }
+    }
+    
     // ========== 정보 조회 ==========
     
     public int getObservationDim() {
-        int dim = jointStates.size(); // 위치
-        if (config.includeVelocities) dim += jointStates.size(); // 속도
-        dim += 4; // 높이 + 속도xy + 속도차
-        return dim;
+        return observationLayout.getSize();
+    }
+    
+    public ObservationLayout getObservationLayout() { return observationLayout; }
+    
+    /**
+     * 관측 Spec 지정 (null = Config 기반 기본 구성). 적용은 다음 initialize()부터
+     */
+    public void setObservationSpec(List<ObservationLayout.TermSpec> spec) {
+        this.observationSpec = spec != null ? List.copyOf(spec) : null;
+    }
+    
+    /** 지정된 관측 Spec (null = 기본 구성) */
+    public List<ObservationLayout.TermSpec> getObservationSpec() { return observationSpec; }
+    
+    /**
+     * 정책 입력 차원 (히스토리 사용 시 K × (관측 [+ 행동]))
+     */
+    public int getPolicyObservationDim() {
+        return history != null ? history.getStackedDim() : getObservationDim();
     }
     
+    public ObservationHistory getHistory() { return history; }
+    
     public int getActionDim() {
-        return jointStates.size();
+        return actionDimFor(config);
+    }
+    
+    int actionDimFor(Config cfg) {
+        return cfg.actionMode == ActionMode.LATENT && motionPrior != null
+                ? motionPrior.getLatentDim() : jointStates.size();
+    }
+    
+    /**
+     * LATENT 행동용 모션 프라이어 지정 (null = 해제). 행동 차원이 바뀌므로 다음 initialize()부터 적용
+     */
+    public void setMotionPrior(MotionPrior prior) {
+        this.motionPrior = prior;
+    }
+    
+    public MotionPrior getMotionPrior() { return motionPrior; }
+    
+    /**
+     * VMD 라이브러리 폴더에서 현재 로봇용 프라이어 계산 (캐시 파일이 최신이면 재사용) 후 지정
+     * @return 프라이어 (VMD 없음/실패 시 null, 기존 프라이어 유지)
+     */
+    public MotionPrior loadMotionPrior(File vmdDir, Path cacheFile) {
+        if (!isInitialized) return null;
+        int n = jointStates.size();
+        float[] lower = new float[n];
+        float[] upper = new float[n];
+        float[] fallback = new float[n];
+        for (int i = 0; i < n; i++) {
+            JointState js = jointStates.get(i);
+            lower[i] = js.minLimit;
+            upper[i] = js.maxLimit;
+            fallback[i] = js.initialPosition;
+        }
+        MotionPrior prior = MotionPrior.fromLibrary(vmdDir, renderer.getRobotModel(), getJointNames(),
+                fallback, lower, upper, config.timeStep, config.latentDim,
+                config.latentVarianceTarget, config.latentRange, cacheFile);
+        if (prior != null) {
+            motionPrior = prior;
+            log(String.format("Motion prior: %d joints -> %d latent (%.1f%% variance)",
+                    n, prior.getLatentDim(), prior.getExplainedVarianceRatio() * 100));
+        }
+        return prior;
     }
     
     public int getJointCount() { return jointStates.size(); }
     public boolean isInitialized() { return isInitialized; }
     public boolean isTraining() { return trainingActive; }
     public boolean isDone() { return isDone; }
+    public boolean isLastStepDone() { return lastStepDone; }
     public int getStepCount() { return stepCount; }
     public int getEpisodeCount() { return episodeCount; }
     public float getEpisodeReward() { return episodeReward; }
@@ -584,12 +1406,12 @@ public class RLEnvironmentCore {
     
     public float getJointPosition(String name) {
         Integer idx = jointIndexMap.get(name);
-        return idx != null ? jointStates.get(idx).position : 0;
+        return idx != null ? state.position[jointStates.get(idx).id] : 0;
     }
     
     public float getJointVelocity(String name) {
         Integer idx = jointIndexMap.get(name);
-        return idx != null ? jointStates.get(idx).velocity : 0;
+        return idx != null ? state.velocity[jointStates.get(idx).id] : 0;
     }
     
     /**
@@ -612,6 +1434,18 @@ public class RLEnvironmentCore {
         info.put("reward", String.format("%.3f", episodeReward));
         info.put("lastR", String.format("%.4f", lastReward));
         info.put("healthy", isHealthy());
+        if (balanceSensor != null) {
+            MassProperties mp = balanceSensor.getMassProperties();
+            info.put("comHeight", String.format("%.3f", mp.getCenterOfMassHeight()));
+            info.put("zmpOffset", String.format("%.3f", mp.getZmpOffset()));
+        }
+        if (groundContact != null) {
+            info.put("contacts", groundContact.getContactCount());
+        }
+        if (selfCollisionSensor != null) {
+            info.put("selfCollision", String.format("%d (%.3f m)",
+                    selfCollisionSensor.getModel().getLastCollisionCount(), lastSelfPenetration));
+        }
         info.put("joints", jointStates.size());
         info.put("avgReward", String.format("%.2f", stats.getAverageReward()));
         return info;
@@ -627,6 +1461,18 @@ public class RLEnvironmentCore {
         this.logCallback = callback;
     }
     
+    public Consumer<String> getLogCallback() { return logCallback; }
+    
+    public void setEpisodeLogging(boolean enabled) { this.episodeLogging = enabled; }
+    
+    /**
+     * 리셋/에이전트 RNG 재시드 (같은 상태를 복사한 환경끼리 난수열이 겹치지 않도록)
+     */
+    public void reseed(long seed) {
+        resetRandom.setSeed(seed);
+        if (agent != null) agent.reseed(seed ^ 0x5DEECE66DL);
+    }
+    
     private void log(String msg) {
         logger.info(msg);
         if (logCallback != null) {
@@ -637,20 +1483,23 @@ public class RLEnvironmentCore {
     // ========== 내부 클래스 ==========
     
     /**
-     * 관절 상태
+     * 관절 메타데이터 (동적 상태는 state 저장소의 id 슬롯)
      */
-    private static class JointState {
+    static class JointState {
         String name;
-        float position;
-        float velocity;
-        float torque;
+        int id;               // 렌더러 관절 ID = 상태 저장소 인덱스 (initialize 때 한 번 해석)
         float minLimit;
         float maxLimit;
-        float targetPosition;
-        float targetVelocity;
         float initialPosition;
     }
     
+    /**
+     * 표시용 상태 스냅샷
+     */
+    public record Snapshot(int episode, int step, float episodeReward, float lastReward,
+                           float averageReward, float bestReward, int totalSteps,
+                           boolean healthy, float[] jointPositions) { }
+    
     /**
      * 행동 모드
      */
@@ -658,7 +1507,8 @@ public class RLEnvironmentCore {
         TORQUE,         // 직접 토크
         POSITION,       // 목표 위치 (절대)
         DELTA_POSITION, // 델타 위치 (상대)
-        VELOCITY        // 목표 속도
+        VELOCITY,       // 목표 속도
+        LATENT          // 모션 프라이어 잠재 계수 → 목표 위치 (MotionPrior 없으면 POSITION)
     }
     
     /**
@@ -683,6 +1533,8 @@ public class RLEnvironmentCore {
         
         // 관측
         public boolean includeVelocities = true;
+        public int historyLength = 1;               // 스택할 관측 프레임 수 K
+        public boolean includeActionHistory = false; // 프레임에 직전 행동 포함
         
         // 행동
         public ActionMode actionMode = ActionMode.POSITION;
@@ -690,6 +1542,14 @@ public class RLEnvironmentCore {
         public float maxVelocity = 5f;
         public float maxDeltaPosition = 0.1f;
         
+        // 모션 프라이어 (LATENT 행동, PCA 기저는 프라이어 계산 시 고정)
+        public int latentDim = 8;                  // <= 0이면 latentVarianceTarget으로 결정
+        public float latentVarianceTarget = 0.95f;
+        public float latentRange = 2f;             // z = ±1 ↔ ±range·σ
+        
+        // 키네마틱 접지 (물리 엔진 없이 FK + 복셀 바닥으로 루트 높이/이동 계산, initialize 때 적용)
+        public boolean kinematicGroundContact = false;
+        
         // PD 제어
         public float kp = 50f;
         public float kd = 5f;
@@ -702,6 +1562,17 @@ public class RLEnvironmentCore {
         public float controlCostWeight = 0.01f;
         public float velocityPenaltyWeight = 0.001f;
         public float symmetryRewardWeight = 0.1f;
+        public float selfCollisionPenaltyWeight = 0f;   // 침투 깊이(m)당 페널티 (0 = 검사 안 함, initialize 때 적용)
+        public int selfCollisionSamples = 20000;        // ACM 구축용 무작위 자세 수
+        
+        // 참조 모션 추적 보상 (참조 모션이 설정된 경우에만)
+        public float trackingRewardWeight = 1.0f;
+        public float trackingPoseWeight = 0.65f;
+        public float trackingVelocityWeight = 0.1f;
+        public float trackingEndEffectorWeight = 0.15f;
+        public float trackingPoseScale = 2f;
+        public float trackingVelocityScale = 0.1f;
+        public float trackingEndEffectorScale = 40f;
         
         // 목표
         public float targetHeight = 1.0f;
@@ -711,10 +1582,111 @@ public class RLEnvironmentCore {
         public boolean terminateOnFall = true;
         public float minHeight = 0.3f;
         public float maxHeight = 2.0f;
+        public float minComHeight = 0f;    // 지지면 기준 CoM 최소 높이 (m, 0 = 사용 안 함)
+        public float maxZmpOffset = 0f;    // ZMP-지지 중심 최대 수평 거리 (m, 0 = 사용 안 함)
         
         // 초기화
         public boolean randomizeInitial = true;
         public float initNoiseScale = 0.05f;
+        
+        // 참조 상태 초기화 (참조 모션이 설정된 경우에만)
+        public float referenceInitProbability = 0.9f;
+        public int referenceStatePoolSize = 1024;
+        
+        // 관측 정규화 (러닝 평균/분산, 정책 입력에 적용)
+        public boolean normalizeObservations = false;
+        
+        // int8 양자화 추론 (INFERENCE 모드에서만, 가중치가 바뀌면 다시 양자화)
+        public boolean quantizedInference = false;
+        
+        // 가속 학습 (AcceleratedTrainer)
+        public int maxStepsPerSecond = 2000;   // 0 = 무제한
+        
+        // 체크포인트 (CheckpointWriter가 연결된 경우에만)
+        public int checkpointInterval = 10;   // 에피소드 간격
+        public int checkpointKeep = 3;
+        
+        // 리플레이 (SegmentedReplayBuffer가 연결된 경우에만)
+        public int replaySampleSize = 0;      // 업데이트마다 섞을 과거 전이 수 (0 = 기록만)
+        
+        // ========== 상태 직렬화 (체크포인트) ==========
+        // 필드 이름 기준으로 기록 → 필드가 추가/삭제돼도 아는 것만 복원
+        
+        private static final Field[] FIELDS = Arrays.stream(Config.class.getFields())
+                .filter(f -> !Modifier.isStatic(f.getModifiers()))
+                .toArray(Field[]::new);
+        
+        int stateBytes() {
+            int size = 4;
+            for (Field f : FIELDS) {
+                size += CheckpointWriter.stringBytes(f.getName()) + 1;
+                Class<?> t = f.getType();
+                if (t == boolean.class) size += 1;
+                else if (t.isEnum()) size += CheckpointWriter.stringBytes(enumName(f));
+                else size += 4; // float, int
+            }
+            return size;
+        }
+        
+        void writeState(ByteBuffer buf) {
+            buf.putInt(FIELDS.length);
+            try {
+                for (Field f : FIELDS) {
+                    CheckpointWriter.putString(buf, f.getName());
+                    Class<?> t = f.getType();
+                    if (t == float.class) { buf.put((byte) 'F'); buf.putFloat(f.getFloat(this)); }
+                    else if (t == int.class) { buf.put((byte) 'I'); buf.putInt(f.getInt(this)); }
+                    else if (t == boolean.class) { buf.put((byte) 'Z'); buf.put((byte) (f.getBoolean(this) ? 1 : 0)); }
+                    else if (t.isEnum()) { buf.put((byte) 'E'); CheckpointWriter.putString(buf, enumName(f)); }
+                    else throw new IllegalStateException("Unsupported config field type: " + f);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void readState(ByteBuffer buf) {
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String name = CheckpointWriter.getString(buf);
+                char type = (char) buf.get();
+                Object value = switch (type) {
+                    case 'F' -> buf.getFloat();
+                    case 'I' -> buf.getInt();
+                    case 'Z' -> buf.get() != 0;
+                    case 'E' -> CheckpointWriter.getString(buf);
+                    default -> throw new IllegalStateException("Unknown config value type: " + type);
+                };
+                try {
+                    Field f = Config.class.getField(name);
+                    if (type == 'E') {
+                        f.set(this, Enum.valueOf((Class<Enum>) f.getType(), (String) value));
+                    } else {
+                        f.set(this, value);
+                    }
+                } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                    logger.warn("Checkpoint config field ignored: {}", name);
+                }
+            }
+        }
+        
+        void copyFrom(Config other) {
+            try {
+                for (Field f : FIELDS) f.set(this, f.get(other));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        private String enumName(Field f) {
+            try {
+                Object v = f.get(this);
+                return v != null ? ((Enum<?>) v).name() : "";
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
     
     /**
@@ -752,7 +1724,44 @@ public class RLEnvironmentCore {
             return (float) sum / episodeLengths.size();
         }
         
+        int stateBytes() {
+            return 4 + 4 + 4 + episodeRewards.size() * 8;
+        }
+        
+        void writeState(ByteBuffer buf) {
+            buf.putFloat(bestReward);
+            buf.putInt(totalSteps);
+            buf.putInt(episodeRewards.size());
+            for (int i = 0; i < episodeRewards.size(); i++) {
+                buf.putFloat(episodeRewards.get(i));
+                buf.putInt(episodeLengths.get(i));
+            }
+        }
+        
+        void copyFrom(Statistics other) {
+            bestReward = other.bestReward;
+            totalSteps = other.totalSteps;
+            episodeRewards.clear();
+            episodeRewards.addAll(other.episodeRewards);
+            episodeLengths.clear();
+            episodeLengths.addAll(other.episodeLengths);
+        }
+        
+        void readState(ByteBuffer buf) {
+            bestReward = buf.getFloat();
+            totalSteps = buf.getInt();
+            episodeRewards.clear();
+            episodeLengths.clear();
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                episodeRewards.add(buf.getFloat());
+                episodeLengths.add(buf.getInt());
+            }
+        }
+        
         public float getBestReward() { return bestReward == Float.NEGATIVE_INFINITY ? 0 : bestReward; }
+        public float getLastEpisodeReward() { return episodeRewards.isEmpty() ? 0 : episodeRewards.get(episodeRewards.size() - 1); }
+        public int getLastEpisodeLength() { return episodeLengths.isEmpty() ? 0 : episodeLengths.get(episodeLengths.size() - 1); }
         public int getTotalSteps() { return totalSteps; }
         public int getEpisodeCount() { return episodeRewards.size(); }
     }
@@ -768,10 +1777,23 @@ public class RLEnvironmentCore {
         // 경험 버퍼
         private final List<Experience> experiences = new ArrayList<>();
         private static final int BUFFER_SIZE = 2048;
+        private static final float EXPLORATION_STD = 0.2f;
+        private static final float MAX_IMPORTANCE_WEIGHT = 1f; // 리플레이 중요도 비율 상한 (절단)
         
         // 간단한 선형 정책
         private float[][] weights;
         private float learningRate = 0.001f;
+        private long updateCount = 0;
+        
+        // 관측 정규화 (통계는 항상 누적, 정책 입력 적용은 옵션)
+        private RunningNormalizer obsNormalizer;
+        private boolean normalizeObservations = false;
+        private float[] normScratch;
+        
+        // int8 양자화 정책 (INFERENCE 전용, 지연 생성)
+        private boolean quantizedInference = false;
+        private QuantizedPolicy quantized;
+        private long quantizedAt = -1;
         
         // VMD 목표 (모방 학습용)
         private float[] imitationTargets;
@@ -785,6 +1807,8 @@ public class RLEnvironmentCore {
         private void initializeWeights() {
             int obsDim = obsDimSupplier.getAsInt();
             weights = new float[obsDim][actionDim];
+            obsNormalizer = new RunningNormalizer(obsDim);
+            normScratch = new float[obsDim];
             
             float scale = (float) Math.sqrt(2.0 / (obsDim + actionDim));
             for (int i = 0; i < obsDim; i++) {
@@ -803,8 +1827,10 @@ public class RLEnvironmentCore {
                     return randomAction();
                     
                 case LEARNING:
+                    return policyAction(observation, true);
+                    
                 case INFERENCE:
-                    return policyAction(observation, mode == AgentMode.LEARNING);
+                    return quantizedInference ? quantizedAction(observation) : policyAction(observation, false);
                     
                 case IMITATION:
                     return imitationAction();
@@ -829,6 +1855,10 @@ public class RLEnvironmentCore {
         
         private float[] policyAction(float[] obs, boolean explore) {
             float[] action = new float[actionDim];
+            if (normalizeObservations && obs.length == normScratch.length) {
+                obsNormalizer.normalize(obs, normScratch);
+                obs = normScratch;
+            }
             
             for (int j = 0; j < actionDim; j++) {
                 float sum = 0;
@@ -838,7 +1868,7 @@ public class RLEnvironmentCore {
                 action[j] = (float) Math.tanh(sum);
                 
                 if (explore) {
-                    action[j] += (float)(random.nextGaussian() * 0.2);
+                    action[j] += (float)(random.nextGaussian() * EXPLORATION_STD);
                     action[j] = Math.max(-1f, Math.min(1f, action[j]));
                 }
             }
@@ -846,6 +1876,31 @@ public class RLEnvironmentCore {
             return action;
         }
         
+        private float[] quantizedAction(float[] obs) {
+            if (obs.length != weights.length) return policyAction(obs, false);
+            float[] action = new float[actionDim];
+            getQuantizedPolicy().act(obs, 0, action, 0);
+            return action;
+        }
+        
+        /**
+         * 현재 가중치의 양자화 정책 (업데이트/복원 후 첫 호출에서 다시 양자화)
+         */
+        public QuantizedPolicy getQuantizedPolicy() {
+            if (quantized == null || quantizedAt != updateCount) {
+                quantized = QuantizedPolicy.fromAgent(this);
+                quantizedAt = updateCount;
+            }
+            return quantized;
+        }
+        
+        /**
+         * float 정책 출력 (탐색 없음, 양자화 설정과 무관 - 정확도 비교 기준)
+         */
+        public float[] floatPolicyAction(float[] obs) {
+            return policyAction(obs, false);
+        }
+        
         private float[] imitationAction() {
             if (imitationTargets != null && imitationTargets.length == actionDim) {
                 return imitationTargets.clone();
@@ -857,13 +1912,67 @@ public class RLEnvironmentCore {
          * 경험 저장
          */
         public void storeExperience(float[] obs, float[] action, float reward, float[] nextObs, boolean done) {
-            experiences.add(new Experience(obs.clone(), action.clone(), reward, nextObs.clone(), done));
+            obsNormalizer.update(obs);
+            quantized = null; // 정규화 통계가 바뀜
+            if (normalizeObservations) {
+                // 정책이 본 입력(정규화된 관측)을 그대로 저장해 업데이트와 일치시킴
+                float[] o = obs.clone(), n = nextObs.clone();
+                obsNormalizer.normalize(o, o);
+                obsNormalizer.normalize(n, n);
+                experiences.add(new Experience(o, action.clone(), reward, n, done, 1f));
+            } else {
+                experiences.add(new Experience(obs.clone(), action.clone(), reward, nextObs.clone(), done, 1f));
+            }
             
             if (experiences.size() > BUFFER_SIZE) {
                 experiences.remove(0);
             }
         }
         
+        /**
+         * 탐색 정책(평균 tanh(Wx), 표준편차 EXPLORATION_STD 가우시안)에서 action의 로그 밀도 (정규화 상수 생략)
+         * 관측은 원본 - 정규화 사용 시 현재 통계로 변환
+         */
+        public float logDensity(float[] obs, float[] action) {
+            float[] mean = policyAction(obs, false);
+            double sum = 0;
+            for (int j = 0; j < actionDim && j < action.length; j++) {
+                double d = action[j] - mean[j];
+                sum += d * d;
+            }
+            return (float) (-sum / (2.0 * EXPLORATION_STD * EXPLORATION_STD));
+        }
+        
+        /**
+         * 리플레이 버퍼에서 균등 샘플링한 과거 전이를 경험에 추가 (정규화 통계는 갱신하지 않음)
+         * 
+         * update()는 현재 정책의 on-policy 기울기이므로 과거 정책의 전이는 중요도 비율
+         * π(a|s) / μ(a|s)로 가중 (MAX_IMPORTANCE_WEIGHT에서 절단 → 분산 제한).
+         * 버퍼의 남은 자리만큼만 추가 - 최근 on-policy 전이를 밀어내지 않음
+         */
+        public void storeReplay(SegmentedReplayBuffer buffer, int count) {
+            count = Math.min(count, BUFFER_SIZE - experiences.size());
+            if (count <= 0) return;
+            int od = buffer.getObservationDim(), ad = buffer.getActionDim();
+            float[] obs = new float[count * od], actions = new float[count * ad];
+            float[] rewards = new float[count], nextObs = new float[count * od];
+            boolean[] dones = new boolean[count];
+            float[] behaviour = new float[count];
+            int n = buffer.sample(random, count, obs, actions, rewards, nextObs, dones, behaviour);
+            
+            for (int b = 0; b < n; b++) {
+                float[] o = Arrays.copyOfRange(obs, b * od, (b + 1) * od);
+                float[] no = Arrays.copyOfRange(nextObs, b * od, (b + 1) * od);
+                float[] a = Arrays.copyOfRange(actions, b * ad, (b + 1) * ad);
+                float weight = (float) Math.min(MAX_IMPORTANCE_WEIGHT, Math.exp(logDensity(o, a) - behaviour[b]));
+                if (normalizeObservations) {
+                    obsNormalizer.normalize(o, o);
+                    obsNormalizer.normalize(no, no);
+                }
+                experiences.add(new Experience(o, a, rewards[b], no, dones[b], weight));
+            }
+        }
+        
         /**
          * 정책 업데이트 (간단한 REINFORCE)
          */
@@ -881,7 +1990,7 @@ public class RLEnvironmentCore {
             stdReward = (float) Math.sqrt(stdReward / experiences.size() + 1e-8);
             
             for (Experience e : experiences) {
-                float advantage = stdReward > 0 ? (e.reward - meanReward) / stdReward : 0;
+                float advantage = stdReward > 0 ? e.weight * (e.reward - meanReward) / stdReward : 0;
                 
                 for (int j = 0; j < actionDim && j < e.action.length; j++) {
                     for (int i = 0; i < e.obs.length && i < weights.length; i++) {
@@ -892,6 +2001,133 @@ public class RLEnvironmentCore {
             }
             
             experiences.clear();
+            updateCount++;
+        }
+        
+        public void setNormalizeObservations(boolean enabled) {
+            this.normalizeObservations = enabled;
+            quantized = null;
+        }
+        
+        public void setQuantizedInference(boolean enabled) {
+            this.quantizedInference = enabled;
+            quantized = null;
+        }
+        
+        public boolean isQuantizedInference() { return quantizedInference; }
+        public boolean isNormalizingObservations() { return normalizeObservations; }
+        
+        /** 가중치 [obsDim][actionDim] (읽기 전용으로 사용) */
+        float[][] weights() { return weights; }
+        
+        public RunningNormalizer getObservationNormalizer() { return obsNormalizer; }
+        public long getUpdateCount() { return updateCount; }
+        public float getLearningRate() { return learningRate; }
+        public void setLearningRate(float learningRate) { this.learningRate = learningRate; }
+        
+        void reseed(long seed) { random.setSeed(seed); }
+        
+        /**
+         * 정책 식별용 체크섬 (가중치 + 정규화 사용 여부, 평가 결과 비교용)
+         */
+        public long policyChecksum() {
+            java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+            ByteBuffer buf = ByteBuffer.allocate(4);
+            for (float[] row : weights) {
+                for (float w : row) {
+                    buf.clear();
+                    crc.update(buf.putFloat(w).flip());
+                }
+            }
+            crc.update(normalizeObservations ? 1 : 0);
+            return crc.getValue();
+        }
+        
+        // ========== 상태 직렬화 (체크포인트) ==========
+        
+        int stateBytes() {
+            int obsDim = weights.length;
+            int size = 4 + 4 + 4 + 8 + 8 + 1;
+            size += obsDim * actionDim * 4;
+            size += obsNormalizer.stateBytes();
+            size += 4 + (imitationTargets != null ? imitationTargets.length * 4 : 0);
+            size += 4;
+            for (Experience e : experiences) {
+                size += 12 + (e.obs.length + e.action.length + e.nextObs.length) * 4 + 4 + 1 + 4;
+            }
+            return size;
+        }
+        
+        void writeState(ByteBuffer buf) {
+            // RNG: 새 시드로 재설정 후 저장 (복원 시 같은 난수열)
+            long seed = random.nextLong();
+            random.setSeed(seed);
+            
+            buf.putInt(actionDim);
+            buf.putInt(weights.length);
+            buf.putFloat(learningRate);
+            buf.putLong(updateCount);
+            buf.putLong(seed);
+            buf.put((byte) (normalizeObservations ? 1 : 0));
+            for (float[] row : weights) {
+                buf.asFloatBuffer().put(row);
+                buf.position(buf.position() + row.length * 4);
+            }
+            obsNormalizer.writeState(buf);
+            
+            if (imitationTargets != null) {
+                CheckpointWriter.putFloats(buf, imitationTargets);
+            } else {
+                buf.putInt(-1);
+            }
+            
+            buf.putInt(experiences.size());
+            for (Experience e : experiences) {
+                CheckpointWriter.putFloats(buf, e.obs);
+                CheckpointWriter.putFloats(buf, e.action);
+                buf.putFloat(e.reward);
+                CheckpointWriter.putFloats(buf, e.nextObs);
+                buf.put((byte) (e.done ? 1 : 0));
+                buf.putFloat(e.weight);
+            }
+        }
+        
+        void readState(ByteBuffer buf) {
+            int a = buf.getInt();
+            int obsDim = buf.getInt();
+            if (a != actionDim || obsDim != weights.length) {
+                throw new IllegalStateException("Agent shape mismatch: " + obsDim + "x" + a
+                        + " != " + weights.length + "x" + actionDim);
+            }
+            learningRate = buf.getFloat();
+            updateCount = buf.getLong();
+            random.setSeed(buf.getLong());
+            normalizeObservations = buf.get() != 0;
+            for (float[] row : weights) {
+                buf.asFloatBuffer().get(row);
+                buf.position(buf.position() + row.length * 4);
+            }
+            obsNormalizer.readState(buf);
+            quantized = null;
+            
+            int imitationLen = buf.getInt();
+            if (imitationLen >= 0) {
+                buf.position(buf.position() - 4);
+                imitationTargets = CheckpointWriter.getFloats(buf);
+            } else {
+                imitationTargets = null;
+            }
+            
+            experiences.clear();
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                float[] o = CheckpointWriter.getFloats(buf);
+                float[] act = CheckpointWriter.getFloats(buf);
+                float r = buf.getFloat();
+                float[] next = CheckpointWriter.getFloats(buf);
+                boolean done = buf.get() != 0;
+                experiences.add(new Experience(o, act, r, next, done, buf.getFloat()));
+            }
         }
         
         /**
@@ -916,13 +2152,15 @@ public class RLEnvironmentCore {
             float[] obs, action, nextObs;
             float reward;
             boolean done;
+            float weight;   // 중요도 가중치 (on-policy = 1)
             
-            Experience(float[] obs, float[] action, float reward, float[] nextObs, boolean done) {
+            Experience(float[] obs, float[] action, float reward, float[] nextObs, boolean done, float weight) {
                 this.obs = obs;
                 this.action = action;
                 this.reward = reward;
                 this.nextObs = nextObs;
                 this.done = done;
+                this.weight = weight;
             }
         }
     }
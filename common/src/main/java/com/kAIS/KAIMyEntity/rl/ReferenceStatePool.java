@@ -0,0 +1,138 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reference State Initialization (RSI) 풀
+ *
+ * - 로드된 모션(VMD → URDFMotion)에서 리셋 상태를 미리 샘플링
+ * - 상태 = 관절 위치 + 중앙 차분 속도, 하나의 float[]에 연속 저장
+ * - reset() 시 시뮬레이션 없이 O(관절 수) 복사만 수행
+ *
+ * 레이아웃: states[s * stride + j] = 위치, states[s * stride + J + j] = 속도 (stride = 2J)
+ */
+public final class ReferenceStatePool {
+    private static final Logger logger = LogManager.getLogger();
+
+    /** 속도 차분 간격 (초) */
+    private static final float FD_STEP = 1f / 60f;
+
+    private final int jointCount;
+    private final int stride;
+    private final int size;
+    private final float[] states;
+    private final float[] times;
+    private final int[] motionIndex;
+
+    private ReferenceStatePool(int jointCount, int size) {
+        this.jointCount = jointCount;
+        this.stride = jointCount * 2;
+        this.size = size;
+        this.states = new float[size * stride];
+        this.times = new float[size];
+        this.motionIndex = new int[size];
+    }
+
+    /**
+     * 모션 목록에서 풀 생성
+     *
+     * @param motions    참조 모션들 (길이에 비례해 샘플 배분)
+     * @param jointNames 환경의 관절 순서
+     * @param lower      관절 하한 (클램프용)
+     * @param upper      관절 상한
+     * @param fallback   모션에 없는 관절의 기본값
+     * @param size       풀 크기
+     * @param seed       샘플링 시드
+     * @return 유효한 모션이 없으면 null
+     */
+    public static ReferenceStatePool build(List<URDFMotion> motions, List<String> jointNames,
+                                           float[] lower, float[] upper, float[] fallback,
+                                           int size, long seed) {
+        if (motions == null || motions.isEmpty() || jointNames.isEmpty() || size <= 0) return null;
+
+        float totalDuration = 0f;
+        for (URDFMotion m : motions) {
+            if (m != null && !m.keys.isEmpty()) totalDuration += m.duration();
+        }
+        if (totalDuration <= 1e-6f) {
+            logger.warn("ReferenceStatePool: no motion with positive duration");
+            return null;
+        }
+
+        int n = jointNames.size();
+        ReferenceStatePool pool = new ReferenceStatePool(n, size);
+        Random rand = new Random(seed);
+        float[] before = new float[n];
+        float[] after = new float[n];
+
+        // 전체 길이에 대해 층화 샘플링 → 모션 길이에 비례한 배분
+        for (int s = 0; s < size; s++) {
+            float global = (s + rand.nextFloat()) / size * totalDuration;
+
+            int mi = 0;
+            URDFMotion motion = null;
+            for (int k = 0; k < motions.size(); k++) {
+                URDFMotion m = motions.get(k);
+                if (m == null || m.keys.isEmpty()) continue;
+                motion = m;
+                mi = k;
+                if (global <= m.duration()) break;
+                global -= m.duration();
+            }
+            float duration = motion.duration();
+            float t = Math.min(global, duration);
+
+            int base = s * pool.stride;
+            motion.samplePose(t, jointNames, fallback, pool.states, base);
+
+            float t0 = Math.max(0f, t - FD_STEP);
+            float t1 = Math.min(duration, t + FD_STEP);
+            motion.samplePose(t0, jointNames, fallback, before, 0);
+            motion.samplePose(t1, jointNames, fallback, after, 0);
+            float span = t1 - t0;
+
+            for (int j = 0; j < n; j++) {
+                float p = pool.states[base + j];
+                pool.states[base + j] = Math.max(lower[j], Math.min(upper[j], p));
+                pool.states[base + n + j] = span > 1e-6f ? (after[j] - before[j]) / span : 0f;
+            }
+            pool.times[s] = t;
+            pool.motionIndex[s] = mi;
+        }
+
+        logger.info("ReferenceStatePool built: {} states from {} motion(s), {} joints, {}s total",
+                size, motions.size(), n, totalDuration);
+        return pool;
+    }
+
+    /** 균일 샘플링된 상태 인덱스 */
+    public int sampleIndex(Random rand) {
+        return rand.nextInt(size);
+    }
+
+    public float position(int state, int joint) {
+        return states[state * stride + joint];
+    }
+
+    public float velocity(int state, int joint) {
+        return states[state * stride + jointCount + joint];
+    }
+
+    /** 상태가 샘플링된 모션 내 시간 (초) */
+    public float time(int state) {
+        return times[state];
+    }
+
+    /** 상태가 샘플링된 모션 인덱스 */
+    public int motionIndex(int state) {
+        return motionIndex[state];
+    }
+
+    public int size() { return size; }
+    public int getJointCount() { return jointCount; }
+}
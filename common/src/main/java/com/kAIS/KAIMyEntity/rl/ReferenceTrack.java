@@ -0,0 +1,122 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * 참조 모션을 제어 주기로 미리 샘플링한 밀집 트랙 (DeepMimic 추적 보상용)
+ *
+ * - positions/velocities: [frame * J + j]
+ * - endEffectors: [frame * E * 3 + e * 3 + k] (루트 좌표계)
+ * - 보상 계산 시 키프레임 탐색 없이 관절당 배열 읽기 1회
+ */
+public final class ReferenceTrack {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final float dt;
+    private final int frames;
+    private final int jointCount;
+    private final int endEffectorCount;
+    private final boolean loop;
+    private final float[] positions;
+    private final float[] velocities;
+    private final float[] endEffectors;
+
+    private ReferenceTrack(float dt, int frames, int jointCount, int endEffectorCount, boolean loop) {
+        this.dt = dt;
+        this.frames = frames;
+        this.jointCount = jointCount;
+        this.endEffectorCount = endEffectorCount;
+        this.loop = loop;
+        this.positions = new float[frames * jointCount];
+        this.velocities = new float[frames * jointCount];
+        this.endEffectors = new float[frames * endEffectorCount * 3];
+    }
+
+    /**
+     * @param motion     참조 모션
+     * @param jointNames 환경 관절 순서
+     * @param fallback   모션에 없는 관절 기본값
+     * @param dt         제어 주기 (초)
+     * @param chains     말단 FK (null이면 말단 항 없음)
+     * @return 키프레임이 없는 모션이면 null
+     * @throws IllegalArgumentException dt가 0 이하일 때
+     */
+    static ReferenceTrack build(URDFMotion motion, List<String> jointNames, float[] fallback,
+                                float dt, EndEffectorChains chains) {
+        if (dt <= 0f) throw new IllegalArgumentException("Reference track dt must be positive: " + dt);
+        if (motion == null || motion.keys.isEmpty()) return null;
+
+        int n = jointNames.size();
+        float duration = motion.duration();
+        int frames = Math.max(1, (int) Math.floor(duration / dt) + 1);
+        int e = chains != null ? chains.getCount() : 0;
+
+        ReferenceTrack track = new ReferenceTrack(dt, frames, n, e, motion.loop);
+        for (int f = 0; f < frames; f++) {
+            motion.samplePose(Math.min(f * dt, duration), jointNames, fallback, track.positions, f * n);
+        }
+
+        // 중앙 차분 속도 (루프 모션은 경계에서 순환)
+        for (int f = 0; f < frames; f++) {
+            int prev = f - 1, next = f + 1;
+            if (motion.loop && frames > 2) {
+                prev = (prev + frames) % frames;
+                next = next % frames;
+            } else {
+                prev = Math.max(0, prev);
+                next = Math.min(frames - 1, next);
+            }
+            float span = (next - prev + (next < prev ? frames : 0)) * dt;
+            for (int j = 0; j < n; j++) {
+                float d = track.positions[next * n + j] - track.positions[prev * n + j];
+                track.velocities[f * n + j] = span > 0f ? d / span : 0f;
+            }
+        }
+
+        if (chains != null) {
+            float[] q = new float[n];
+            for (int f = 0; f < frames; f++) {
+                System.arraycopy(track.positions, f * n, q, 0, n);
+                chains.compute(q, track.endEffectors, f * e * 3);
+            }
+        }
+
+        logger.info("ReferenceTrack built: '{}' {} frames @ {}s, {} joints, {} end-effectors",
+                motion.name, frames, dt, n, e);
+        return track;
+    }
+
+    /**
+     * 모션 시간 → 프레임 인덱스 (루프면 순환, 아니면 마지막 프레임 유지)
+     */
+    public int frameAt(float time) {
+        int f = Math.round(time / dt);
+        if (loop) {
+            f %= frames;
+            return f < 0 ? f + frames : f;
+        }
+        return Math.max(0, Math.min(frames - 1, f));
+    }
+
+    public float position(int frame, int joint) {
+        return positions[frame * jointCount + joint];
+    }
+
+    public float velocity(int frame, int joint) {
+        return velocities[frame * jointCount + joint];
+    }
+
+    /** 말단 e의 k축 위치 (k = 0,1,2) */
+    public float endEffector(int frame, int e, int k) {
+        return endEffectors[(frame * endEffectorCount + e) * 3 + k];
+    }
+
+    public int getFrameCount() { return frames; }
+    public int getJointCount() { return jointCount; }
+    public int getEndEffectorCount() { return endEffectorCount; }
+    public float getDt() { return dt; }
+}
@@ -0,0 +1,112 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 관측 정규화용 러닝 평균/분산 (차원별 Welford 누적)
+ *
+ * normalize: (x - mean) / sqrt(var + eps), [-clip, clip]로 자름
+ */
+public final class RunningNormalizer {
+    private static final float EPS = 1e-8f;
+
+    private final int dim;
+    private final double[] mean;
+    private final double[] m2;
+    private long count = 0;
+    private float clip = 5f;
+    private boolean[] passThrough; // true인 차원은 정규화하지 않음 (통계는 누적)
+
+    public RunningNormalizer(int dim) {
+        this.dim = dim;
+        this.mean = new double[dim];
+        this.m2 = new double[dim];
+    }
+
+    /** 샘플 1개 누적 */
+    public void update(float[] x) {
+        count++;
+        int n = Math.min(dim, x.length);
+        for (int i = 0; i < n; i++) {
+            double d = x[i] - mean[i];
+            mean[i] += d / count;
+            m2[i] += d * (x[i] - mean[i]);
+        }
+    }
+
+    /** x를 정규화해 out에 기록 (x == out 가능) */
+    public void normalize(float[] x, float[] out) {
+        int n = Math.min(dim, x.length);
+        for (int i = 0; i < n; i++) {
+            if (passThrough != null && passThrough[i]) {
+                out[i] = x[i];
+                continue;
+            }
+            double var = count > 1 ? m2[i] / (count - 1) : 1.0;
+            float v = (float) ((x[i] - mean[i]) / Math.sqrt(var + EPS));
+            out[i] = Math.max(-clip, Math.min(clip, v));
+        }
+    }
+
+    /**
+     * 현재 통계를 고정 affine으로 내보냄: clip((x - mean) * invStd, low, high)
+     * (양자화 추론처럼 매 호출 sqrt 없이 같은 정규화를 적용할 때)
+     */
+    public void exportAffine(float[] meanOut, float[] invStdOut, float[] lowOut, float[] highOut) {
+        for (int i = 0; i < dim; i++) {
+            if (passThrough != null && passThrough[i]) {
+                meanOut[i] = 0f;
+                invStdOut[i] = 1f;
+                lowOut[i] = Float.NEGATIVE_INFINITY;
+                highOut[i] = Float.POSITIVE_INFINITY;
+                continue;
+            }
+            double var = count > 1 ? m2[i] / (count - 1) : 1.0;
+            meanOut[i] = (float) mean[i];
+            invStdOut[i] = (float) (1.0 / Math.sqrt(var + EPS));
+            lowOut[i] = -clip;
+            highOut[i] = clip;
+        }
+    }
+    
+    public void reset() {
+        count = 0;
+        java.util.Arrays.fill(mean, 0.0);
+        java.util.Arrays.fill(m2, 0.0);
+    }
+
+    // ========== 상태 직렬화 (체크포인트) ==========
+
+    int stateBytes() {
+        return 4 + 8 + 4 + dim * 16;
+    }
+
+    void writeState(ByteBuffer buf) {
+        buf.putInt(dim);
+        buf.putLong(count);
+        buf.putFloat(clip);
+        for (int i = 0; i < dim; i++) buf.putDouble(mean[i]);
+        for (int i = 0; i < dim; i++) buf.putDouble(m2[i]);
+    }
+
+    void readState(ByteBuffer buf) {
+        int d = buf.getInt();
+        if (d != dim) throw new IllegalStateException("Normalizer dim mismatch: " + d + " != " + dim);
+        count = buf.getLong();
+        clip = buf.getFloat();
+        for (int i = 0; i < dim; i++) mean[i] = buf.getDouble();
+        for (int i = 0; i < dim; i++) m2[i] = buf.getDouble();
+    }
+
+    /**
+     * 정규화 제외 차원 지정 (null = 전부 정규화). 체크포인트에는 저장하지 않음 - 관측 레이아웃에서 다시 계산
+     */
+    public void setPassThrough(boolean[] mask) {
+        this.passThrough = mask != null && mask.length == dim ? mask.clone() : null;
+    }
+
+    public int getDim() { return dim; }
+    public long getCount() { return count; }
+    public float getClip() { return clip; }
+    public void setClip(float clip) { this.clip = clip; }
+}
@@ -0,0 +1,417 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 디스크 스필 리플레이 버퍼 (고정 크기 세그먼트)
+ *
+ * - 전이(transition) 1개 = float 레코드 [obs | action | reward | nextObs | done | logDensity]
+ *   (logDensity: 기록 당시 행동 정책의 행동 로그 밀도 → 샘플링 쪽이 중요도 비율로 보정)
+ * - 최근 hotSegments개 세그먼트는 힙 float[]에, 그 이전은 메모리 맵 파일로 스필
+ * - 샘플링은 전 세그먼트 균등; 맵 세그먼트 읽기는 OS 페이지 캐시가 담당 (힙 사용 없음)
+ * - 세그먼트 수가 maxSegments를 넘으면 가장 오래된 것부터 덮어씀 (파일은 슬롯 단위 재사용)
+ * - 스필은 백그라운드 스레드가 수행, 완료 전까지는 힙 배열에서 계속 읽음
+ * - 매니페스트(원자적 rename)로 디스크 세그먼트 범위를 기록 → 재시작 후 open()이 이어서 사용
+ *   (슬롯 파일 덮어쓰기와 매니페스트 갱신 사이에 죽으면 헤더가 안 맞는 세그먼트는 버리고 나머지로 복구)
+ *
+ * 힙 사용량 상한 ≈ (hotSegments + 1) × segmentSize × recordFloats × 4 바이트.
+ * add/sample은 같은 스레드(학습 스레드)에서 호출한다고 가정.
+ * close() 없이 종료되면 아직 스필되지 않은 hot 세그먼트는 유실.
+ */
+public final class SegmentedReplayBuffer implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int SEGMENT_MAGIC = 0x4B525053;  // "KRPS"
+    private static final int MANIFEST_MAGIC = 0x4B52504D; // "KRPM"
+    private static final int HEADER = 16;                 // magic | recordFloats | count | id(하위 32비트)
+    private static final int RECORD_VERSION = 1;          // 매니페스트에 기록, 레코드 구성이 바뀌면 증가
+    private static final String MANIFEST = "replay.manifest";
+
+    private final Path dir;
+    private final int obsDim;
+    private final int actionDim;
+    private final int recordFloats;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int hotSegments;
+    private final long fileBytes;
+
+    /** id % maxSegments 슬롯 링 */
+    private final Segment[] slots;
+    private volatile long oldestId = 0;
+    private volatile long writeId = 0;
+    private volatile long lastSpilledId = -1;
+
+    private final ConcurrentLinkedQueue<float[]> freeArrays = new ConcurrentLinkedQueue<>();
+    private final ExecutorService spiller;
+
+    private SegmentedReplayBuffer(Path dir, int obsDim, int actionDim, int segmentSize,
+                                  int maxSegments, int hotSegments) {
+        this.dir = dir;
+        this.obsDim = obsDim;
+        this.actionDim = actionDim;
+        this.recordFloats = obsDim * 2 + actionDim + 3;
+        this.segmentSize = segmentSize;
+        this.hotSegments = Math.max(1, hotSegments);
+        this.maxSegments = Math.max(this.hotSegments + 2, maxSegments);
+        this.fileBytes = HEADER + (long) segmentSize * recordFloats * 4;
+        this.slots = new Segment[this.maxSegments];
+
+        spiller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "RL-Replay-Spill");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 디렉토리의 버퍼 열기 (매니페스트가 있고 차원이 맞으면 이어서 사용, 아니면 새로 시작)
+     *
+     * @param segmentSize 세그먼트당 전이 수
+     * @param maxSegments 전체 세그먼트 수 (총 용량 = segmentSize × maxSegments)
+     * @param hotSegments 힙에 유지할 최근 세그먼트 수 (쓰기 중인 것 포함)
+     */
+    public static SegmentedReplayBuffer open(Path dir, int obsDim, int actionDim, int segmentSize,
+                                             int maxSegments, int hotSegments) throws IOException {
+        Files.createDirectories(dir);
+        SegmentedReplayBuffer buf = new SegmentedReplayBuffer(dir, obsDim, actionDim,
+                segmentSize, maxSegments, hotSegments);
+        if (!buf.recover()) {
+            buf.slots[0] = new Segment(0, buf.newHeapArray());
+        }
+        logger.info("Replay buffer opened: {} ({} transitions, capacity {}, {} floats/record)",
+                dir, buf.size(), buf.capacity(), buf.recordFloats);
+        return buf;
+    }
+
+    // ========== 쓰기 ==========
+
+    /**
+     * 전이 1개 추가 (obs/nextObs 길이 obsDim, action 길이 actionDim)
+     * @param logDensity 행동을 고른 정책에서 action의 로그 밀도 (정규화 상수는 생략 가능)
+     */
+    public void add(float[] obs, float[] action, float reward, float[] nextObs, boolean done, float logDensity) {
+        Segment s = slots[slot(writeId)];
+        float[] h = s.heap;
+        int base = s.count * recordFloats;
+
+        System.arraycopy(obs, 0, h, base, obsDim);
+        System.arraycopy(action, 0, h, base + obsDim, actionDim);
+        h[base + obsDim + actionDim] = reward;
+        System.arraycopy(nextObs, 0, h, base + obsDim + actionDim + 1, obsDim);
+        h[base + recordFloats - 2] = done ? 1f : 0f;
+        h[base + recordFloats - 1] = logDensity;
+        s.count++;
+
+        if (s.count == segmentSize) {
+            advanceSegment();
+        }
+    }
+
+    private void advanceSegment() {
+        long next = writeId + 1;
+        if (next - oldestId >= maxSegments) {
+            oldestId = next - maxSegments + 1; // 가장 오래된 세그먼트 슬롯 재사용
+        }
+        slots[slot(next)] = new Segment(next, newHeapArray());
+        writeId = next;
+
+        // hot 범위를 벗어난 세그먼트 스필
+        long spillId = next - hotSegments;
+        if (spillId >= oldestId) {
+            spill(slots[slot(spillId)]);
+        }
+    }
+
+    private float[] newHeapArray() {
+        float[] a = freeArrays.poll();
+        return a != null ? a : new float[segmentSize * recordFloats];
+    }
+
+    private int slot(long id) {
+        return (int) (id % maxSegments);
+    }
+
+    // ========== 샘플링 ==========
+
+    /** 저장된 전이 수 */
+    public long size() {
+        long full = writeId - oldestId;
+        return full * segmentSize + slots[slot(writeId)].count;
+    }
+
+    public long capacity() {
+        return (long) segmentSize * maxSegments;
+    }
+
+    /**
+     * 균등 샘플링 batch개 → 배치 우선 평탄 배열에 기록
+     * (obs[b*obsDim..], actions[b*actionDim..], rewards[b], nextObs[b*obsDim..], dones[b], logDensities[b])
+     * @return 실제 샘플 수 (비어 있으면 0)
+     */
+    public int sample(Random rand, int batch, float[] obs, float[] actions, float[] rewards,
+                      float[] nextObs, boolean[] dones, float[] logDensities) {
+        long total = size();
+        if (total == 0) return 0;
+
+        long first = oldestId;
+        for (int b = 0; b < batch; b++) {
+            long g = (long) (rand.nextDouble() * total);
+            long id = first + g / segmentSize;
+            int idx = (int) (g % segmentSize);
+            slots[slot(id)].read(idx, recordFloats, obsDim, actionDim, b,
+                    obs, actions, rewards, nextObs, dones, logDensities);
+        }
+        return batch;
+    }
+
+    // ========== 스필 / 매니페스트 ==========
+
+    private void spill(Segment s) {
+        spiller.execute(() -> {
+            try {
+                writeSegment(s);
+            } catch (IOException e) {
+                // 스필 실패 시 힙에 남겨둠 (메모리 상한은 넘지만 데이터는 유지)
+                logger.error("Replay segment spill failed: {}", s.id, e);
+            }
+        });
+    }
+
+    private void writeSegment(Segment s) throws IOException {
+        float[] h = s.heap;
+        if (h == null) return;
+
+        Path file = dir.resolve(String.format("replay-%04d.seg", slot(s.id)));
+        MappedByteBuffer m;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            m = ch.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+        }
+        m.order(ByteOrder.LITTLE_ENDIAN);
+        int count = s.count;
+        m.putInt(0, SEGMENT_MAGIC);
+        m.putInt(4, recordFloats);
+        m.putInt(8, count);
+        m.putInt(12, (int) s.id);
+        floatView(m).put(0, h, 0, count * recordFloats);
+        m.force();
+
+        // 맵을 먼저 공개한 뒤 힙 해제 (읽는 쪽은 heap → mapped 순으로 확인)
+        s.attach(m, floatView(m));
+        s.heap = null;
+        if (freeArrays.size() < hotSegments) freeArrays.offer(h);
+
+        lastSpilledId = Math.max(lastSpilledId, s.id);
+        writeManifest();
+    }
+
+    private FloatBuffer floatView(MappedByteBuffer m) {
+        return m.slice(HEADER, (int) (fileBytes - HEADER)).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    private void writeManifest() throws IOException {
+        long last = lastSpilledId;
+        long first = Math.max(oldestId, last - maxSegments + 1);
+
+        ByteBuffer b = ByteBuffer.allocate(4 * 6 + 16).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MANIFEST_MAGIC).putInt(obsDim).putInt(actionDim).putInt(segmentSize)
+                .putInt(maxSegments).putInt(RECORD_VERSION).putLong(first).putLong(last).flip();
+
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 매니페스트 기준으로 디스크 세그먼트 맵핑. 마지막 세그먼트가 덜 찼으면 힙으로 올려 이어 씀
+     * 파일이 없거나 잘렸거나 헤더가 안 맞는 세그먼트는 버림 - 앞쪽(링이 덮어쓴 가장 오래된 것)은 건너뛰고,
+     * 중간에서 나오면 그 앞까지만 사용 (샘플링은 연속된 ID 범위를 가정)
+     */
+    private boolean recover() throws IOException {
+        Path manifest = dir.resolve(MANIFEST);
+        if (!Files.exists(manifest)) return false;
+
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(manifest)).order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < 40 || b.getInt() != MANIFEST_MAGIC) {
+            logger.warn("Replay manifest unreadable, starting empty: {}", manifest);
+            return false;
+        }
+        int od = b.getInt(), ad = b.getInt(), ss = b.getInt(), ms = b.getInt();
+        int version = b.getInt();
+        long first = b.getLong(), last = b.getLong();
+        if (od != obsDim || ad != actionDim || ss != segmentSize || ms != maxSegments || version != RECORD_VERSION) {
+            logger.warn("Replay layout changed ({}x{} seg {} x{} v{}), starting empty", od, ad, ss, ms, version);
+            return false;
+        }
+        if (last < first) return false;
+
+        long listedFirst = first, listedLast = last;
+        for (long id = listedFirst; id <= listedLast; id++) {
+            Segment s = mapSegment(id);
+            if (s == null) {
+                if (id == first) {
+                    first = id + 1;  // 앞쪽 손상: 건너뜀
+                    continue;
+                }
+                last = id - 1;       // 중간/뒤쪽 손상: 여기서 자름
+                break;
+            }
+            slots[slot(id)] = s;
+        }
+        if (first > last) {
+            Arrays.fill(slots, null);
+            logger.warn("Replay segments {}..{} unreadable, starting empty", listedFirst, listedLast);
+            return false;
+        }
+        if (first != listedFirst || last != listedLast) {
+            logger.warn("Replay manifest listed segments {}..{}, recovered {}..{} (dropped mismatched segments)",
+                    listedFirst, listedLast, first, last);
+        }
+
+        oldestId = first;
+        lastSpilledId = last;
+        Segment tail = slots[slot(last)];
+        if (tail.count < segmentSize) {
+            // 덜 찬 마지막 세그먼트는 힙으로 올려 계속 기록
+            float[] h = newHeapArray();
+            tail.view.get(0, h, 0, tail.count * recordFloats);
+            Segment hot = new Segment(last, h);
+            hot.count = tail.count;
+            slots[slot(last)] = hot;
+            writeId = last;
+        } else {
+            writeId = last + 1;
+            if (writeId - oldestId >= maxSegments) oldestId = writeId - maxSegments + 1;
+            slots[slot(writeId)] = new Segment(writeId, newHeapArray());
+        }
+        logger.info("Replay buffer recovered: segments {}..{}", first, last);
+        return true;
+    }
+
+    /**
+     * 세그먼트 파일 읽기 전용 맵핑. 없음/잘림/헤더 불일치(다른 ID로 덮어씀, 쓰다 만 파일)면 null
+     */
+    private Segment mapSegment(long id) {
+        Path file = dir.resolve(String.format("replay-%04d.seg", slot(id)));
+        MappedByteBuffer m;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < fileBytes) {
+                logger.warn("Replay segment truncated: {}", file);
+                return null;
+            }
+            m = ch.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+        } catch (IOException e) {
+            logger.warn("Replay segment unreadable: {} ({})", file, e.getMessage());
+            return null;
+        }
+        m.order(ByteOrder.LITTLE_ENDIAN);
+        int count = m.getInt(8);
+        if (m.getInt(0) != SEGMENT_MAGIC || m.getInt(4) != recordFloats || m.getInt(12) != (int) id
+                || count < 0 || count > segmentSize) {
+            logger.warn("Replay segment header mismatch: {} (expected id {})", file, id);
+            return null;
+        }
+        Segment s = new Segment(id, null);
+        s.count = count;
+        s.attach(m, floatView(m));
+        return s;
+    }
+
+    // ========== 종료 ==========
+
+    /**
+     * 힙에 남은 세그먼트(쓰기 중인 것 포함)를 모두 스필하고 종료
+     */
+    @Override
+    public void close() {
+        long from = Math.max(oldestId, writeId - hotSegments + 1);
+        for (long id = from; id <= writeId; id++) {
+            Segment s = slots[slot(id)];
+            if (s != null && s.heap != null && s.count > 0) spill(s);
+        }
+        spiller.shutdown();
+        try {
+            if (!spiller.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Replay spill did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Replay buffer closed: {} transitions in {}", size(), dir);
+    }
+
+    public int getObservationDim() { return obsDim; }
+    public int getActionDim() { return actionDim; }
+    public int getSegmentSize() { return segmentSize; }
+    public int getHotSegments() { return hotSegments; }
+    public Path getDirectory() { return dir; }
+
+    // ========== 세그먼트 ==========
+
+    private static final class Segment {
+        final long id;
+        volatile float[] heap;
+        volatile FloatBuffer view;
+        volatile int count;
+        @SuppressWarnings("unused")
+        private MappedByteBuffer mapping; // view의 원본 매핑 유지
+
+        Segment(long id, float[] heap) {
+            this.id = id;
+            this.heap = heap;
+        }
+
+        void attach(MappedByteBuffer m, FloatBuffer v) {
+            this.mapping = m;
+            this.view = v;
+        }
+
+        void read(int idx, int recordFloats, int obsDim, int actionDim, int b,
+                  float[] obs, float[] actions, float[] rewards, float[] nextObs, boolean[] dones,
+                  float[] logDensities) {
+            int base = idx * recordFloats;
+            int a = base + obsDim;
+            int r = a + actionDim;
+            float[] h = heap;
+            if (h != null) {
+                System.arraycopy(h, base, obs, b * obsDim, obsDim);
+                System.arraycopy(h, a, actions, b * actionDim, actionDim);
+                rewards[b] = h[r];
+                System.arraycopy(h, r + 1, nextObs, b * obsDim, obsDim);
+                dones[b] = h[base + recordFloats - 2] != 0f;
+                if (logDensities != null) logDensities[b] = h[base + recordFloats - 1];
+            } else {
+                FloatBuffer v = view;
+                v.get(base, obs, b * obsDim, obsDim);
+                v.get(a, actions, b * actionDim, actionDim);
+                rewards[b] = v.get(r);
+                v.get(r + 1, nextObs, b * obsDim, obsDim);
+                dones[b] = v.get(base + recordFloats - 2) != 0f;
+                if (logDensities != null) logDensities[b] = v.get(base + recordFloats - 1);
+            }
+        }
+    }
+}
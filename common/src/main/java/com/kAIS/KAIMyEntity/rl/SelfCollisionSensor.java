@@ -0,0 +1,43 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.SelfCollisionModel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 링크 변환 → 자기 충돌 침투 깊이 (보상 페널티용)
+ *
+ * - 캡슐은 렌더러가 읽어 둔 STL 메시로 맞춤, ACM은 구축 시 공용 풀에서 병렬 샘플링
+ * - penetration()은 환경이 계산한 링크 FK를 받아 할당 없이 남은 캡슐 쌍만 검사
+ */
+final class SelfCollisionSensor {
+    private final SelfCollisionModel model;
+
+    private SelfCollisionSensor(SelfCollisionModel model) {
+        this.model = model;
+    }
+
+    /**
+     * 렌더러 모델/메시에서 구성. 트리가 없거나 검사할 쌍이 없으면 null
+     */
+    static SelfCollisionSensor build(URDFModelOpenGLWithSTL renderer, int samples) {
+        KinematicTree tree = renderer.getRobotModel().getKinematicTree();
+        if (tree == null) return null;
+        SelfCollisionModel.Settings settings = new SelfCollisionModel.Settings();
+        settings.samples = samples;
+        SelfCollisionModel model = SelfCollisionModel.build(tree, link -> renderer.getLinkMesh(link.name),
+                settings, ForkJoinPool.commonPool());
+        return model.getCheckedPairCount() > 0 ? new SelfCollisionSensor(model) : null;
+    }
+
+    /**
+     * 링크 변환(트리 FK 결과)의 침투 깊이 합계 (m)
+     */
+    float penetration(float[] world) {
+        return model.evaluate(world);
+    }
+
+    SelfCollisionModel getModel() { return model; }
+}
@@ -0,0 +1,126 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import com.kAIS.KAIMyEntity.urdf.control.URDFSimpleController;
+import com.kAIS.KAIMyEntity.urdf.kinematics.ArticulatedBodyDynamics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.BatchForwardKinematics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Random;
+
+/**
+ * 헤드리스 환경 처리량 측정 (초당 스텝, 무작위 행동, 자동 리셋) - 같은 Config/dt로
+ * - jointOnly: 관절 PD 적분만 (kinematicGroundContact = false)
+ * - groundContact: 관절 PD + 링크 FK + 복셀 바닥 접촉 (평평한 바닥)
+ * - articulated: 같은 로봇의 ABA 백엔드를 평평한 바닥에 세워 진행 (접촉 포함, 전체 동역학 기준선)
+ *   컨트롤러가 있으면 URDFSimpleController.benchmarkDynamics (PD/피드포워드 + 상태 동기화 포함), 없으면 엔진 단독
+ * - ode: 같은 컨트롤러의 ODE 경로 (PhysicsManager 월드 step, 블록 메시 충돌 포함)
+ *   ODE4J는 게임 클라이언트에서만 초기화되므로 헤드리스에서는 0 → 에디터의 Bench 버튼으로 측정
+ * - batchFk: 같은 로봇 트리의 BatchForwardKinematics 처리량 (초당 자세, 공용 ForkJoinPool)
+ * 컨트롤러 측정은 렌더러 관절 저장소와 공유 ODE 월드를 쓰므로 클라이언트 스레드에서 호출
+ */
+public final class ThroughputBenchmark {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int FK_POSES = 4096;
+    private static final int FK_ROUNDS = 8;
+
+    private ThroughputBenchmark() {}
+
+    public static Report measure(URDFModelOpenGLWithSTL renderer, RLEnvironmentCore.Config base, int steps) {
+        float dt = base.timeStep > 0 ? base.timeStep : 0.02f;
+        double jointOnly = measureEnvironmentSteps(renderer, base, false, steps, dt);
+        double contact = measureEnvironmentSteps(renderer, base, true, steps, dt);
+
+        double articulated = 0;
+        double ode = 0;
+        URDFSimpleController controller = renderer != null ? renderer.getController() : null;
+        KinematicTree tree = renderer != null && renderer.getRobotModel() != null
+                ? renderer.getRobotModel().getKinematicTree() : null;
+        if (controller != null) {
+            URDFSimpleController.DynamicsBenchmark dynamics = controller.benchmarkDynamics(steps, dt);
+            articulated = dynamics.articulatedStepsPerSecond();
+            ode = dynamics.odeStepsPerSecond();
+        } else if (tree != null) {
+            ArticulatedBodyDynamics engine = ArticulatedBodyDynamics.create(tree, null);
+            engine.place(VoxelOccupancy.flatGround(-1), 0.5, engine.getStandingHeight(), 0.5);
+            articulated = engine.measureStepsPerSecond(steps, dt);
+        }
+        double batchFk = tree != null ? measureBatchPoses(new BatchForwardKinematics(tree), FK_POSES, FK_ROUNDS) : 0;
+
+        Report report = new Report(steps, dt, jointOnly, contact, articulated, ode, batchFk);
+        logger.info("Environment throughput (dt={}): joint-only {} steps/s, ground contact {} steps/s, "
+                        + "articulated {} steps/s, ODE {} steps/s (contact vs articulated {}, vs ODE {})",
+                dt, String.format("%.0f", jointOnly), String.format("%.0f", contact),
+                String.format("%.0f", articulated), ode > 0 ? String.format("%.0f", ode) : "n/a",
+                articulated > 0 ? String.format("%.1fx", report.contactSpeedupOverArticulated()) : "n/a",
+                ode > 0 ? String.format("%.1fx", report.contactSpeedupOverOde()) : "n/a");
+        return report;
+    }
+
+    /**
+     * 무작위 자세(±π)로 배치 FK 처리량 측정 (라운드 1회 워밍업 후 나머지 평균)
+     * @return 초당 자세 수
+     */
+    public static double measureBatchPoses(BatchForwardKinematics batch, int poses, int rounds) {
+        KinematicTree tree = batch.getTree();
+        Random random = new Random(42);
+        float[] q = new float[poses * tree.getJointCount()];
+        for (int i = 0; i < q.length; i++) q[i] = (random.nextFloat() * 2f - 1f) * (float) Math.PI;
+        float[] out = batch.newOutput(poses);
+
+        batch.compute(q, poses, out);
+        int r = Math.max(1, rounds);
+        long start = System.nanoTime();
+        for (int i = 0; i < r; i++) batch.compute(q, poses, out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = seconds > 0 ? poses * (double) r / seconds : 0;
+        logger.info("Batch FK: {} links, {} poses x {} rounds, chunk {} -> {} poses/s",
+                tree.getLinkCount(), poses, r, batch.getChunkSize(), String.format("%.0f", rate));
+        return rate;
+    }
+
+    private static double measureEnvironmentSteps(URDFModelOpenGLWithSTL renderer, RLEnvironmentCore.Config base,
+                                                  boolean groundContact, int steps, float dt) {
+        RLEnvironmentCore env = RLEnvironmentCore.create();
+        env.setEpisodeLogging(false);
+        env.setRendererSync(false);
+        env.getConfig().copyFrom(base);
+        env.getConfig().kinematicGroundContact = groundContact;
+        env.getConfig().terminateOnFall = false;   // 종료 로그 없이 maxEpisodeSteps마다 리셋
+        env.initialize(renderer);
+        if (!env.isInitialized()) return 0;
+        env.reset();
+
+        Random random = new Random(1L);
+        float[] action = new float[env.getActionDim()];
+        int warmup = Math.max(1, steps / 10);
+        long start = 0;
+        for (int i = 0; i < warmup + steps; i++) {
+            if (i == warmup) start = System.nanoTime();
+            for (int k = 0; k < action.length; k++) action[k] = random.nextFloat() * 2f - 1f;
+            env.step(action, 0, dt);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds > 0 ? steps / seconds : 0;
+    }
+
+    /**
+     * @param odeStepsPerSecond     ODE 미초기화(헤드리스 포함)면 0
+     * @param batchFkPosesPerSecond 배치 FK 초당 자세 수 (트리가 없으면 0)
+     */
+    public record Report(int steps, float deltaTime, double jointOnlyStepsPerSecond,
+                         double groundContactStepsPerSecond, double articulatedStepsPerSecond,
+                         double odeStepsPerSecond, double batchFkPosesPerSecond) {
+        public double contactSpeedupOverArticulated() {
+            return articulatedStepsPerSecond > 0 ? groundContactStepsPerSecond / articulatedStepsPerSecond : 0;
+        }
+
+        public double contactSpeedupOverOde() {
+            return odeStepsPerSecond > 0 ? groundContactStepsPerSecond / odeStepsPerSecond : 0;
+        }
+    }
+}
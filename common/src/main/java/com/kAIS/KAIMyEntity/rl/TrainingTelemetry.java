@@ -0,0 +1,564 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * 학습 텔레메트리 - TensorBoard 이벤트 파일 비동기 기록
+ *
+ * - 학습 스레드: tag(id) + step + double 프리미티브만 락 프리 링에 넣음 (할당 없음)
+ * - 백그라운드 스레드: 링을 비우며 Event protobuf 인코딩 → TFRecord 프레이밍 → NIO 버퍼 쓰기
+ * - 히스토그램: 샘플을 하나씩 넣고 flush 시점에 기록 스레드가 버킷 집계
+ *
+ * 레코드: uint64 길이(LE) | masked crc32c(길이) | 데이터 | masked crc32c(데이터)
+ * 링이 가득 차면 기록을 버리고 getDroppedCount()로 집계 (학습 스레드는 절대 대기하지 않음)
+ */
+public final class TrainingTelemetry implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int KIND_SCALAR = 0;
+    private static final int KIND_HISTO_SAMPLE = 1;
+    private static final int KIND_HISTO_FLUSH = 2;
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final int HISTO_BUCKETS = 30;
+    private static final long IDLE_PARK_NANOS = 10_000_000L; // 10ms
+    private static final int MASK_DELTA = 0xa282ead8;
+
+    // ========== 락 프리 링 (다중 생산자 / 단일 소비자) ==========
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final int[] kinds;
+    private final int[] tags;
+    private final long[] steps;
+    private final double[] values;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0; // 소비자 전용
+    private final AtomicLong dropped = new AtomicLong();
+
+    // ========== 태그 ==========
+    private final Map<String, Integer> tagIds = new ConcurrentHashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+
+    // ========== 기록 (소비자 스레드 전용) ==========
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+    private final ProtoBuffer event = new ProtoBuffer();
+    private final ProtoBuffer summary = new ProtoBuffer();
+    private final ProtoBuffer value = new ProtoBuffer();
+    private final ProtoBuffer histo = new ProtoBuffer();
+    private final Map<Integer, HistogramAccumulator> histograms = new HashMap<>();
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private TrainingTelemetry(Path file, int capacity) throws IOException {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.mask = this.capacity - 1;
+        this.sequence = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) sequence.set(i, i);
+        this.kinds = new int[this.capacity];
+        this.tags = new int[this.capacity];
+        this.steps = new long[this.capacity];
+        this.values = new double[this.capacity];
+
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // 첫 레코드: file_version
+        event.clear();
+        event.writeDouble(1, System.currentTimeMillis() / 1000.0);
+        event.writeString(3, "brain.Event:2");
+        writeRecord(event);
+
+        writerThread = new Thread(this::runWriter, "RL-Telemetry-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 디렉토리에 새 이벤트 파일 생성 (events.out.tfevents.{초}.{호스트})
+     */
+    public static TrainingTelemetry open(Path dir) throws IOException {
+        return open(dir, DEFAULT_CAPACITY);
+    }
+
+    public static TrainingTelemetry open(Path dir, int capacity) throws IOException {
+        Files.createDirectories(dir);
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        Path file = dir.resolve("events.out.tfevents." + (System.currentTimeMillis() / 1000) + "." + host);
+        TrainingTelemetry t = new TrainingTelemetry(file, capacity);
+        logger.info("Telemetry writing to {}", file);
+        return t;
+    }
+
+    // ========== 생산자 API (핫 패스) ==========
+
+    /**
+     * 태그 이름 → id (초기화 시 한 번 등록, 핫 패스에서는 id만 사용)
+     */
+    public int tag(String name) {
+        return tagIds.computeIfAbsent(name, n -> {
+            synchronized (tagNames) {
+                tagNames.add(n);
+                return tagNames.size() - 1;
+            }
+        });
+    }
+
+    public boolean scalar(int tag, long step, double v) {
+        return enqueue(KIND_SCALAR, tag, step, v);
+    }
+
+    /** 히스토그램 샘플 1개 추가 (histogramFlush까지 누적) */
+    public boolean histogramSample(int tag, double v) {
+        return enqueue(KIND_HISTO_SAMPLE, tag, 0L, v);
+    }
+
+    /** 누적된 샘플을 step 시점 히스토그램으로 기록 */
+    public boolean histogramFlush(int tag, long step) {
+        return enqueue(KIND_HISTO_FLUSH, tag, step, 0.0);
+    }
+
+    private boolean enqueue(int kind, int tag, long step, double v) {
+        if (!running) return false;
+
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequence.get(idx) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    kinds[idx] = kind;
+                    tags[idx] = tag;
+                    steps[idx] = step;
+                    values[idx] = v;
+                    sequence.lazySet(idx, pos + 1); // 소비자에게 공개
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                dropped.incrementAndGet(); // 가득 참
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // ========== 소비자 (기록 스레드) ==========
+
+    private void runWriter() {
+        while (running) {
+            try {
+                if (drain() == 0) {
+                    flushBuffer();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                logger.error("Telemetry write failed, stopping writer", e);
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * 링에 공개된 항목 모두 처리
+     * @return 처리한 항목 수
+     */
+    private int drain() throws IOException {
+        int n = 0;
+        while (true) {
+            int idx = (int) (head & mask);
+            if (sequence.get(idx) != head + 1) break;
+
+            int kind = kinds[idx];
+            int tag = tags[idx];
+            long step = steps[idx];
+            double v = values[idx];
+            sequence.lazySet(idx, head + capacity); // 슬롯 반환
+            head++;
+            n++;
+
+            switch (kind) {
+                case KIND_SCALAR -> writeScalar(tag, step, v);
+                case KIND_HISTO_SAMPLE -> histograms.computeIfAbsent(tag, k -> new HistogramAccumulator()).add(v);
+                case KIND_HISTO_FLUSH -> {
+                    HistogramAccumulator h = histograms.get(tag);
+                    if (h != null && h.count > 0) {
+                        writeHistogram(tag, step, h);
+                        h.clear();
+                    }
+                }
+                default -> { }
+            }
+        }
+        return n;
+    }
+
+    private String tagName(int tag) {
+        synchronized (tagNames) {
+            return tag >= 0 && tag < tagNames.size() ? tagNames.get(tag) : "unknown/" + tag;
+        }
+    }
+
+    private void writeScalar(int tag, long step, double v) throws IOException {
+        value.clear();
+        value.writeString(1, tagName(tag));
+        value.writeFloat(2, (float) v);
+        writeSummaryEvent(step);
+    }
+
+    private void writeHistogram(int tag, long step, HistogramAccumulator h) throws IOException {
+        double min = h.min, max = h.max;
+        double width = max > min ? (max - min) / HISTO_BUCKETS : 1.0;
+        int buckets = max > min ? HISTO_BUCKETS : 1;
+
+        double[] counts = new double[buckets];
+        for (int i = 0; i < h.count; i++) {
+            int b = (int) ((h.samples[i] - min) / width);
+            counts[Math.min(buckets - 1, Math.max(0, b))]++;
+        }
+
+        histo.clear();
+        histo.writeDouble(1, min);
+        histo.writeDouble(2, max);
+        histo.writeDouble(3, h.count);
+        histo.writeDouble(4, h.sum);
+        histo.writeDouble(5, h.sumSquares);
+        // bucket_limit: 각 버킷의 오른쪽 경계 (마지막 = max)
+        histo.writeTag(6, 2);
+        histo.writeVarint(buckets * 8L);
+        for (int b = 0; b < buckets; b++) {
+            histo.writeFixed64(Double.doubleToLongBits(b == buckets - 1 ? max : min + (b + 1) * width));
+        }
+        histo.writeTag(7, 2);
+        histo.writeVarint(buckets * 8L);
+        for (int b = 0; b < buckets; b++) {
+            histo.writeFixed64(Double.doubleToLongBits(counts[b]));
+        }
+
+        value.clear();
+        value.writeString(1, tagName(tag));
+        value.writeMessage(5, histo);
+        writeSummaryEvent(step);
+    }
+
+    /** value → Summary → Event 래핑 후 레코드 기록 */
+    private void writeSummaryEvent(long step) throws IOException {
+        summary.clear();
+        summary.writeMessage(1, value);
+
+        event.clear();
+        event.writeDouble(1, System.currentTimeMillis() / 1000.0);
+        event.writeTag(2, 0);
+        event.writeVarint(step);
+        event.writeMessage(5, summary);
+        writeRecord(event);
+    }
+
+    private void writeRecord(ProtoBuffer data) throws IOException {
+        int len = data.size;
+        if (out.remaining() < len + 16) {
+            flushBuffer();
+        }
+        if (out.capacity() < len + 16) {
+            // 버퍼보다 큰 레코드는 직접 기록
+            ByteBuffer big = ByteBuffer.allocate(len + 16).order(ByteOrder.LITTLE_ENDIAN);
+            putRecord(big, data);
+            big.flip();
+            while (big.hasRemaining()) channel.write(big);
+            return;
+        }
+        putRecord(out, data);
+    }
+
+    private void putRecord(ByteBuffer buf, ProtoBuffer data) {
+        long len = data.size;
+        int start = buf.position();
+        buf.putLong(len);
+        crc.reset();
+        crc.update(buf.duplicate().position(start).limit(start + 8));
+        buf.putInt(maskCrc((int) crc.getValue()));
+        buf.put(data.bytes, 0, data.size);
+        crc.reset();
+        crc.update(data.bytes, 0, data.size);
+        buf.putInt(maskCrc((int) crc.getValue()));
+    }
+
+    private void flushBuffer() throws IOException {
+        if (out.position() == 0) return;
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    private static int maskCrc(int crc) {
+        return ((crc >>> 15) | (crc << 17)) + MASK_DELTA;
+    }
+
+    // ========== 종료 ==========
+
+    /**
+     * 남은 항목을 모두 기록하고 파일 닫기
+     */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            drain();
+            flushBuffer();
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close telemetry file {}", file, e);
+        }
+        logger.info("Telemetry closed: {} (dropped {})", file, dropped.get());
+    }
+
+    public Path getFile() { return file; }
+    public long getDroppedCount() { return dropped.get(); }
+    public int getCapacity() { return capacity; }
+
+    // ========== 읽기 (검증용) ==========
+
+    /**
+     * 이벤트 파일의 레코드 데이터를 CRC 검증하며 읽음
+     * @throws IOException 길이/데이터 CRC 불일치 또는 잘린 레코드
+     */
+    public static List<byte[]> readRecords(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C c = new CRC32C();
+        List<byte[]> records = new ArrayList<>();
+
+        while (buf.remaining() > 0) {
+            if (buf.remaining() < 12) throw new IOException("Truncated record header at " + buf.position());
+            int start = buf.position();
+            long len = buf.getLong();
+            c.reset();
+            c.update(buf.array(), start, 8);
+            if (buf.getInt() != maskCrc((int) c.getValue())) {
+                throw new IOException("Length CRC mismatch at " + start);
+            }
+            if (len < 0 || buf.remaining() < len + 4) throw new IOException("Truncated record at " + start);
+
+            byte[] data = new byte[(int) len];
+            buf.get(data);
+            c.reset();
+            c.update(data);
+            if (buf.getInt() != maskCrc((int) c.getValue())) {
+                throw new IOException("Data CRC mismatch at " + start);
+            }
+            records.add(data);
+        }
+        return records;
+    }
+
+    /**
+     * 이벤트 파일에서 스칼라만 디코딩 (tag, step, value)
+     */
+    public static List<ScalarRecord> readScalars(Path file) throws IOException {
+        List<ScalarRecord> result = new ArrayList<>();
+        for (byte[] rec : readRecords(file)) {
+            ProtoReader ev = new ProtoReader(rec, 0, rec.length);
+            long step = 0;
+            byte[] summaryBytes = null;
+            int sOff = 0, sLen = 0;
+            while (ev.next()) {
+                if (ev.field == 2) step = ev.varint;
+                else if (ev.field == 5) { summaryBytes = rec; sOff = ev.offset; sLen = ev.length; }
+            }
+            if (summaryBytes == null) continue;
+
+            ProtoReader sm = new ProtoReader(rec, sOff, sOff + sLen);
+            while (sm.next()) {
+                if (sm.field != 1) continue;
+                ProtoReader vr = new ProtoReader(rec, sm.offset, sm.offset + sm.length);
+                String tag = null;
+                float v = Float.NaN;
+                boolean hasSimple = false;
+                while (vr.next()) {
+                    if (vr.field == 1) tag = new String(rec, vr.offset, vr.length, StandardCharsets.UTF_8);
+                    else if (vr.field == 2) { v = Float.intBitsToFloat((int) vr.fixed); hasSimple = true; }
+                }
+                if (tag != null && hasSimple) result.add(new ScalarRecord(tag, step, v));
+            }
+        }
+        return result;
+    }
+
+    public record ScalarRecord(String tag, long step, float value) { }
+
+    // ========== 내부 클래스 ==========
+
+    /** 히스토그램 샘플 누적 (기록 스레드 전용) */
+    private static final class HistogramAccumulator {
+        double[] samples = new double[256];
+        int count;
+        double min, max, sum, sumSquares;
+
+        void add(double v) {
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = v;
+            if (count == 1) { min = v; max = v; }
+            else { min = Math.min(min, v); max = Math.max(max, v); }
+            sum += v;
+            sumSquares += v * v;
+        }
+
+        void clear() {
+            count = 0;
+            sum = sumSquares = 0;
+        }
+    }
+
+    /** 최소 protobuf 인코더 (재사용 버퍼) */
+    private static final class ProtoBuffer {
+        byte[] bytes = new byte[256];
+        int size;
+
+        void clear() { size = 0; }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeTag(int field, int wireType) {
+            writeVarint(((long) field << 3) | wireType);
+        }
+
+        void writeVarint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void writeFixed64(long v) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) bytes[size++] = (byte) (v >>> (8 * i));
+        }
+
+        void writeDouble(int field, double v) {
+            writeTag(field, 1);
+            writeFixed64(Double.doubleToLongBits(v));
+        }
+
+        void writeFloat(int field, float v) {
+            writeTag(field, 5);
+            ensure(4);
+            int bits = Float.floatToIntBits(v);
+            for (int i = 0; i < 4; i++) bytes[size++] = (byte) (bits >>> (8 * i));
+        }
+
+        void writeString(int field, String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeTag(field, 2);
+            writeVarint(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeMessage(int field, ProtoBuffer msg) {
+            writeTag(field, 2);
+            writeVarint(msg.size);
+            ensure(msg.size);
+            System.arraycopy(msg.bytes, 0, bytes, size, msg.size);
+            size += msg.size;
+        }
+    }
+
+    /** 최소 protobuf 디코더 (필드 단위 순회) */
+    private static final class ProtoReader {
+        final byte[] b;
+        int pos;
+        final int end;
+        int field;
+        long varint;
+        long fixed;
+        int offset, length;
+
+        ProtoReader(byte[] b, int from, int to) {
+            this.b = b;
+            this.pos = from;
+            this.end = to;
+        }
+
+        boolean next() throws IOException {
+            if (pos >= end) return false;
+            long key = readVarint();
+            field = (int) (key >>> 3);
+            switch ((int) (key & 7)) {
+                case 0 -> varint = readVarint();
+                case 1 -> { fixed = readFixed(8); }
+                case 2 -> {
+                    length = (int) readVarint();
+                    offset = pos;
+                    pos += length;
+                }
+                case 5 -> { fixed = readFixed(4); }
+                default -> throw new IOException("Unsupported wire type " + (key & 7));
+            }
+            if (pos > end) throw new IOException("Malformed protobuf");
+            return true;
+        }
+
+        private long readVarint() throws IOException {
+            long r = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= end) throw new IOException("Truncated varint");
+                byte x = b[pos++];
+                r |= (long) (x & 0x7F) << shift;
+                if ((x & 0x80) == 0) return r;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private long readFixed(int n) {
+            long r = 0;
+            for (int i = 0; i < n; i++) r |= (long) (b[pos++] & 0xFF) << (8 * i);
+            return r;
+        }
+    }
+}
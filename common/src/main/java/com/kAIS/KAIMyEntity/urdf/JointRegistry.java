@@ -0,0 +1,112 @@
+package com.kAIS.KAIMyEntity.urdf;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 모델별 관절 ID 레지스트리 - 이름/별칭을 한 번만 해석하고 이후는 int 핸들로 접근
+ *
+ * - ID = URDFModel.joints 선언 순서 (0..size-1, 모델이 바뀌지 않는 한 고정)
+ * - resolve(): 정확한 이름 → 별칭 → 대소문자 무시 순서 (전부 해시 조회 1~2회)
+ * - 호출자는 초기화 때 resolve()로 ID를 받아 두고 매 틱에는 배열 인덱스만 사용
+ * - 관절 런타임 상태(JointStateStore)도 레지스트리가 소유 (같은 ID로 인덱싱)
+ *
+ * URDFModel.getJointRegistry()로 얻음 (buildHierarchy 시 무효화 - 다시 만들 때 현재 값을 새 저장소로 옮김).
+ */
+public final class JointRegistry {
+    /** 해석 실패 */
+    public static final int NONE = -1;
+
+    private final URDFJoint[] joints;
+    private final String[] names;
+    private final Map<String, Integer> byName = new HashMap<>();
+    private final Map<String, Integer> byLowerName = new HashMap<>();
+    private final Map<String, Integer> aliases = new ConcurrentHashMap<>();
+    private final JointStateStore state;
+
+    JointRegistry(List<URDFJoint> modelJoints) {
+        joints = modelJoints.toArray(new URDFJoint[0]);
+        names = new String[joints.length];
+        for (int id = 0; id < joints.length; id++) {
+            names[id] = joints[id].name;
+            byName.putIfAbsent(names[id], id);
+            byLowerName.putIfAbsent(names[id].toLowerCase(Locale.ROOT), id);
+        }
+        state = JointStateStore.bind(joints);
+    }
+
+    /**
+     * 모델 없이 조인트 묶음만으로 만드는 독립 레지스트리 (조인트는 새 상태 저장소에 바인딩됨)
+     */
+    public static JointRegistry of(Collection<URDFJoint> joints) {
+        return new JointRegistry(new ArrayList<>(joints));
+    }
+
+    // ========== 해석 ==========
+
+    /**
+     * 이름 또는 별칭 → ID (정확 → 별칭 → 대소문자 무시). 없으면 NONE
+     */
+    public int resolve(String name) {
+        if (name == null) return NONE;
+        Integer id = byName.get(name);
+        if (id == null) id = aliases.get(name);
+        if (id == null) id = byLowerName.get(name.toLowerCase(Locale.ROOT));
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * 정확한 관절 이름만 → ID (별칭/대소문자 무시 없음). 없으면 NONE
+     */
+    public int indexOf(String name) {
+        Integer id = name != null ? byName.get(name) : null;
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * 이름 목록 일괄 해석 (resolve 규칙)
+     */
+    public int[] resolveAll(List<String> names) {
+        int[] ids = new int[names.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = resolve(names.get(i));
+        return ids;
+    }
+
+    /**
+     * 별칭 등록 (예: VMD 관절 이름 → URDF 관절). 대상이 없으면 false
+     */
+    public boolean alias(String alias, String target) {
+        int id = indexOf(target);
+        if (alias == null || id == NONE) return false;
+        aliases.put(alias, id);
+        return true;
+    }
+
+    // ========== 조회 ==========
+
+    public int size() { return joints.length; }
+    public URDFJoint joint(int id) { return joints[id]; }
+    public String name(int id) { return names[id]; }
+    public boolean isValid(int id) { return id >= 0 && id < joints.length; }
+
+    /** 이 레지스트리 ID로 인덱싱되는 관절 상태 */
+    public JointStateStore getStateStore() { return state; }
+
+    /** 움직이는 관절 ID (선언 순서) */
+    public int[] movableIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < joints.length; id++) if (joints[id].isMovable()) ids.add(id);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** 등록된 별칭 (읽기 전용) */
+    public Map<String, Integer> getAliases() {
+        return Collections.unmodifiableMap(aliases);
+    }
+}
@@ -0,0 +1,104 @@
+package com.kAIS.KAIMyEntity.urdf;
+
+/**
+ * 로봇 하나의 관절 런타임 상태 (structure-of-arrays, 인덱스 = JointRegistry ID)
+ *
+ * - 컨트롤러 / 물리 동기화 / RL 환경 / 렌더러 / Webots 출력이 모두 이 배열을 직접 읽고 씀 (복사 패스 없음)
+ * - URDFJoint.getPosition()/getVelocity()도 바인딩된 저장소의 값을 그대로 돌려줌
+ * - lower/upper: 제한이 있으면 URDF 값, 없으면 회전 ±π / 직선 0 (정규화 범위)
+ *   limited[id]가 true인 관절만 위치를 클램프
+ * - external[id]: 다른 소유자(학습 중인 RL 환경)가 위치/속도를 직접 적분하는 관절 → 컨트롤러는 건너뜀
+ *   (소유권은 저장소 자체의 속성이라 copy()/copyFrom()으로 옮겨지지 않음)
+ *
+ * URDFModel.getJointStateStore()로 얻음 (레지스트리와 함께 생성되고 조인트 목록이 바뀌면 값이 새 저장소로 옮겨짐).
+ * 배열 쓰기는 동기화하지 않음 - 다른 스레드에서 시뮬레이션할 때는 copy()로 분리한 저장소 사용.
+ */
+public final class JointStateStore {
+    public final float[] position;
+    public final float[] velocity;
+    public final float[] target;
+    public final float[] targetVelocity;
+    public final float[] torque;
+    public final float[] lower;
+    public final float[] upper;
+    public final boolean[] limited;
+    public final boolean[] external;
+
+    private final int size;
+
+    private JointStateStore(int size) {
+        this.size = size;
+        position = new float[size];
+        velocity = new float[size];
+        target = new float[size];
+        targetVelocity = new float[size];
+        torque = new float[size];
+        lower = new float[size];
+        upper = new float[size];
+        limited = new boolean[size];
+        external = new boolean[size];
+    }
+
+    /**
+     * 레지스트리 순서로 생성하고 조인트를 바인딩 (조인트의 현재 값이 초기값, 목표 = 현재 위치)
+     */
+    static JointStateStore bind(URDFJoint[] joints) {
+        JointStateStore s = new JointStateStore(joints.length);
+        for (int id = 0; id < joints.length; id++) {
+            URDFJoint j = joints[id];
+            URDFJoint.Limit limit = j.limit;
+            boolean hasLimits = limit != null && limit.hasLimits();
+            if (hasLimits) {
+                s.lower[id] = limit.lower;
+                s.upper[id] = limit.upper;
+            } else if (j.type == URDFJoint.JointType.REVOLUTE || j.type == URDFJoint.JointType.CONTINUOUS) {
+                s.lower[id] = (float) -Math.PI;
+                s.upper[id] = (float) Math.PI;
+            }
+            s.limited[id] = hasLimits
+                    && (j.type == URDFJoint.JointType.REVOLUTE || j.type == URDFJoint.JointType.PRISMATIC);
+            s.position[id] = j.getPosition();
+            s.velocity[id] = j.getVelocity();
+            s.target[id] = s.position[id];
+            j.bind(s, id);
+        }
+        return s;
+    }
+
+    // ========== 조회 ==========
+
+    public int size() { return size; }
+
+    /** 제한이 있는 관절만 [lower, upper]로 클램프 */
+    public float clamp(int id, float value) {
+        if (!limited[id]) return value;
+        return Math.max(lower[id], Math.min(upper[id], value));
+    }
+
+    // ========== 복사 ==========
+
+    /**
+     * 조인트에 바인딩되지 않은 독립 복사본 (학습 워커 스레드용)
+     */
+    public JointStateStore copy() {
+        JointStateStore s = new JointStateStore(size);
+        s.copyFrom(this);
+        return s;
+    }
+
+    /**
+     * 같은 크기 저장소의 상태 전체 복사
+     */
+    public void copyFrom(JointStateStore other) {
+        if (other == this) return;
+        int n = Math.min(size, other.size);
+        System.arraycopy(other.position, 0, position, 0, n);
+        System.arraycopy(other.velocity, 0, velocity, 0, n);
+        System.arraycopy(other.target, 0, target, 0, n);
+        System.arraycopy(other.targetVelocity, 0, targetVelocity, 0, n);
+        System.arraycopy(other.torque, 0, torque, 0, n);
+        System.arraycopy(other.lower, 0, lower, 0, n);
+        System.arraycopy(other.upper, 0, upper, 0, n);
+        System.arraycopy(other.limited, 0, limited, 0, n);
+    }
+}
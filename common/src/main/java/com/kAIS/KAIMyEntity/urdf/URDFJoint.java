@@ -12,17 +12,17 @@ public class URDFJoint {
     public Limit limit;
     public Dynamics dynamics;
 
-    // Runtime state (updated from Webots)
-    public float currentPosition;
-    public float currentVelocity;
+    // 런타임 상태 - 모델의 JointStateStore에 바인딩되면 그 배열이 원본 (바인딩 전에는 로컬 값)
+    private JointStateStore state;
+    private int stateId = JointRegistry.NONE;
+    private float unboundPosition;
+    private float unboundVelocity;
 
     public URDFJoint(String name, JointType type) {
         this.name = name;
         this.type = type;
         this.origin = new Origin();
         this.axis = new Axis();
-        this.currentPosition = 0.0f;
-        this.currentVelocity = 0.0f;
     }
 
     public enum JointType {
@@ -92,9 +92,37 @@ public class URDFJoint {
     public void updatePosition(float position) {
         if (limit != null && limit.hasLimits()) {
             // Clamp to limits
-            this.currentPosition = Math.max(limit.lower, Math.min(limit.upper, position));
+            setPosition(Math.max(limit.lower, Math.min(limit.upper, position)));
         } else {
-            this.currentPosition = position;
+            setPosition(position);
         }
     }
+
+    // ========== 런타임 상태 ==========
+
+    public float getPosition() {
+        return state != null ? state.position[stateId] : unboundPosition;
+    }
+
+    public void setPosition(float position) {
+        if (state != null) state.position[stateId] = position;
+        else unboundPosition = position;
+    }
+
+    public float getVelocity() {
+        return state != null ? state.velocity[stateId] : unboundVelocity;
+    }
+
+    public void setVelocity(float velocity) {
+        if (state != null) state.velocity[stateId] = velocity;
+        else unboundVelocity = velocity;
+    }
+
+    /** 바인딩된 저장소의 ID (바인딩 전에는 JointRegistry.NONE) */
+    public int getStateId() { return stateId; }
+
+    void bind(JointStateStore state, int id) {
+        this.state = state;
+        this.stateId = id;
+    }
 }
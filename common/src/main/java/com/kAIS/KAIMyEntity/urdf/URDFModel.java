@@ -1,5 +1,6 @@
 package com.kAIS.KAIMyEntity.urdf;
 
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,6 +12,8 @@ import java.util.*;
  * - 이름→객체 인덱스
  * - parent→child 조인트 인덱스
  * - 루트 링크 계산
+ * - 컴파일된 평탄 기구학 트리 (지연 생성, buildHierarchy 시 무효화)
+ * - 관절 ID 레지스트리 (지연 생성, 조인트 변경/buildHierarchy 시 무효화)
  */
 public class URDFModel {
     private static final Logger logger = LogManager.getLogger();
@@ -32,6 +35,12 @@ public class URDFModel {
     /** 계산된 루트 링크 이름 */
     public String rootLinkName;
 
+    /** 컴파일된 기구학 트리 (불변, 스레드 간 공유) */
+    private volatile KinematicTree kinematicTree;
+
+    /** 관절 이름 → int ID (조인트 목록이 바뀌면 다시 생성) */
+    private volatile JointRegistry jointRegistry;
+
     public URDFModel(String name) {
         this.name = name;
     }
@@ -48,6 +57,7 @@ public class URDFModel {
         if (joint == null || joint.name == null) return;
         joints.add(joint);
         jointByName.put(joint.name, joint);
+        jointRegistry = null;
     }
 
     public URDFLink getLink(String name) { return linkByName.get(name); }
@@ -73,6 +83,37 @@ public class URDFModel {
         return parentJointByChildLink.get(childLink);
     }
 
+    /**
+     * 배열 기반 기구학 트리 (첫 호출 시 컴파일, 루트가 없으면 null)
+     */
+    public KinematicTree getKinematicTree() {
+        KinematicTree tree = kinematicTree;
+        if (tree == null && rootLinkName != null) {
+            tree = KinematicTree.compile(this);
+            kinematicTree = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * 관절 ID 레지스트리 (첫 호출 시 생성, ID = joints 순서)
+     */
+    public JointRegistry getJointRegistry() {
+        JointRegistry registry = jointRegistry;
+        if (registry == null) {
+            registry = new JointRegistry(joints);
+            jointRegistry = registry;
+        }
+        return registry;
+    }
+
+    /**
+     * 관절 런타임 상태 (레지스트리 ID로 인덱싱, 레지스트리가 다시 만들어지면 함께 교체)
+     */
+    public JointStateStore getJointStateStore() {
+        return getJointRegistry().getStateStore();
+    }
+
     // ========= 핵심: 트리 구성 =========
 
     /**
@@ -90,6 +131,8 @@ public class URDFModel {
 
         childrenByLink.clear();
         parentJointByChildLink.clear();
+        kinematicTree = null;
+        jointRegistry = null;
 
         // 조인트 검사 및 매핑
         Set<String> allParents = new HashSet<>();
@@ -2,6 +2,8 @@ package com.kAIS.KAIMyEntity.urdf;
 
 import com.kAIS.KAIMyEntity.renderer.IMMDModel;
 import com.kAIS.KAIMyEntity.urdf.control.URDFSimpleController;  // ★ 추가
+import com.kAIS.KAIMyEntity.urdf.kinematics.IncrementalForwardKinematics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
@@ -35,6 +37,11 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
 
     private final Map<String, STLLoader.STLMesh> meshCache = new HashMap<>();
 
+    // 렌더링 FK (바뀐 관절의 서브트리만 재계산)
+    private IncrementalForwardKinematics renderFk;
+    private int[] renderFkIndex;   // 레지스트리 ID → 렌더링 FK 트리 조인트 인덱스
+    private final Matrix4f renderLinkMatrix = new Matrix4f();
+
     // ✅ 스케일 및 위치 설정
     private static final float GLOBAL_SCALE = 5.0f;
     private static final float BASE_HEIGHT = 1.5f;
@@ -55,6 +62,9 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
     private final Map<String, String> jointNameMapping = new HashMap<>();
     private boolean jointMappingInitialized = false;
 
+    // 관절 ID 레지스트리 (위 매핑을 별칭으로 등록한 것, 모델이 다시 빌드되면 재등록)
+    private JointRegistry jointRegistry;
+
     public URDFModelOpenGLWithSTL(URDFModel robotModel, String modelDir) {
         this.robotModel = robotModel;
         this.modelDir = modelDir;
@@ -157,6 +167,36 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         logger.info("=== Joint Mapping Complete: {} mappings ===", jointNameMapping.size());
     }
 
+    /**
+     * 모델의 관절 ID 레지스트리 (VMD 이름 매핑을 별칭으로 등록해 둠)
+     */
+    public JointRegistry getJointRegistry() {
+        JointRegistry registry = robotModel.getJointRegistry();
+        if (registry != jointRegistry) {
+            for (Map.Entry<String, String> entry : jointNameMapping.entrySet()) {
+                registry.alias(entry.getKey(), entry.getValue());
+            }
+            jointRegistry = registry;
+        }
+        return registry;
+    }
+
+    /**
+     * 관절 이름(VMD 이름/대소문자 무시 포함) → ID. 없으면 JointRegistry.NONE
+     *  - 초기화 때 한 번 받아 두고 int 버전 API에 넘길 것
+     */
+    public int getJointId(String name) {
+        return getJointRegistry().resolve(name);
+    }
+
+    /**
+     * 관절 상태 저장소 (ID 인덱스 배열 - 컨트롤러/RL 환경/Webots 출력이 직접 읽고 씀)
+     *  - 직접 쓴 위치는 다음 렌더링 때 비교로 FK에 반영됨
+     */
+    public JointStateStore getJointStateStore() {
+        return getJointRegistry().getStateStore();
+    }
+
     private void loadAllMeshes() {
         logger.info("=== Loading STL meshes ===");
         int loadedCount = 0;
@@ -194,50 +234,53 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         }
     }
 
-    // ★ 조인트 이름 해석 헬퍼 (매핑 + 대소문자 무시)
     /**
-     * VMD 이름 매핑/대소문자 무시까지 포함해서 URDFJoint를 찾아줌
+     * 여러 모델이 하나의 물리 월드를 공유할 때의 틱 업데이트
+     *  - PhysicsManager.step(dt)는 모델 수와 무관하게 1회만 수행
      */
-    private URDFJoint resolveJoint(String name) {
-        if (name == null) return null;
-
-        // 1. 매핑 적용
-        String mappedName = jointNameMapping.getOrDefault(name, name);
-
-        URDFJoint j = getJointByName(mappedName);
-        if (j != null) return j;
-
-        // 2. 매핑된 이름 안 맞으면 원본 이름도 시도
-        if (!mappedName.equals(name)) {
-            j = getJointByName(name);
-            if (j != null) return j;
+    public static void tickUpdateShared(Collection<URDFModelOpenGLWithSTL> models, float dt) {
+        List<URDFSimpleController> controllers = new ArrayList<>(models.size());
+        for (URDFModelOpenGLWithSTL m : models) {
+            if (m != null && m.controller != null && !controllers.contains(m.controller)) {
+                controllers.add(m.controller);
+            }
         }
-
-        // 3. 대소문자 무시
-        return getJointByNameIgnoreCase(name);
+        URDFSimpleController.updateShared(controllers, dt);
     }
 
     // ★ RL/컨트롤에서 쓰는 진짜 관절 타겟 설정
     /**
      * RL/컨트롤에서 쓰는 "진짜" 관절 타겟 설정
      *  - PHYSICS 모드: URDFSimpleController.setTarget()으로 넘김
-     *  - KINEMATIC 모드: URDFJoint.currentPosition을 직접 갱신
+     *  - KINEMATIC 모드: 상태 저장소의 위치와 목표를 함께 갱신 (컨트롤러 틱이 되돌리지 않도록)
      */
     public void setJointTarget(String name, float value) {
-        URDFJoint j = resolveJoint(name);
-        if (j == null) {
+        int id = getJointId(name);
+        if (id == JointRegistry.NONE) {
             if (DEBUG_MODE && renderCount < 5) {
                 logger.warn("✗ Joint NOT FOUND in setJointTarget: '{}'", name);
             }
             return;
         }
+        setJointTarget(id, value);
+    }
+
+    /**
+     * 관절 타겟 설정 (ID 버전, 매 틱 호출용 - 이름 해석 없음)
+     */
+    public void setJointTarget(int id, float value) {
+        JointRegistry registry = getJointRegistry();
+        if (!registry.isValid(id)) return;
 
         if (controller != null && controller.isUsingPhysics()) {
             // 물리 모드 → URDFSimpleController에 목표 각도 전달
-            controller.setTarget(j.name, value);
+            controller.setTarget(id, value);
         } else {
-            // 키네마틱 모드 → 바로 URDFJoint에 반영
-            j.currentPosition = value;
+            // 키네마틱 모드 → 바로 상태 저장소에 반영
+            JointStateStore state = registry.getStateStore();
+            state.position[id] = value;
+            state.target[id] = value;
+            markJointChanged(id, value);
         }
     }
 
@@ -255,14 +298,21 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
      * 관절 목표 속도 설정 (VELOCITY 액션 모드용)
      */
     public void setJointVelocity(String name, float velocity) {
-        URDFJoint j = resolveJoint(name);
-        if (j == null) return;
+        setJointVelocity(getJointId(name), velocity);
+    }
+
+    /**
+     * 관절 목표 속도 설정 (ID 버전)
+     */
+    public void setJointVelocity(int id, float velocity) {
+        JointRegistry registry = getJointRegistry();
+        if (!registry.isValid(id)) return;
 
         if (controller != null && controller.isUsingPhysics()) {
-            controller.setTargetVelocity(j.name, velocity);
+            controller.setTargetVelocity(id, velocity);
         } else {
             // 키네마틱 모드일 때는 미리보기용으로만
-            j.currentVelocity = velocity;
+            registry.getStateStore().velocity[id] = velocity;
         }
     }
 
@@ -270,42 +320,47 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
      * ✅ 즉시 반영(프리뷰용) - 툴에서만 사용
      */
     public void setJointPreview(String name, float value) {
-        String mappedName = jointNameMapping.getOrDefault(name, name);
-        URDFJoint j = getJointByName(mappedName);
-        
-        if (j == null && !mappedName.equals(name)) {
-            j = getJointByName(name);
-        }
-        if (j == null) {
-            j = getJointByNameIgnoreCase(name);
-        }
-        
-        if (j != null) {
-            j.currentPosition = value;
+        int id = getJointId(name);
+        if (id != JointRegistry.NONE) {
+            setJointPreview(id, value);
             if (DEBUG_MODE && renderCount < 5) {
                 logger.info("✓ Joint '{}' -> '{}' = {} rad ({} deg)", 
-                    name, j.name, value, Math.toDegrees(value));
+                    name, jointRegistry.name(id), value, Math.toDegrees(value));
             }
         } else {
             if (DEBUG_MODE && renderCount < 5) {
-                logger.warn("✗ Joint NOT FOUND: '{}' (mapped: '{}')", name, mappedName);
+                logger.warn("✗ Joint NOT FOUND: '{}' (mapped: '{}')", name,
+                    jointNameMapping.getOrDefault(name, name));
             }
         }
     }
 
+    /**
+     * 즉시 반영 (ID 버전, VMD 재생용)
+     */
+    public void setJointPreview(int id, float value) {
+        JointRegistry registry = getJointRegistry();
+        if (!registry.isValid(id)) return;
+        JointStateStore state = registry.getStateStore();
+        state.position[id] = value;
+        state.target[id] = value;
+        markJointChanged(id, value);
+    }
+
     // ★ RL용 정보 API들
     /**
-     * 현재 관절 속도 반환 (URDFJoint.currentVelocity 기반)
+     * 현재 관절 속도 반환 (상태 저장소 기반)
      */
     public float getJointVelocity(String jointName) {
-        if (robotModel != null && robotModel.joints != null) {
-            for (URDFJoint joint : robotModel.joints) {
-                if (joint.name.equals(jointName)) {
-                    return joint.currentVelocity;
-                }
-            }
-        }
-        return 0f;
+        return getJointVelocity(getJointRegistry().indexOf(jointName));
+    }
+
+    /**
+     * 현재 관절 속도 (ID 버전). 잘못된 ID면 0
+     */
+    public float getJointVelocity(int id) {
+        JointRegistry registry = getJointRegistry();
+        return registry.isValid(id) ? registry.getStateStore().velocity[id] : 0f;
     }
 
     /**
@@ -357,12 +412,17 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
      * ✅ 관절 제한값 반환 [lower, upper]
      */
     public float[] getJointLimits(String jointName) {
-        if (robotModel != null && robotModel.joints != null) {
-            for (URDFJoint joint : robotModel.joints) {
-                if (joint.name.equals(jointName) && joint.limit != null) {
-                    return new float[]{joint.limit.lower, joint.limit.upper};
-                }
-            }
+        return getJointLimits(getJointRegistry().indexOf(jointName));
+    }
+
+    /**
+     * 관절 제한값 [lower, upper] (ID 버전). 제한이 없거나 잘못된 ID면 ±π
+     */
+    public float[] getJointLimits(int id) {
+        JointRegistry registry = getJointRegistry();
+        if (registry.isValid(id) && registry.joint(id).limit != null) {
+            URDFJoint.Limit limit = registry.joint(id).limit;
+            return new float[]{limit.lower, limit.upper};
         }
         return new float[]{(float)-Math.PI, (float)Math.PI};
     }
@@ -371,14 +431,15 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
      * ✅ 현재 관절 위치 반환
      */
     public float getJointPosition(String jointName) {
-        if (robotModel != null && robotModel.joints != null) {
-            for (URDFJoint joint : robotModel.joints) {
-                if (joint.name.equals(jointName)) {
-                    return joint.currentPosition;
-                }
-            }
-        }
-        return 0f;
+        return getJointPosition(getJointRegistry().indexOf(jointName));
+    }
+
+    /**
+     * 현재 관절 위치 (ID 버전). 잘못된 ID면 0
+     */
+    public float getJointPosition(int id) {
+        JointRegistry registry = getJointRegistry();
+        return registry.isValid(id) ? registry.getStateStore().position[id] : 0f;
     }
 
     /**
@@ -389,7 +450,7 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         if (robotModel != null && robotModel.joints != null) {
             for (URDFJoint joint : robotModel.joints) {
                 if (joint.isMovable()) {
-                    positions.put(joint.name, joint.currentPosition);
+                    positions.put(joint.name, joint.getPosition());
                 }
             }
         }
@@ -403,7 +464,7 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         logger.info("=== URDF Joints ({}) ===", robotModel.joints.size());
         for (URDFJoint j : robotModel.joints) {
             logger.info("  - '{}' (type: {}, movable: {}, current: {})", 
-                j.name, j.type, j.isMovable(), j.currentPosition);
+                j.name, j.type, j.isMovable(), j.getPosition());
         }
         logger.info("=== Joint Name Mappings ({}) ===", jointNameMapping.size());
         for (Map.Entry<String, String> entry : jointNameMapping.entrySet()) {
@@ -449,7 +510,7 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
             poseStack.mulPose(new Quaternionf(Q_ROS2MC));
             poseStack.scale(GLOBAL_SCALE, GLOBAL_SCALE, GLOBAL_SCALE);
 
-            renderLinkRecursive(robotModel.rootLinkName, poseStack, vc, packedLight);
+            renderLinks(poseStack, vc, packedLight);
             poseStack.popPose();
         }
 
@@ -457,24 +518,55 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         RenderSystem.enableCull();
     }
 
-    private void renderLinkRecursive(String linkName, PoseStack poseStack, VertexConsumer vc, int packedLight) {
-        URDFLink link = robotModel.getLink(linkName);
-        if (link == null) return;
+    /**
+     * 렌더링용 증분 FK (트리가 다시 컴파일되면 새로 생성)
+     */
+    private IncrementalForwardKinematics renderFk() {
+        KinematicTree tree = robotModel.getKinematicTree();
+        if (tree == null) return null;
+        if (renderFk == null || renderFk.getTree() != tree) {
+            renderFk = new IncrementalForwardKinematics(tree);
+            renderFkIndex = null;
+        }
+        JointRegistry registry = getJointRegistry();
+        if (renderFkIndex == null || renderFkIndex.length != registry.size()) {
+            renderFkIndex = new int[registry.size()];
+            for (int id = 0; id < renderFkIndex.length; id++) {
+                renderFkIndex[id] = tree.indexOfJoint(registry.name(id));
+            }
+        }
+        return renderFk;
+    }
 
-        poseStack.pushPose();
+    /**
+     * 관절 값 변경을 렌더링 FK에 반영 (해당 관절 서브트리 무효화)
+     */
+    private void markJointChanged(int id, float value) {
+        IncrementalForwardKinematics fk = renderFk();
+        if (fk != null) fk.setJoint(renderFkIndex[id], value);
+    }
 
-        if (link.visual != null) {
-            renderVisual(link, poseStack, vc, packedLight);
-        }
+    /**
+     * 바뀐 서브트리만 링크 변환을 다시 계산한 뒤 링크별로 메시 렌더링
+     *  - setJointTarget/setJointPreview는 즉시 표시, 컨트롤러/물리가 직접 쓴 값은 여기서 비교로 반영
+     */
+    private void renderLinks(PoseStack poseStack, VertexConsumer vc, int packedLight) {
+        IncrementalForwardKinematics fk = renderFk();
+        if (fk == null) return;
+        KinematicTree tree = fk.getTree();
+        fk.syncFromJoints();
+        fk.update();
+        float[] world = fk.getTransforms();
+
+        for (int l = 0; l < tree.getLinkCount(); l++) {
+            URDFLink link = tree.getLink(l);
+            if (link == null || link.visual == null) continue;
 
-        for (URDFJoint childJoint : robotModel.getChildJoints(linkName)) {
             poseStack.pushPose();
-            applyJointTransform(childJoint, poseStack);
-            renderLinkRecursive(childJoint.childLinkName, poseStack, vc, packedLight);
+            poseStack.mulPose(renderLinkMatrix.set(world, l * KinematicTree.STRIDE));
+            renderVisual(link, poseStack, vc, packedLight);
             poseStack.popPose();
         }
-
-        poseStack.popPose();
     }
 
     private void renderVisual(URDFLink link, PoseStack poseStack, VertexConsumer vc, int packedLight) {
@@ -534,63 +626,6 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         }
     }
 
-    private void applyJointOriginTransform(URDFJoint.Origin origin, PoseStack poseStack) {
-        poseStack.translate(origin.xyz.x, origin.xyz.y, origin.xyz.z);
-        if (origin.rpy.x != 0f || origin.rpy.y != 0f || origin.rpy.z != 0f) {
-            Quaternionf qx = new Quaternionf().rotateX(origin.rpy.x);
-            Quaternionf qy = new Quaternionf().rotateY(origin.rpy.y);
-            Quaternionf qz = new Quaternionf().rotateZ(origin.rpy.z);
-            poseStack.mulPose(qz.mul(qy).mul(qx));
-        }
-    }
-
-    private void applyJointTransform(URDFJoint joint, PoseStack poseStack) {
-        if (joint.origin != null) {
-            applyJointOriginTransform(joint.origin, poseStack);
-        }
-        if (joint.isMovable()) {
-            applyJointMotion(joint, poseStack);
-        }
-    }
-
-    private void applyJointMotion(URDFJoint joint, PoseStack poseStack) {
-        if (joint == null) return;
-
-        switch (joint.type) {
-            case REVOLUTE:
-            case CONTINUOUS: {
-                Vector3f axis;
-                if (joint.axis == null || joint.axis.xyz == null ||
-                        joint.axis.xyz.lengthSquared() < 1e-12f) {
-                    axis = new Vector3f(1, 0, 0);
-                } else {
-                    axis = new Vector3f(joint.axis.xyz);
-                    if (axis.lengthSquared() < 1e-12f) axis.set(1, 0, 0);
-                    else axis.normalize();
-                }
-                Quaternionf quat = new Quaternionf().rotateAxis(joint.currentPosition, axis.x, axis.y, axis.z);
-                poseStack.mulPose(quat);
-                break;
-            }
-            case PRISMATIC: {
-                Vector3f axis;
-                if (joint.axis == null || joint.axis.xyz == null ||
-                        joint.axis.xyz.lengthSquared() < 1e-12f) {
-                    axis = new Vector3f(1, 0, 0);
-                } else {
-                    axis = new Vector3f(joint.axis.xyz);
-                    if (axis.lengthSquared() < 1e-12f) axis.set(1, 0, 0);
-                    else axis.normalize();
-                }
-                Vector3f t = axis.mul(joint.currentPosition);
-                poseStack.translate(t.x, t.y, t.z);
-                break;
-            }
-            default:
-                break;
-        }
-    }
-
     // ===== IMMDModel 구현 =====
     @Override public void ChangeAnim(long anim, long layer) { }
     @Override public void ResetPhysics() { 
@@ -612,24 +647,11 @@ public class URDFModelOpenGLWithSTL implements IMMDModel {
         return robotModel;
     }
 
-    // ===== 내부 유틸 =====
-    private URDFJoint getJointByName(String name) {
-        if (name == null) return null;
-        for (URDFJoint j : robotModel.joints) {
-            if (name.equals(j.name)) return j;
-        }
-        return null;
-    }
-
     /**
-     * ✅ 대소문자 무시하고 관절 찾기
+     * 링크의 visual STL 메시 (스케일 적용됨, visual origin 미적용). 없으면 null
      */
-    private URDFJoint getJointByNameIgnoreCase(String name) {
-        if (name == null) return null;
-        for (URDFJoint j : robotModel.joints) {
-            if (name.equalsIgnoreCase(j.name)) return j;
-        }
-        return null;
+    public STLLoader.STLMesh getLinkMesh(String linkName) {
+        return meshCache.get(linkName);
     }
 
     // ===== 업라이트 보정 유틸 =====
@@ -1,6 +1,7 @@
 package com.kAIS.KAIMyEntity.urdf.control;
 
 import com.kAIS.KAIMyEntity.PhysicsManager;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
@@ -205,7 +206,7 @@ public class BlockCollisionManager {
     /**
      * 블록이 충돌 처리 대상인지 확인
      */
-    private boolean isSolidForCollision(BlockState state) {
+    private static boolean isSolidForCollision(BlockState state) {
         if (state.isAir()) return false;
         
         // 완전한 고체 블록
@@ -439,6 +440,14 @@ public class BlockCollisionManager {
         }
     }
 
+    /**
+     * 월드 블록을 복셀 점유 조회로 감쌈 (리듀스드 좌표 물리 엔진의 접촉용, 한 스레드 전용)
+     */
+    public static VoxelOccupancy occupancy(Level level) {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        return (x, y, z) -> level != null && isSolidForCollision(level.getBlockState(pos.set(x, y, z)));
+    }
+
     /**
      * 간단한 바닥 충돌 검사 (Y축만)
      * 빠른 지면 체크용
@@ -1,9 +1,21 @@
 package com.kAIS.KAIMyEntity.urdf.control;
 
+import com.kAIS.KAIMyEntity.urdf.JointRegistry;
 import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import com.kAIS.KAIMyEntity.urdf.kinematics.ArticulatedBodyDynamics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.IKDemoGenerator;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
 import com.kAIS.KAIMyEntity.urdf.vmd.VMDLoader;
 import com.kAIS.KAIMyEntity.webots.WebotsController;
+import com.kAIS.KAIMyEntity.rl.AcceleratedTrainer;
+import com.kAIS.KAIMyEntity.rl.CheckpointWriter;
+import com.kAIS.KAIMyEntity.rl.PolicyEvaluator;
+import com.kAIS.KAIMyEntity.rl.PopulationTrainer;
 import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore;
+import com.kAIS.KAIMyEntity.rl.SegmentedReplayBuffer;
+import com.kAIS.KAIMyEntity.rl.ThroughputBenchmark;
+import com.kAIS.KAIMyEntity.rl.TrainingTelemetry;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.screens.Screen;
@@ -12,6 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 public final class MotionEditorScreen {
@@ -48,6 +61,7 @@ public final class MotionEditorScreen {
         private static final int PANEL_WIDTH = 280;
         private static final int PANEL_MARGIN = 8;
         private static final int PADDING = 10;
+        private static final int BENCHMARK_STEPS = 5000;
         private static final int LINE_H = 18;
         private static final int HEADER_H = 22;
         private static final int BTN_H = 18;
@@ -56,6 +70,13 @@ public final class MotionEditorScreen {
         private final Screen parent;
         private final URDFModelOpenGLWithSTL renderer;
         private RLEnvironmentCore rlEnv;
+        private AcceleratedTrainer accelerated;
+        private PopulationTrainer population;
+        private RLEnvironmentCore.Snapshot snapshot;
+        private static final int[] SPEED_CAPS = {0, 500, 2000, 10000};
+        private java.util.concurrent.CompletableFuture<PolicyEvaluator.Result> evaluation;
+        private PolicyEvaluator evaluator;
+        private java.util.concurrent.CompletableFuture<IKDemoGenerator.Result> ikDemo;
 
         private SimState simState = SimState.STOPPED;
         private float simTime = 0f;
@@ -114,7 +135,7 @@ public final class MotionEditorScreen {
                 if (joint.isMovable()) {
                     float lower = (joint.limit != null) ? joint.limit.lower : -3.14f;
                     float upper = (joint.limit != null) ? joint.limit.upper : 3.14f;
-                    joints.put(joint.name, new JointInfo(joint.name, joint.currentPosition, lower, upper));
+                    joints.put(joint.name, new JointInfo(joint.name, joint.getPosition(), lower, upper));
                 }
             }
             log(LogLevel.INFO, "Loaded " + joints.size() + " joints");
@@ -193,9 +214,15 @@ public final class MotionEditorScreen {
             bx = renderButton(g, bx + gap, y, btnW, BTN_H, "||", "sim_pause", mx, my, simState == SimState.PAUSED);
             bx = renderButton(g, bx + gap, y, btnW, BTN_H, "R", "sim_reset", mx, my, false);
             bx = renderButton(g, bx + gap, y, btnW, BTN_H, ">|", "sim_step", mx, my, false);
+            renderButton(g, x + w - 50, y, 50, BTN_H, "Bench", "benchmark", mx, my, false);
             y += BTN_H + 8;
 
             renderButton(g, x, y, 90, BTN_H, "Load VMD", "load_vmd", mx, my, false);
+            var controller = renderer.getController();
+            boolean aba = controller != null
+                    && controller.getDynamicsBackend() == URDFSimpleController.DynamicsBackend.ARTICULATED;
+            renderButton(g, x + w - 104, y, 50, BTN_H, ikDemo != null ? "..." : "IK", "ik_demo", mx, my, ikDemo != null);
+            renderButton(g, x + w - 50, y, 50, BTN_H, "ABA", "dynamics_toggle", mx, my, aba);
             g.drawString(font, String.format("%.1fx", simSpeed), x + 100, y + 4, COL_TEXT_DIM, false);
             y += BTN_H + 8;
 
@@ -256,36 +283,58 @@ public final class MotionEditorScreen {
             // Start/Stop 버튼
             String btnText = training ? "Stop" : "Start";
             renderButton(g, x + 110, y, 50, BTN_H, btnText, "training_toggle", mx, my, training);
+            renderButton(g, x + 165, y, 40, BTN_H, evaluation != null ? "..." : "Eval", "evaluate", mx, my, evaluation != null);
             y += BTN_H + 6;
             
-            // 에피소드 정보
-            var stats = rlEnv.getStats();
-            g.drawString(font, String.format("Episode: %d", rlEnv.getEpisodeCount()), x, y, COL_TEXT_DIM, false);
-            g.drawString(font, String.format("Step: %d", rlEnv.getStepCount()), x + 90, y, COL_TEXT_DIM, false);
+            // 가속 학습 (클라이언트 틱과 분리)
+            boolean accel = isAccelerated();
+            int cap = rlEnv.getConfig().maxStepsPerSecond;
+            g.drawString(font, "Accel:", x, y + 4, COL_TEXT_DIM, false);
+            bx = renderButton(g, x + 40, y, 35, BTN_H, accel ? "ON" : "OFF", "accel_toggle", mx, my, accel);
+            bx = renderButton(g, bx + 2, y, 50, BTN_H, cap > 0 ? String.valueOf(cap) : "MAX", "cap_cycle", mx, my, false);
+            renderButton(g, bx + 2, y, 35, BTN_H, "PBT", "pbt_toggle", mx, my, population != null);
+            y += BTN_H + 4;
+            if (accel) {
+                g.drawString(font, String.format("Speed: %.0f steps/s (cap %s)", accelerated.getStepsPerSecond(),
+                    cap > 0 ? String.valueOf(cap) : "none"), x, y, COL_TEXT_DIM, false);
+                y += LINE_H;
+            }
+            if (population != null) {
+                g.drawString(font, String.format("PBT: %d members, %d steps", population.getPopulationSize(),
+                    population.getPopulationSteps()), x, y, COL_TEXT_DIM, false);
+                y += LINE_H;
+            }
+            
+            // 에피소드 정보 (가속 중에는 워커가 게시한 스냅샷 기준)
+            var snap = accel && snapshot != null ? snapshot : rlEnv.captureSnapshot();
+            g.drawString(font, String.format("Episode: %d", snap.episode()), x, y, COL_TEXT_DIM, false);
+            g.drawString(font, String.format("Step: %d", snap.step()), x + 90, y, COL_TEXT_DIM, false);
             y += LINE_H;
             
             // 보상 정보
             int rewardColor = lastReward > 0 ? COL_ACCENT : (lastReward < 0 ? COL_ERROR : COL_TEXT);
-            g.drawString(font, String.format("Reward: %.2f", rlEnv.getEpisodeReward()), x, y, COL_TEXT_DIM, false);
+            g.drawString(font, String.format("Reward: %.2f", snap.episodeReward()), x, y, COL_TEXT_DIM, false);
             g.drawString(font, String.format("(%.4f)", lastReward), x + 85, y, rewardColor, false);
             y += LINE_H;
             
             // 통계
             g.drawString(font, String.format("Avg: %.2f  Best: %.2f", 
-                stats.getAverageReward(), stats.getBestReward()), x, y, COL_TEXT_DIM, false);
+                snap.averageReward(), snap.bestReward()), x, y, COL_TEXT_DIM, false);
             y += LINE_H;
             
             // 건강 상태
-            boolean healthy = rlEnv.isHealthy();
+            boolean healthy = snap.healthy();
             g.drawString(font, "Health: ", x, y, COL_TEXT_DIM, false);
             g.drawString(font, healthy ? "OK" : "FALLEN", x + 45, y, healthy ? COL_ACCENT : COL_ERROR, false);
             y += LINE_H;
             
-            // 공간 정보
+            // 공간 정보 (LAT = VMD 모션 프라이어 잠재 행동, 다음 학습 시작부터 적용)
             g.drawString(font, String.format("Obs: %d  Act: %d", 
-                rlEnv.getObservationDim(), rlEnv.getActionDim()), x, y, COL_TEXT_DIM, false);
+                rlEnv.getObservationDim(), rlEnv.getActionDim()), x, y + 4, COL_TEXT_DIM, false);
+            boolean latent = rlEnv.getConfig().actionMode == RLEnvironmentCore.ActionMode.LATENT;
+            renderButton(g, x + 110, y, 35, BTN_H, "LAT", "latent_toggle", mx, my, latent);
             
-            return y + LINE_H;
+            return y + BTN_H + 4;
         }
 
         private int renderJointSection(GuiGraphics g, int x, int y, int w, int mx, int my) {
@@ -584,6 +633,9 @@ public final class MotionEditorScreen {
                 case "sim_reset" -> reset();
                 case "sim_step" -> step();
                 case "load_vmd" -> openVmdDialog();
+                case "dynamics_toggle" -> toggleArticulatedDynamics();
+                case "ik_demo" -> startIkDemo();
+                case "benchmark" -> runBenchmark();
                 case "server_toggle" -> toggleServer();
                 case "port_input" -> startPortEdit();
                 case "joint_scroll_up" -> { if (jointScrollOffset > 0) jointScrollOffset--; }
@@ -603,12 +655,56 @@ public final class MotionEditorScreen {
                 case "training_toggle" -> {
                     if (rlEnv != null) {
                         if (rlEnv.isTraining()) {
+                            stopAccelerated();
                             rlEnv.stopTraining();
+                            closeTelemetry();
+                            closeReplay();
                         } else {
+                            // 로드된 VMD가 있으면 참조 상태 초기화(RSI)에 사용
+                            URDFMotion motion = VMDPlayer.getInstance().getMotion();
+                            if (motion != null) rlEnv.setReferenceMotion(motion);
+                            prepareMotionPriorIfNeeded();
+                            openTelemetryIfNeeded();
+                            openCheckpointsIfNeeded();
+                            openReplayIfNeeded();
                             rlEnv.startTraining(rlEnv.getAgentMode());
                         }
                     }
                 }
+                case "evaluate" -> startEvaluation();
+                case "latent_toggle" -> {
+                    if (rlEnv != null && !rlEnv.isTraining()) {
+                        var config = rlEnv.getConfig();
+                        int before = rlEnv.getActionDim();
+                        config.actionMode = config.actionMode == RLEnvironmentCore.ActionMode.LATENT
+                            ? RLEnvironmentCore.ActionMode.POSITION : RLEnvironmentCore.ActionMode.LATENT;
+                        if (rlEnv.getActionDim() != before) rlEnv.initialize(renderer); // 에이전트 재생성
+                    }
+                }
+                case "accel_toggle" -> {
+                    if (isAccelerated()) {
+                        stopAccelerated();
+                    } else if (rlEnv != null && rlEnv.isTraining()) {
+                        accelerated = new AcceleratedTrainer(rlEnv, 0.05f);
+                        accelerated.start();
+                    } else {
+                        log(LogLevel.WARN, "Start training before enabling acceleration");
+                    }
+                }
+                case "pbt_toggle" -> togglePopulation();
+                case "cap_cycle" -> {
+                    if (rlEnv != null) {
+                        var config = rlEnv.getConfig();
+                        int next = 0;
+                        for (int i = 0; i < SPEED_CAPS.length; i++) {
+                            if (SPEED_CAPS[i] == config.maxStepsPerSecond) {
+                                next = (i + 1) % SPEED_CAPS.length;
+                                break;
+                            }
+                        }
+                        config.maxStepsPerSecond = SPEED_CAPS[next];
+                    }
+                }
             }
         }
 
@@ -654,11 +750,14 @@ public final class MotionEditorScreen {
             episodeReward = 0f;
             lastReward = 0f;
             
+            stopAccelerated();
             VMDPlayer.getInstance().stop();
             loadJoints();
             
-            // RL 환경 리셋
+            // RL 환경 리셋 (새 런이므로 텔레메트리 파일도 닫음 - 다음 학습 시작 때 새로 생성)
             if (rlEnv != null && rlEnv.isInitialized()) {
+                closeTelemetry();
+                closeReplay();
                 rlEnv.reset();
             }
             
@@ -666,7 +765,7 @@ public final class MotionEditorScreen {
         }
 
         private void step() {
-            if (simState == SimState.RUNNING) return;
+            if (simState == SimState.RUNNING || isAccelerated()) return;
             
             // RL 환경 수동 스텝
             if (rlEnv != null && rlEnv.isInitialized()) {
@@ -679,6 +778,267 @@ public final class MotionEditorScreen {
             simTime += 0.05f;
         }
 
+        /**
+         * LATENT 행동이면 KAIMyEntity/*.vmd로 모션 프라이어 준비 (KAIMyEntity/priors/{로봇}.kpca 캐시)
+         * 행동 차원이 바뀌므로 환경을 다시 초기화 (체크포인트 복원보다 먼저)
+         */
+        private void prepareMotionPriorIfNeeded() {
+            if (rlEnv.getConfig().actionMode != RLEnvironmentCore.ActionMode.LATENT
+                    || rlEnv.getMotionPrior() != null || renderer == null) return;
+            File kaiDir = new File(Minecraft.getInstance().gameDirectory, "KAIMyEntity");
+            File cache = new File(kaiDir, "priors/" + renderer.getRobotModel().name + ".kpca");
+            if (rlEnv.loadMotionPrior(kaiDir, cache.toPath()) != null) {
+                rlEnv.initialize(renderer);
+            } else {
+                log(LogLevel.WARN, "No VMD library for motion prior, using POSITION actions");
+            }
+        }
+
+        /**
+         * 첫 학습 시작 시 TensorBoard 이벤트 파일 생성 (KAIMyEntity/runs/{시각})
+         */
+        private void openTelemetryIfNeeded() {
+            if (rlEnv.getTelemetry() != null) return;
+            File gameDir = Minecraft.getInstance().gameDirectory;
+            String run = new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            File runDir = new File(new File(gameDir, "KAIMyEntity"), "runs/" + run);
+            try {
+                rlEnv.setTelemetry(TrainingTelemetry.open(runDir.toPath()));
+                log(LogLevel.INFO, "Telemetry: " + runDir.getPath());
+            } catch (IOException e) {
+                log(LogLevel.WARN, "Telemetry disabled: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 텔레메트리 분리 후 남은 이벤트 기록 + 파일 닫기 (학습 중지 / 리셋 / 화면 종료)
+         */
+        private void closeTelemetry() {
+            TrainingTelemetry telemetry = rlEnv != null ? rlEnv.getTelemetry() : null;
+            if (telemetry == null) return;
+            rlEnv.setTelemetry(null);
+            telemetry.close();
+            log(LogLevel.INFO, "Telemetry closed: " + telemetry.getFile());
+        }
+
+        /**
+         * 체크포인트 기록기 연결 (KAIMyEntity/checkpoints/{로봇}), 기존 체크포인트가 있으면 이어서 학습
+         */
+        private void openCheckpointsIfNeeded() {
+            if (rlEnv.getCheckpointWriter() != null || renderer == null) return;
+            File gameDir = Minecraft.getInstance().gameDirectory;
+            File dir = new File(new File(gameDir, "KAIMyEntity"), "checkpoints/" + renderer.getRobotModel().name);
+            try {
+                rlEnv.setCheckpointWriter(new CheckpointWriter(dir.toPath(), rlEnv.getConfig().checkpointKeep));
+                if (rlEnv.resumeFromCheckpoint()) {
+                    log(LogLevel.INFO, "Resumed training from " + dir.getPath());
+                }
+            } catch (IOException e) {
+                log(LogLevel.WARN, "Checkpoints disabled: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 디스크 리플레이 버퍼 연결 (KAIMyEntity/replay/{로봇}), 이전 세션의 전이가 있으면 이어서 사용
+         */
+        private void openReplayIfNeeded() {
+            if (rlEnv.getReplayBuffer() != null || renderer == null) return;
+            File gameDir = Minecraft.getInstance().gameDirectory;
+            File dir = new File(new File(gameDir, "KAIMyEntity"), "replay/" + renderer.getRobotModel().name);
+            try {
+                SegmentedReplayBuffer buffer = SegmentedReplayBuffer.open(dir.toPath(),
+                        rlEnv.getPolicyObservationDim(), rlEnv.getActionDim(), 4096, 64, 2);
+                rlEnv.setReplayBuffer(buffer);
+                if (rlEnv.getReplayBuffer() != buffer) {
+                    buffer.close();
+                    return;
+                }
+                log(LogLevel.INFO, "Replay: " + dir.getPath() + " (" + buffer.size() + " transitions)");
+            } catch (IOException e) {
+                log(LogLevel.WARN, "Replay disabled: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 리플레이 버퍼 분리 후 남은 세그먼트 스필 + 닫기 (학습 중지 / 리셋 / 화면 종료)
+         */
+        private void closeReplay() {
+            SegmentedReplayBuffer buffer = rlEnv != null ? rlEnv.getReplayBuffer() : null;
+            if (buffer == null) return;
+            rlEnv.setReplayBuffer(null);
+            buffer.close();
+        }
+
+        /**
+         * 현재 정책을 헤드리스 병렬 평가 (시드 고정, 탐색 없음). 결과는 tick()에서 로그/JSON 기록
+         */
+        private void startEvaluation() {
+            if (evaluation != null || rlEnv == null || !rlEnv.isInitialized()) return;
+            if (isAccelerated()) {
+                log(LogLevel.WARN, "Stop acceleration before evaluating");
+                return;
+            }
+            evaluator = new PolicyEvaluator(new PolicyEvaluator.Settings());
+            evaluation = evaluator.evaluateAsync(rlEnv, renderer);
+            log(LogLevel.INFO, "Evaluating policy (" + evaluator.getSettings().episodes + " episodes)...");
+        }
+
+        private void pollEvaluation() {
+            if (evaluation == null || !evaluation.isDone()) return;
+            try {
+                PolicyEvaluator.Result r = evaluation.join();
+                log(LogLevel.INFO, String.format("Eval return %.2f [%.2f, %.2f], length %.1f, fall %.0f%%",
+                    r.episodeReturn().mean(), r.episodeReturn().ciLow(), r.episodeReturn().ciHigh(),
+                    r.episodeLength().mean(), r.fallRate() * 100));
+                String robot = renderer.getRobotModel().name;
+                String time = new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+                File file = new File(new File(Minecraft.getInstance().gameDirectory, "KAIMyEntity"),
+                    "eval/" + robot + "-" + time + ".json");
+                evaluator.writeJson(r, robot, file.toPath());
+                log(LogLevel.INFO, "Eval summary: " + file.getPath());
+            } catch (RuntimeException | IOException e) {
+                log(LogLevel.ERROR, "Evaluation failed: " + e.getMessage());
+            }
+            evaluation = null;
+            evaluator = null;
+        }
+
+        private boolean isAccelerated() {
+            return accelerated != null && accelerated.isRunning();
+        }
+
+        /**
+         * 가속 워커 정지 (렌더러 동기화 복구). 학습 종료로 워커가 먼저 멈춘 경우도 정리
+         */
+        private void stopAccelerated() {
+            if (accelerated == null) return;
+            accelerated.stop();
+            accelerated = null;
+            snapshot = null;
+        }
+
+        /**
+         * PBT 시작/정지 - 편집기 환경 Config를 기준으로 헤드리스 집단 학습 (렌더러는 멤버 초기화 때만 읽음)
+         */
+        private void togglePopulation() {
+            if (population != null) {
+                stopPopulation();
+                return;
+            }
+            if (rlEnv == null || !rlEnv.isInitialized()) {
+                log(LogLevel.WARN, "PBT needs an initialized RL environment");
+                return;
+            }
+            if (isAccelerated()) {
+                log(LogLevel.WARN, "Stop acceleration before starting PBT");
+                return;
+            }
+            population = new PopulationTrainer(new PopulationTrainer.Settings());
+            population.start(renderer, rlEnv.getConfig());
+            if (!population.isRunning()) {
+                log(LogLevel.ERROR, "PBT failed to start");
+                population = null;
+                return;
+            }
+            log(LogLevel.INFO, "PBT started (" + population.getPopulationSize() + " members)");
+        }
+
+        /**
+         * PBT 정지 후 최고 멤버(가중치/정규화/Config)를 편집기 환경으로 복사
+         */
+        private void stopPopulation() {
+            if (population == null) return;
+            population.stop();
+            if (!isAccelerated() && rlEnv != null && population.exportBest(rlEnv)) {
+                log(LogLevel.INFO, String.format("PBT best policy loaded (%d steps, best fitness %.1f)",
+                    population.getPopulationSteps(), population.getResults().get(0).fitness()));
+            } else {
+                log(LogLevel.WARN, "PBT stopped without an exportable member");
+            }
+            population = null;
+        }
+
+        /**
+         * ABA 백엔드 토글 - 플레이어 위치(로봇 렌더 위치) 주변 블록을 접촉 복셀로 잡고 발이 바닥에 닿게 세움
+         */
+        private void toggleArticulatedDynamics() {
+            URDFSimpleController controller = renderer.getController();
+            if (controller == null) return;
+            if (controller.getDynamicsBackend() == URDFSimpleController.DynamicsBackend.ARTICULATED) {
+                controller.useOdeDynamics();
+                log(LogLevel.INFO, "Articulated dynamics disabled");
+                return;
+            }
+            var player = Minecraft.getInstance().player;
+            if (player == null) {
+                log(LogLevel.WARN, "Articulated dynamics needs a player position");
+                return;
+            }
+            VoxelOccupancy world = BlockCollisionManager.occupancy(player.level());
+            double px = player.getX(), py = player.getY(), pz = player.getZ();
+            if (!controller.useArticulatedDynamics(world, px, py, pz)) {
+                log(LogLevel.WARN, "Articulated dynamics unavailable for this model");
+                return;
+            }
+            ArticulatedBodyDynamics engine = controller.getArticulatedDynamics();
+            engine.place(world, px, py + engine.getStandingHeight(), pz);
+            log(LogLevel.INFO, String.format("Articulated dynamics enabled (%.1f kg)", engine.getTotalMass()));
+        }
+
+        /**
+         * 처리량 벤치마크 (관절만 / 복셀 접촉 / ABA / ODE 메시 충돌, 같은 dt + 배치 FK)
+         * 렌더 스레드에서 동기 실행 → 측정 동안 틱이 멈춰 공유 ODE 월드를 다른 업데이트와 함께 쓰지 않음
+         */
+        private void runBenchmark() {
+            if (isAccelerated()) {
+                log(LogLevel.WARN, "Stop accelerated training before benchmarking");
+                return;
+            }
+            RLEnvironmentCore.Config base = rlEnv != null ? rlEnv.getConfig() : new RLEnvironmentCore.Config();
+            ThroughputBenchmark.Report r = ThroughputBenchmark.measure(renderer, base, BENCHMARK_STEPS);
+            log(LogLevel.INFO, String.format("Throughput (steps/s): joint %.0f, contact %.0f, ABA %.0f, ODE %s; FK %.0f poses/s",
+                r.jointOnlyStepsPerSecond(), r.groundContactStepsPerSecond(), r.articulatedStepsPerSecond(),
+                r.odeStepsPerSecond() > 0 ? String.format("%.0f", r.odeStepsPerSecond()) : "n/a",
+                r.batchFkPosesPerSecond()));
+        }
+
+        /**
+         * 현재 자세에서 IK 제자리 걸음 데모 생성 (백그라운드). 완료되면 VMD 플레이어에 올림 → 재생/학습 참조 모션
+         */
+        private void startIkDemo() {
+            if (ikDemo != null) return;
+            KinematicTree tree = renderer.getRobotModel().getKinematicTree();
+            if (tree == null) {
+                log(LogLevel.WARN, "IK demo needs a compiled kinematic tree");
+                return;
+            }
+            float[] seed = new float[tree.getJointCount()];
+            tree.readJointPositions(seed);
+            File gameDir = Minecraft.getInstance().gameDirectory;
+            File reachDir = new File(new File(gameDir, "KAIMyEntity"), "reach/" + renderer.getRobotModel().name);
+            ikDemo = IKDemoGenerator.generateAsync(tree, seed, new IKDemoGenerator.Settings(), reachDir.toPath());
+            log(LogLevel.INFO, "Generating IK demo...");
+        }
+
+        private void pollIkDemo() {
+            if (ikDemo == null || !ikDemo.isDone()) return;
+            try {
+                IKDemoGenerator.Result r = ikDemo.join();
+                if (r == null) {
+                    log(LogLevel.WARN, "IK demo: no movable end-effectors");
+                } else {
+                    VMDPlayer.getInstance().loadMotion(r.trajectory().motion());
+                    float err = r.trajectory().maxError();
+                    log(err > 0.01f * r.legLength() || r.unreachable() > 0 ? LogLevel.WARN : LogLevel.INFO,
+                        String.format("IK demo loaded (%s, lift %.0f mm, max err %.1f mm, %d unreachable)",
+                            String.join("/", r.feet()), r.lift() * 1000, err * 1000, r.unreachable()));
+                }
+            } catch (RuntimeException e) {
+                log(LogLevel.ERROR, "IK demo failed: " + e.getMessage());
+            }
+            ikDemo = null;
+        }
+
         private void openVmdDialog() {
             log(LogLevel.INFO, "VMD file dialog - not implemented");
         }
@@ -697,8 +1057,27 @@ public final class MotionEditorScreen {
         public void tick() {
             super.tick();
             
-            // RL 환경 틱
-            if (rlEnv != null && rlEnv.isInitialized()) {
+            pollEvaluation();
+            pollIkDemo();
+            
+            // 워커가 스스로 멈췄으면 (학습 종료/오류) 일반 틱으로 복귀
+            if (accelerated != null && !accelerated.isRunning()) {
+                stopAccelerated();
+            }
+            if (population != null && !population.isRunning()) {
+                stopPopulation(); // stepBudget 도달
+            }
+            
+            if (isAccelerated()) {
+                // 가속 중: 환경은 워커 소유, 렌더 스레드는 스냅샷만 반영
+                snapshot = accelerated.poll();
+                if (snapshot != null) {
+                    episodeReward = snapshot.episodeReward();
+                    lastReward = snapshot.lastReward();
+                    stepCount = snapshot.step();
+                }
+            } else if (rlEnv != null && rlEnv.isInitialized()) {
+                // RL 환경 틱
                 rlEnv.tick(0.05f); // 50ms per tick
                 
                 // 상태 동기화
@@ -709,7 +1088,7 @@ public final class MotionEditorScreen {
             
             // VMD 재생 중이면 모방 목표 설정
             var vmd = VMDPlayer.getInstance();
-            if (vmd.isPlaying() && rlEnv != null && rlEnv.getAgent() != null) {
+            if (vmd.isPlaying() && !isAccelerated() && rlEnv != null && rlEnv.getAgent() != null) {
                 Map<String, Float> targets = new HashMap<>();
                 // VMD 현재 포즈를 목표로 설정
                 for (var entry : joints.entrySet()) {
@@ -729,7 +1108,7 @@ public final class MotionEditorScreen {
                 for (var joint : robot.joints) {
                     if (joint.isMovable() && joints.containsKey(joint.name)) {
                         if (!joint.name.equals(draggingJoint)) {
-                            joints.get(joint.name).value = joint.currentPosition;
+                            joints.get(joint.name).value = joint.getPosition();
                         }
                     }
                 }
@@ -738,9 +1117,17 @@ public final class MotionEditorScreen {
 
         @Override
         public void onClose() {
+            stopAccelerated();
+            stopPopulation();
             Minecraft.getInstance().setScreen(parent);
         }
 
+        @Override
+        public void removed() {
+            closeTelemetry();
+            closeReplay();
+        }
+
         @Override
         public boolean isPauseScreen() {
             return false;
@@ -772,6 +1159,12 @@ public final class MotionEditorScreen {
         private int activeJointCount = 0;
         private int debugCounter = 0;
 
+        // 렌더러 관절 ID 기준으로 컴파일한 모션 (매 틱 이름 해석 없음)
+        private CompiledMotion compiled;
+        // 레지스트리 ID → Webots 핸들 (-1: 미지원/고정 관절)
+        private JointRegistry webotsRegistry;
+        private int[] webotsHandles;
+
         private VMDPlayer() {}
 
         public static VMDPlayer getInstance() {
@@ -821,6 +1214,10 @@ public final class MotionEditorScreen {
             return currentMotion != null;
         }
 
+        public URDFMotion getMotion() {
+            return currentMotion;
+        }
+
         public void tick(URDFModelOpenGLWithSTL renderer, float deltaTime) {
             if (!playing) return;
             URDFMotion motion = currentMotion;
@@ -837,12 +1234,16 @@ public final class MotionEditorScreen {
                 return;
             }
 
-            URDFMotion.Key prevKey = null, nextKey = null;
-            for (URDFMotion.Key key : motion.keys) {
-                if (key.t <= currentTime) prevKey = key;
-                else { nextKey = key; break; }
+            CompiledMotion cm = compiled(motion, renderer);
+
+            int prev = -1, next = -1;
+            for (int k = 0; k < cm.keyCount; k++) {
+                if (motion.keys.get(k).t <= currentTime) prev = k;
+                else { next = k; break; }
             }
-            if (prevKey == null) prevKey = motion.keys.get(0);
+            if (prev < 0) prev = 0;
+            URDFMotion.Key prevKey = motion.keys.get(prev);
+            URDFMotion.Key nextKey = next >= 0 ? motion.keys.get(next) : null;
 
             float alpha = 0f;
             if (nextKey != null && nextKey.t > prevKey.t) {
@@ -852,17 +1253,18 @@ public final class MotionEditorScreen {
                 }
             }
 
-            activeJointCount = 0;
-            for (Map.Entry<String, Float> entry : prevKey.pose.entrySet()) {
-                String jointName = entry.getKey();
-                float value = entry.getValue();
-                if (nextKey != null && nextKey.pose.containsKey(jointName)) {
-                    value = lerp(value, nextKey.pose.get(jointName), alpha);
+            int[] ids = cm.ids[prev];
+            float[] prevValues = cm.values[prev];
+            float[] nextValues = nextKey != null ? cm.values[next] : null;
+            for (int id : ids) {
+                float value = prevValues[id];
+                if (nextValues != null && !Float.isNaN(nextValues[id])) {
+                    value = lerp(value, nextValues[id], alpha);
                 }
-                renderer.setJointPreview(jointName, value);
-                renderer.setJointTarget(jointName, value);
-                activeJointCount++;
+                renderer.setJointPreview(id, value);
+                renderer.setJointTarget(id, value);
             }
+            activeJointCount = cm.poseSizes[prev];
 
             if (++debugCounter >= 20) {
                 debugCounter = 0;
@@ -875,16 +1277,37 @@ public final class MotionEditorScreen {
             try {
                 WebotsController webots = WebotsController.getInstance();
                 if (!webots.isConnected()) return;
-                var robot = renderer.getRobotModel();
-                if (robot == null || robot.joints == null) return;
-                for (var joint : robot.joints) {
-                    if (joint.isMovable()) {
-                        webots.setJoint(joint.name, joint.currentPosition);
+                JointRegistry registry = renderer.getJointRegistry();
+                if (registry != webotsRegistry) {
+                    webotsHandles = new int[registry.size()];
+                    for (int id = 0; id < webotsHandles.length; id++) {
+                        webotsHandles[id] = registry.joint(id).isMovable()
+                                ? WebotsController.resolveJoint(registry.name(id)) : -1;
+                    }
+                    webotsRegistry = registry;
+                }
+                float[] position = registry.getStateStore().position;
+                for (int id = 0; id < webotsHandles.length; id++) {
+                    if (webotsHandles[id] >= 0) {
+                        webots.setJoint(webotsHandles[id], position[id]);
                     }
                 }
             } catch (Exception ignored) {}
         }
 
+        /**
+         * 현재 모션의 컴파일 결과 (모션/렌더러 레지스트리/키 개수가 바뀌면 다시 컴파일)
+         */
+        private CompiledMotion compiled(URDFMotion motion, URDFModelOpenGLWithSTL renderer) {
+            JointRegistry registry = renderer.getJointRegistry();
+            CompiledMotion cm = compiled;
+            if (cm == null || cm.motion != motion || cm.registry != registry || cm.keyCount != motion.keys.size()) {
+                cm = new CompiledMotion(motion, registry);
+                compiled = cm;
+            }
+            return cm;
+        }
+
         private float lerp(float a, float b, float t) {
             return a + (b - a) * t;
         }
@@ -898,5 +1321,45 @@ public final class MotionEditorScreen {
 
         public record Status(String motionName, int keyframeCount, float duration,
                              float currentTime, boolean playing, int activeJoints) {}
+
+        /**
+         * 키별 포즈를 관절 ID 배열로 변환한 모션
+         *  - ids[k]: 키 k에 있는 관절 ID (해석 실패한 이름은 제외)
+         *  - values[k][id]: 관절 값, 키에 없는 관절은 NaN
+         */
+        private static final class CompiledMotion {
+            final URDFMotion motion;
+            final JointRegistry registry;
+            final int keyCount;
+            final int[][] ids;
+            final float[][] values;
+            final int[] poseSizes;
+
+            CompiledMotion(URDFMotion motion, JointRegistry registry) {
+                this.motion = motion;
+                this.registry = registry;
+                this.keyCount = motion.keys.size();
+                this.ids = new int[keyCount][];
+                this.values = new float[keyCount][];
+                this.poseSizes = new int[keyCount];
+
+                for (int k = 0; k < keyCount; k++) {
+                    URDFMotion.Key key = motion.keys.get(k);
+                    float[] v = new float[registry.size()];
+                    Arrays.fill(v, Float.NaN);
+                    int[] keyIds = new int[key.pose.size()];
+                    int n = 0;
+                    for (Map.Entry<String, Float> entry : key.pose.entrySet()) {
+                        int id = registry.resolve(entry.getKey());
+                        if (id == JointRegistry.NONE) continue;
+                        if (Float.isNaN(v[id])) keyIds[n++] = id;
+                        v[id] = entry.getValue();
+                    }
+                    ids[k] = Arrays.copyOf(keyIds, n);
+                    values[k] = v;
+                    poseSizes[k] = key.pose.size();
+                }
+            }
+        }
     }
 }
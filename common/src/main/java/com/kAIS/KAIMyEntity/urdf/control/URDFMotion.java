@@ -17,4 +17,52 @@ public final class URDFMotion {
     }
 
     public final List<Key> keys = new ArrayList<>();
+
+    /** 마지막 키 시간(초). 키가 없으면 0 */
+    public float duration() {
+        return keys.isEmpty() ? 0f : keys.get(keys.size() - 1).t;
+    }
+
+    /**
+     * t 시점 포즈를 jointNames 순서대로 out[offset..]에 기록
+     * - 보간은 URDFMotionPlayer와 동일 (linear / 정지-정지 Hermite)
+     * - 모션에 없는 관절은 fallback[i] (null이면 0)
+     * - keys는 t 오름차순이라고 가정 (VMDLoader 출력 기준)
+     */
+    public void samplePose(float t, List<String> jointNames, float[] fallback, float[] out, int offset) {
+        int n = jointNames.size();
+        if (keys.isEmpty()) {
+            for (int i = 0; i < n; i++) out[offset + i] = fallback != null ? fallback[i] : 0f;
+            return;
+        }
+
+        // 키 구간 찾기 (이진 탐색)
+        int hi = keys.size() - 1;
+        int lo = 0;
+        if (t <= keys.get(0).t) {
+            hi = 0;
+        } else if (t >= keys.get(hi).t) {
+            lo = hi;
+        } else {
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if (keys.get(mid).t <= t) lo = mid; else hi = mid;
+            }
+        }
+        Key a = keys.get(lo), b = keys.get(hi);
+        float s = (a == b) ? 0f : (t - a.t) / Math.max(1e-6f, (b.t - a.t));
+
+        boolean linear = "linear".equalsIgnoreCase(b.interp != null ? b.interp : "cubic");
+        float wb = linear ? s : (-2*s*s*s + 3*s*s);
+
+        for (int i = 0; i < n; i++) {
+            String jn = jointNames.get(i);
+            float def = fallback != null ? fallback[i] : 0f;
+            Float va = a.pose.get(jn);
+            Float vb = b.pose.get(jn);
+            float pa = va != null ? va : (vb != null ? vb : def);
+            float pb = vb != null ? vb : pa;
+            out[offset + i] = pa + (pb - pa) * wb;
+        }
+    }
 }
@@ -1,9 +1,15 @@
 package com.kAIS.KAIMyEntity.urdf.control;
 
 import com.kAIS.KAIMyEntity.PhysicsManager;
+import com.kAIS.KAIMyEntity.urdf.JointRegistry;
+import com.kAIS.KAIMyEntity.urdf.JointStateStore;
 import com.kAIS.KAIMyEntity.urdf.URDFJoint;
 import com.kAIS.KAIMyEntity.urdf.URDFLink;
 import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.kinematics.ArticulatedBodyDynamics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.InverseDynamics;
+import com.kAIS.KAIMyEntity.urdf.kinematics.KinematicTree;
+import com.kAIS.KAIMyEntity.urdf.kinematics.VoxelOccupancy;
 import net.minecraft.util.Mth;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,13 +23,21 @@ import java.util.*;
  * 사용법:
  * - 키네마틱만: new URDFSimpleController(allJoints)
  * - 물리 포함: new URDFSimpleController(model, allJoints, true)
+ *
+ * 목표/현재 상태는 모델의 JointStateStore 배열을 직접 읽고 씀 (이름 키 맵 없음)
+ * 물리 모드 토크 = 역동역학 피드포워드 τ(q*, q̇*, q̈*) + PD - 중력/관성을 피드포워드가 맡으므로
+ * setPhysicsGains()로 게인을 낮추고 물리 스텝을 키워도 추종이 유지됨
+ *
+ * 동역학 백엔드는 로봇별 선택: ODE(공유 월드) 또는 useArticulatedDynamics()의 순수 자바 ABA
+ * (공유 월드 없음, 복셀 접촉, 헤드리스 학습용 - 같은 게인/피드포워드 사용)
  */
 public final class URDFSimpleController {
     private static final Logger logger = LogManager.getLogger();
 
     // ========== 공통 필드 ==========
     private final Map<String, URDFJoint> joints;
-    private final Map<String, Float> target = new HashMap<>();
+    private final URDFJoint[] jointList;      // 제어 대상 (상태 저장소 ID는 URDFJoint.getStateId())
+    private final JointRegistry ownRegistry;  // 모델 없이 만든 경우의 독립 레지스트리
     
     // ========== 키네마틱 모드 필드 ==========
     private float kp = 30f;
@@ -44,12 +58,24 @@ public final class URDFSimpleController {
     private final Map<String, Object> geoms = new HashMap<>();
 
     // 물리 제어용
-    private final Map<String, Float> targetVelocities = new HashMap<>();
     private float physicsKp = 500f;
     private float physicsKd = 50f;
     private float maxTorque = 100f;
     private float maxForce = 500f;
 
+    // 역동역학 피드포워드 (목표 궤적, 트리 조인트 순서 스크래치)
+    private boolean feedforwardEnabled = true;
+    private InverseDynamics inverseDynamics;
+    private int[] ffStateIds;         // 트리 조인트 → 상태 저장소 ID (-1: 고정/없음)
+    private float[] ffQ, ffQd, ffQdd, ffTau, ffPrevQd;
+    private float[] feedforward;       // 상태 저장소 ID별 피드포워드 토크
+    private final float[] worldGravity = {0f, -9.81f, 0f}; // 마크 월드 중력 (PhysicsManager 기본값과 같음)
+
+    // 관절체 동역학 백엔드 (null이면 ODE/키네마틱)
+    private ArticulatedBodyDynamics articulated;
+    private int[] abaStateIds;        // 트리 조인트 → 상태 저장소 ID (-1: 고정/없음)
+    private float[] abaTau;
+
     // 리플렉션 캐시
     private Class<?> dJointClass;
     private Class<?> dHingeJointClass;
@@ -74,13 +100,14 @@ public final class URDFSimpleController {
         this.urdfModel = null;
         this.physics = null;
         this.usePhysics = false;
+        this.ownRegistry = JointRegistry.of(allJoints);
         
         Map<String, URDFJoint> m = new HashMap<>();
         for (URDFJoint j : allJoints) {
             m.put(j.name, j);
-            target.put(j.name, j.currentPosition);
         }
         this.joints = m;
+        this.jointList = allJoints.toArray(new URDFJoint[0]);
         
         logger.info("URDFSimpleController initialized in KINEMATIC mode with {} joints", joints.size());
     }
@@ -94,15 +121,16 @@ public final class URDFSimpleController {
      */
     public URDFSimpleController(URDFModel model, Collection<URDFJoint> allJoints, boolean enablePhysics) {
         this.urdfModel = model;
+        this.ownRegistry = model != null ? null : JointRegistry.of(allJoints);
         
-        // 키네마틱 기본 설정
+        // 키네마틱 기본 설정 (조인트를 모델 상태 저장소에 바인딩, 목표 = 현재 위치)
+        if (model != null) model.getJointStateStore();
         Map<String, URDFJoint> m = new HashMap<>();
         for (URDFJoint j : allJoints) {
             m.put(j.name, j);
-            target.put(j.name, j.currentPosition);
-            targetVelocities.put(j.name, 0f);
         }
         this.joints = m;
+        this.jointList = allJoints.toArray(new URDFJoint[0]);
 
         // 물리 모드 시도
         if (enablePhysics) {
@@ -118,6 +146,7 @@ public final class URDFSimpleController {
                 try {
                     initializeODE4JClasses();
                     buildPhysicsModel();
+                    buildFeedforward();
                     usePhysics = true;
                     physicsInitialized = true;
                     logger.info("URDFSimpleController initialized in PHYSICS mode with {} bodies, {} joints",
@@ -152,16 +181,19 @@ public final class URDFSimpleController {
     public void setTarget(String name, float value) {
         URDFJoint j = joints.get(name);
         if (j == null) return;
+        setTarget(j.getStateId(), value);
+    }
 
-        if (j.type == URDFJoint.JointType.CONTINUOUS) {
+    /**
+     * 목표 위치 (상태 저장소 ID 버전 - 이름 조회 없음)
+     */
+    public void setTarget(int id, float value) {
+        JointStateStore state = state();
+        if (id < 0 || id >= state.size()) return;
+        if (isContinuous(id)) {
             value = wrapToPi(value);
         }
-        if (j.type == URDFJoint.JointType.REVOLUTE || j.type == URDFJoint.JointType.PRISMATIC) {
-            if (j.limit != null && j.limit.hasLimits()) {
-                value = Mth.clamp(value, j.limit.lower, j.limit.upper);
-            }
-        }
-        target.put(name, value);
+        state.target[id] = state.clamp(id, value);
     }
 
     public void setTargets(Map<String, Float> targets) {
@@ -171,7 +203,15 @@ public final class URDFSimpleController {
     }
 
     public float getTarget(String name) {
-        return target.getOrDefault(name, 0f);
+        URDFJoint j = joints.get(name);
+        return j != null ? state().target[j.getStateId()] : 0f;
+    }
+
+    /**
+     * 이 컨트롤러가 읽고 쓰는 관절 상태 (모델이 있으면 모델 저장소)
+     */
+    public JointStateStore state() {
+        return urdfModel != null ? urdfModel.getJointStateStore() : ownRegistry.getStateStore();
     }
 
     public void setGains(float kp, float kd) {
@@ -190,7 +230,9 @@ public final class URDFSimpleController {
      * 매 틱 호출; dt ≈ 1/20f (마크 20TPS 기준)
      */
     public void update(float dt) {
-        if (usePhysics && physicsInitialized) {
+        if (articulated != null) {
+            updateArticulated(dt);
+        } else if (usePhysics && physicsInitialized) {
             updatePhysics(dt);
         } else {
             updateKinematic(dt);
@@ -198,7 +240,16 @@ public final class URDFSimpleController {
     }
 
     public boolean isUsingPhysics() {
-        return usePhysics && physicsInitialized;
+        return articulated != null || isUsingOde();
+    }
+
+    private boolean isUsingOde() {
+        return articulated == null && usePhysics && physicsInitialized;
+    }
+
+    public DynamicsBackend getDynamicsBackend() {
+        if (articulated != null) return DynamicsBackend.ARTICULATED;
+        return isUsingOde() ? DynamicsBackend.ODE : DynamicsBackend.KINEMATIC;
     }
 
     public void cleanup() {
@@ -207,6 +258,7 @@ public final class URDFSimpleController {
         odeJoints.clear();
         geoms.clear();
         physicsInitialized = false;
+        articulated = null;
         logger.info("URDFSimpleController cleaned up");
     }
 
@@ -215,10 +267,13 @@ public final class URDFSimpleController {
     // ========================================================================
 
     private void updateKinematic(float dt) {
-        for (URDFJoint j : joints.values()) {
-            float tgt = target.getOrDefault(j.name, j.currentPosition);
-            float pos = j.currentPosition;
-            float vel = j.currentVelocity;
+        JointStateStore state = state();
+        for (URDFJoint j : jointList) {
+            int id = j.getStateId();
+            if (state.external[id]) continue; // RL 환경이 적분 중
+            float tgt = state.target[id];
+            float pos = state.position[id];
+            float vel = state.velocity[id];
 
             if (j.type == URDFJoint.JointType.CONTINUOUS) {
                 float d = (float) Math.atan2(Math.sin(tgt - pos), Math.cos(tgt - pos));
@@ -236,17 +291,15 @@ public final class URDFSimpleController {
             vel = Mth.clamp(vel, -maxVel, maxVel);
             pos += vel * dt;
 
-            if (j.type == URDFJoint.JointType.REVOLUTE || j.type == URDFJoint.JointType.PRISMATIC) {
-                if (j.limit != null && j.limit.hasLimits()) {
-                    if (pos < j.limit.lower) { pos = j.limit.lower; vel = 0f; }
-                    if (pos > j.limit.upper) { pos = j.limit.upper; vel = 0f; }
-                }
+            if (state.limited[id]) {
+                if (pos < state.lower[id]) { pos = state.lower[id]; vel = 0f; }
+                if (pos > state.upper[id]) { pos = state.upper[id]; vel = 0f; }
             } else if (j.type == URDFJoint.JointType.CONTINUOUS) {
                 pos = wrapToPi(pos);
             }
 
-            j.currentVelocity = vel;
-            j.currentPosition = pos;
+            state.velocity[id] = vel;
+            state.position[id] = pos;
         }
     }
 
@@ -549,19 +602,8 @@ public final class URDFSimpleController {
 
     private void updatePhysics(float dt) {
         try {
-            // 1. 각 조인트에 PD 토크/힘 적용
-            for (Map.Entry<String, Object> entry : odeJoints.entrySet()) {
-                String jointName = entry.getKey();
-                Object odeJoint = entry.getValue();
-                URDFJoint urdfJoint = joints.get(jointName);
-
-                if (urdfJoint == null) continue;
-
-                float targetPos = target.getOrDefault(jointName, 0f);
-                float targetVel = targetVelocities.getOrDefault(jointName, 0f);
-
-                applyJointControl(odeJoint, urdfJoint, targetPos, targetVel);
-            }
+            // 1. 각 조인트에 피드포워드 + PD 토크/힘 적용
+            applyPhysicsControl(dt);
 
             // 2. 물리 스텝
             physics.step(dt);
@@ -575,8 +617,142 @@ public final class URDFSimpleController {
         }
     }
 
-    private void applyJointControl(Object odeJoint, URDFJoint urdfJoint,
-                                    float targetPos, float targetVel) {
+    private void applyPhysicsControl(float dt) {
+        JointStateStore state = state();
+        boolean ff = computeFeedforward(state, dt);
+        for (Map.Entry<String, Object> entry : odeJoints.entrySet()) {
+            URDFJoint urdfJoint = joints.get(entry.getKey());
+            if (urdfJoint == null) continue;
+
+            int id = urdfJoint.getStateId();
+            float tauFf = ff && id < feedforward.length ? feedforward[id] : 0f;
+            state.torque[id] = applyJointControl(entry.getValue(), urdfJoint,
+                    state.target[id], state.targetVelocity[id], tauFf);
+        }
+    }
+
+    // ========================================================================
+    // 물리 모드 - 역동역학 피드포워드
+    // ========================================================================
+
+    /**
+     * 컴파일된 트리로 RNEA 준비 (트리/질량이 없으면 피드포워드 없이 PD만)
+     */
+    private void buildFeedforward() {
+        KinematicTree tree = urdfModel != null ? urdfModel.getKinematicTree() : null;
+        if (tree == null) return;
+        InverseDynamics dynamics = InverseDynamics.compile(tree);
+        float total = 0f;
+        for (int l = 0; l < tree.getLinkCount(); l++) total += dynamics.getLinkMass(l);
+        if (total <= 0f) {
+            logger.info("No link inertials, feedforward disabled");
+            return;
+        }
+
+        int n = tree.getJointCount();
+        ffStateIds = new int[n];
+        for (int j = 0; j < n; j++) {
+            ffStateIds[j] = tree.isMovable(j) ? tree.getJoint(j).getStateId() : -1;
+        }
+        ffQ = new float[n];
+        ffQd = new float[n];
+        ffQdd = new float[n];
+        ffTau = new float[n];
+        ffPrevQd = new float[n];
+        feedforward = new float[state().size()];
+        applyGravity(dynamics);
+        inverseDynamics = dynamics;
+        logger.info("Inverse-dynamics feedforward ready ({} joints, {} kg)", n, total);
+    }
+
+    /**
+     * 목표 궤적(target, targetVelocity, 목표 속도의 차분 = 가속도)의 역동역학 토크 → feedforward[ID]
+     * @return 피드포워드를 계산했으면 true
+     */
+    private boolean computeFeedforward(JointStateStore state, float dt) {
+        if (!feedforwardEnabled || inverseDynamics == null) return false;
+        float invDt = dt > 0 ? 1f / dt : 0f;
+        for (int j = 0; j < ffStateIds.length; j++) {
+            int id = ffStateIds[j];
+            if (id < 0 || id >= state.size()) {
+                ffQ[j] = ffQd[j] = ffQdd[j] = 0f;
+                continue;
+            }
+            float qd = state.targetVelocity[id];
+            ffQ[j] = state.target[id];
+            ffQd[j] = qd;
+            ffQdd[j] = (qd - ffPrevQd[j]) * invDt;
+            ffPrevQd[j] = qd;
+        }
+        inverseDynamics.compute(ffQ, ffQd, ffQdd, ffTau);
+        for (int j = 0; j < ffStateIds.length; j++) {
+            int id = ffStateIds[j];
+            if (id >= 0 && id < feedforward.length) feedforward[id] = ffTau[j];
+        }
+        return true;
+    }
+
+    /**
+     * 같은 물리 월드를 공유하는 여러 컨트롤러를 한 틱 업데이트
+     * - 물리 모드: 전원 제어 적용 → 월드 step 1회 → 전원 동기화
+     *   (컨트롤러마다 update()를 부르면 공유 월드가 로봇 수만큼 step됨)
+     * - 키네마틱 모드 컨트롤러는 개별 update()
+     * 물리 월드는 컨트롤러의 physics 인스턴스 단위로 한 번씩 step. 생성자가 항상 PhysicsManager.GetInst()
+     * 싱글톤을 쓰므로 실제로는 월드 하나뿐이지만, 다른 월드가 섞여도 어느 것도 빠지거나 두 번 step되지 않음
+     */
+    public static void updateShared(Collection<URDFSimpleController> controllers, float dt) {
+        List<PhysicsManager> worlds = new ArrayList<>(1);
+        for (URDFSimpleController c : controllers) {
+            if (c == null) continue;
+            if (c.articulated != null) {
+                c.updateArticulated(dt);
+            } else if (c.isUsingOde()) {
+                try {
+                    c.applyPhysicsControl(dt);
+                    if (!containsInstance(worlds, c.physics)) worlds.add(c.physics);
+                } catch (Exception e) {
+                    logger.error("Physics control failed, switching to kinematic", e);
+                    c.usePhysics = false;
+                }
+            } else {
+                c.updateKinematic(dt);
+            }
+        }
+        if (worlds.isEmpty()) return;
+        if (worlds.size() > 1) {
+            logger.debug("updateShared: {} separate physics worlds (expected the PhysicsManager singleton)", worlds.size());
+        }
+
+        List<PhysicsManager> stepped = new ArrayList<>(worlds.size());
+        for (PhysicsManager world : worlds) {
+            try {
+                world.step(dt);
+                stepped.add(world);
+            } catch (Exception e) {
+                logger.error("Shared physics step failed", e);
+            }
+        }
+
+        for (URDFSimpleController c : controllers) {
+            if (c != null && c.isUsingOde() && containsInstance(stepped, c.physics)) {
+                c.syncJointStates();
+            }
+        }
+    }
+
+    private static boolean containsInstance(List<PhysicsManager> worlds, PhysicsManager world) {
+        for (PhysicsManager w : worlds) {
+            if (w == world) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 피드포워드 + PD 토크/힘 적용
+     * @return 적용한 토크(힘), 실패 시 0
+     */
+    private float applyJointControl(Object odeJoint, URDFJoint urdfJoint,
+                                    float targetPos, float targetVel, float feedforwardTorque) {
         try {
             if (urdfJoint.type == URDFJoint.JointType.REVOLUTE ||
                 urdfJoint.type == URDFJoint.JointType.CONTINUOUS) {
@@ -593,7 +769,7 @@ public final class URDFSimpleController {
                 }
 
                 float velError = targetVel - currentVel;
-                float torque = physicsKp * posError + physicsKd * velError;
+                float torque = feedforwardTorque + physicsKp * posError + physicsKd * velError;
 
                 float limit = (urdfJoint.limit != null && urdfJoint.limit.effort > 0)
                         ? urdfJoint.limit.effort : maxTorque;
@@ -601,6 +777,7 @@ public final class URDFSimpleController {
 
                 Method addTorque = dHingeJointClass.getMethod("addTorque", double.class);
                 addTorque.invoke(odeJoint, (double) torque);
+                return torque;
 
             } else if (urdfJoint.type == URDFJoint.JointType.PRISMATIC) {
 
@@ -612,7 +789,7 @@ public final class URDFSimpleController {
 
                 float posError = targetPos - currentPos;
                 float velError = targetVel - currentVel;
-                float force = physicsKp * posError + physicsKd * velError;
+                float force = feedforwardTorque + physicsKp * posError + physicsKd * velError;
 
                 float limit = (urdfJoint.limit != null && urdfJoint.limit.effort > 0)
                         ? urdfJoint.limit.effort : maxForce;
@@ -620,20 +797,23 @@ public final class URDFSimpleController {
 
                 Method addForce = dSliderJointClass.getMethod("addForce", double.class);
                 addForce.invoke(odeJoint, (double) force);
+                return force;
             }
         } catch (Exception e) {
             logger.warn("Failed to apply control to joint: {}", urdfJoint.name);
         }
+        return 0f;
     }
 
     private void syncJointStates() {
+        JointStateStore state = state();
         try {
             for (Map.Entry<String, Object> entry : odeJoints.entrySet()) {
                 String jointName = entry.getKey();
                 Object odeJoint = entry.getValue();
                 URDFJoint urdfJoint = joints.get(jointName);
 
-                if (urdfJoint == null) continue;
+                if (urdfJoint == null || state.external[urdfJoint.getStateId()]) continue;
 
                 if (urdfJoint.type == URDFJoint.JointType.REVOLUTE ||
                     urdfJoint.type == URDFJoint.JointType.CONTINUOUS) {
@@ -641,16 +821,16 @@ public final class URDFSimpleController {
                     Method getAngle = dHingeJointClass.getMethod("getAngle");
                     Method getAngleRate = dHingeJointClass.getMethod("getAngleRate");
 
-                    urdfJoint.currentPosition = ((Number) getAngle.invoke(odeJoint)).floatValue();
-                    urdfJoint.currentVelocity = ((Number) getAngleRate.invoke(odeJoint)).floatValue();
+                    state.position[urdfJoint.getStateId()] = ((Number) getAngle.invoke(odeJoint)).floatValue();
+                    state.velocity[urdfJoint.getStateId()] = ((Number) getAngleRate.invoke(odeJoint)).floatValue();
 
                 } else if (urdfJoint.type == URDFJoint.JointType.PRISMATIC) {
 
                     Method getPosition = dSliderJointClass.getMethod("getPosition");
                     Method getPositionRate = dSliderJointClass.getMethod("getPositionRate");
 
-                    urdfJoint.currentPosition = ((Number) getPosition.invoke(odeJoint)).floatValue();
-                    urdfJoint.currentVelocity = ((Number) getPositionRate.invoke(odeJoint)).floatValue();
+                    state.position[urdfJoint.getStateId()] = ((Number) getPosition.invoke(odeJoint)).floatValue();
+                    state.velocity[urdfJoint.getStateId()] = ((Number) getPositionRate.invoke(odeJoint)).floatValue();
                 }
             }
         } catch (Exception e) {
@@ -658,12 +838,176 @@ public final class URDFSimpleController {
         }
     }
 
+    // ========================================================================
+    // 관절체 동역학 백엔드 (ABA)
+    // ========================================================================
+
+    public enum DynamicsBackend { KINEMATIC, ODE, ARTICULATED }
+
+    /**
+     * 이 로봇을 순수 자바 관절체 동역학으로 전환 (ODE 월드와 무관, 현재 관절 상태에서 시작)
+     *
+     * @param world 접촉 복셀 (null이면 접촉 없음)
+     * @param x 루트 링크 월드 위치
+     * @param settings null이면 기본값
+     * @return 컴파일된 트리가 없으면 false
+     */
+    public boolean useArticulatedDynamics(VoxelOccupancy world, double x, double y, double z,
+                                          ArticulatedBodyDynamics.Settings settings) {
+        KinematicTree tree = urdfModel != null ? urdfModel.getKinematicTree() : null;
+        if (tree == null) {
+            logger.warn("Articulated dynamics needs a URDF model with a kinematic tree");
+            return false;
+        }
+        ArticulatedBodyDynamics engine = ArticulatedBodyDynamics.create(tree, settings);
+        engine.place(world, x, y, z);
+
+        JointStateStore state = state();
+        int n = tree.getJointCount();
+        abaStateIds = new int[n];
+        for (int j = 0; j < n; j++) {
+            int id = tree.isMovable(j) ? tree.getJoint(j).getStateId() : -1;
+            abaStateIds[j] = id >= 0 && id < state.size() ? id : -1;
+            if (abaStateIds[j] >= 0) engine.setJointState(j, state.position[id], state.velocity[id]);
+        }
+        abaTau = new float[n];
+        if (inverseDynamics == null) buildFeedforward();
+        articulated = engine;
+        logger.info("Articulated-body dynamics enabled ({} joints, {} kg)", n, engine.getTotalMass());
+        return true;
+    }
+
+    public boolean useArticulatedDynamics(VoxelOccupancy world, double x, double y, double z) {
+        return useArticulatedDynamics(world, x, y, z, null);
+    }
+
+    /**
+     * ABA 백엔드 해제 → ODE(초기화돼 있으면) 또는 키네마틱으로 복귀
+     */
+    public void useOdeDynamics() {
+        articulated = null;
+    }
+
+    public ArticulatedBodyDynamics getArticulatedDynamics() {
+        return articulated;
+    }
+
+    /**
+     * 피드포워드 + PD를 엔진 구동으로 설정 → dt 진행 → 상태 저장소에 위치/속도/토크 기록
+     * 외부 소유 관절(external)은 저장소 값을 엔진에 넣기만 하고 되쓰지 않음 (규정 운동)
+     */
+    private void updateArticulated(float dt) {
+        JointStateStore state = state();
+        boolean ff = computeFeedforward(state, dt);
+        for (int j = 0; j < abaStateIds.length; j++) {
+            int id = abaStateIds[j];
+            if (id < 0) {
+                abaTau[j] = 0f;
+                continue;
+            }
+            if (state.external[id]) {
+                abaTau[j] = 0f;
+                articulated.setJointState(j, state.position[id], state.velocity[id]);
+                articulated.setDrive(j, state.position[id], state.velocity[id], 0f, 0f, 0f);
+                continue;
+            }
+            URDFJoint joint = articulated.getTree().getJoint(j);
+            float target = state.target[id];
+            if (isContinuous(id)) {
+                // 현재 (감기지 않은) 위치 기준 최단 방향 목표
+                float q = articulated.getJointPositions()[j];
+                target = q + wrapToPi(target - q);
+            }
+            boolean prismatic = joint.type == URDFJoint.JointType.PRISMATIC;
+            float limit = joint.limit != null && joint.limit.effort > 0
+                    ? joint.limit.effort : (prismatic ? maxForce : maxTorque);
+            abaTau[j] = ff && id < feedforward.length ? feedforward[id] : 0f;
+            articulated.setDrive(j, target, state.targetVelocity[id], physicsKp, physicsKd, limit);
+        }
+
+        articulated.step(abaTau, dt);
+
+        float[] q = articulated.getJointPositions();
+        float[] qd = articulated.getJointVelocities();
+        float[] applied = articulated.getAppliedTorques();
+        for (int j = 0; j < abaStateIds.length; j++) {
+            int id = abaStateIds[j];
+            if (id < 0 || state.external[id]) continue;
+            state.position[id] = isContinuous(id) ? wrapToPi(q[j]) : q[j];
+            state.velocity[id] = qd[j];
+            state.torque[id] = applied[j];
+        }
+    }
+
+    /**
+     * 백엔드 처리량 비교 (초당 컨트롤러 스텝, 같은 로봇/dt, 제어 → 적분 → 상태 동기화 전체)
+     * - ODE: updatePhysics() 반복 → PhysicsManager.GetInst().step (공유 월드의 블록 메시 충돌 포함)
+     *   ODE4J는 게임 클라이언트에서만 초기화되므로 헤드리스/미초기화면 0
+     * - ABA: updateArticulated() 반복. 사용 중인 엔진은 건드리지 않고 같은 트리로 임시 엔진을 만들어
+     *   평평한 바닥에 세워 측정
+     * 측정 후 관절 상태 저장소와 백엔드를 되돌림. 공유 ODE 월드는 steps만큼 진행된 채 남으므로 게임을 멈추고 호출
+     */
+    public DynamicsBenchmark benchmarkDynamics(int steps, float dt) {
+        JointStateStore saved = state().copy();
+        ArticulatedBodyDynamics savedEngine = articulated;
+        int[] savedIds = abaStateIds;
+        float[] savedTau = abaTau;
+
+        double ode = 0;
+        if (usePhysics && physicsInitialized) {
+            articulated = null;
+            ode = stepsPerSecond(steps, () -> updatePhysics(dt));
+            state().copyFrom(saved);
+        }
+
+        double aba = 0;
+        VoxelOccupancy ground = VoxelOccupancy.flatGround(-1);
+        if (useArticulatedDynamics(ground, 0.5, 0.0, 0.5)) {
+            articulated.place(ground, 0.5, articulated.getStandingHeight(), 0.5);
+            aba = stepsPerSecond(steps, () -> updateArticulated(dt));
+            state().copyFrom(saved);
+        }
+        articulated = savedEngine;
+        abaStateIds = savedIds;
+        abaTau = savedTau;
+
+        DynamicsBenchmark result = new DynamicsBenchmark(steps, dt, ode, aba);
+        logger.info("Dynamics benchmark (dt={}): ODE {} steps/s, articulated {} steps/s (articulated vs ODE {})",
+                dt, ode > 0 ? String.format("%.0f", ode) : "n/a", String.format("%.0f", aba),
+                ode > 0 ? String.format("%.1fx", result.articulatedSpeedupOverOde()) : "n/a");
+        return result;
+    }
+
+    private static double stepsPerSecond(int steps, Runnable step) {
+        int warmup = Math.max(1, steps / 10);
+        for (int i = 0; i < warmup; i++) step.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) step.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds > 0 ? steps / seconds : 0;
+    }
+
+    /**
+     * @param odeStepsPerSecond ODE 미초기화(헤드리스 포함)면 0
+     */
+    public record DynamicsBenchmark(int steps, float dt, double odeStepsPerSecond, double articulatedStepsPerSecond) {
+        public double articulatedSpeedupOverOde() {
+            return odeStepsPerSecond > 0 ? articulatedStepsPerSecond / odeStepsPerSecond : 0;
+        }
+    }
+
     // ========================================================================
     // 물리 모드 전용 API
     // ========================================================================
 
     public void setTargetVelocity(String jointName, float velocity) {
-        targetVelocities.put(jointName, velocity);
+        URDFJoint j = joints.get(jointName);
+        if (j != null) setTargetVelocity(j.getStateId(), velocity);
+    }
+
+    public void setTargetVelocity(int id, float velocity) {
+        JointStateStore state = state();
+        if (id >= 0 && id < state.size()) state.targetVelocity[id] = velocity;
     }
 
     public void applyExternalForce(String linkName, float fx, float fy, float fz) {
@@ -683,6 +1027,12 @@ public final class URDFSimpleController {
     }
 
     public float[] getLinkWorldPosition(String linkName) {
+        if (articulated != null) {
+            int link = articulated.getTree().indexOfLink(linkName);
+            float[] out = new float[3];
+            if (link >= 0) articulated.getLinkWorldPosition(link, out);
+            return out;
+        }
         if (!usePhysics) return new float[] { 0, 0, 0 };
         Object body = bodies.get(linkName);
         if (body != null && physics != null) {
@@ -692,10 +1042,30 @@ public final class URDFSimpleController {
         return new float[] { 0, 0, 0 };
     }
 
+    /**
+     * 월드(마크 y-up) 중력 설정. 역동역학은 URDF 루트 좌표계(z-up)로 돌려서 적용
+     */
     public void setGravity(float x, float y, float z) {
+        worldGravity[0] = x;
+        worldGravity[1] = y;
+        worldGravity[2] = z;
         if (physics != null) {
             physics.setGravity(x, y, z);
         }
+        if (inverseDynamics != null) {
+            applyGravity(inverseDynamics);
+        }
+        if (articulated != null) {
+            // ABA는 -y 중력만 지원
+            articulated.getSettings().gravity = -y;
+        }
+    }
+
+    /** 월드 중력 → 루트(URDF) 좌표계 (고정 베이스, 루트가 렌더러와 같은 축 변환으로 서 있다고 가정) */
+    private void applyGravity(InverseDynamics dynamics) {
+        float[] g = new float[3];
+        KinematicTree.worldToUrdf(worldGravity[0], worldGravity[1], worldGravity[2], g, 0);
+        dynamics.setGravity(g[0], g[1], g[2]);
     }
 
     public void setPhysicsGains(float kp, float kd) {
@@ -703,6 +1073,17 @@ public final class URDFSimpleController {
         this.physicsKd = kd;
     }
 
+    /**
+     * 역동역학 피드포워드 on/off (off면 순수 PD - 높은 게인/작은 스텝 필요)
+     */
+    public void setFeedforwardEnabled(boolean enabled) {
+        this.feedforwardEnabled = enabled;
+    }
+
+    public boolean isFeedforwardEnabled() {
+        return feedforwardEnabled && inverseDynamics != null;
+    }
+
     public void setEffortLimits(float maxTorque, float maxForce) {
         this.maxTorque = maxTorque;
         this.maxForce = maxForce;
@@ -730,6 +1111,11 @@ public final class URDFSimpleController {
         return false;
     }
 
+    private boolean isContinuous(int id) {
+        JointRegistry registry = urdfModel != null ? urdfModel.getJointRegistry() : ownRegistry;
+        return registry.joint(id).type == URDFJoint.JointType.CONTINUOUS;
+    }
+
     private static float wrapToPi(float a) {
         float twoPi = (float) (Math.PI * 2.0);
         a = a % twoPi;
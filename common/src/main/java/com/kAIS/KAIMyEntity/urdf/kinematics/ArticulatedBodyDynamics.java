@@ -0,0 +1,656 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 리듀스드 좌표 순동역학 엔진 (Featherstone Articulated-Body Algorithm)
+ *
+ * - 상태 = 관절 q, q̇ (트리 조인트 순서) + (floatingBase일 때) 루트 링크 자세/공간 속도
+ *   ODE처럼 링크마다 강체 + 조인트 구속을 풀지 않음 (구속 위반/드리프트 없음)
+ * - step(): FK → 속도 전방 패스 → 관절체 관성 후방 패스 → 가속도 전방 패스 → 반암시적 오일러 적분
+ *   전부 O(링크 수), 할당 없음
+ * - 공간 벡터 [각, 선]을 공통 좌표계(월드 축, 원점 = 기준점 anchor)로 표현 → 링크 간 좌표 변환 불필요
+ * - 접촉: 링크 원점 / CoM의 구(contactRadius)를 VoxelOccupancy에 조회, 블록 윗면에 대한 페널티 힘
+ *   (수직 스프링-댐퍼 + 마찰 원뿔로 자른 점성 마찰)
+ * - 중력: 월드 -y (PhysicsManager와 같은 좌표계). URDF는 z-up이므로 루트 자세는 렌더러와 같은 축 변환
+ *   (KinematicTree.setUrdfToWorld)에서 시작 → FK 결과가 곧 월드 축이고 중력/접촉 높이도 월드 y로 계산
+ * - 관절 PD 구동(setDrive)은 암시적 처리: τ = kp(q* - q - q̇h - q̈h²) + kd(q̇* - q̇ - q̈h)의 q̈ 항을
+ *   관절 관성 D에 더함 → 큰 게인 + 긴 스텝(20TPS 틱)에서도 가벼운 말단 링크가 발산하지 않음
+ *   (토크가 effort 한계에 걸리면 그 스텝은 포화 토크로 명시적 처리)
+ *
+ * 인스턴스는 한 스레드 전용 (트리는 공유 가능).
+ */
+public final class ArticulatedBodyDynamics {
+    private static final Logger logger = LogManager.getLogger();
+    private static final int S = KinematicTree.STRIDE;
+
+    /**
+     * 엔진 설정 (생성 시 복사하지 않음 - 접촉/감쇠 값은 실행 중 바꿔도 다음 step부터 적용)
+     */
+    public static class Settings {
+        /** false면 루트 링크를 기준점에 고정 */
+        public boolean floatingBase = true;
+        public float gravity = 9.81f;
+        /** 접촉 구 반지름 (m) */
+        public float contactRadius = 0.02f;
+        /** 접촉 강성 / 감쇠 (로봇 전체 질량 1 kg당) */
+        public float contactStiffness = 4000f;
+        public float contactDamping = 80f;
+        /** 쿨롱 마찰 계수 / 접선 점성 (1 kg당) */
+        public float friction = 0.8f;
+        public float frictionDamping = 200f;
+        /** URDF damping에 더하는 관절 점성 감쇠 */
+        public float jointDamping = 0.05f;
+        /** 내부 서브스텝 최대 길이 (s) - 페널티 접촉은 명시적이므로 가벼운 링크 기준 안정 한계 이하로 */
+        public float maxSubstep = 0.002f;
+    }
+
+    private final KinematicTree tree;
+    private final Settings settings;
+    private final int n;
+    private final int links;
+
+    // 모델 (불변)
+    private final float[] mass;
+    private final float[] localCom;
+    private final float[] inertia;     // 링크 좌표계 CoM 기준 [l*6]
+    private final float[] axes;        // 조인트 로컬 축 [j*3]
+    private final float[] lower, upper;
+    private final boolean[] limited;
+    private final float[] damping;
+    private final float totalMass;
+    private final int[] contactLink;   // 접촉점별 링크
+    private final float[] contactLocal; // 접촉점 링크 좌표 [k*3]
+
+    // 상태
+    private final float[] q;
+    private final float[] qd;
+    private final float[] qdd;
+    private final float[] base = new float[S];     // 루트 링크 변환 (기준점 상대, 월드 축)
+    private final float[] baseVel = new float[6];  // 루트 공간 속도 (기준점에서)
+    private final float[] baseAcc = new float[6];
+    private double anchorX, anchorY, anchorZ;
+    private VoxelOccupancy world = VoxelOccupancy.EMPTY;
+    private int contacts;
+
+    // 스크래치 (할당 없음)
+    private final float[] transforms;
+    private final float[] vel;         // 링크 공간 속도 [l*6]
+    private final float[] acc;         // 링크 공간 가속도 [l*6]
+    private final float[] ia;          // 관절체 관성 [l*36] (행 우선)
+    private final float[] pa;          // 관절체 편향력 [l*6]
+    private final float[] motion;      // 조인트 운동 부분공간 S [j*6]
+    private final float[] bias;        // 속도곱 가속도 c [j*6]
+    private final float[] uVec;        // U = IA S [j*6]
+    private final float[] dInv;        // 1 / (S·U)
+    private final float[] uScalar;     // τ - S·pA
+    private final float[] armature;    // 암시적 PD 항 kp h² + kd h (이번 스텝)
+    private final float[] applied;     // 실제 적용 토크 (피드포워드 + 구동)
+
+    // PD 구동 (kp = kd = 0이면 꺼짐)
+    private final float[] driveTarget, driveVelocity, driveKp, driveKd, driveEffort;
+    private final float[] solve = new float[42];
+    private final float[] tmp6 = new float[6];
+
+    private ArticulatedBodyDynamics(KinematicTree tree, Settings settings) {
+        this.tree = tree;
+        this.settings = settings;
+        n = tree.getJointCount();
+        links = tree.getLinkCount();
+
+        mass = new float[links];
+        localCom = new float[links * 3];
+        inertia = new float[links * 6];
+        InverseDynamics.readInertials(tree, mass, localCom, inertia);
+        float total = 0f;
+        for (float m : mass) total += m;
+        totalMass = total;
+
+        axes = new float[n * 3];
+        lower = new float[n];
+        upper = new float[n];
+        limited = new boolean[n];
+        damping = new float[n];
+        for (int j = 0; j < n; j++) {
+            tree.getAxis(j, axes, j * 3);
+            URDFJoint joint = tree.getJoint(j);
+            if (joint.limit != null && joint.limit.hasLimits() && joint.type != URDFJoint.JointType.CONTINUOUS) {
+                lower[j] = joint.limit.lower;
+                upper[j] = joint.limit.upper;
+                limited[j] = true;
+            }
+            damping[j] = joint.dynamics != null ? joint.dynamics.damping : 0f;
+        }
+
+        // 접촉점: 링크 원점 + (질량이 있으면) CoM
+        int count = 0;
+        float[] pts = new float[links * 6];
+        int[] owner = new int[links * 2];
+        for (int l = 0; l < links; l++) {
+            owner[count] = l;
+            count++;
+            if (mass[l] > 0 && (localCom[l * 3] != 0 || localCom[l * 3 + 1] != 0 || localCom[l * 3 + 2] != 0)) {
+                System.arraycopy(localCom, l * 3, pts, count * 3, 3);
+                owner[count] = l;
+                count++;
+            }
+        }
+        contactLink = java.util.Arrays.copyOf(owner, count);
+        contactLocal = java.util.Arrays.copyOf(pts, count * 3);
+
+        q = new float[n];
+        qd = new float[n];
+        qdd = new float[n];
+        transforms = tree.newTransformBuffer();
+        vel = new float[links * 6];
+        acc = new float[links * 6];
+        ia = new float[links * 36];
+        pa = new float[links * 6];
+        motion = new float[n * 6];
+        bias = new float[n * 6];
+        uVec = new float[n * 6];
+        dInv = new float[n];
+        uScalar = new float[n];
+        armature = new float[n];
+        applied = new float[n];
+        driveTarget = new float[n];
+        driveVelocity = new float[n];
+        driveKp = new float[n];
+        driveKd = new float[n];
+        driveEffort = new float[n];
+        KinematicTree.setUrdfToWorld(base, 0);
+    }
+
+    public static ArticulatedBodyDynamics create(KinematicTree tree, Settings settings) {
+        return new ArticulatedBodyDynamics(tree, settings != null ? settings : new Settings());
+    }
+
+    // ========== 상태 설정 ==========
+
+    /**
+     * 접촉 월드와 루트 링크 위치 (월드 좌표, 자세는 URDF z-up을 월드 y-up으로 세운 회전, 속도 0)
+     */
+    public void place(VoxelOccupancy world, double x, double y, double z) {
+        this.world = world != null ? world : VoxelOccupancy.EMPTY;
+        anchorX = x;
+        anchorY = y;
+        anchorZ = z;
+        KinematicTree.setUrdfToWorld(base, 0);
+        java.util.Arrays.fill(baseVel, 0f);
+        java.util.Arrays.fill(baseAcc, 0f);
+    }
+
+    public void setWorld(VoxelOccupancy world) {
+        this.world = world != null ? world : VoxelOccupancy.EMPTY;
+    }
+
+    /** 관절 상태 설정 (트리 조인트 순서) */
+    public void setJointState(int j, float position, float velocity) {
+        q[j] = position;
+        qd[j] = velocity;
+    }
+
+    /**
+     * 관절 PD 구동 (트리 조인트 순서). step()의 tau에 더해지며 합은 ±effort로 제한
+     * @param effort 토크 한계 (0 이하면 무제한)
+     */
+    public void setDrive(int j, float target, float targetVelocity, float kp, float kd, float effort) {
+        driveTarget[j] = target;
+        driveVelocity[j] = targetVelocity;
+        driveKp[j] = kp;
+        driveKd[j] = kd;
+        driveEffort[j] = effort;
+    }
+
+    public void clearDrives() {
+        java.util.Arrays.fill(driveKp, 0f);
+        java.util.Arrays.fill(driveKd, 0f);
+        java.util.Arrays.fill(driveEffort, 0f);
+    }
+
+    // ========== 시뮬레이션 ==========
+
+    /**
+     * dt 진행 (maxSubstep 이하 서브스텝으로 나눔, 각 서브스텝은 반암시적 오일러: q̇ += q̈ h → q += q̇ h)
+     * @param tau 관절 토크/힘 (트리 조인트 순서, null이면 0) - 서브스텝 동안 일정
+     */
+    public void step(float[] tau, float dt) {
+        int sub = settings.maxSubstep > 0 ? Math.max(1, (int) Math.ceil(dt / settings.maxSubstep - 1e-4f)) : 1;
+        float h = dt / sub;
+        for (int i = 0; i < sub; i++) substep(tau, h);
+    }
+
+    private void substep(float[] tau, float dt) {
+        computeAccelerations(tau, dt);
+
+        for (int j = 0; j < n; j++) {
+            if (!tree.isMovable(j)) continue;
+            qd[j] += qdd[j] * dt;
+            q[j] += qd[j] * dt;
+            if (limited[j]) {
+                if (q[j] < lower[j]) { q[j] = lower[j]; if (qd[j] < 0) qd[j] = 0f; }
+                else if (q[j] > upper[j]) { q[j] = upper[j]; if (qd[j] > 0) qd[j] = 0f; }
+            }
+        }
+        if (settings.floatingBase) integrateBase(dt);
+    }
+
+    /**
+     * ABA: 현재 q, q̇, τ, 중력, 접촉력 → q̈ (및 floatingBase면 루트 공간 가속도). PD 구동은 명시적
+     */
+    public void computeAccelerations(float[] tau) {
+        computeAccelerations(tau, 0f);
+    }
+
+    /**
+     * dt > 0이면 PD 구동의 q̈ 항을 암시적으로 (다음 스텝 기준) 처리
+     */
+    private void computeAccelerations(float[] tau, float dt) {
+        tree.forward(q, base, 0, transforms);
+
+        // 1. 속도 전방 패스: v_l = v_p + S q̇,  c = v_l ×m (S q̇)
+        for (int k = 0; k < 6; k++) vel[k] = settings.floatingBase ? baseVel[k] : 0f;
+        for (int j = 0; j < n; j++) {
+            int l = j + 1, p = tree.getParentLink(j);
+            int m = j * 6, v = l * 6, vp = p * 6;
+            jointMotion(j, l);
+            float s = qd[j];
+            for (int k = 0; k < 6; k++) vel[v + k] = vel[vp + k] + motion[m + k] * s;
+            crossMotion(vel, v, motion, m, s, bias, m);
+        }
+
+        // 2. 링크 관성 / 편향력 (자이로 - 중력 - 접촉)
+        for (int l = 0; l < links; l++) linkInertia(l);
+        contacts = 0;
+        for (int k = 0; k < contactLink.length; k++) applyContact(k);
+
+        // 3. 후방 패스 (자식이 항상 뒤): IA_p += IA - U Uᵀ/D,  pA_p += pA + Ia c + U u/D
+        for (int j = n - 1; j >= 0; j--) {
+            int l = j + 1, p = tree.getParentLink(j);
+            int m = j * 6, i36 = l * 36, p36 = p * 36, v = l * 6, vp = p * 6;
+            if (!tree.isMovable(j)) {
+                dInv[j] = 0f;
+                for (int k = 0; k < 36; k++) ia[p36 + k] += ia[i36 + k];
+                for (int k = 0; k < 6; k++) pa[vp + k] += pa[v + k];
+                continue;
+            }
+            float d = 0f, sp = 0f;
+            for (int r = 0; r < 6; r++) {
+                float sum = 0f;
+                for (int c = 0; c < 6; c++) sum += ia[i36 + r * 6 + c] * motion[m + c];
+                uVec[m + r] = sum;
+                d += motion[m + r] * sum;
+                sp += motion[m + r] * pa[v + r];
+            }
+            float drive = driveTorque(j, tau != null ? tau[j] : 0f, dt);
+            d += armature[j];
+            float inv = d > 1e-9f ? 1f / d : 0f;
+            dInv[j] = inv;
+            uScalar[j] = drive - (damping[j] + settings.jointDamping) * qd[j] - sp;
+
+            // Ia = IA - U Uᵀ / D (제자리), pa = pA + Ia c + U u / D
+            for (int r = 0; r < 6; r++) {
+                float ur = uVec[m + r] * inv;
+                for (int c = 0; c < 6; c++) ia[i36 + r * 6 + c] -= ur * uVec[m + c];
+            }
+            float uu = uScalar[j] * inv;
+            for (int r = 0; r < 6; r++) {
+                float sum = pa[v + r] + uVec[m + r] * uu;
+                for (int c = 0; c < 6; c++) sum += ia[i36 + r * 6 + c] * bias[m + c];
+                pa[vp + r] += sum;
+            }
+            for (int k = 0; k < 36; k++) ia[p36 + k] += ia[i36 + k];
+        }
+
+        // 4. 루트 가속도 (고정 베이스면 0, 아니면 IA₀ a₀ = -pA₀)
+        if (settings.floatingBase) {
+            solveRoot();
+        } else {
+            java.util.Arrays.fill(baseAcc, 0f);
+        }
+        System.arraycopy(baseAcc, 0, acc, 0, 6);
+
+        // 5. 가속도 전방 패스: a = a_p + c,  q̈ = (u - U·a)/D,  a += S q̈
+        for (int j = 0; j < n; j++) {
+            int l = j + 1, p = tree.getParentLink(j);
+            int m = j * 6, v = l * 6, vp = p * 6;
+            float ua = 0f;
+            for (int k = 0; k < 6; k++) {
+                acc[v + k] = acc[vp + k] + bias[m + k];
+                ua += uVec[m + k] * acc[v + k];
+            }
+            if (dInv[j] == 0f) {
+                qdd[j] = 0f;
+                continue;
+            }
+            float a = (uScalar[j] - ua) * dInv[j];
+            qdd[j] = a;
+            applied[j] -= armature[j] * a;
+            for (int k = 0; k < 6; k++) acc[v + k] += motion[m + k] * a;
+        }
+    }
+
+    /**
+     * 피드포워드 + PD 구동 토크 (q̈ 항 제외) → applied[j], 암시적 계수 → armature[j]
+     */
+    private float driveTorque(int j, float feedforward, float dt) {
+        float kp = driveKp[j], kd = driveKd[j];
+        armature[j] = 0f;
+        if (kp == 0f && kd == 0f) {
+            applied[j] = feedforward;
+            return feedforward;
+        }
+        float torque = feedforward + kp * (driveTarget[j] - q[j] - qd[j] * dt) + kd * (driveVelocity[j] - qd[j]);
+        float limit = driveEffort[j];
+        if (limit > 0f && (torque > limit || torque < -limit)) {
+            torque = torque > 0 ? limit : -limit;
+        } else {
+            armature[j] = (kp * dt + kd) * dt;
+        }
+        applied[j] = torque;
+        return torque;
+    }
+
+    /** 조인트 j의 운동 부분공간 (공통 좌표계): 회전 [u; p × u], 직선 [0; u], 고정 0 */
+    private void jointMotion(int j, int l) {
+        int t = l * S, m = j * 6;
+        float lx = axes[j * 3], ly = axes[j * 3 + 1], lz = axes[j * 3 + 2];
+        float ux = transforms[t] * lx + transforms[t + 4] * ly + transforms[t + 8] * lz;
+        float uy = transforms[t + 1] * lx + transforms[t + 5] * ly + transforms[t + 9] * lz;
+        float uz = transforms[t + 2] * lx + transforms[t + 6] * ly + transforms[t + 10] * lz;
+        switch (tree.getJointType(j)) {
+            case KinematicTree.TYPE_REVOLUTE -> {
+                float px = transforms[t + 12], py = transforms[t + 13], pz = transforms[t + 14];
+                motion[m] = ux; motion[m + 1] = uy; motion[m + 2] = uz;
+                motion[m + 3] = py * uz - pz * uy;
+                motion[m + 4] = pz * ux - px * uz;
+                motion[m + 5] = px * uy - py * ux;
+            }
+            case KinematicTree.TYPE_PRISMATIC -> {
+                motion[m] = motion[m + 1] = motion[m + 2] = 0f;
+                motion[m + 3] = ux; motion[m + 4] = uy; motion[m + 5] = uz;
+            }
+            default -> { for (int k = 0; k < 6; k++) motion[m + k] = 0f; }
+        }
+    }
+
+    /** out = v ×m (s · m) (공간 운동 외적) */
+    private static void crossMotion(float[] v, int vo, float[] mv, int mo, float s, float[] out, int oo) {
+        float wx = v[vo], wy = v[vo + 1], wz = v[vo + 2];
+        float lx = v[vo + 3], ly = v[vo + 4], lz = v[vo + 5];
+        float ax = mv[mo] * s, ay = mv[mo + 1] * s, az = mv[mo + 2] * s;
+        float bx = mv[mo + 3] * s, by = mv[mo + 4] * s, bz = mv[mo + 5] * s;
+        out[oo] = wy * az - wz * ay;
+        out[oo + 1] = wz * ax - wx * az;
+        out[oo + 2] = wx * ay - wy * ax;
+        out[oo + 3] = (wy * bz - wz * by) + (ly * az - lz * ay);
+        out[oo + 4] = (wz * bx - wx * bz) + (lz * ax - lx * az);
+        out[oo + 5] = (wx * by - wy * bx) + (lx * ay - ly * ax);
+    }
+
+    /**
+     * 링크 l의 공간 관성(공통 좌표계) → ia, 편향력 v ×f (I v) - 중력 렌치 → pa
+     */
+    private void linkInertia(int l) {
+        int t = l * S, o = l * 36, v = l * 6, c3 = l * 3;
+        float m = mass[l];
+        if (m == 0f) {
+            for (int k = 0; k < 36; k++) ia[o + k] = 0f;
+            for (int k = 0; k < 6; k++) pa[v + k] = 0f;
+            return;
+        }
+        // CoM (공통 좌표계)
+        float lx = localCom[c3], ly = localCom[c3 + 1], lz = localCom[c3 + 2];
+        float cx = transforms[t] * lx + transforms[t + 4] * ly + transforms[t + 8] * lz + transforms[t + 12];
+        float cy = transforms[t + 1] * lx + transforms[t + 5] * ly + transforms[t + 9] * lz + transforms[t + 13];
+        float cz = transforms[t + 2] * lx + transforms[t + 6] * ly + transforms[t + 10] * lz + transforms[t + 14];
+
+        // Ic = R I Rᵀ
+        int i6 = l * 6;
+        float ixx = inertia[i6], ixy = inertia[i6 + 1], ixz = inertia[i6 + 2];
+        float iyy = inertia[i6 + 3], iyz = inertia[i6 + 4], izz = inertia[i6 + 5];
+        for (int r = 0; r < 3; r++) {
+            float r0 = transforms[t + r], r1 = transforms[t + 4 + r], r2 = transforms[t + 8 + r];
+            // (R I)의 r행
+            float a0 = r0 * ixx + r1 * ixy + r2 * ixz;
+            float a1 = r0 * ixy + r1 * iyy + r2 * iyz;
+            float a2 = r0 * ixz + r1 * iyz + r2 * izz;
+            for (int col = 0; col < 3; col++) {
+                ia[o + r * 6 + col] = a0 * transforms[t + col] + a1 * transforms[t + 4 + col] + a2 * transforms[t + 8 + col];
+            }
+        }
+        // 평행축: Ic + m(|c|² 1 - c cᵀ),  상우 m[c]×,  좌하 -m[c]× = (m[c]×)ᵀ,  우하 m 1
+        float cc = cx * cx + cy * cy + cz * cz;
+        float[] cv = {cx, cy, cz};
+        for (int r = 0; r < 3; r++) {
+            for (int col = 0; col < 3; col++) {
+                ia[o + r * 6 + col] += m * ((r == col ? cc : 0f) - cv[r] * cv[col]);
+                ia[o + (r + 3) * 6 + col + 3] = r == col ? m : 0f;
+            }
+        }
+        ia[o + 3] = 0f;          ia[o + 4] = -m * cz;     ia[o + 5] = m * cy;
+        ia[o + 9] = m * cz;      ia[o + 10] = 0f;         ia[o + 11] = -m * cx;
+        ia[o + 15] = -m * cy;    ia[o + 16] = m * cx;     ia[o + 17] = 0f;
+        for (int r = 0; r < 3; r++) {
+            for (int col = 0; col < 3; col++) ia[o + (col + 3) * 6 + r] = ia[o + r * 6 + col + 3];
+        }
+
+        // h = I v,  pA = v ×f h - f_gravity
+        for (int r = 0; r < 6; r++) {
+            float sum = 0f;
+            for (int k = 0; k < 6; k++) sum += ia[o + r * 6 + k] * vel[v + k];
+            tmp6[r] = sum;
+        }
+        float wx = vel[v], wy = vel[v + 1], wz = vel[v + 2];
+        float ux = vel[v + 3], uy = vel[v + 4], uz = vel[v + 5];
+        float nx = tmp6[0], ny = tmp6[1], nz = tmp6[2], fx = tmp6[3], fy = tmp6[4], fz = tmp6[5];
+        float gy = -settings.gravity * m;
+        pa[v] = (wy * nz - wz * ny) + (uy * fz - uz * fy) - (-cz * gy);
+        pa[v + 1] = (wz * nx - wx * nz) + (uz * fx - ux * fz);
+        pa[v + 2] = (wx * ny - wy * nx) + (ux * fy - uy * fx) - (cx * gy);
+        pa[v + 3] = wy * fz - wz * fy;
+        pa[v + 4] = wz * fx - wx * fz - gy;
+        pa[v + 5] = wx * fy - wy * fx;
+    }
+
+    /**
+     * 접촉점 k의 구가 고체 복셀 안이면 블록 윗면 기준 페널티 힘을 링크 편향력에 반영
+     */
+    private void applyContact(int k) {
+        int l = contactLink[k];
+        if (!settings.floatingBase && l == 0) return;
+        int t = l * S, v = l * 6;
+        float lx = contactLocal[k * 3], ly = contactLocal[k * 3 + 1], lz = contactLocal[k * 3 + 2];
+        float px = transforms[t] * lx + transforms[t + 4] * ly + transforms[t + 8] * lz + transforms[t + 12];
+        float py = transforms[t + 1] * lx + transforms[t + 5] * ly + transforms[t + 9] * lz + transforms[t + 13];
+        float pz = transforms[t + 2] * lx + transforms[t + 6] * ly + transforms[t + 10] * lz + transforms[t + 14];
+
+        float r = settings.contactRadius;
+        double bottom = anchorY + py - r;
+        int bx = (int) Math.floor(anchorX + px), by = (int) Math.floor(bottom), bz = (int) Math.floor(anchorZ + pz);
+        if (!world.isSolid(bx, by, bz)) return;
+        float depth = (float) (by + 1 - bottom);
+        if (depth <= 0f) return;
+
+        // 점 속도 = v_lin + w × p
+        float wx = vel[v], wy = vel[v + 1], wz = vel[v + 2];
+        float vx = vel[v + 3] + (wy * pz - wz * py);
+        float vy = vel[v + 4] + (wz * px - wx * pz);
+        float vz = vel[v + 5] + (wx * py - wy * px);
+
+        float fn = totalMass * (settings.contactStiffness * depth - settings.contactDamping * vy);
+        if (fn <= 0f) return;
+        float fx = -totalMass * settings.frictionDamping * vx;
+        float fz = -totalMass * settings.frictionDamping * vz;
+        float ft = (float) Math.sqrt(fx * fx + fz * fz);
+        float maxT = settings.friction * fn;
+        if (ft > maxT) {
+            float s = maxT / ft;
+            fx *= s;
+            fz *= s;
+        }
+        // 외력 렌치 [p × F; F]를 편향력에서 뺌
+        pa[v] -= py * fz - pz * fn;
+        pa[v + 1] -= pz * fx - px * fz;
+        pa[v + 2] -= px * fn - py * fx;
+        pa[v + 3] -= fx;
+        pa[v + 4] -= fn;
+        pa[v + 5] -= fz;
+        contacts++;
+    }
+
+    /** IA₀ a₀ = -pA₀ (6x6 가우스 소거, 부분 피벗) */
+    private void solveRoot() {
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) solve[r * 7 + c] = ia[r * 6 + c];
+            solve[r * 7 + 6] = -pa[r];
+        }
+        for (int col = 0; col < 6; col++) {
+            int piv = col;
+            for (int r = col + 1; r < 6; r++) {
+                if (Math.abs(solve[r * 7 + col]) > Math.abs(solve[piv * 7 + col])) piv = r;
+            }
+            if (Math.abs(solve[piv * 7 + col]) < 1e-12f) {
+                java.util.Arrays.fill(baseAcc, 0f);
+                return;
+            }
+            if (piv != col) {
+                for (int c = 0; c < 7; c++) {
+                    float x = solve[col * 7 + c];
+                    solve[col * 7 + c] = solve[piv * 7 + c];
+                    solve[piv * 7 + c] = x;
+                }
+            }
+            for (int r = col + 1; r < 6; r++) {
+                float f = solve[r * 7 + col] / solve[col * 7 + col];
+                if (f == 0f) continue;
+                for (int c = col; c < 7; c++) solve[r * 7 + c] -= f * solve[col * 7 + c];
+            }
+        }
+        for (int r = 5; r >= 0; r--) {
+            float sum = solve[r * 7 + 6];
+            for (int c = r + 1; c < 6; c++) sum -= solve[r * 7 + c] * baseAcc[c];
+            baseAcc[r] = sum / solve[r * 7 + r];
+        }
+    }
+
+    /**
+     * 루트 자세 적분: 공간 속도 += a dt → 원점 속도 = v + w × p → 위치, 회전 = Rot(w dt) R (재직교화)
+     */
+    private void integrateBase(float dt) {
+        for (int k = 0; k < 6; k++) baseVel[k] += baseAcc[k] * dt;
+        float wx = baseVel[0], wy = baseVel[1], wz = baseVel[2];
+        float px = base[12], py = base[13], pz = base[14];
+        base[12] += (baseVel[3] + (wy * pz - wz * py)) * dt;
+        base[13] += (baseVel[4] + (wz * px - wx * pz)) * dt;
+        base[14] += (baseVel[5] + (wx * py - wy * px)) * dt;
+
+        float angle = (float) Math.sqrt(wx * wx + wy * wy + wz * wz) * dt;
+        if (angle < 1e-9f) return;
+        float inv = dt / angle;
+        float x = wx * inv, y = wy * inv, z = wz * inv;
+        float c = (float) Math.cos(angle), s = (float) Math.sin(angle), t = 1f - c;
+        float r00 = t * x * x + c,     r01 = t * x * y - s * z, r02 = t * x * z + s * y;
+        float r10 = t * x * y + s * z, r11 = t * y * y + c,     r12 = t * y * z - s * x;
+        float r20 = t * x * z - s * y, r21 = t * y * z + s * x, r22 = t * z * z + c;
+        for (int col = 0; col < 3; col++) {
+            float a0 = base[col * 4], a1 = base[col * 4 + 1], a2 = base[col * 4 + 2];
+            base[col * 4] = r00 * a0 + r01 * a1 + r02 * a2;
+            base[col * 4 + 1] = r10 * a0 + r11 * a1 + r12 * a2;
+            base[col * 4 + 2] = r20 * a0 + r21 * a1 + r22 * a2;
+        }
+        orthonormalize();
+    }
+
+    /** 루트 회전 열벡터 Gram-Schmidt (누적 오차 제거) */
+    private void orthonormalize() {
+        float ax = base[0], ay = base[1], az = base[2];
+        float la = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        ax /= la; ay /= la; az /= la;
+        float bx = base[4], by = base[5], bz = base[6];
+        float d = ax * bx + ay * by + az * bz;
+        bx -= d * ax; by -= d * ay; bz -= d * az;
+        float lb = (float) Math.sqrt(bx * bx + by * by + bz * bz);
+        bx /= lb; by /= lb; bz /= lb;
+        base[0] = ax; base[1] = ay; base[2] = az;
+        base[4] = bx; base[5] = by; base[6] = bz;
+        base[8] = ay * bz - az * by;
+        base[9] = az * bx - ax * bz;
+        base[10] = ax * by - ay * bx;
+    }
+
+    /**
+     * 현재 관절 자세로 세웠을 때 루트 링크가 가장 낮은 접촉 구 바닥보다 얼마나 위인지 (m)
+     * → place(world, x, 바닥 높이 + 이 값, z)면 바로 접지한 상태에서 시작
+     */
+    public float getStandingHeight() {
+        float[] upright = new float[S];
+        KinematicTree.setUrdfToWorld(upright, 0);
+        tree.forward(q, upright, 0, transforms);
+        float lowest = 0f;
+        for (int k = 0; k < contactLink.length; k++) {
+            int t = contactLink[k] * S;
+            float lx = contactLocal[k * 3], ly = contactLocal[k * 3 + 1], lz = contactLocal[k * 3 + 2];
+            float py = transforms[t + 1] * lx + transforms[t + 5] * ly + transforms[t + 9] * lz + transforms[t + 13];
+            lowest = Math.min(lowest, py);
+        }
+        tree.forward(q, base, 0, transforms);
+        return -lowest + settings.contactRadius;
+    }
+
+    // ========== 측정 ==========
+
+    /**
+     * 토크 0 자유 운동으로 처리량 측정 (상태는 측정 후 복원)
+     * @return 초당 스텝 수
+     */
+    public double measureStepsPerSecond(int steps, float dt) {
+        float[] q0 = q.clone(), qd0 = qd.clone(), base0 = base.clone(), vel0 = baseVel.clone();
+        int warmup = Math.max(1, steps / 10);
+        for (int i = 0; i < warmup; i++) step(null, dt);
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) step(null, dt);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.arraycopy(q0, 0, q, 0, n);
+        System.arraycopy(qd0, 0, qd, 0, n);
+        System.arraycopy(base0, 0, base, 0, S);
+        System.arraycopy(vel0, 0, baseVel, 0, 6);
+        double rate = seconds > 0 ? steps / seconds : 0;
+        logger.info("Articulated-body dynamics: {} links, {} steps -> {} steps/s",
+                links, steps, String.format("%.0f", rate));
+        return rate;
+    }
+
+    // ========== 조회 ==========
+
+    /** 관절 위치/속도/가속도 (트리 조인트 순서, 실시간 배열 - 읽기 전용으로 사용) */
+    public float[] getJointPositions() { return q; }
+    public float[] getJointVelocities() { return qd; }
+    public float[] getJointAccelerations() { return qdd; }
+    /** 마지막 스텝에서 관절에 실제 적용된 토크/힘 (피드포워드 + PD 구동) */
+    public float[] getAppliedTorques() { return applied; }
+
+    /** 마지막 계산의 링크 변환 (기준점 상대, 월드 축) */
+    public float[] getLinkTransforms() { return transforms; }
+
+    /** 링크 원점 월드 좌표 → out[0..3) */
+    public void getLinkWorldPosition(int link, float[] out) {
+        int t = link * S;
+        out[0] = (float) (anchorX + transforms[t + 12]);
+        out[1] = (float) (anchorY + transforms[t + 13]);
+        out[2] = (float) (anchorZ + transforms[t + 14]);
+    }
+
+    /** 루트 링크 변환 (기준점 상대) */
+    public float[] getBaseTransform() { return base; }
+
+    /** 마지막 스텝의 접촉점 수 */
+    public int getContactCount() { return contacts; }
+
+    public float getTotalMass() { return totalMass; }
+    public KinematicTree getTree() { return tree; }
+    public Settings getSettings() { return settings; }
+}
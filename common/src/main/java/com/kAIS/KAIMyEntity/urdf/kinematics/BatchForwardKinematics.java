@@ -0,0 +1,118 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 배치 순방향 기구학 - 자세 여러 개를 한 번에 (모션 데이터셋 생성, 후보 자세 평가용)
+ *
+ * - 입력 q: [poses × joints] (트리 조인트 순서, 자세별 연속)
+ * - 출력:   [poses × links × 12] 링크별 3x4 아핀 변환, 열 우선 (회전 3열 + 이동)
+ * - ForkJoinPool에서 자세 구간을 반씩 나누다 청크 크기 이하가 되면 순차 계산
+ * - 청크 크기: 청크의 입력+출력이 CHUNK_BYTES(L2 절반 정도)에 들어가도록 트리 크기로 결정
+ *
+ * 트리는 불변이므로 같은 인스턴스를 여러 스레드에서 동시에 호출해도 됨 (스크래치는 청크별).
+ */
+public final class BatchForwardKinematics {
+    /** 링크 변환 하나의 float 수 (3x4) */
+    public static final int STRIDE = 12;
+
+    private static final int CHUNK_BYTES = 128 * 1024;
+    private static final int MIN_CHUNK = 8;
+
+    private final KinematicTree tree;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public BatchForwardKinematics(KinematicTree tree) {
+        this(tree, ForkJoinPool.commonPool());
+    }
+
+    public BatchForwardKinematics(KinematicTree tree, ForkJoinPool pool) {
+        this.tree = tree;
+        this.pool = pool;
+        int bytesPerPose = (tree.getJointCount() + tree.getLinkCount() * STRIDE) * 4;
+        this.chunkSize = Math.max(MIN_CHUNK, CHUNK_BYTES / Math.max(1, bytesPerPose));
+    }
+
+    /** 출력 버퍼 (poses × links × 12) */
+    public float[] newOutput(int poses) {
+        return new float[poses * tree.getLinkCount() * STRIDE];
+    }
+
+    // ========== 계산 ==========
+
+    /**
+     * 자세 poses개 병렬 계산 (호출 스레드는 완료까지 대기)
+     */
+    public void compute(float[] q, int poses, float[] out) {
+        checkSizes(q, poses, out);
+        if (poses <= chunkSize) {
+            computeRange(q, 0, poses, out);
+        } else {
+            pool.invoke(new Chunk(q, out, 0, poses));
+        }
+    }
+
+    /**
+     * 자세 [from, to) 순차 계산 (호출 스레드에서)
+     */
+    public void computeRange(float[] q, int from, int to, float[] out) {
+        int joints = tree.getJointCount();
+        int links = tree.getLinkCount();
+        float[] world = tree.newTransformBuffer();
+        KinematicTree.setIdentity(world, 0);
+
+        for (int p = from; p < to; p++) {
+            tree.forwardRange(q, p * joints, world, 0, joints);
+
+            int o = p * links * STRIDE;
+            for (int l = 0; l < links; l++, o += STRIDE) {
+                int w = l * KinematicTree.STRIDE;
+                out[o]      = world[w];      out[o + 1]  = world[w + 1];  out[o + 2]  = world[w + 2];
+                out[o + 3]  = world[w + 4];  out[o + 4]  = world[w + 5];  out[o + 5]  = world[w + 6];
+                out[o + 6]  = world[w + 8];  out[o + 7]  = world[w + 9];  out[o + 8]  = world[w + 10];
+                out[o + 9]  = world[w + 12]; out[o + 10] = world[w + 13]; out[o + 11] = world[w + 14];
+            }
+        }
+    }
+
+    private void checkSizes(float[] q, int poses, float[] out) {
+        if (poses < 0 || q.length < poses * tree.getJointCount()) {
+            throw new IllegalArgumentException("q too short: " + q.length + " < " + poses + " x " + tree.getJointCount());
+        }
+        if (out.length < poses * tree.getLinkCount() * STRIDE) {
+            throw new IllegalArgumentException("out too short: " + out.length + " < " + poses + " x "
+                    + tree.getLinkCount() + " x " + STRIDE);
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] q;
+        private final float[] out;
+        private final int from;
+        private final int to;
+
+        Chunk(float[] q, float[] out, int from, int to) {
+            this.q = q;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                computeRange(q, from, to, out);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(q, out, from, mid), new Chunk(q, out, mid, to));
+        }
+    }
+
+    public KinematicTree getTree() { return tree; }
+    public int getChunkSize() { return chunkSize; }
+}
@@ -0,0 +1,320 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 감쇠 최소제곱(DLS) 역기구학 - 오프라인 데모 생성용 (README 2단계 학습의 Offline 단계)
+ *
+ * - 말단 여러 개의 위치 목표를 동시에 (루트 링크 좌표계)
+ * - 반복: FK → 오차 e → 야코비안 J (3E × dof) → Δq = Jᵀ (J Jᵀ + λ² I)⁻¹ e → 관절 한계 clamp
+ * - (J Jᵀ + λ² I)는 3E × 3E 대칭 양정치 → Cholesky로 풀이 (dof와 무관하게 작음)
+ * - q는 입출력: 이전 프레임 해에서 이어서 시작 (warm start)
+ *
+ * 인스턴스는 스크래치를 가지므로 스레드당 하나. 배치(solveTrajectories)는 궤적별로 새로 만듦.
+ */
+public final class DampedLeastSquaresIK {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * 솔버 설정
+     */
+    public static class Settings {
+        public int maxIterations = 64;
+        public float damping = 0.05f;      // λ
+        public float tolerance = 1e-4f;    // 말단 최대 위치 오차 (m)
+        public float maxStep = 0.2f;       // 반복당 관절 변화 최대 (rad 또는 m)
+    }
+
+    private final KinematicTree tree;
+    private final Settings settings;
+    private final int[] dofs;       // 움직이는 트리 조인트 인덱스
+    private final float[] lower;    // 트리 조인트별 한계 (없으면 ±∞)
+    private final float[] upper;
+
+    // 스크래치
+    private final float[] world;
+    private float[] jac = new float[0];   // [row * dof + col]
+    private float[] gram = new float[0];  // J Jᵀ + λ² I → Cholesky L
+    private float[] err = new float[0];
+    private float[] y = new float[0];
+    private final float[] dq;
+    private final float[] axis = new float[3];
+    private int lastIterations;
+
+    public DampedLeastSquaresIK(KinematicTree tree, Settings settings) {
+        this.tree = tree;
+        this.settings = settings;
+        this.world = tree.newTransformBuffer();
+
+        int n = tree.getJointCount();
+        lower = new float[n];
+        upper = new float[n];
+        List<Integer> movable = new ArrayList<>();
+        for (int j = 0; j < n; j++) {
+            lower[j] = Float.NEGATIVE_INFINITY;
+            upper[j] = Float.POSITIVE_INFINITY;
+            if (!tree.isMovable(j)) continue;
+            movable.add(j);
+
+            URDFJoint joint = tree.getJoint(j);
+            if (joint.type != URDFJoint.JointType.CONTINUOUS && joint.limit != null && joint.limit.hasLimits()) {
+                lower[j] = joint.limit.lower;
+                upper[j] = joint.limit.upper;
+            }
+        }
+        dofs = movable.stream().mapToInt(Integer::intValue).toArray();
+        dq = new float[dofs.length];
+    }
+
+    // ========== 단일 풀이 ==========
+
+    /**
+     * 말단 위치 목표 풀이
+     * @param q            트리 조인트 순서 관절값 (입력 = 초기값, 출력 = 해)
+     * @param links        말단 링크 인덱스 (KinematicTree.indexOfLink)
+     * @param targets      목표 위치 [e * 3 + {x,y,z}] (루트 링크 좌표계)
+     * @param targetOffset targets 시작 위치
+     * @return 마지막 말단 최대 위치 오차 (m)
+     */
+    public float solve(float[] q, int[] links, float[] targets, int targetOffset) {
+        int m = links.length * 3;
+        int n = dofs.length;
+        ensureScratch(m, n);
+        clampToLimits(q);
+
+        float maxErr = 0f;
+        int iter = 0;
+        for (; ; iter++) {
+            tree.forward(q, world);
+            maxErr = 0f;
+            for (int e = 0; e < links.length; e++) {
+                int t = links[e] * KinematicTree.STRIDE + 12;
+                for (int k = 0; k < 3; k++) {
+                    float d = targets[targetOffset + e * 3 + k] - world[t + k];
+                    err[e * 3 + k] = d;
+                    maxErr = Math.max(maxErr, Math.abs(d));
+                }
+            }
+            if (maxErr <= settings.tolerance || iter >= settings.maxIterations || n == 0) break;
+
+            buildJacobian(links);
+            if (!solveDamped(m, n)) break;
+
+            // 반복당 변화량 제한 후 적용
+            float largest = 0f;
+            for (int c = 0; c < n; c++) largest = Math.max(largest, Math.abs(dq[c]));
+            float scale = largest > settings.maxStep ? settings.maxStep / largest : 1f;
+            for (int c = 0; c < n; c++) q[dofs[c]] += dq[c] * scale;
+            clampToLimits(q);
+        }
+        lastIterations = iter;
+        return maxErr;
+    }
+
+    /**
+     * 야코비안 (world에 현재 FK가 있어야 함)
+     * 회전: a × (p_e - p_j), 직선: a  (a = 월드 축, p_j = 조인트 자식 링크 원점)
+     */
+    private void buildJacobian(int[] links) {
+        int n = dofs.length;
+        for (int e = 0; e < links.length; e++) {
+            int link = links[e];
+            int pe = link * KinematicTree.STRIDE + 12;
+            int endJoint = KinematicTree.getParentJoint(link);
+            for (int c = 0; c < n; c++) {
+                int j = dofs[c];
+                int r0 = (e * 3) * n + c;
+                // j가 말단의 조상인지: 말단 부모 조인트가 j 서브트리 안
+                if (endJoint < j || endJoint >= tree.getSubtreeEnd(j)) {
+                    jac[r0] = jac[r0 + n] = jac[r0 + 2 * n] = 0f;
+                    continue;
+                }
+                int w = KinematicTree.getChildLink(j) * KinematicTree.STRIDE;
+                tree.getAxis(j, axis, 0);
+                float lx = axis[0], ly = axis[1], lz = axis[2];
+                float ax = world[w] * lx + world[w + 4] * ly + world[w + 8] * lz;
+                float ay = world[w + 1] * lx + world[w + 5] * ly + world[w + 9] * lz;
+                float az = world[w + 2] * lx + world[w + 6] * ly + world[w + 10] * lz;
+
+                if (tree.getJointType(j) == KinematicTree.TYPE_PRISMATIC) {
+                    jac[r0] = ax;
+                    jac[r0 + n] = ay;
+                    jac[r0 + 2 * n] = az;
+                } else {
+                    float dx = world[pe] - world[w + 12];
+                    float dy = world[pe + 1] - world[w + 13];
+                    float dz = world[pe + 2] - world[w + 14];
+                    jac[r0] = ay * dz - az * dy;
+                    jac[r0 + n] = az * dx - ax * dz;
+                    jac[r0 + 2 * n] = ax * dy - ay * dx;
+                }
+            }
+        }
+    }
+
+    /**
+     * dq = Jᵀ (J Jᵀ + λ² I)⁻¹ err. 분해 실패(수치 문제) 시 false
+     */
+    private boolean solveDamped(int m, int n) {
+        float lambda2 = settings.damping * settings.damping;
+        for (int r = 0; r < m; r++) {
+            for (int c = 0; c <= r; c++) {
+                float s = 0f;
+                for (int k = 0; k < n; k++) s += jac[r * n + k] * jac[c * n + k];
+                gram[r * m + c] = s + (r == c ? lambda2 : 0f);
+            }
+        }
+
+        // Cholesky (하삼각, 제자리)
+        for (int r = 0; r < m; r++) {
+            for (int c = 0; c <= r; c++) {
+                float s = gram[r * m + c];
+                for (int k = 0; k < c; k++) s -= gram[r * m + k] * gram[c * m + k];
+                if (r == c) {
+                    if (!(s > 0f)) return false;
+                    gram[r * m + r] = (float) Math.sqrt(s);
+                } else {
+                    gram[r * m + c] = s / gram[c * m + c];
+                }
+            }
+        }
+        // L z = err, Lᵀ y = z
+        for (int r = 0; r < m; r++) {
+            float s = err[r];
+            for (int k = 0; k < r; k++) s -= gram[r * m + k] * y[k];
+            y[r] = s / gram[r * m + r];
+        }
+        for (int r = m - 1; r >= 0; r--) {
+            float s = y[r];
+            for (int k = r + 1; k < m; k++) s -= gram[k * m + r] * y[k];
+            y[r] = s / gram[r * m + r];
+        }
+
+        for (int c = 0; c < n; c++) {
+            float s = 0f;
+            for (int r = 0; r < m; r++) s += jac[r * n + c] * y[r];
+            dq[c] = s;
+        }
+        return true;
+    }
+
+    private void clampToLimits(float[] q) {
+        for (int j : dofs) {
+            if (q[j] < lower[j]) q[j] = lower[j];
+            else if (q[j] > upper[j]) q[j] = upper[j];
+        }
+    }
+
+    private void ensureScratch(int m, int n) {
+        if (err.length != m) {
+            jac = new float[m * n];
+            gram = new float[m * m];
+            err = new float[m];
+            y = new float[m];
+        }
+    }
+
+    /** 직전 solve()의 반복 횟수 */
+    public int getLastIterations() { return lastIterations; }
+
+    public KinematicTree getTree() { return tree; }
+
+    // ========== 궤적 배치 ==========
+
+    /**
+     * 말단 궤적 (프레임별 목표 위치)
+     * @param endEffectors 말단 링크 이름
+     * @param targets      [frame * E * 3 + e * 3 + {x,y,z}] (루트 링크 좌표계)
+     */
+    public record Trajectory(String name, String[] endEffectors, float[] targets, float fps, boolean loop) {
+        public int frames() {
+            int stride = endEffectors.length * 3;
+            return stride > 0 ? targets.length / stride : 0;
+        }
+    }
+
+    /**
+     * 궤적 풀이 결과 (motion: 프레임마다 linear 키, 움직이는 관절 전부)
+     */
+    public record TrajectoryResult(URDFMotion motion, float maxError, float meanError, int iterations) { }
+
+    /**
+     * 궤적 여러 개를 병렬로 풀어 URDFMotion으로 기록
+     * 궤적 안에서는 프레임 순서대로 이전 해를 초기값으로 사용 (궤적끼리는 독립)
+     * @param seed 첫 프레임 초기값 (트리 조인트 순서, null이면 0)
+     */
+    public static List<TrajectoryResult> solveTrajectories(KinematicTree tree, Settings settings,
+                                                           List<Trajectory> trajectories, float[] seed,
+                                                           ForkJoinPool pool) {
+        List<Callable<TrajectoryResult>> tasks = new ArrayList<>();
+        for (Trajectory t : trajectories) {
+            tasks.add(() -> new DampedLeastSquaresIK(tree, settings).solveTrajectory(t, seed));
+        }
+
+        List<TrajectoryResult> results = new ArrayList<>();
+        for (Future<TrajectoryResult> f : pool.invokeAll(tasks)) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("IK batch interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("IK batch failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 궤적 하나 풀이 (호출 스레드에서)
+     */
+    public TrajectoryResult solveTrajectory(Trajectory trajectory, float[] seed) {
+        int[] links = new int[trajectory.endEffectors().length];
+        for (int e = 0; e < links.length; e++) {
+            links[e] = tree.indexOfLink(trajectory.endEffectors()[e]);
+            if (links[e] <= 0) {
+                throw new IllegalArgumentException("Unknown end-effector link: " + trajectory.endEffectors()[e]);
+            }
+        }
+
+        float[] q = new float[tree.getJointCount()];
+        if (seed != null) System.arraycopy(seed, 0, q, 0, Math.min(seed.length, q.length));
+
+        URDFMotion motion = new URDFMotion();
+        motion.name = trajectory.name();
+        motion.fps = trajectory.fps();
+        motion.loop = trajectory.loop();
+
+        int frames = trajectory.frames();
+        float maxErr = 0f;
+        double sumErr = 0;
+        int iterations = 0;
+        for (int f = 0; f < frames; f++) {
+            float e = solve(q, links, trajectory.targets(), f * links.length * 3);
+            maxErr = Math.max(maxErr, e);
+            sumErr += e;
+            iterations += lastIterations;
+
+            URDFMotion.Key key = new URDFMotion.Key();
+            key.t = f / trajectory.fps();
+            key.interp = "linear";
+            for (int j : dofs) key.pose.put(tree.getJointName(j), q[j]);
+            motion.keys.add(key);
+        }
+
+        float mean = frames > 0 ? (float) (sumErr / frames) : 0f;
+        logger.debug("IK trajectory '{}': {} frames, max err {}, mean err {}, {} iterations",
+                trajectory.name(), frames, maxErr, mean, iterations);
+        return new TrajectoryResult(motion, maxErr, mean, iterations);
+    }
+}
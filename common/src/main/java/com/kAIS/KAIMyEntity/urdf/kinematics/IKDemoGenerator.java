@@ -0,0 +1,172 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 제자리 걸음 데모 생성 - 발 궤적을 만들고 DampedLeastSquaresIK로 풀어 URDFMotion으로 (README 2단계의 Offline 데모)
+ *
+ * - 발 = 시작 자세에서 가장 낮은 말단 링크 두 개 (하나뿐이면 그것만)
+ * - 궤적 (루트 링크 좌표계, z-up): 모든 발을 crouch만큼 올려 무릎을 굽힌 뒤, 발을 번갈아 lift만큼 들었다 내림
+ * - 높이는 다리 길이(루트 - 발 높이 차) 비율 → 로봇 크기와 무관
+ * - 발마다 ReachabilityMap으로 목표를 거름: 도달 불가 목표가 있으면 lift/crouch를 반씩 줄임
+ * - 시작 자세로 첫 프레임이 안 풀리면 (펴진 무릎 특이점 등) 맵의 복셀 seed로 다시 시작
+ * - 결과 모션은 환경의 참조 모션(RSI/추적 보상)으로 바로 사용 가능
+ */
+public final class IKDemoGenerator {
+    private static final Logger logger = LogManager.getLogger();
+
+    public static class Settings {
+        public float liftRatio = 0.10f;    // 발 들기 높이 / 다리 길이
+        public float crouchRatio = 0.05f;  // 무릎 굽힘(발 올림) / 다리 길이
+        public float stepPeriod = 1.0f;    // 한 발 들기 + 다른 발 들기 (초)
+        public int cycles = 2;
+        public float fps = 30f;
+        public int maxLiftHalvings = 4;
+        public DampedLeastSquaresIK.Settings ik = new DampedLeastSquaresIK.Settings();
+        public ReachabilityMap.Settings reach = new ReachabilityMap.Settings();
+    }
+
+    /**
+     * @param lift        실제 사용한 발 들기 높이 (m, 도달 불가로 줄었으면 liftRatio보다 작음)
+     * @param unreachable 줄인 뒤에도 맵 밖에 남은 목표 수
+     */
+    public record Result(DampedLeastSquaresIK.TrajectoryResult trajectory, String[] feet, float legLength,
+                         float lift, int unreachable) { }
+
+    private IKDemoGenerator() {}
+
+    /**
+     * 공용 풀에서 비동기 생성 (GUI 스레드를 막지 않음)
+     * @param seed     시작 자세 (트리 조인트 순서)
+     * @param reachDir 도달 맵 캐시 디렉터리 ({링크}.kreach, null이면 매번 구축)
+     */
+    public static CompletableFuture<Result> generateAsync(KinematicTree tree, float[] seed, Settings settings,
+                                                         Path reachDir) {
+        return CompletableFuture.supplyAsync(() -> generate(tree, seed, settings, reachDir, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * @return 움직이는 말단이 없으면 null
+     */
+    public static Result generate(KinematicTree tree, float[] seed, Settings settings, Path reachDir,
+                                  ForkJoinPool pool) {
+        float[] world = tree.newTransformBuffer();
+        tree.forward(seed, world);
+        int[] feet = lowestEndEffectors(tree, world, 2);
+        if (feet.length == 0) return null;
+
+        float legLength = 0f;
+        for (int foot : feet) legLength = Math.max(legLength, world[12 + 2] - world[foot * KinematicTree.STRIDE + 14]);
+        if (legLength <= 0f) legLength = 1f;
+        float lift = settings.liftRatio * legLength;
+        float crouch = settings.crouchRatio * legLength;
+
+        String[] names = new String[feet.length];
+        ReachabilityMap[] maps = new ReachabilityMap[feet.length];
+        for (int e = 0; e < feet.length; e++) {
+            names[e] = tree.getLinkName(feet[e]);
+            maps[e] = ReachabilityMap.obtain(tree, names[e], settings.reach,
+                    reachDir != null ? reachDir.resolve(names[e] + ".kreach") : null, pool);
+        }
+
+        // 도달 불가 목표가 없어질 때까지 높이를 반씩 줄임
+        float[] targets = stepTargets(world, feet, lift, crouch, settings);
+        int unreachable = countUnreachable(maps, targets);
+        for (int h = 0; h < settings.maxLiftHalvings && unreachable > 0; h++) {
+            lift *= 0.5f;
+            crouch *= 0.5f;
+            targets = stepTargets(world, feet, lift, crouch, settings);
+            unreachable = countUnreachable(maps, targets);
+        }
+        if (unreachable > 0) {
+            logger.warn("IK demo: {} foot targets remain outside the reachability map", unreachable);
+        }
+
+        float[] start = startPose(tree, settings.ik, seed, feet, targets, maps);
+        DampedLeastSquaresIK.Trajectory trajectory = new DampedLeastSquaresIK.Trajectory("ik_march", names,
+                targets, settings.fps, true);
+        DampedLeastSquaresIK.TrajectoryResult solved = DampedLeastSquaresIK.solveTrajectories(
+                tree, settings.ik, List.of(trajectory), start, pool).get(0);
+        logger.info("IK demo: {} feet, {} frames, lift {} m, max err {} m, mean err {} m, {} iterations",
+                feet.length, trajectory.frames(), lift, solved.maxError(), solved.meanError(), solved.iterations());
+        return new Result(solved, names, legLength, lift, unreachable);
+    }
+
+    /** 맵이 도달 불가로 판정한 목표 수 (맵이 없는 발은 건너뜀) */
+    static int countUnreachable(ReachabilityMap[] maps, float[] targets) {
+        int e = maps.length;
+        int count = 0;
+        for (int o = 0; o < targets.length; o += 3) {
+            ReachabilityMap map = maps[(o / 3) % e];
+            if (map != null && !map.isReachable(targets[o], targets[o + 1], targets[o + 2])) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 첫 프레임 초기값: 시작 자세로 풀리면 그대로, 아니면 발마다 맵 seed로 체인 조인트를 덮어씀
+     * (체인이 겹치면 뒤의 발이 이김 - 두 다리는 보통 분리됨)
+     */
+    static float[] startPose(KinematicTree tree, DampedLeastSquaresIK.Settings ik, float[] seed, int[] feet,
+                             float[] targets, ReachabilityMap[] maps) {
+        DampedLeastSquaresIK solver = new DampedLeastSquaresIK(tree, ik);
+        float[] q = seed.clone();
+        if (solver.solve(q, feet, targets, 0) <= ik.tolerance) return seed;
+
+        float[] start = seed.clone();
+        boolean seeded = false;
+        for (int e = 0; e < feet.length; e++) {
+            if (maps[e] == null) continue;
+            int o = e * 3;
+            seeded |= maps[e].getSeed(targets[o], targets[o + 1], targets[o + 2], start);
+        }
+        if (seeded) logger.info("IK demo: start pose does not converge, seeding from the reachability map");
+        return start;
+    }
+
+    /**
+     * 프레임별 발 목표 [frame * E * 3 + e * 3 + {x,y,z}]
+     * 발 e는 주기의 e번째 구간(길이 period/E)에서 sin 반파형으로 들림
+     */
+    static float[] stepTargets(float[] world, int[] feet, float lift, float crouch, Settings settings) {
+        int e = feet.length;
+        int frames = Math.max(2, Math.round(settings.stepPeriod * settings.cycles * settings.fps));
+        float[] targets = new float[frames * e * 3];
+        for (int f = 0; f < frames; f++) {
+            float phase = (f / settings.fps) / settings.stepPeriod;
+            phase -= (float) Math.floor(phase);
+            for (int k = 0; k < e; k++) {
+                int t = feet[k] * KinematicTree.STRIDE + 12;
+                float local = phase * e - k; // 이 발의 구간이면 [0, 1)
+                float up = local >= 0f && local < 1f ? (float) Math.sin(Math.PI * local) * lift : 0f;
+                int o = (f * e + k) * 3;
+                targets[o] = world[t];
+                targets[o + 1] = world[t + 1];
+                targets[o + 2] = world[t + 2] + crouch + up;
+            }
+        }
+        return targets;
+    }
+
+    /** 경로에 움직이는 조인트가 있는 말단 링크 중 z가 낮은 순으로 최대 count개 */
+    static int[] lowestEndEffectors(KinematicTree tree, float[] world, int count) {
+        List<Integer> ends = new ArrayList<>();
+        for (int l = 1; l < tree.getLinkCount(); l++) {
+            if (!tree.isLeafLink(l)) continue;
+            boolean movable = false;
+            for (int j = KinematicTree.getParentJoint(l); j >= 0; j = KinematicTree.getParentJoint(tree.getParentLink(j))) {
+                movable |= tree.isMovable(j);
+            }
+            if (movable) ends.add(l);
+        }
+        ends.sort((a, b) -> Float.compare(world[a * KinematicTree.STRIDE + 14], world[b * KinematicTree.STRIDE + 14]));
+        return ends.stream().limit(count).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,100 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import java.util.Arrays;
+
+/**
+ * 변경된 서브트리만 다시 계산하는 순방향 기구학 (슬라이더 드래그, 일부 관절만 움직이는 VMD 클립 등)
+ *
+ * - 조인트별 dirty 플래그: setJoint()/markDirty()가 표시
+ * - update(): DFS 전위 순서로 훑다가 dirty 조인트를 만나면 그 서브트리 구간 [j, subtreeEnd)만 재계산 후 건너뜀
+ *   (조상이 먼저 처리되므로 부모 링크 변환은 항상 최신)
+ * - 결과는 KinematicTree.forward() 전체 계산과 같은 연산 순서 → 비트 단위로 동일
+ *
+ * 한 스레드 전용 (렌더러/에디터 인스턴스당 하나).
+ */
+public final class IncrementalForwardKinematics {
+    private final KinematicTree tree;
+    private final float[] q;
+    private final float[] world;
+    private final boolean[] dirty;
+    private boolean anyDirty = true;
+    private int lastRecomputed;
+
+    public IncrementalForwardKinematics(KinematicTree tree) {
+        this.tree = tree;
+        this.q = new float[tree.getJointCount()];
+        this.world = tree.newTransformBuffer();
+        this.dirty = new boolean[tree.getJointCount()];
+        KinematicTree.setIdentity(world, 0);
+        Arrays.fill(dirty, true);
+    }
+
+    // ========== 변경 표시 ==========
+
+    /**
+     * 조인트 값 설정 (값이 바뀐 경우만 서브트리 무효화)
+     */
+    public void setJoint(int j, float value) {
+        if (j < 0 || q[j] == value) return;
+        q[j] = value;
+        dirty[j] = true;
+        anyDirty = true;
+    }
+
+    public void markDirty(int j) {
+        if (j < 0) return;
+        dirty[j] = true;
+        anyDirty = true;
+    }
+
+    public void markAllDirty() {
+        Arrays.fill(dirty, true);
+        anyDirty = true;
+    }
+
+    /**
+     * 관절 현재 위치(상태 저장소)와 비교해 바뀐 조인트만 표시 (컨트롤러/물리/RL이 직접 쓰는 경로용)
+     */
+    public void syncFromJoints() {
+        for (int j = 0; j < q.length; j++) {
+            setJoint(j, tree.getJoint(j).getPosition());
+        }
+    }
+
+    // ========== 계산 ==========
+
+    /**
+     * 무효화된 링크만 재계산
+     * @return 재계산한 링크 수
+     */
+    public int update() {
+        int recomputed = 0;
+        if (anyDirty) {
+            int n = q.length;
+            for (int j = 0; j < n; ) {
+                if (!dirty[j]) {
+                    j++;
+                    continue;
+                }
+                int end = tree.getSubtreeEnd(j);
+                tree.forwardRange(q, 0, world, j, end);
+                Arrays.fill(dirty, j, end, false);
+                recomputed += end - j;
+                j = end;
+            }
+            anyDirty = false;
+        }
+        lastRecomputed = recomputed;
+        return recomputed;
+    }
+
+    /** 링크 변환 버퍼 (update() 이후 유효, 읽기 전용으로 사용) */
+    public float[] getTransforms() { return world; }
+
+    /** 현재 조인트 값 (트리 조인트 순서, 읽기 전용으로 사용) */
+    public float[] getJointPositions() { return q; }
+
+    public boolean isDirty() { return anyDirty; }
+    public int getLastRecomputed() { return lastRecomputed; }
+    public KinematicTree getTree() { return tree; }
+}
@@ -0,0 +1,308 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+
+/**
+ * 재귀 Newton-Euler 역동역학 (RNEA) - 고정 베이스 트리의 관절 토크 τ(q, q̇, q̈)
+ *
+ * - compile(): 링크 inertial(질량 / CoM 오프셋 / 관성 텐서, inertial rpy 반영)을 트리 링크 순서 배열로 정리
+ * - compute(): 전방 패스(링크 각속도/각가속도/원점 선가속도) → 링크 힘·모멘트 → 후방 패스(자식 누적, 축 투영)
+ *   중력은 루트 가속도 -g로 넣는 표준 방식 (q̇ = q̈ = 0이면 중력 보상 토크)
+ * - 좌표계: FK 기준 좌표계(루트 링크, URDF 관례상 z-up)에서 모든 벡터 계산, 관성 텐서만 링크 좌표계 → 기준 좌표계로 회전
+ *   월드 중력은 기준 좌표계로 돌려서 setGravity()에 넘길 것 (마크 월드 -y → KinematicTree.worldToUrdf)
+ *
+ * O(링크 수), 할당 없음 (제어 틱마다 호출 가능). 인스턴스는 한 스레드 전용 (트리는 공유 가능).
+ */
+public final class InverseDynamics {
+    private static final int S = KinematicTree.STRIDE;
+
+    private final KinematicTree tree;
+    private final float[] mass;       // 링크별 질량
+    private final float[] localCom;   // 링크 좌표계 CoM [l*3]
+    private final float[] inertia;    // 링크 좌표계 CoM 기준 관성 [l*6] (xx, xy, xz, yy, yz, zz)
+    private final float[] axes;       // 조인트 로컬 축 [j*3]
+
+    /** 기준 좌표계 중력 가속도 (기본: URDF z-up 루트의 -z) */
+    private float gx = 0f, gy = 0f, gz = -9.81f;
+
+    // 스크래치 (할당 없음)
+    private final float[] world;
+    private final float[] omega;      // 링크 각속도 [l*3]
+    private final float[] omegaDot;   // 링크 각가속도 [l*3]
+    private final float[] accel;      // 링크 원점 선가속도 (중력 포함) [l*3]
+    private final float[] force;      // 링크 원점에 걸리는 힘 (서브트리 누적) [l*3]
+    private final float[] moment;     // 링크 원점 기준 모멘트 (서브트리 누적) [l*3]
+
+    private InverseDynamics(KinematicTree tree, float[] mass, float[] localCom, float[] inertia) {
+        this.tree = tree;
+        this.mass = mass;
+        this.localCom = localCom;
+        this.inertia = inertia;
+        int links = tree.getLinkCount();
+        axes = new float[tree.getJointCount() * 3];
+        for (int j = 0; j < tree.getJointCount(); j++) tree.getAxis(j, axes, j * 3);
+        world = tree.newTransformBuffer();
+        omega = new float[links * 3];
+        omegaDot = new float[links * 3];
+        accel = new float[links * 3];
+        force = new float[links * 3];
+        moment = new float[links * 3];
+    }
+
+    /**
+     * 트리 링크의 inertial에서 동역학 모델 구성 (inertial이 없는 링크는 질량 0)
+     */
+    public static InverseDynamics compile(KinematicTree tree) {
+        int links = tree.getLinkCount();
+        float[] mass = new float[links];
+        float[] localCom = new float[links * 3];
+        float[] inertia = new float[links * 6];
+        readInertials(tree, mass, localCom, inertia);
+        return new InverseDynamics(tree, mass, localCom, inertia);
+    }
+
+    /**
+     * 링크별 질량 / 링크 좌표계 CoM [l*3] / 링크 좌표계 CoM 기준 관성 [l*6] (xx, xy, xz, yy, yz, zz)
+     * (ArticulatedBodyDynamics와 공유)
+     */
+    static void readInertials(KinematicTree tree, float[] mass, float[] localCom, float[] inertia) {
+        float[] rot = new float[S];
+        for (int l = 0; l < tree.getLinkCount(); l++) {
+            URDFLink link = tree.getLink(l);
+            URDFLink.Inertial inertial = link != null ? link.inertial : null;
+            if (inertial == null || inertial.mass == null || inertial.mass.value <= 0) continue;
+            mass[l] = inertial.mass.value;
+
+            float roll = 0f, pitch = 0f, yaw = 0f;
+            if (inertial.origin != null) {
+                if (inertial.origin.xyz != null) {
+                    localCom[l * 3] = inertial.origin.xyz.x;
+                    localCom[l * 3 + 1] = inertial.origin.xyz.y;
+                    localCom[l * 3 + 2] = inertial.origin.xyz.z;
+                }
+                if (inertial.origin.rpy != null) {
+                    roll = inertial.origin.rpy.x;
+                    pitch = inertial.origin.rpy.y;
+                    yaw = inertial.origin.rpy.z;
+                }
+            }
+            URDFLink.Inertial.Inertia in = inertial.inertia;
+            if (in == null) continue;
+            // inertial 좌표계 → 링크 좌표계: I_link = R I R^T
+            KinematicTree.originMatrix(0, 0, 0, roll, pitch, yaw, rot, 0);
+            rotateInertia(rot, 0, in.ixx, in.ixy, in.ixz, in.iyy, in.iyz, in.izz, inertia, l * 6);
+        }
+    }
+
+    /** 기준 좌표계(루트 링크) 중력 가속도 설정 (물리 월드 중력을 루트 좌표계로 변환해 넘길 것) */
+    public void setGravity(float x, float y, float z) {
+        gx = x;
+        gy = y;
+        gz = z;
+    }
+
+    // ========== 계산 ==========
+
+    /**
+     * 관절 토크 τ = M(q)q̈ + C(q, q̇)q̇ + g(q) (트리 조인트 순서, 고정 조인트는 0)
+     * @param qd  관절 속도 (null이면 0)
+     * @param qdd 관절 가속도 (null이면 0)
+     * @param tau 출력, 길이 ≥ getJointCount()
+     */
+    public void compute(float[] q, float[] qd, float[] qdd, float[] tau) {
+        int n = tree.getJointCount();
+        tree.forward(q, world);
+
+        // 루트: 정지, 중력 대신 위쪽 가속도
+        omega[0] = omega[1] = omega[2] = 0f;
+        omegaDot[0] = omegaDot[1] = omegaDot[2] = 0f;
+        accel[0] = -gx;
+        accel[1] = -gy;
+        accel[2] = -gz;
+
+        // 1. 전방 패스 (부모가 항상 앞)
+        for (int j = 0; j < n; j++) {
+            int l = j + 1, p = tree.getParentLink(j);
+            int t = l * S, pt = p * S, c = l * 3, pc = p * 3;
+            float wx = omega[pc], wy = omega[pc + 1], wz = omega[pc + 2];
+            float dx = omegaDot[pc], dy = omegaDot[pc + 1], dz = omegaDot[pc + 2];
+
+            // a_l = a_p + ẇ_p × r + w_p × (w_p × r),  r = o_l - o_p
+            float rx = world[t + 12] - world[pt + 12];
+            float ry = world[t + 13] - world[pt + 13];
+            float rz = world[t + 14] - world[pt + 14];
+            float vx = wy * rz - wz * ry, vy = wz * rx - wx * rz, vz = wx * ry - wy * rx;
+            float ax = accel[pc] + (dy * rz - dz * ry) + (wy * vz - wz * vy);
+            float ay = accel[pc + 1] + (dz * rx - dx * rz) + (wz * vx - wx * vz);
+            float az = accel[pc + 2] + (dx * ry - dy * rx) + (wx * vy - wy * vx);
+
+            int type = tree.getJointType(j);
+            if (type != KinematicTree.TYPE_FIXED) {
+                float s = qd != null ? qd[j] : 0f;
+                float sdd = qdd != null ? qdd[j] : 0f;
+                float ux = axisX(t, j), uy = axisY(t, j), uz = axisZ(t, j);
+                float sx = ux * s, sy = uy * s, sz = uz * s;
+                float cx = wy * sz - wz * sy, cy = wz * sx - wx * sz, cz = wx * sy - wy * sx;
+                if (type == KinematicTree.TYPE_REVOLUTE) {
+                    dx += ux * sdd + cx;
+                    dy += uy * sdd + cy;
+                    dz += uz * sdd + cz;
+                    wx += sx;
+                    wy += sy;
+                    wz += sz;
+                } else {
+                    ax += ux * sdd + 2f * cx;
+                    ay += uy * sdd + 2f * cy;
+                    az += uz * sdd + 2f * cz;
+                }
+            }
+            omega[c] = wx; omega[c + 1] = wy; omega[c + 2] = wz;
+            omegaDot[c] = dx; omegaDot[c + 1] = dy; omegaDot[c + 2] = dz;
+            accel[c] = ax; accel[c + 1] = ay; accel[c + 2] = az;
+        }
+
+        // 2. 링크별 힘 / 원점 기준 모멘트 (Newton-Euler)
+        force[0] = force[1] = force[2] = 0f;
+        moment[0] = moment[1] = moment[2] = 0f;
+        for (int l = 1; l <= n; l++) {
+            linkWrench(l);
+        }
+
+        // 3. 후방 패스 (자식이 항상 뒤 → 역순이면 서브트리 누적 완료)
+        for (int j = n - 1; j >= 0; j--) {
+            int l = j + 1, p = tree.getParentLink(j);
+            int t = l * S, pt = p * S, c = l * 3, pc = p * 3;
+            int type = tree.getJointType(j);
+            if (type == KinematicTree.TYPE_REVOLUTE) {
+                tau[j] = axisX(t, j) * moment[c] + axisY(t, j) * moment[c + 1] + axisZ(t, j) * moment[c + 2];
+            } else if (type == KinematicTree.TYPE_PRISMATIC) {
+                tau[j] = axisX(t, j) * force[c] + axisY(t, j) * force[c + 1] + axisZ(t, j) * force[c + 2];
+            } else {
+                tau[j] = 0f;
+            }
+
+            // 부모로 전달: f_p += f_l,  n_p += n_l + (o_l - o_p) × f_l
+            float rx = world[t + 12] - world[pt + 12];
+            float ry = world[t + 13] - world[pt + 13];
+            float rz = world[t + 14] - world[pt + 14];
+            float fx = force[c], fy = force[c + 1], fz = force[c + 2];
+            force[pc] += fx;
+            force[pc + 1] += fy;
+            force[pc + 2] += fz;
+            moment[pc] += moment[c] + (ry * fz - rz * fy);
+            moment[pc + 1] += moment[c + 1] + (rz * fx - rx * fz);
+            moment[pc + 2] += moment[c + 2] + (rx * fy - ry * fx);
+        }
+    }
+
+    /**
+     * 중력 보상 토크 g(q) (q̇ = q̈ = 0)
+     */
+    public void gravity(float[] q, float[] tau) {
+        compute(q, null, null, tau);
+    }
+
+    /** 링크 l의 힘/모멘트를 force/moment 슬롯에 초기화 (질량 0이면 0) */
+    private void linkWrench(int l) {
+        int t = l * S, c = l * 3;
+        float m = mass[l];
+        if (m == 0f) {
+            force[c] = force[c + 1] = force[c + 2] = 0f;
+            moment[c] = moment[c + 1] = moment[c + 2] = 0f;
+            return;
+        }
+        float wx = omega[c], wy = omega[c + 1], wz = omega[c + 2];
+        float dx = omegaDot[c], dy = omegaDot[c + 1], dz = omegaDot[c + 2];
+
+        // r = R_l * com (기준 좌표계, 원점 → CoM)
+        float lx = localCom[c], ly = localCom[c + 1], lz = localCom[c + 2];
+        float rx = world[t] * lx + world[t + 4] * ly + world[t + 8] * lz;
+        float ry = world[t + 1] * lx + world[t + 5] * ly + world[t + 9] * lz;
+        float rz = world[t + 2] * lx + world[t + 6] * ly + world[t + 10] * lz;
+
+        // CoM 가속도 = a + ẇ × r + w × (w × r)
+        float vx = wy * rz - wz * ry, vy = wz * rx - wx * rz, vz = wx * ry - wy * rx;
+        float fx = m * (accel[c] + (dy * rz - dz * ry) + (wy * vz - wz * vy));
+        float fy = m * (accel[c + 1] + (dz * rx - dx * rz) + (wz * vx - wx * vz));
+        float fz = m * (accel[c + 2] + (dx * ry - dy * rx) + (wx * vy - wy * vx));
+
+        // N = I ẇ + w × (I w), I는 링크 좌표계 → 회전 후 적용: I_w v = R (I_l (R^T v))
+        int i = l * 6;
+        float ixx = inertia[i], ixy = inertia[i + 1], ixz = inertia[i + 2];
+        float iyy = inertia[i + 3], iyz = inertia[i + 4], izz = inertia[i + 5];
+
+        float bx = world[t] * wx + world[t + 1] * wy + world[t + 2] * wz;
+        float by = world[t + 4] * wx + world[t + 5] * wy + world[t + 6] * wz;
+        float bz = world[t + 8] * wx + world[t + 9] * wy + world[t + 10] * wz;
+        float hx = ixx * bx + ixy * by + ixz * bz;
+        float hy = ixy * bx + iyy * by + iyz * bz;
+        float hz = ixz * bx + iyz * by + izz * bz;
+        float iwx = world[t] * hx + world[t + 4] * hy + world[t + 8] * hz;
+        float iwy = world[t + 1] * hx + world[t + 5] * hy + world[t + 9] * hz;
+        float iwz = world[t + 2] * hx + world[t + 6] * hy + world[t + 10] * hz;
+
+        bx = world[t] * dx + world[t + 1] * dy + world[t + 2] * dz;
+        by = world[t + 4] * dx + world[t + 5] * dy + world[t + 6] * dz;
+        bz = world[t + 8] * dx + world[t + 9] * dy + world[t + 10] * dz;
+        hx = ixx * bx + ixy * by + ixz * bz;
+        hy = ixy * bx + iyy * by + iyz * bz;
+        hz = ixz * bx + iyz * by + izz * bz;
+        float nx = world[t] * hx + world[t + 4] * hy + world[t + 8] * hz + (wy * iwz - wz * iwy);
+        float ny = world[t + 1] * hx + world[t + 5] * hy + world[t + 9] * hz + (wz * iwx - wx * iwz);
+        float nz = world[t + 2] * hx + world[t + 6] * hy + world[t + 10] * hz + (wx * iwy - wy * iwx);
+
+        force[c] = fx; force[c + 1] = fy; force[c + 2] = fz;
+        moment[c] = nx + (ry * fz - rz * fy);
+        moment[c + 1] = ny + (rz * fx - rx * fz);
+        moment[c + 2] = nz + (rx * fy - ry * fx);
+    }
+
+    /** 조인트 축의 기준 좌표계 성분 (자식 링크 회전 × 로컬 축 - 축 자신의 회전에는 불변) */
+    private float axisX(int t, int j) {
+        return world[t] * axes[j * 3] + world[t + 4] * axes[j * 3 + 1] + world[t + 8] * axes[j * 3 + 2];
+    }
+
+    private float axisY(int t, int j) {
+        return world[t + 1] * axes[j * 3] + world[t + 5] * axes[j * 3 + 1] + world[t + 9] * axes[j * 3 + 2];
+    }
+
+    private float axisZ(int t, int j) {
+        return world[t + 2] * axes[j * 3] + world[t + 6] * axes[j * 3 + 1] + world[t + 10] * axes[j * 3 + 2];
+    }
+
+    /** out = R I R^T (대칭 6성분) */
+    private static void rotateInertia(float[] r, int o, float xx, float xy, float xz, float yy, float yz, float zz,
+                                      float[] out, int oo) {
+        float[] in = {xx, xy, xz, xy, yy, yz, xz, yz, zz};
+        float[] ri = new float[9];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                float sum = 0f;
+                for (int k = 0; k < 3; k++) sum += r[o + k * 4 + row] * in[k * 3 + col];
+                ri[row * 3 + col] = sum;
+            }
+        }
+        float[] res = new float[9];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                float sum = 0f;
+                for (int k = 0; k < 3; k++) sum += ri[row * 3 + k] * r[o + k * 4 + col];
+                res[row * 3 + col] = sum;
+            }
+        }
+        out[oo] = res[0];
+        out[oo + 1] = res[1];
+        out[oo + 2] = res[2];
+        out[oo + 3] = res[4];
+        out[oo + 4] = res[5];
+        out[oo + 5] = res[8];
+    }
+
+    // ========== 조회 ==========
+
+    /** 마지막 compute()의 링크 변환 (읽기 전용) */
+    public float[] getLinkTransforms() { return world; }
+
+    public KinematicTree getTree() { return tree; }
+    public float getLinkMass(int link) { return mass[link]; }
+}
@@ -0,0 +1,322 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 컴파일된 평탄 기구학 트리 (URDFModel의 이름 기반 맵 → 배열)
+ *
+ * - 루트에서 DFS 전위 순서로 조인트 정렬: 부모가 항상 앞, 서브트리는 연속 구간
+ * - 링크 인덱스: 루트 = 0, 조인트 j의 자식 링크 = j + 1
+ * - 조인트별 부모 링크 인덱스 / origin 변환 float[16] / 정규화 축 / 타입 코드를 미리 계산
+ * - forward(): 모든 링크 월드(루트 기준) 변환을 선형 1회 순회로 평탄 버퍼에 기록
+ *
+ * 변환은 열 우선 4x4 (OpenGL/JOML과 같은 배치: m[col * 4 + row], 이동 = m[12..14]).
+ * 생성 후 불변이고 forward()는 호출자 버퍼만 쓰므로 여러 스레드가 공유 가능 (렌더링/RL/물리).
+ */
+public final class KinematicTree {
+    public static final int TYPE_FIXED = 0;
+    public static final int TYPE_REVOLUTE = 1;   // REVOLUTE, CONTINUOUS
+    public static final int TYPE_PRISMATIC = 2;
+
+    /** 변환 하나의 float 수 */
+    public static final int STRIDE = 16;
+
+    private final int jointCount;
+    private final int[] parentLink;   // 조인트별 부모 링크 인덱스
+    private final int[] subtreeEnd;   // 조인트 j의 서브트리 = 조인트 [j, subtreeEnd[j])
+    private final float[] origins;    // 조인트별 origin 변환 [16]
+    private final float[] axes;       // 조인트별 정규화 축 [3]
+    private final int[] types;
+    private final URDFJoint[] joints;
+    private final URDFLink[] links;
+    private final String[] jointNames;
+    private final String[] linkNames;
+    private final Map<String, Integer> jointIndex = new HashMap<>();
+    private final Map<String, Integer> linkIndex = new HashMap<>();
+
+    private KinematicTree(URDFModel model, List<URDFJoint> order, List<Integer> subtreeSizes) {
+        jointCount = order.size();
+        parentLink = new int[jointCount];
+        subtreeEnd = new int[jointCount];
+        origins = new float[jointCount * STRIDE];
+        axes = new float[jointCount * 3];
+        types = new int[jointCount];
+        joints = order.toArray(new URDFJoint[0]);
+        links = new URDFLink[jointCount + 1];
+        jointNames = new String[jointCount];
+        linkNames = new String[jointCount + 1];
+
+        links[0] = model.getLink(model.rootLinkName);
+        linkNames[0] = model.rootLinkName;
+        linkIndex.put(model.rootLinkName, 0);
+
+        for (int j = 0; j < jointCount; j++) {
+            URDFJoint joint = joints[j];
+            jointNames[j] = joint.name;
+            jointIndex.put(joint.name, j);
+            links[j + 1] = model.getLink(joint.childLinkName);
+            linkNames[j + 1] = joint.childLinkName;
+            linkIndex.put(joint.childLinkName, j + 1);
+            parentLink[j] = linkIndex.get(joint.parentLinkName);
+            subtreeEnd[j] = j + subtreeSizes.get(j);
+
+            if (joint.origin != null) {
+                originMatrix(joint.origin.xyz.x, joint.origin.xyz.y, joint.origin.xyz.z,
+                        joint.origin.rpy.x, joint.origin.rpy.y, joint.origin.rpy.z, origins, j * STRIDE);
+            } else {
+                originMatrix(0, 0, 0, 0, 0, 0, origins, j * STRIDE);
+            }
+
+            float ax = 1f, ay = 0f, az = 0f;
+            if (joint.axis != null && joint.axis.xyz != null) {
+                float len = (float) Math.sqrt(joint.axis.xyz.x * joint.axis.xyz.x
+                        + joint.axis.xyz.y * joint.axis.xyz.y + joint.axis.xyz.z * joint.axis.xyz.z);
+                if (len > 1e-6f) {
+                    ax = joint.axis.xyz.x / len;
+                    ay = joint.axis.xyz.y / len;
+                    az = joint.axis.xyz.z / len;
+                }
+            }
+            axes[j * 3] = ax;
+            axes[j * 3 + 1] = ay;
+            axes[j * 3 + 2] = az;
+
+            // FLOATING/PLANAR는 렌더러와 같이 움직임 없음으로 취급
+            types[j] = switch (joint.type) {
+                case REVOLUTE, CONTINUOUS -> TYPE_REVOLUTE;
+                case PRISMATIC -> TYPE_PRISMATIC;
+                default -> TYPE_FIXED;
+            };
+        }
+    }
+
+    /**
+     * URDF 모델 컴파일 (buildHierarchy() 이후). 루트가 없으면 null.
+     * 루트에서 도달할 수 없는 링크/조인트는 제외.
+     */
+    public static KinematicTree compile(URDFModel model) {
+        if (model == null || model.rootLinkName == null || model.getLink(model.rootLinkName) == null) {
+            return null;
+        }
+        List<URDFJoint> order = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        visit(model, model.rootLinkName, order, sizes, 0);
+        return new KinematicTree(model, order, sizes);
+    }
+
+    private static void visit(URDFModel model, String link, List<URDFJoint> order, List<Integer> sizes, int depth) {
+        if (depth > model.getJointCount()) return; // 순환 방어
+        for (URDFJoint child : model.getChildJoints(link)) {
+            int self = order.size();
+            order.add(child);
+            sizes.add(0);
+            visit(model, child.childLinkName, order, sizes, depth + 1);
+            sizes.set(self, order.size() - self);
+        }
+    }
+
+    // ========== 순방향 기구학 ==========
+
+    /** 링크 변환 버퍼 (getLinkCount() × 16) */
+    public float[] newTransformBuffer() {
+        return new float[getLinkCount() * STRIDE];
+    }
+
+    /**
+     * 모든 링크의 루트 기준 변환 계산
+     * @param q     조인트 위치 (트리 조인트 순서, 고정 조인트 값은 무시)
+     * @param world 출력 [link * 16 ..], 길이 ≥ getLinkCount() × 16
+     */
+    public void forward(float[] q, float[] world) {
+        setIdentity(world, 0);
+        forwardRange(q, 0, world, 0, jointCount);
+    }
+
+    /**
+     * 기준 변환(base, 월드에서 본 루트 링크)을 앞에 곱한 링크 월드 변환 계산
+     */
+    public void forward(float[] q, float[] base, int baseOffset, float[] world) {
+        System.arraycopy(base, baseOffset, world, 0, STRIDE);
+        forwardRange(q, 0, world, 0, jointCount);
+    }
+
+    /**
+     * 조인트 [from, to)의 자식 링크 변환만 다시 계산 (부모 링크 변환은 이미 최신이어야 함)
+     * @param qOffset q에서 이 자세의 시작 (배치 입력용)
+     */
+    void forwardRange(float[] q, int qOffset, float[] world, int from, int to) {
+        for (int j = from; j < to; j++) {
+            int p = parentLink[j] * STRIDE;
+            int c = (j + 1) * STRIDE;
+            mulAffine(world, p, origins, j * STRIDE, world, c);
+
+            switch (types[j]) {
+                case TYPE_REVOLUTE -> rotateAxis(world, c, axes[j * 3], axes[j * 3 + 1], axes[j * 3 + 2], q[qOffset + j]);
+                case TYPE_PRISMATIC -> {
+                    float v = q[qOffset + j];
+                    float dx = axes[j * 3] * v, dy = axes[j * 3 + 1] * v, dz = axes[j * 3 + 2] * v;
+                    world[c + 12] += world[c] * dx + world[c + 4] * dy + world[c + 8] * dz;
+                    world[c + 13] += world[c + 1] * dx + world[c + 5] * dy + world[c + 9] * dz;
+                    world[c + 14] += world[c + 2] * dx + world[c + 6] * dy + world[c + 10] * dz;
+                }
+                default -> { }
+            }
+        }
+    }
+
+    /**
+     * URDFJoint.getPosition() → q (트리 조인트 순서)
+     */
+    public void readJointPositions(float[] q) {
+        for (int j = 0; j < jointCount; j++) q[j] = joints[j].getPosition();
+    }
+
+    /**
+     * 이름 목록(예: 환경 관절 순서) → 트리 조인트 인덱스 (없으면 -1)
+     */
+    public int[] mapJoints(List<String> names) {
+        int[] map = new int[names.size()];
+        for (int i = 0; i < map.length; i++) map[i] = indexOfJoint(names.get(i));
+        return map;
+    }
+
+    // ========== 조회 ==========
+
+    public int getJointCount() { return jointCount; }
+    public int getLinkCount() { return jointCount + 1; }
+
+    public int indexOfJoint(String name) {
+        Integer i = jointIndex.get(name);
+        return i != null ? i : -1;
+    }
+
+    public int indexOfLink(String name) {
+        Integer i = linkIndex.get(name);
+        return i != null ? i : -1;
+    }
+
+    public String getJointName(int j) { return jointNames[j]; }
+    public String getLinkName(int link) { return linkNames[link]; }
+    public URDFJoint getJoint(int j) { return joints[j]; }
+    public URDFLink getLink(int link) { return links[link]; }
+    public int getJointType(int j) { return types[j]; }
+    public boolean isMovable(int j) { return types[j] != TYPE_FIXED; }
+
+    /** 조인트 j의 부모 링크 인덱스 */
+    public int getParentLink(int j) { return parentLink[j]; }
+
+    /** 조인트 j의 자식 링크 인덱스 */
+    public static int getChildLink(int j) { return j + 1; }
+
+    /** 링크의 부모 조인트 인덱스 (루트면 -1) */
+    public static int getParentJoint(int link) { return link - 1; }
+
+    /** 조인트 j 서브트리의 끝 (배타) - [j, end)가 j와 모든 후손 조인트 */
+    public int getSubtreeEnd(int j) { return subtreeEnd[j]; }
+
+    /** 자식 조인트가 없는 링크 (루트 제외) */
+    public boolean isLeafLink(int link) {
+        int j = link; // 링크 link의 첫 자식 후보 = 조인트 link (DFS 전위)
+        return link > 0 && (j >= jointCount || parentLink[j] != link);
+    }
+
+    /** 정규화 축 (조인트 로컬) → out[o..o+3) */
+    public void getAxis(int j, float[] out, int o) {
+        out[o] = axes[j * 3];
+        out[o + 1] = axes[j * 3 + 1];
+        out[o + 2] = axes[j * 3 + 2];
+    }
+
+    /** origin 변환 [16] → out[o..o+16) */
+    public void getOrigin(int j, float[] out, int o) {
+        System.arraycopy(origins, j * STRIDE, out, o, STRIDE);
+    }
+
+    public List<String> getJointNames() {
+        return List.of(jointNames);
+    }
+
+    // ========== 좌표 축 변환 (URDF z-up ↔ 마크 월드 y-up, 렌더러와 같은 변환) ==========
+
+    /** URDF 축 (x-forward, z-up) 벡터 → 마크 월드 축: (x, y, z) → (-y, z, -x) */
+    public static void urdfToWorld(float x, float y, float z, float[] out, int o) {
+        out[o] = -y;
+        out[o + 1] = z;
+        out[o + 2] = -x;
+    }
+
+    /** urdfToWorld와 같은 회전을 4x4 변환으로 (이동 0) - URDF 루트를 월드에 세울 때의 기준 자세 */
+    public static void setUrdfToWorld(float[] m, int o) {
+        for (int i = 0; i < STRIDE; i++) m[o + i] = 0f;
+        m[o + 2] = -1f;   // x → -Z
+        m[o + 4] = -1f;   // y → -X
+        m[o + 9] = 1f;    // z → Y
+        m[o + 15] = 1f;
+    }
+
+    /** 마크 월드 축 벡터 → URDF 축: (X, Y, Z) → (-Z, -X, Y) */
+    public static void worldToUrdf(float x, float y, float z, float[] out, int o) {
+        out[o] = -z;
+        out[o + 1] = -x;
+        out[o + 2] = y;
+    }
+
+    // ========== 4x4 유틸 (열 우선, 아핀) ==========
+
+    public static void setIdentity(float[] m, int o) {
+        for (int i = 0; i < STRIDE; i++) m[o + i] = 0f;
+        m[o] = m[o + 5] = m[o + 10] = m[o + 15] = 1f;
+    }
+
+    /** out = a * b (아핀 가정: 마지막 행 0 0 0 1). out은 a, b와 겹치면 안 됨 */
+    public static void mulAffine(float[] a, int ao, float[] b, int bo, float[] out, int oo) {
+        for (int col = 0; col < 3; col++) {
+            float b0 = b[bo + col * 4], b1 = b[bo + col * 4 + 1], b2 = b[bo + col * 4 + 2];
+            out[oo + col * 4]     = a[ao] * b0 + a[ao + 4] * b1 + a[ao + 8] * b2;
+            out[oo + col * 4 + 1] = a[ao + 1] * b0 + a[ao + 5] * b1 + a[ao + 9] * b2;
+            out[oo + col * 4 + 2] = a[ao + 2] * b0 + a[ao + 6] * b1 + a[ao + 10] * b2;
+            out[oo + col * 4 + 3] = 0f;
+        }
+        float tx = b[bo + 12], ty = b[bo + 13], tz = b[bo + 14];
+        out[oo + 12] = a[ao] * tx + a[ao + 4] * ty + a[ao + 8] * tz + a[ao + 12];
+        out[oo + 13] = a[ao + 1] * tx + a[ao + 5] * ty + a[ao + 9] * tz + a[ao + 13];
+        out[oo + 14] = a[ao + 2] * tx + a[ao + 6] * ty + a[ao + 10] * tz + a[ao + 14];
+        out[oo + 15] = 1f;
+    }
+
+    /** m의 회전부에 축-각 회전을 오른쪽에서 곱함 (Rodrigues, 단위 축, 이동 불변) */
+    private static void rotateAxis(float[] m, int o, float x, float y, float z, float angle) {
+        float c = (float) Math.cos(angle), s = (float) Math.sin(angle), t = 1f - c;
+        // rRC = R의 R행 C열
+        float r00 = t * x * x + c,     r01 = t * x * y - s * z, r02 = t * x * z + s * y;
+        float r10 = t * x * y + s * z, r11 = t * y * y + c,     r12 = t * y * z - s * x;
+        float r20 = t * x * z - s * y, r21 = t * y * z + s * x, r22 = t * z * z + c;
+        for (int row = 0; row < 3; row++) {
+            float a0 = m[o + row], a1 = m[o + 4 + row], a2 = m[o + 8 + row];
+            m[o + row]     = a0 * r00 + a1 * r10 + a2 * r20;
+            m[o + 4 + row] = a0 * r01 + a1 * r11 + a2 * r21;
+            m[o + 8 + row] = a0 * r02 + a1 * r12 + a2 * r22;
+        }
+    }
+
+    /** URDF origin (xyz, rpy) → 열 우선 4x4, R = Rz(yaw) * Ry(pitch) * Rx(roll) */
+    static void originMatrix(float px, float py, float pz, float roll, float pitch, float yaw,
+                             float[] out, int o) {
+        float cr = (float) Math.cos(roll), sr = (float) Math.sin(roll);
+        float cp = (float) Math.cos(pitch), sp = (float) Math.sin(pitch);
+        float cy = (float) Math.cos(yaw), sy = (float) Math.sin(yaw);
+        out[o]      = cy * cp;                out[o + 4] = cy * sp * sr - sy * cr; out[o + 8]  = cy * sp * cr + sy * sr;
+        out[o + 1]  = sy * cp;                out[o + 5] = sy * sp * sr + cy * cr; out[o + 9]  = sy * sp * cr - cy * sr;
+        out[o + 2]  = -sp;                    out[o + 6] = cp * sr;                out[o + 10] = cp * cr;
+        out[o + 3]  = 0f;                     out[o + 7] = 0f;                     out[o + 11] = 0f;
+        out[o + 12] = px;                     out[o + 13] = py;                    out[o + 14] = pz;
+        out[o + 15] = 1f;
+    }
+}
@@ -0,0 +1,234 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 링크 관성(inertial)으로 전신 질량중심(CoM) / CoM 속도 / ZMP 계산
+ *
+ * - compile(): 링크별 질량과 링크 좌표계 CoM 오프셋을 트리 링크 순서 배열로 정리
+ * - update(world, dt): FK 결과 한 번 훑으면서 CoM, 링크별 속도/가속도(유한 차분), ZMP 분자/분모를 함께 누적
+ * - 좌표계: FK 기준 좌표계 (URDF z-up), 중력은 -z
+ * - 지지면: 가장 낮은 말단 링크 원점 높이, 그 근처(contactTolerance) 말단들의 xy 평균이 지지 중심
+ * - ZMP: 점질량 모델 (링크 회전 관성 항 생략)
+ *     x_zmp = Σm(x(z̈+g) - (z-h)ẍ) / Σm(z̈+g)
+ *
+ * 할당 없음 (물리 서브스텝마다 호출 가능). 인스턴스는 한 스레드 전용.
+ */
+public final class MassProperties {
+    public static final float GRAVITY = 9.81f;
+
+    private final KinematicTree tree;
+    private final float[] mass;       // 링크별 질량
+    private final float[] localCom;   // 링크별 링크 좌표계 CoM [l*3]
+    private final float totalMass;
+    private final int[] leafLinks;
+
+    /** 지지 말단 판정 높이 여유 (m) */
+    public float contactTolerance = 0.02f;
+
+    // 링크별 이전 상태 (유한 차분)
+    private final float[] prevPos;
+    private final float[] prevVel;
+    private int samples;
+
+    // 결과
+    private final float[] com = new float[3];
+    private final float[] comVelocity = new float[3];
+    private final float[] zmp = new float[2];
+    private final float[] supportCenter = new float[2];
+    private float supportHeight;
+
+    private MassProperties(KinematicTree tree, float[] mass, float[] localCom, int[] leafLinks) {
+        this.tree = tree;
+        this.mass = mass;
+        this.localCom = localCom;
+        this.leafLinks = leafLinks;
+        float total = 0f;
+        for (float m : mass) total += m;
+        this.totalMass = total;
+        this.prevPos = new float[mass.length * 3];
+        this.prevVel = new float[mass.length * 3];
+    }
+
+    /**
+     * 트리 링크의 inertial에서 질량 모델 구성 (질량이 없는 링크는 0으로 취급)
+     */
+    public static MassProperties compile(KinematicTree tree) {
+        int links = tree.getLinkCount();
+        float[] mass = new float[links];
+        float[] localCom = new float[links * 3];
+        List<Integer> leaves = new ArrayList<>();
+
+        for (int l = 0; l < links; l++) {
+            URDFLink link = tree.getLink(l);
+            URDFLink.Inertial inertial = link != null ? link.inertial : null;
+            if (inertial != null && inertial.mass != null && inertial.mass.value > 0) {
+                mass[l] = inertial.mass.value;
+                if (inertial.origin != null && inertial.origin.xyz != null) {
+                    localCom[l * 3] = inertial.origin.xyz.x;
+                    localCom[l * 3 + 1] = inertial.origin.xyz.y;
+                    localCom[l * 3 + 2] = inertial.origin.xyz.z;
+                }
+            }
+            if (l > 0 && tree.isLeafLink(l)) leaves.add(l);
+        }
+        if (leaves.isEmpty()) leaves.add(0);
+        return new MassProperties(tree, mass, localCom, leaves.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // ========== 계산 ==========
+
+    /**
+     * 이전 샘플 기록 삭제 (에피소드 리셋/순간 이동 후 - 다음 두 번의 update 동안 속도/가속도는 0)
+     */
+    public void reset() {
+        samples = 0;
+    }
+
+    /**
+     * 링크 변환(world, KinematicTree.STRIDE 간격)으로 CoM / CoM 속도 / ZMP 갱신
+     * @param dt 이전 update 이후 경과 시간 (초)
+     */
+    public void update(float[] world, float dt) {
+        // 지지면 (말단 링크 중 가장 낮은 원점)
+        float h = Float.POSITIVE_INFINITY;
+        for (int l : leafLinks) h = Math.min(h, world[l * KinematicTree.STRIDE + 14]);
+        float sx = 0f, sy = 0f;
+        int contacts = 0;
+        for (int l : leafLinks) {
+            int t = l * KinematicTree.STRIDE;
+            if (world[t + 14] <= h + contactTolerance) {
+                sx += world[t + 12];
+                sy += world[t + 13];
+                contacts++;
+            }
+        }
+        supportHeight = h;
+        supportCenter[0] = sx / contacts;
+        supportCenter[1] = sy / contacts;
+
+        boolean hasVel = samples >= 1 && dt > 0;
+        boolean hasAcc = samples >= 2 && dt > 0;
+        float invDt = dt > 0 ? 1f / dt : 0f;
+
+        float cx = 0f, cy = 0f, cz = 0f;
+        float vx = 0f, vy = 0f, vz = 0f;
+        float ax = 0f, ay = 0f, d = 0f;
+
+        for (int l = 0; l < mass.length; l++) {
+            float m = mass[l];
+            if (m == 0f) continue;
+            int t = l * KinematicTree.STRIDE;
+            int c = l * 3;
+            float lx = localCom[c], ly = localCom[c + 1], lz = localCom[c + 2];
+            float px = world[t] * lx + world[t + 4] * ly + world[t + 8] * lz + world[t + 12];
+            float py = world[t + 1] * lx + world[t + 5] * ly + world[t + 9] * lz + world[t + 13];
+            float pz = world[t + 2] * lx + world[t + 6] * ly + world[t + 10] * lz + world[t + 14];
+
+            float lvx = 0f, lvy = 0f, lvz = 0f;
+            float lax = 0f, lay = 0f, laz = 0f;
+            if (hasVel) {
+                lvx = (px - prevPos[c]) * invDt;
+                lvy = (py - prevPos[c + 1]) * invDt;
+                lvz = (pz - prevPos[c + 2]) * invDt;
+                if (hasAcc) {
+                    lax = (lvx - prevVel[c]) * invDt;
+                    lay = (lvy - prevVel[c + 1]) * invDt;
+                    laz = (lvz - prevVel[c + 2]) * invDt;
+                }
+            }
+            prevPos[c] = px; prevPos[c + 1] = py; prevPos[c + 2] = pz;
+            prevVel[c] = lvx; prevVel[c + 1] = lvy; prevVel[c + 2] = lvz;
+
+            cx += m * px; cy += m * py; cz += m * pz;
+            vx += m * lvx; vy += m * lvy; vz += m * lvz;
+
+            // ZMP (점질량): x = Σ m[(z̈+g)x - (z-h)ẍ] / Σ m(z̈+g), 지지면 높이 h 기준
+            float w = m * (laz + GRAVITY);
+            ax += px * w - m * (pz - h) * lax;
+            ay += py * w - m * (pz - h) * lay;
+            d += w;
+        }
+
+        if (totalMass > 0) {
+            float inv = 1f / totalMass;
+            com[0] = cx * inv; com[1] = cy * inv; com[2] = cz * inv;
+            comVelocity[0] = vx * inv; comVelocity[1] = vy * inv; comVelocity[2] = vz * inv;
+        }
+        if (d > 1e-6f) {
+            zmp[0] = ax / d;
+            zmp[1] = ay / d;
+        } else {
+            // 자유 낙하 등 수직 반력이 없으면 CoM 투영으로 대체
+            zmp[0] = com[0];
+            zmp[1] = com[1];
+        }
+        if (samples < 2) samples++;
+    }
+
+    // ========== 결과 (update() 이후 유효, 읽기 전용으로 사용) ==========
+
+    /** 전신 CoM [x, y, z] */
+    public float[] getCenterOfMass() { return com; }
+
+    /** 전신 CoM 속도 [x, y, z] (m/s) */
+    public float[] getCenterOfMassVelocity() { return comVelocity; }
+
+    /** 지지면 위 ZMP [x, y] */
+    public float[] getZmp() { return zmp; }
+
+    /** 지지 말단 xy 평균 [x, y] */
+    public float[] getSupportCenter() { return supportCenter; }
+
+    public float getSupportHeight() { return supportHeight; }
+
+    /** 지지면 기준 CoM 높이 */
+    public float getCenterOfMassHeight() { return com[2] - supportHeight; }
+
+    /** ZMP와 지지 중심의 수평 거리 */
+    public float getZmpOffset() {
+        float dx = zmp[0] - supportCenter[0];
+        float dy = zmp[1] - supportCenter[1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // ========== 상태 직렬화 (체크포인트) ==========
+
+    /** 유한 차분 기록 + 마지막 결과 (복원 직후 update 없이도 관측/속도가 이어짐) */
+    public int stateBytes() {
+        return 8 + prevPos.length * 8 + 11 * 4;
+    }
+
+    public void writeState(ByteBuffer buf) {
+        buf.putInt(mass.length);
+        buf.putInt(samples);
+        for (float v : prevPos) buf.putFloat(v);
+        for (float v : prevVel) buf.putFloat(v);
+        for (float v : com) buf.putFloat(v);
+        for (float v : comVelocity) buf.putFloat(v);
+        for (float v : zmp) buf.putFloat(v);
+        for (float v : supportCenter) buf.putFloat(v);
+        buf.putFloat(supportHeight);
+    }
+
+    public void readState(ByteBuffer buf) {
+        int links = buf.getInt();
+        if (links != mass.length) throw new IllegalStateException("Link count mismatch: " + links + " != " + mass.length);
+        samples = buf.getInt();
+        for (int i = 0; i < prevPos.length; i++) prevPos[i] = buf.getFloat();
+        for (int i = 0; i < prevVel.length; i++) prevVel[i] = buf.getFloat();
+        for (int i = 0; i < 3; i++) com[i] = buf.getFloat();
+        for (int i = 0; i < 3; i++) comVelocity[i] = buf.getFloat();
+        for (int i = 0; i < 2; i++) zmp[i] = buf.getFloat();
+        for (int i = 0; i < 2; i++) supportCenter[i] = buf.getFloat();
+        supportHeight = buf.getFloat();
+    }
+
+    public float getTotalMass() { return totalMass; }
+    public float getLinkMass(int link) { return mass[link]; }
+    public KinematicTree getTree() { return tree; }
+}
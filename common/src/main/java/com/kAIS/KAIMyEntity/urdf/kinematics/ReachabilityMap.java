@@ -0,0 +1,435 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 말단 도달 가능 영역 복셀 맵 - 오프라인 구축 후 O(1) 조회 (작업 배치, IK 초기값용)
+ *
+ * 구축 (build):
+ *  1. 루트 → 말단 경로의 움직이는 조인트(체인)를 관절 한계 안에서 균일 샘플링 (나머지 조인트 0)
+ *  2. 작업 단위(TASK_SAMPLES)로 나눠 ForkJoinPool에서 BatchForwardKinematics로 말단 위치 계산
+ *  3. 복셀별 적중 수 → 점수(0..255), 복셀 중심에 가장 가까운 샘플의 체인 관절값 = 초기값(seed)
+ *  4. seed는 작업별 난수열을 다시 돌려 해당 샘플만 복원 (전체 q를 메모리에 두지 않음)
+ *  작업 분할이 코어 수와 무관하므로 같은 설정이면 결과도 같음.
+ *
+ * 격자: 루트 링크 좌표계, 경로 조인트 오프셋 길이 합(+직동 한계)으로 잡은 정육면체.
+ * 저장: 점수는 복셀마다 1바이트, seed는 도달 가능한 복셀만 (복셀 순서로 압축).
+ *
+ * 파일 (KAIMyEntity/reach/{로봇}/{링크}.kreach): MAGIC | version | 출처 스탬프 | 링크 | 체인 조인트 | 격자 | 점수 | seed
+ */
+public final class ReachabilityMap {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGIC = 0x4B524D50; // "KRMP"
+    private static final int VERSION = 1;
+
+    private static final int TASK_SAMPLES = 16384;
+    private static final int BATCH = 256;
+    private static final int MAX_VOXELS = 1 << 24;
+
+    /**
+     * 구축 설정
+     */
+    public static class Settings {
+        public float voxelSize = 0.02f;   // m
+        public int samples = 1 << 20;
+        public long seed = 42L;
+    }
+
+    private final String linkName;
+    private final String[] chainNames;  // 체인 조인트 이름 (seed 순서)
+    private final int[] chainJoints;    // 체인 트리 조인트 인덱스 (이 트리 기준, 로드 시 이름으로 다시 매핑)
+    private final long sourceStamp;
+
+    // 격자
+    private final float voxelSize;
+    private final float originX, originY, originZ;   // 복셀 (0,0,0)의 최소 모서리
+    private final int nx, ny, nz;
+    private final byte[] scores;         // 0 = 도달 불가
+    private final int[] slots;           // 복셀 → seed 슬롯 (-1 = 없음)
+    private final float[] seeds;         // [slot * dof + c]
+    private final int reachable;
+
+    private ReachabilityMap(String linkName, String[] chainNames, int[] chainJoints, long sourceStamp,
+                            float voxelSize, float originX, float originY, float originZ,
+                            int nx, int ny, int nz, byte[] scores, float[] seeds) {
+        this.linkName = linkName;
+        this.chainNames = chainNames;
+        this.chainJoints = chainJoints;
+        this.sourceStamp = sourceStamp;
+        this.voxelSize = voxelSize;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.scores = scores;
+        this.seeds = seeds;
+
+        slots = new int[scores.length];
+        int slot = 0;
+        for (int v = 0; v < scores.length; v++) slots[v] = scores[v] != 0 ? slot++ : -1;
+        this.reachable = slot;
+    }
+
+    // ========== 구축 ==========
+
+    /**
+     * 캐시 파일이 같은 트리/설정으로 만들어졌으면 로드, 아니면 구축 후 저장
+     */
+    public static ReachabilityMap obtain(KinematicTree tree, String linkName, Settings settings,
+                                         Path cacheFile, ForkJoinPool pool) {
+        long stamp = stamp(tree, linkName, settings);
+        if (cacheFile != null && Files.exists(cacheFile)) {
+            ReachabilityMap cached = load(cacheFile, tree);
+            if (cached != null && cached.sourceStamp == stamp) {
+                logger.info("Reachability: using cached {}", cacheFile.getFileName());
+                return cached;
+            }
+        }
+        ReachabilityMap map = build(tree, linkName, settings, pool);
+        if (map != null && cacheFile != null) {
+            try {
+                map.save(cacheFile);
+            } catch (IOException e) {
+                logger.warn("Reachability: cache not written: {}", e.getMessage());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 말단 링크 하나에 대한 맵 구축. 링크가 없으면 null
+     */
+    public static ReachabilityMap build(KinematicTree tree, String linkName, Settings settings, ForkJoinPool pool) {
+        int link = tree.indexOfLink(linkName);
+        if (link <= 0) return null;
+
+        // 체인 (루트 → 말단 경로의 움직이는 조인트)과 도달 반경
+        List<Integer> chain = new ArrayList<>();
+        float reach = 0f;
+        float[] origin = new float[KinematicTree.STRIDE];
+        for (int j = KinematicTree.getParentJoint(link); j >= 0; j = KinematicTree.getParentJoint(tree.getParentLink(j))) {
+            tree.getOrigin(j, origin, 0);
+            reach += (float) Math.sqrt(origin[12] * origin[12] + origin[13] * origin[13] + origin[14] * origin[14]);
+            if (!tree.isMovable(j)) continue;
+            chain.add(0, j);
+            if (tree.getJointType(j) == KinematicTree.TYPE_PRISMATIC) {
+                reach += Math.max(Math.abs(lowerLimit(tree, j)), Math.abs(upperLimit(tree, j)));
+            }
+        }
+        int[] chainJoints = chain.stream().mapToInt(Integer::intValue).toArray();
+        int dof = chainJoints.length;
+        float[] lower = new float[dof];
+        float[] range = new float[dof];
+        String[] chainNames = new String[dof];
+        for (int c = 0; c < dof; c++) {
+            lower[c] = lowerLimit(tree, chainJoints[c]);
+            range[c] = upperLimit(tree, chainJoints[c]) - lower[c];
+            chainNames[c] = tree.getJointName(chainJoints[c]);
+        }
+
+        // 격자
+        float voxel = settings.voxelSize;
+        int n = (int) Math.ceil(2f * reach / voxel) + 1;
+        if ((long) n * n * n > MAX_VOXELS) {
+            throw new IllegalArgumentException("Reachability grid too large: " + n + "^3 voxels (reach "
+                    + reach + " m, voxel " + voxel + " m)");
+        }
+        float min = -n * voxel * 0.5f;
+        int voxels = n * n * n;
+
+        // 1단계: 작업별 말단 위치 (샘플마다 복셀 인덱스 + 복셀 중심까지 거리²)
+        long start = System.nanoTime();
+        int samples = Math.max(1, settings.samples);
+        int tasks = (samples + TASK_SAMPLES - 1) / TASK_SAMPLES;
+        int[] sampleVoxel = new int[samples];
+        float[] sampleDist = new float[samples];
+        BatchForwardKinematics batch = new BatchForwardKinematics(tree, pool);
+
+        List<Callable<Void>> positionJobs = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int task = t;
+            positionJobs.add(() -> {
+                int from = task * TASK_SAMPLES;
+                int to = Math.min(samples, from + TASK_SAMPLES);
+                SplittableRandom random = taskRandom(settings.seed, task);
+                int joints = tree.getJointCount();
+                int links = tree.getLinkCount();
+                float[] q = new float[BATCH * joints];
+                float[] out = batch.newOutput(BATCH);
+                for (int s = from; s < to; s += BATCH) {
+                    int count = Math.min(BATCH, to - s);
+                    for (int p = 0; p < count; p++) {
+                        for (int c = 0; c < dof; c++) {
+                            q[p * joints + chainJoints[c]] = lower[c] + (float) random.nextDouble() * range[c];
+                        }
+                    }
+                    batch.computeRange(q, 0, count, out);
+                    for (int p = 0; p < count; p++) {
+                        int o = (p * links + link) * BatchForwardKinematics.STRIDE + 9;
+                        float fx = (out[o] - min) / voxel;
+                        float fy = (out[o + 1] - min) / voxel;
+                        float fz = (out[o + 2] - min) / voxel;
+                        int ix = (int) Math.floor(fx), iy = (int) Math.floor(fy), iz = (int) Math.floor(fz);
+                        if (ix < 0 || iy < 0 || iz < 0 || ix >= n || iy >= n || iz >= n) {
+                            sampleVoxel[s + p] = -1;
+                            continue;
+                        }
+                        float dx = fx - ix - 0.5f, dy = fy - iy - 0.5f, dz = fz - iz - 0.5f;
+                        sampleVoxel[s + p] = (iz * n + iy) * n + ix;
+                        sampleDist[s + p] = dx * dx + dy * dy + dz * dz;
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(pool, positionJobs);
+
+        // 2단계: 복셀별 적중 수 / 최적 샘플 (순차, 샘플 순서 → 결정적)
+        int[] counts = new int[voxels];
+        int[] best = new int[voxels];
+        Arrays.fill(best, -1);
+        int maxCount = 0;
+        for (int s = 0; s < samples; s++) {
+            int v = sampleVoxel[s];
+            if (v < 0) continue;
+            maxCount = Math.max(maxCount, ++counts[v]);
+            if (best[v] < 0 || sampleDist[s] < sampleDist[best[v]]) best[v] = s;
+        }
+        byte[] scores = new byte[voxels];
+        int reachable = 0;
+        for (int v = 0; v < voxels; v++) {
+            if (counts[v] == 0) continue;
+            scores[v] = (byte) Math.max(1, Math.round(255f * counts[v] / maxCount));
+            reachable++;
+        }
+
+        // 3단계: 최적 샘플의 체인 관절값 복원 (작업별 난수열 재생)
+        int[] sampleSlot = new int[samples];
+        Arrays.fill(sampleSlot, -1);
+        int slot = 0;
+        for (int v = 0; v < voxels; v++) if (best[v] >= 0) sampleSlot[best[v]] = slot++;
+        float[] seeds = new float[reachable * dof];
+
+        List<Callable<Void>> seedJobs = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int task = t;
+            seedJobs.add(() -> {
+                int from = task * TASK_SAMPLES;
+                int to = Math.min(samples, from + TASK_SAMPLES);
+                SplittableRandom random = taskRandom(settings.seed, task);
+                for (int s = from; s < to; s++) {
+                    int sl = sampleSlot[s];
+                    for (int c = 0; c < dof; c++) {
+                        float v = lower[c] + (float) random.nextDouble() * range[c];
+                        if (sl >= 0) seeds[sl * dof + c] = v;
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(pool, seedJobs);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Reachability '{}': {} dof, {} samples, {}^3 voxels ({} reachable), {} tasks on {} threads, {}s",
+                linkName, dof, samples, n, reachable, tasks, pool.getParallelism(), String.format("%.2f", seconds));
+
+        return new ReachabilityMap(linkName, chainNames, chainJoints, stamp(tree, linkName, settings),
+                voxel, min, min, min, n, n, n, scores, seeds);
+    }
+
+    private static SplittableRandom taskRandom(long seed, int task) {
+        return new SplittableRandom(seed + task * 0x9E3779B97F4A7C15L);
+    }
+
+    private static void runAll(ForkJoinPool pool, List<Callable<Void>> jobs) {
+        try {
+            for (Future<Void> f : pool.invokeAll(jobs)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reachability build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reachability build failed", e.getCause());
+        }
+    }
+
+    /** 샘플링용 관절 범위 (한계가 없으면 회전 ±π, 직동 0) */
+    static float lowerLimit(KinematicTree tree, int j) {
+        URDFJoint joint = tree.getJoint(j);
+        if (joint.type != URDFJoint.JointType.CONTINUOUS && joint.limit != null && joint.limit.hasLimits()) {
+            return joint.limit.lower;
+        }
+        return tree.getJointType(j) == KinematicTree.TYPE_PRISMATIC ? 0f : (float) -Math.PI;
+    }
+
+    static float upperLimit(KinematicTree tree, int j) {
+        URDFJoint joint = tree.getJoint(j);
+        if (joint.type != URDFJoint.JointType.CONTINUOUS && joint.limit != null && joint.limit.hasLimits()) {
+            return joint.limit.upper;
+        }
+        return tree.getJointType(j) == KinematicTree.TYPE_PRISMATIC ? 0f : (float) Math.PI;
+    }
+
+    /**
+     * 출처 스탬프 (경로 조인트 구조/한계 + 설정이 같으면 같은 값)
+     */
+    private static long stamp(KinematicTree tree, String linkName, Settings settings) {
+        long stamp = VERSION;
+        stamp = 31 * stamp + linkName.hashCode();
+        int link = tree.indexOfLink(linkName);
+        float[] buf = new float[KinematicTree.STRIDE];
+        for (int j = link > 0 ? KinematicTree.getParentJoint(link) : -1; j >= 0;
+             j = KinematicTree.getParentJoint(tree.getParentLink(j))) {
+            stamp = 31 * stamp + tree.getJointName(j).hashCode();
+            stamp = 31 * stamp + tree.getJointType(j);
+            tree.getOrigin(j, buf, 0);
+            for (int i = 0; i < 15; i++) stamp = 31 * stamp + Float.floatToIntBits(buf[i]);
+            tree.getAxis(j, buf, 0);
+            for (int i = 0; i < 3; i++) stamp = 31 * stamp + Float.floatToIntBits(buf[i]);
+            stamp = 31 * stamp + Float.floatToIntBits(lowerLimit(tree, j));
+            stamp = 31 * stamp + Float.floatToIntBits(upperLimit(tree, j));
+        }
+        stamp = 31 * stamp + Float.floatToIntBits(settings.voxelSize);
+        stamp = 31 * stamp + settings.samples;
+        stamp = 31 * stamp + settings.seed;
+        return stamp;
+    }
+
+    // ========== 조회 (O(1)) ==========
+
+    /**
+     * 점 → 복셀 인덱스 (루트 링크 좌표계). 격자 밖이면 -1
+     */
+    public int voxelIndex(float x, float y, float z) {
+        int ix = (int) Math.floor((x - originX) / voxelSize);
+        int iy = (int) Math.floor((y - originY) / voxelSize);
+        int iz = (int) Math.floor((z - originZ) / voxelSize);
+        if (ix < 0 || iy < 0 || iz < 0 || ix >= nx || iy >= ny || iz >= nz) return -1;
+        return (iz * ny + iy) * nx + ix;
+    }
+
+    /** 도달 점수 [0, 1] (0 = 샘플이 한 번도 닿지 않음) */
+    public float getScore(float x, float y, float z) {
+        int v = voxelIndex(x, y, z);
+        return v >= 0 ? (scores[v] & 0xFF) / 255f : 0f;
+    }
+
+    public boolean isReachable(float x, float y, float z) {
+        int v = voxelIndex(x, y, z);
+        return v >= 0 && scores[v] != 0;
+    }
+
+    /**
+     * 해당 복셀의 최적 초기값을 q(트리 조인트 순서)의 체인 조인트에 기록 (나머지는 그대로)
+     * @return 도달 불가/격자 밖이면 false (q 변경 없음)
+     */
+    public boolean getSeed(float x, float y, float z, float[] q) {
+        int v = voxelIndex(x, y, z);
+        int slot = v >= 0 ? slots[v] : -1;
+        if (slot < 0) return false;
+        int dof = chainJoints.length;
+        for (int c = 0; c < dof; c++) {
+            if (chainJoints[c] >= 0) q[chainJoints[c]] = seeds[slot * dof + c];
+        }
+        return true;
+    }
+
+    public String getLinkName() { return linkName; }
+    public String[] getChainJointNames() { return chainNames.clone(); }
+    public float getVoxelSize() { return voxelSize; }
+    public int getVoxelCount() { return scores.length; }
+    public int getReachableVoxelCount() { return reachable; }
+
+    // ========== 저장/로드 ==========
+
+    public void save(Path file) throws IOException {
+        int size = 4 + 4 + 8 + stringBytes(linkName) + 4;
+        for (String name : chainNames) size += stringBytes(name);
+        size += 4 * 4 + 3 * 4 + 4 + scores.length + 4 + seeds.length * 4;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(sourceStamp);
+        putString(buf, linkName);
+        buf.putInt(chainNames.length);
+        for (String name : chainNames) putString(buf, name);
+        buf.putFloat(voxelSize).putFloat(originX).putFloat(originY).putFloat(originZ);
+        buf.putInt(nx).putInt(ny).putInt(nz);
+        buf.putInt(scores.length).put(scores);
+        buf.putInt(seeds.length);
+        for (float f : seeds) buf.putFloat(f);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, buf.array());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 읽기 실패/형식 불일치 시 null. 체인 조인트는 이름으로 tree에 다시 매핑 (없는 조인트는 seed에서 건너뜀)
+     */
+    public static ReachabilityMap load(Path file, KinematicTree tree) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long stamp = buf.getLong();
+            String link = getString(buf);
+            int dof = buf.getInt();
+            String[] names = new String[dof];
+            int[] joints = new int[dof];
+            for (int c = 0; c < dof; c++) {
+                names[c] = getString(buf);
+                joints[c] = tree.indexOfJoint(names[c]);
+            }
+            float voxel = buf.getFloat();
+            float ox = buf.getFloat(), oy = buf.getFloat(), oz = buf.getFloat();
+            int nx = buf.getInt(), ny = buf.getInt(), nz = buf.getInt();
+            byte[] scores = new byte[buf.getInt()];
+            if ((long) nx * ny * nz != scores.length) return null;
+            buf.get(scores);
+            float[] seeds = new float[buf.getInt()];
+            for (int i = 0; i < seeds.length; i++) seeds[i] = buf.getFloat();
+
+            int reachable = 0;
+            for (byte s : scores) if (s != 0) reachable++;
+            if (seeds.length != reachable * dof) return null;
+            return new ReachabilityMap(link, names, joints, stamp, voxel, ox, oy, oz, nx, ny, nz, scores, seeds);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Reachability: failed to read {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static int stringBytes(String s) {
+        return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(b.length).put(b);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
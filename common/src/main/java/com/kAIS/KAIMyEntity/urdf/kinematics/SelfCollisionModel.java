@@ -0,0 +1,460 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.STLLoader;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 자기 충돌 검사 - 링크별 캡슐 + 미리 계산한 허용 충돌 행렬(ACM)
+ *
+ * 캡슐 맞춤 (링크 좌표계):
+ *  - 점 집합: visual STL 메시 정점 (없으면 collision → visual 기본 도형의 꼭짓점/테두리 점), origin 변환 적용
+ *  - 주축 = 공분산 최대 고유벡터 (거듭제곱법), 선분 = 주축 투영 범위에서 반지름만큼 안쪽
+ *  - 반지름 = 모든 점을 포함하는 선분까지 최대 거리 (보수적)
+ *
+ * ACM (build 시 1회):
+ *  - 인접 링크 쌍(부모-자식)은 제외
+ *  - 무작위 자세를 작업 단위로 나눠 ForkJoinPool에서 샘플링, 쌍별 충돌 횟수 집계
+ *  - 한 번도 안 부딪힌 쌍 / 항상 부딪힌 쌍(메시가 원래 겹침)은 제외 → 남은 쌍만 매 스텝 검사
+ *
+ * evaluate(world): 캡슐 끝점 변환 후 남은 쌍의 선분-선분 거리로 침투 깊이 합계 (할당 없음).
+ * 인스턴스는 스크래치를 가지므로 스레드당 하나 (copy()로 복제).
+ */
+public final class SelfCollisionModel {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int TASK_SAMPLES = 1024;
+    private static final int CAPSULE = 7;   // ax, ay, az, bx, by, bz, r
+
+    /**
+     * ACM 샘플링 설정
+     */
+    public static class Settings {
+        public int samples = 20000;
+        public long seed = 7L;
+        public float padding = 0f;   // 캡슐 반지름 여유 (m)
+    }
+
+    private final KinematicTree tree;
+    private final int[] capsuleLinks;   // 캡슐별 트리 링크 인덱스
+    private final float[] capsules;     // 링크 좌표계 [c * 7]
+    private final int[] pairA;          // 검사할 캡슐 쌍
+    private final int[] pairB;
+    private final int candidatePairs;   // 인접 제외 후 (ACM 적용 전) 쌍 수
+
+    // 스크래치
+    private final float[] worldSegments;   // [c * 6]
+    private int lastCollisions;
+
+    private SelfCollisionModel(KinematicTree tree, int[] capsuleLinks, float[] capsules,
+                               int[] pairA, int[] pairB, int candidatePairs) {
+        this.tree = tree;
+        this.capsuleLinks = capsuleLinks;
+        this.capsules = capsules;
+        this.pairA = pairA;
+        this.pairB = pairB;
+        this.candidatePairs = candidatePairs;
+        this.worldSegments = new float[capsuleLinks.length * 6];
+    }
+
+    /** 같은 캡슐/ACM을 공유하는 복제본 (스레드별 스크래치) */
+    public SelfCollisionModel copy() {
+        return new SelfCollisionModel(tree, capsuleLinks, capsules, pairA, pairB, candidatePairs);
+    }
+
+    // ========== 구축 ==========
+
+    /**
+     * 캡슐 맞춤 + ACM 샘플링
+     * @param meshes 링크 → visual STL 메시 (없으면 null, 기본 도형으로 대체)
+     */
+    public static SelfCollisionModel build(KinematicTree tree, Function<URDFLink, STLLoader.STLMesh> meshes,
+                                           Settings settings, ForkJoinPool pool) {
+        // 1. 캡슐
+        List<Integer> links = new ArrayList<>();
+        List<float[]> fitted = new ArrayList<>();
+        for (int l = 0; l < tree.getLinkCount(); l++) {
+            URDFLink link = tree.getLink(l);
+            if (link == null) continue;
+            float[] capsule = fitCapsule(linkPoints(link, meshes.apply(link)));
+            if (capsule == null) continue;
+            capsule[6] += settings.padding;
+            links.add(l);
+            fitted.add(capsule);
+        }
+        int count = links.size();
+        int[] capsuleLinks = links.stream().mapToInt(Integer::intValue).toArray();
+        float[] capsules = new float[count * CAPSULE];
+        for (int c = 0; c < count; c++) System.arraycopy(fitted.get(c), 0, capsules, c * CAPSULE, CAPSULE);
+
+        // 2. 후보 쌍 (인접 링크 제외)
+        List<int[]> candidates = new ArrayList<>();
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                if (!adjacent(tree, capsuleLinks[a], capsuleLinks[b])) candidates.add(new int[]{a, b});
+            }
+        }
+        int[] candA = new int[candidates.size()];
+        int[] candB = new int[candidates.size()];
+        for (int p = 0; p < candA.length; p++) {
+            candA[p] = candidates.get(p)[0];
+            candB[p] = candidates.get(p)[1];
+        }
+
+        // 3. ACM: 무작위 자세에서 쌍별 충돌 횟수
+        long start = System.nanoTime();
+        int samples = Math.max(1, settings.samples);
+        int tasks = (samples + TASK_SAMPLES - 1) / TASK_SAMPLES;
+        SelfCollisionModel all = new SelfCollisionModel(tree, capsuleLinks, capsules, candA, candB, candA.length);
+
+        int joints = tree.getJointCount();
+        float[] lower = new float[joints];
+        float[] range = new float[joints];
+        for (int j = 0; j < joints; j++) {
+            if (!tree.isMovable(j)) continue;
+            lower[j] = ReachabilityMap.lowerLimit(tree, j);
+            range[j] = ReachabilityMap.upperLimit(tree, j) - lower[j];
+        }
+
+        List<Callable<int[]>> jobs = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int task = t;
+            jobs.add(() -> {
+                int from = task * TASK_SAMPLES;
+                int to = Math.min(samples, from + TASK_SAMPLES);
+                SplittableRandom random = new SplittableRandom(settings.seed + task * 0x9E3779B97F4A7C15L);
+                SelfCollisionModel local = all.copy();
+                float[] q = new float[joints];
+                float[] world = tree.newTransformBuffer();
+                int[] hits = new int[candA.length];
+                for (int s = from; s < to; s++) {
+                    for (int j = 0; j < joints; j++) {
+                        if (range[j] != 0f) q[j] = lower[j] + (float) random.nextDouble() * range[j];
+                    }
+                    tree.forward(q, world);
+                    local.updateSegments(world);
+                    for (int p = 0; p < hits.length; p++) {
+                        if (local.pairPenetration(candA[p], candB[p]) > 0f) hits[p]++;
+                    }
+                }
+                return hits;
+            });
+        }
+        int[] hits = new int[candA.length];
+        try {
+            for (Future<int[]> f : pool.invokeAll(jobs)) {
+                int[] part = f.get();
+                for (int p = 0; p < hits.length; p++) hits[p] += part[p];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ACM sampling interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ACM sampling failed", e.getCause());
+        }
+
+        List<Integer> enabled = new ArrayList<>();
+        int never = 0, always = 0;
+        for (int p = 0; p < hits.length; p++) {
+            if (hits[p] == 0) never++;
+            else if (hits[p] == samples) always++;
+            else enabled.add(p);
+        }
+        int[] pairA = new int[enabled.size()];
+        int[] pairB = new int[enabled.size()];
+        for (int i = 0; i < pairA.length; i++) {
+            pairA[i] = candA[enabled.get(i)];
+            pairB[i] = candB[enabled.get(i)];
+        }
+
+        logger.info("Self-collision: {} capsules, {} candidate pairs -> {} checked ({} never, {} always), {} samples, {}s",
+                count, candA.length, pairA.length, never, always, samples,
+                String.format("%.2f", (System.nanoTime() - start) / 1e9));
+        return new SelfCollisionModel(tree, capsuleLinks, capsules, pairA, pairB, candA.length);
+    }
+
+    private static boolean adjacent(KinematicTree tree, int a, int b) {
+        int lo = Math.min(a, b), hi = Math.max(a, b);
+        return tree.getParentLink(KinematicTree.getParentJoint(hi)) == lo;
+    }
+
+    /**
+     * 링크 좌표계 점 집합 [x, y, z, ...] (메시 > collision 도형 > visual 도형). 없으면 null
+     */
+    private static float[] linkPoints(URDFLink link, STLLoader.STLMesh mesh) {
+        if (mesh != null && link.visual != null && !mesh.triangles.isEmpty()) {
+            float[] pts = new float[mesh.triangles.size() * 9];
+            int i = 0;
+            for (STLLoader.Triangle tri : mesh.triangles) {
+                for (Vector3f v : tri.vertices) {
+                    pts[i++] = v.x;
+                    pts[i++] = v.y;
+                    pts[i++] = v.z;
+                }
+            }
+            return transform(pts, link.visual.origin);
+        }
+        if (link.collision != null && link.collision.geometry != null) {
+            float[] pts = primitivePoints(link.collision.geometry);
+            if (pts != null) return transform(pts, link.collision.origin);
+        }
+        if (link.visual != null && link.visual.geometry != null) {
+            float[] pts = primitivePoints(link.visual.geometry);
+            if (pts != null) return transform(pts, link.visual.origin);
+        }
+        return null;
+    }
+
+    private static float[] primitivePoints(URDFLink.Geometry g) {
+        if (g.type == null) return null;
+        switch (g.type) {
+            case BOX -> {
+                if (g.boxSize == null) return null;
+                float hx = g.boxSize.x * 0.5f, hy = g.boxSize.y * 0.5f, hz = g.boxSize.z * 0.5f;
+                float[] pts = new float[24];
+                for (int k = 0; k < 8; k++) {
+                    pts[k * 3] = (k & 1) != 0 ? hx : -hx;
+                    pts[k * 3 + 1] = (k & 2) != 0 ? hy : -hy;
+                    pts[k * 3 + 2] = (k & 4) != 0 ? hz : -hz;
+                }
+                return pts;
+            }
+            case CYLINDER -> {
+                // 축 = z, 양 끝 원 테두리
+                int ring = 16;
+                float r = g.cylinderRadius, h = g.cylinderLength * 0.5f;
+                float[] pts = new float[ring * 2 * 3];
+                for (int k = 0; k < ring; k++) {
+                    float a = (float) (2 * Math.PI * k / ring);
+                    for (int e = 0; e < 2; e++) {
+                        int o = (k * 2 + e) * 3;
+                        pts[o] = r * (float) Math.cos(a);
+                        pts[o + 1] = r * (float) Math.sin(a);
+                        pts[o + 2] = e == 0 ? -h : h;
+                    }
+                }
+                return pts;
+            }
+            case SPHERE -> {
+                float r = g.sphereRadius;
+                return new float[]{r, 0, 0, -r, 0, 0, 0, r, 0, 0, -r, 0, 0, 0, r, 0, 0, -r};
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static float[] transform(float[] pts, URDFLink.Origin origin) {
+        if (origin == null || origin.xyz == null) return pts;
+        float[] m = new float[KinematicTree.STRIDE];
+        Vector3f rpy = origin.rpy != null ? origin.rpy : new Vector3f();
+        KinematicTree.originMatrix(origin.xyz.x, origin.xyz.y, origin.xyz.z, rpy.x, rpy.y, rpy.z, m, 0);
+        for (int i = 0; i < pts.length; i += 3) {
+            float x = pts[i], y = pts[i + 1], z = pts[i + 2];
+            pts[i] = m[0] * x + m[4] * y + m[8] * z + m[12];
+            pts[i + 1] = m[1] * x + m[5] * y + m[9] * z + m[13];
+            pts[i + 2] = m[2] * x + m[6] * y + m[10] * z + m[14];
+        }
+        return pts;
+    }
+
+    /**
+     * 점 집합을 감싸는 캡슐 [ax, ay, az, bx, by, bz, r]. 점이 없으면 null
+     */
+    static float[] fitCapsule(float[] pts) {
+        if (pts == null || pts.length < 3) return null;
+        int n = pts.length / 3;
+
+        double mx = 0, my = 0, mz = 0;
+        for (int i = 0; i < n; i++) {
+            mx += pts[i * 3];
+            my += pts[i * 3 + 1];
+            mz += pts[i * 3 + 2];
+        }
+        mx /= n; my /= n; mz /= n;
+
+        double cxx = 0, cxy = 0, cxz = 0, cyy = 0, cyz = 0, czz = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = pts[i * 3] - mx, dy = pts[i * 3 + 1] - my, dz = pts[i * 3 + 2] - mz;
+            cxx += dx * dx; cxy += dx * dy; cxz += dx * dz;
+            cyy += dy * dy; cyz += dy * dz; czz += dz * dz;
+        }
+
+        // 주축: 거듭제곱법 (공분산 열 중 가장 긴 것에서 시작)
+        double lx = cxx * cxx + cxy * cxy + cxz * cxz;
+        double ly = cxy * cxy + cyy * cyy + cyz * cyz;
+        double lz = cxz * cxz + cyz * cyz + czz * czz;
+        double ux = cxx, uy = cxy, uz = cxz;
+        if (ly >= lx && ly >= lz) { ux = cxy; uy = cyy; uz = cyz; }
+        else if (lz >= lx && lz >= ly) { ux = cxz; uy = cyz; uz = czz; }
+        double len = Math.sqrt(ux * ux + uy * uy + uz * uz);
+        if (len < 1e-12) { ux = 0; uy = 0; uz = 1; len = 1; }
+        ux /= len; uy /= len; uz /= len;
+        for (int it = 0; it < 32; it++) {
+            double vx = cxx * ux + cxy * uy + cxz * uz;
+            double vy = cxy * ux + cyy * uy + cyz * uz;
+            double vz = cxz * ux + cyz * uy + czz * uz;
+            double vl = Math.sqrt(vx * vx + vy * vy + vz * vz);
+            if (vl < 1e-12) break;
+            ux = vx / vl; uy = vy / vl; uz = vz / vl;
+        }
+
+        // 주축 투영 범위 + 축에서의 최대 거리
+        double tMin = Double.POSITIVE_INFINITY, tMax = Double.NEGATIVE_INFINITY, perp = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = pts[i * 3] - mx, dy = pts[i * 3 + 1] - my, dz = pts[i * 3 + 2] - mz;
+            double t = dx * ux + dy * uy + dz * uz;
+            tMin = Math.min(tMin, t);
+            tMax = Math.max(tMax, t);
+            double px = dx - t * ux, py = dy - t * uy, pz = dz - t * uz;
+            perp = Math.max(perp, px * px + py * py + pz * pz);
+        }
+        double r0 = Math.sqrt(perp);
+        double t0 = tMin + r0, t1 = tMax - r0;
+        if (t0 > t1) t0 = t1 = (tMin + tMax) * 0.5;
+
+        float[] capsule = {
+                (float) (mx + ux * t0), (float) (my + uy * t0), (float) (mz + uz * t0),
+                (float) (mx + ux * t1), (float) (my + uy * t1), (float) (mz + uz * t1), 0f
+        };
+        // 반지름 = 선분까지 최대 거리 (모든 점 포함)
+        float r2 = 0f;
+        for (int i = 0; i < n; i++) {
+            r2 = Math.max(r2, pointSegmentDistanceSq(pts[i * 3], pts[i * 3 + 1], pts[i * 3 + 2], capsule, 0));
+        }
+        capsule[6] = (float) Math.sqrt(r2);
+        return capsule;
+    }
+
+    private static float pointSegmentDistanceSq(float px, float py, float pz, float[] s, int o) {
+        float dx = s[o + 3] - s[o], dy = s[o + 4] - s[o + 1], dz = s[o + 5] - s[o + 2];
+        float len2 = dx * dx + dy * dy + dz * dz;
+        float t = len2 > 0 ? ((px - s[o]) * dx + (py - s[o + 1]) * dy + (pz - s[o + 2]) * dz) / len2 : 0f;
+        t = Math.max(0f, Math.min(1f, t));
+        float ex = s[o] + dx * t - px, ey = s[o + 1] + dy * t - py, ez = s[o + 2] + dz * t - pz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+
+    // ========== 검사 ==========
+
+    /**
+     * 자세(링크 변환, KinematicTree.STRIDE 간격)의 침투 깊이 합계 (m, 0 = 충돌 없음)
+     */
+    public float evaluate(float[] world) {
+        updateSegments(world);
+        float total = 0f;
+        int collisions = 0;
+        for (int p = 0; p < pairA.length; p++) {
+            float depth = pairPenetration(pairA[p], pairB[p]);
+            if (depth > 0f) {
+                total += depth;
+                collisions++;
+            }
+        }
+        lastCollisions = collisions;
+        return total;
+    }
+
+    /** 충돌 여부만 (첫 충돌에서 중단) */
+    public boolean isColliding(float[] world) {
+        updateSegments(world);
+        for (int p = 0; p < pairA.length; p++) {
+            if (pairPenetration(pairA[p], pairB[p]) > 0f) return true;
+        }
+        return false;
+    }
+
+    private void updateSegments(float[] world) {
+        for (int c = 0; c < capsuleLinks.length; c++) {
+            int t = capsuleLinks[c] * KinematicTree.STRIDE;
+            int s = c * CAPSULE;
+            int o = c * 6;
+            for (int e = 0; e < 2; e++) {
+                float x = capsules[s + e * 3], y = capsules[s + e * 3 + 1], z = capsules[s + e * 3 + 2];
+                worldSegments[o + e * 3] = world[t] * x + world[t + 4] * y + world[t + 8] * z + world[t + 12];
+                worldSegments[o + e * 3 + 1] = world[t + 1] * x + world[t + 5] * y + world[t + 9] * z + world[t + 13];
+                worldSegments[o + e * 3 + 2] = world[t + 2] * x + world[t + 6] * y + world[t + 10] * z + world[t + 14];
+            }
+        }
+    }
+
+    /** 캡슐 a, b 침투 깊이 (반지름 합 - 선분 거리, 겹치지 않으면 0 이하) */
+    private float pairPenetration(int a, int b) {
+        float ra = capsules[a * CAPSULE + 6], rb = capsules[b * CAPSULE + 6];
+        return ra + rb - (float) Math.sqrt(segmentDistanceSq(worldSegments, a * 6, b * 6));
+    }
+
+    /**
+     * 선분-선분 최근접 거리² (Ericson, Real-Time Collision Detection 5.1.9)
+     */
+    private static float segmentDistanceSq(float[] s, int p, int q) {
+        float d1x = s[p + 3] - s[p], d1y = s[p + 4] - s[p + 1], d1z = s[p + 5] - s[p + 2];
+        float d2x = s[q + 3] - s[q], d2y = s[q + 4] - s[q + 1], d2z = s[q + 5] - s[q + 2];
+        float rx = s[p] - s[q], ry = s[p + 1] - s[q + 1], rz = s[p + 2] - s[q + 2];
+        float a = d1x * d1x + d1y * d1y + d1z * d1z;
+        float e = d2x * d2x + d2y * d2y + d2z * d2z;
+        float f = d2x * rx + d2y * ry + d2z * rz;
+        float sc, tc;
+        if (a <= 1e-12f && e <= 1e-12f) {
+            sc = 0f;
+            tc = 0f;
+        } else if (a <= 1e-12f) {
+            sc = 0f;
+            tc = clamp01(f / e);
+        } else {
+            float c = d1x * rx + d1y * ry + d1z * rz;
+            if (e <= 1e-12f) {
+                tc = 0f;
+                sc = clamp01(-c / a);
+            } else {
+                float b = d1x * d2x + d1y * d2y + d1z * d2z;
+                float denom = a * e - b * b;
+                sc = denom > 1e-12f ? clamp01((b * f - c * e) / denom) : 0f;
+                tc = (b * sc + f) / e;
+                if (tc < 0f) {
+                    tc = 0f;
+                    sc = clamp01(-c / a);
+                } else if (tc > 1f) {
+                    tc = 1f;
+                    sc = clamp01((b - c) / a);
+                }
+            }
+        }
+        float dx = rx + d1x * sc - d2x * tc;
+        float dy = ry + d1y * sc - d2y * tc;
+        float dz = rz + d1z * sc - d2z * tc;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static float clamp01(float v) {
+        return v < 0f ? 0f : (v > 1f ? 1f : v);
+    }
+
+    // ========== 조회 ==========
+
+    /** 마지막 evaluate()에서 충돌한 쌍 수 */
+    public int getLastCollisionCount() { return lastCollisions; }
+    public int getCapsuleCount() { return capsuleLinks.length; }
+    public int getCheckedPairCount() { return pairA.length; }
+    public int getCandidatePairCount() { return candidatePairs; }
+    public int getCapsuleLink(int c) { return capsuleLinks[c]; }
+
+    /** 캡슐 c (링크 좌표계) → out[o..o+7) = ax, ay, az, bx, by, bz, r */
+    public void getCapsule(int c, float[] out, int o) {
+        System.arraycopy(capsules, c * CAPSULE, out, o, CAPSULE);
+    }
+
+    public KinematicTree getTree() { return tree; }
+}
@@ -0,0 +1,74 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+/**
+ * 고정 영역 복셀 점유 격자 (비트 배열, 1 비트 = 1 블록)
+ *
+ * - capture(): 다른 VoxelOccupancy(예: BlockCollisionManager.occupancy(level))를 한 번 훑어 복사
+ *   → 이후 조회는 월드/청크 접근 없이 배열 인덱스 1회 (학습 워커 스레드에서 안전)
+ * - 격자 밖: y가 격자 아래면 고체(바닥이 끝없이 이어짐), 그 외는 빈 공간
+ *
+ * 읽기는 여러 스레드에서 동시에 가능 (set()은 학습 전 구성 단계에서만).
+ */
+public final class VoxelGrid implements VoxelOccupancy {
+    private final int minX, minY, minZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final long[] bits;
+
+    public VoxelGrid(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive: " + sizeX + "x" + sizeY + "x" + sizeZ);
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        bits = new long[(int) (((long) sizeX * sizeY * sizeZ + 63) >>> 6)];
+    }
+
+    /**
+     * source의 [min, min + size) 영역을 복사
+     */
+    public static VoxelGrid capture(VoxelOccupancy source, int minX, int minY, int minZ,
+                                    int sizeX, int sizeY, int sizeZ) {
+        VoxelGrid grid = new VoxelGrid(minX, minY, minZ, sizeX, sizeY, sizeZ);
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    if (source.isSolid(minX + x, minY + y, minZ + z)) grid.setLocal(x, y, z);
+                }
+            }
+        }
+        return grid;
+    }
+
+    @Override
+    public boolean isSolid(int x, int y, int z) {
+        int lx = x - minX, ly = y - minY, lz = z - minZ;
+        if (ly < 0) return true;
+        if (lx < 0 || lx >= sizeX || ly >= sizeY || lz < 0 || lz >= sizeZ) return false;
+        int i = (ly * sizeZ + lz) * sizeX + lx;
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void set(int x, int y, int z, boolean solid) {
+        int lx = x - minX, ly = y - minY, lz = z - minZ;
+        if (lx < 0 || lx >= sizeX || ly < 0 || ly >= sizeY || lz < 0 || lz >= sizeZ) return;
+        int i = (ly * sizeZ + lz) * sizeX + lx;
+        if (solid) bits[i >>> 6] |= 1L << i;
+        else bits[i >>> 6] &= ~(1L << i);
+    }
+
+    private void setLocal(int x, int y, int z) {
+        int i = (y * sizeZ + z) * sizeX + x;
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getSizeX() { return sizeX; }
+    public int getSizeY() { return sizeY; }
+    public int getSizeZ() { return sizeZ; }
+}
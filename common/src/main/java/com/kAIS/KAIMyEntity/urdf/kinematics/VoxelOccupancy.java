@@ -0,0 +1,24 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+/**
+ * 복셀 점유 조회 - 물리/접촉 계산이 보는 월드 (1 복셀 = 1 블록 = 1 m, 정수 좌표, y-up)
+ *
+ * - 마인크래프트 월드: BlockCollisionManager.occupancy(level)
+ * - 헤드리스 학습: flatGround() 등 (월드 없이 바닥만)
+ *
+ * 구현은 조회 1회가 해시/배열 접근 수준이어야 함 (물리 서브스텝마다 접촉점 수만큼 호출).
+ */
+@FunctionalInterface
+public interface VoxelOccupancy {
+    /** 빈 공간 (접촉 없음) */
+    VoxelOccupancy EMPTY = (x, y, z) -> false;
+
+    boolean isSolid(int x, int y, int z);
+
+    /**
+     * y ≤ topY가 전부 고체인 평평한 바닥 (윗면 높이 = topY + 1)
+     */
+    static VoxelOccupancy flatGround(int topY) {
+        return (x, y, z) -> y <= topY;
+    }
+}
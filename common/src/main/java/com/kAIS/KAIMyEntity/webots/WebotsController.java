@@ -9,6 +9,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -24,7 +25,7 @@ public class WebotsController {
     private final ExecutorService executor;
     private final ScheduledExecutorService scheduler;
     private final BlockingQueue<Command> commandQueue;
-    private final Map<String, Float> lastSent;
+    private final float[] lastSent;   // 핸들별 마지막 전송값 (NaN: 아직 안 보냄)
     private static final float DELTA_THRESHOLD = 0.01f;
 
     private volatile boolean connected = false;
@@ -82,6 +83,20 @@ public class WebotsController {
         JOINT_MAP.put("Head",      new JointMapping("Head",      19, -0.52f, 0.52f));
     }
 
+    // ==================== 관절 핸들 (이름 해석은 resolveJoint에서 한 번만) ====================
+    private static final String[] HANDLE_NAMES = JOINT_MAP.keySet().toArray(new String[0]);
+    private static final JointMapping[] HANDLE_MAPPINGS = new JointMapping[HANDLE_NAMES.length];
+    private static final Conversion[] HANDLE_CONVERSIONS = new Conversion[HANDLE_NAMES.length];
+    private static final Map<String, Integer> HANDLE_BY_NAME = new HashMap<>();
+
+    static {
+        for (int h = 0; h < HANDLE_NAMES.length; h++) {
+            HANDLE_MAPPINGS[h] = JOINT_MAP.get(HANDLE_NAMES[h]);
+            HANDLE_CONVERSIONS[h] = conversionFor(HANDLE_NAMES[h]);
+            HANDLE_BY_NAME.put(HANDLE_NAMES[h], h);
+        }
+    }
+
     private WebotsController(String ip, int port) {
         this.robotIp = ip;
         this.robotPort = port;
@@ -104,7 +119,8 @@ public class WebotsController {
         });
 
         this.commandQueue = new LinkedBlockingQueue<>();
-        this.lastSent = new ConcurrentHashMap<>();
+        this.lastSent = new float[HANDLE_NAMES.length];
+        Arrays.fill(lastSent, Float.NaN);
 
         scheduler.scheduleAtFixedRate(this::processQueue, 0, 20, TimeUnit.MILLISECONDS);
         testConnection();
@@ -174,7 +190,7 @@ public class WebotsController {
         this.connected = false;
 
         commandQueue.clear();
-        lastSent.clear();
+        Arrays.fill(lastSent, Float.NaN);
 
         testConnection();
         
@@ -215,21 +231,38 @@ public class WebotsController {
         });
     }
 
+    /**
+     * URDF 관절 이름 → 핸들 (지원하지 않는 관절이면 -1). 초기화 때 한 번 받아 두고 setJoint(int, float)에 사용
+     */
+    public static int resolveJoint(String jointName) {
+        Integer handle = jointName != null ? HANDLE_BY_NAME.get(jointName) : null;
+        return handle != null ? handle : -1;
+    }
+
     public void setJoint(String jointName, float value) {
-        JointMapping mapping = JOINT_MAP.get(jointName);
-        if (mapping == null) {
+        int handle = resolveJoint(jointName);
+        if (handle < 0) {
             if (stats.unknownJointWarnings.computeIfAbsent(jointName, k -> 0) < 3) {
                 LOGGER.warn("Unknown joint: {} (warning {} of 3)", jointName,
                            stats.unknownJointWarnings.merge(jointName, 1, Integer::sum));
             }
             return;
         }
+        setJoint(handle, value);
+    }
+
+    /**
+     * 핸들로 관절 전송 (매 틱 호출용 - 이름 해석 없음). 잘못된 핸들은 무시
+     */
+    public void setJoint(int handle, float value) {
+        if (handle < 0 || handle >= HANDLE_MAPPINGS.length) return;
+        JointMapping mapping = HANDLE_MAPPINGS[handle];
 
         // URDF → Webots 변환 (부호 반전 + 범위 매핑)
-        float webotsValue = convertUrdfToWebots(jointName, value);
+        float webotsValue = HANDLE_CONVERSIONS[handle].apply(value);
 
-        Float last = lastSent.get(jointName);
-        if (last != null && Math.abs(webotsValue - last) < DELTA_THRESHOLD) {
+        float last = lastSent[handle];
+        if (!Float.isNaN(last) && Math.abs(webotsValue - last) < DELTA_THRESHOLD) {
             stats.deltaSkipped++;
             return;
         }
@@ -240,7 +273,7 @@ public class WebotsController {
         }
 
         if (commandQueue.offer(new Command(mapping.index, clamped))) {
-            lastSent.put(jointName, clamped);
+            lastSent[handle] = clamped;
             stats.queued++;
         } else {
             stats.queueFull++;
@@ -369,6 +402,11 @@ public class WebotsController {
         }
     }
 
+    @FunctionalInterface
+    private interface Conversion {
+        float apply(float urdfValue);
+    }
+
     private static class JointMapping {
         final String webotsName;
         final int index;
@@ -413,33 +451,34 @@ public class WebotsController {
     }
 
     // ====================== URDF → Webots 변환기 ======================
-    private float convertUrdfToWebots(String jointName, float urdfValue) {
+    // 관절별 변환 함수 (핸들 테이블 생성 시 한 번만 선택)
+    private static Conversion conversionFor(String jointName) {
         return switch (jointName) {
             // 팔꿈치 (기본 설정)
-            case "r_el" -> map(urdfValue, 0.0f, 2.7925f, -0.10f, -1.57f);
-            case "l_el" -> map(urdfValue, -2.7925f, 0.0f, -1.57f, -0.10f);
+            case "r_el" -> v -> map(v, 0.0f, 2.7925f, -0.10f, -1.57f);
+            case "l_el" -> v -> map(v, -2.7925f, 0.0f, -1.57f, -0.10f);
 
             // ⚠️ 만약 위 설정으로도 팔이 반대로 꺾인다면, 아래 주석을 해제하고 위 2줄을 주석 처리하세요:
-            // case "r_el" -> map(urdfValue, 0.0f, 2.7925f, -1.57f, -0.10f);
-            // case "l_el" -> map(urdfValue, -2.7925f, 0.0f, -0.10f, -1.57f);
+            // case "r_el" -> v -> map(v, 0.0f, 2.7925f, -1.57f, -0.10f);
+            // case "l_el" -> v -> map(v, -2.7925f, 0.0f, -0.10f, -1.57f);
 
             // 무릎 (역방향)
-            case "r_knee", "l_knee" -> map(urdfValue, -2.27f, 0.0f, 2.09f, -0.1f);
+            case "r_knee", "l_knee" -> v -> map(v, -2.27f, 0.0f, 2.09f, -0.1f);
 
             // 머리 (Webots가 더 좁음)
-            case "head_pan"  -> clamp(urdfValue, -1.57f, 1.57f);
-            case "head_tilt" -> clamp(urdfValue, -0.52f, 0.52f);
+            case "head_pan"  -> v -> clamp(v, -1.57f, 1.57f);
+            case "head_tilt" -> v -> clamp(v, -0.52f, 0.52f);
 
             // 기타 미세 차이
-            case "l_ank_pitch" -> clamp(urdfValue, -1.39f, 1.22f);
-            case "r_hip_yaw"   -> clamp(urdfValue, -1.047f, 1.047f);
-            case "l_hip_yaw"   -> clamp(urdfValue, -0.69f, 2.50f);
+            case "l_ank_pitch" -> v -> clamp(v, -1.39f, 1.22f);
+            case "r_hip_yaw"   -> v -> clamp(v, -1.047f, 1.047f);
+            case "l_hip_yaw"   -> v -> clamp(v, -0.69f, 2.50f);
 
-            default -> urdfValue; // 나머지는 1:1
+            default -> v -> v; // 나머지는 1:1
         };
     }
 
-    private float map(float v, float fromLow, float fromHigh, float toLow, float toHigh) {
+    private static float map(float v, float fromLow, float fromHigh, float toLow, float toHigh) {
         if (v <= fromLow) return toLow;
         if (v >= fromHigh) return toHigh;
         return toLow + (v - fromLow) * (toHigh - toLow) / (fromHigh - fromLow);
@@ -0,0 +1,62 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 에이전트별 관측/행동 구간이 평탄 버퍼를 빈틈/겹침 없이 순서대로 나누는지 확인
+ */
+class MultiAgentEnvironmentTest {
+
+    @Test
+    void slicesAreContiguousInAgentOrder() {
+        // 관측 차원이 다른 로봇 3대 (히스토리 스택 / 행동 히스토리 유무가 섞인 경우)
+        int[] obsDims = {16, 40, 7};
+        int[] actionDims = {6, 12, 3};
+        int[] obsOffsets = new int[3];
+        int[] actionOffsets = new int[3];
+
+        assertEquals(63, MultiAgentEnvironment.sliceOffsets(obsDims, obsOffsets));
+        assertEquals(21, MultiAgentEnvironment.sliceOffsets(actionDims, actionOffsets));
+        assertArrayEquals(new int[]{0, 16, 56}, obsOffsets);
+        assertArrayEquals(new int[]{0, 6, 18}, actionOffsets);
+
+        // 각 구간에 에이전트 번호를 쓰면 버퍼 전체가 정확히 한 번씩 덮임
+        int[] owner = new int[63];
+        Arrays.fill(owner, -1);
+        for (int a = 0; a < obsDims.length; a++) {
+            for (int k = 0; k < obsDims[a]; k++) {
+                assertEquals(-1, owner[obsOffsets[a] + k], "agent " + a + " overlaps at " + k);
+                owner[obsOffsets[a] + k] = a;
+            }
+        }
+        for (int i = 0; i < owner.length; i++) {
+            assertEquals(i < 16 ? 0 : i < 56 ? 1 : 2, owner[i]);
+        }
+    }
+
+    @Test
+    void zeroDimensionAgentsShareTheNextOffset() {
+        int[] offsets = new int[4];
+        assertEquals(9, MultiAgentEnvironment.sliceOffsets(new int[]{4, 0, 5, 0}, offsets));
+        assertArrayEquals(new int[]{0, 4, 4, 9}, offsets);
+    }
+
+    @Test
+    void emptyEnvironmentHasEmptyBuffers() {
+        MultiAgentEnvironment multi = MultiAgentEnvironment.fromRenderers(
+                Arrays.asList((URDFModelOpenGLWithSTL) null));
+        assertEquals(0, multi.getAgentCount());
+        assertEquals(0, multi.getTotalObservationDim());
+        assertEquals(0, multi.getTotalActionDim());
+        assertEquals(0, multi.reset().length);
+
+        assertEquals(0, MultiAgentEnvironment.fromRenderers(List.of()).getAgentCount());
+    }
+}
@@ -0,0 +1,101 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * exploit/explore 한 라운드: 하위 truncation 멤버만 상위 멤버의 가중치를 복사하고 하이퍼파라미터를 섭동하는지 확인
+ * (렌더러 없이 헤드리스 모델로 초기화한 4명 집단, 워커 풀 없이 평가 시점을 직접 호출)
+ */
+class PopulationTrainerTest {
+    private static final int POPULATION = 4;
+
+    @Test
+    void bottomMemberCopiesTopWeightsAndPerturbsHyperparameters() {
+        PopulationTrainer.Settings settings = new PopulationTrainer.Settings();
+        settings.populationSize = POPULATION;
+        settings.truncationFraction = 0.25f;
+        settings.resampleProbability = 0f; // 섭동만 (×(1 ± perturbFactor))
+        PopulationTrainer trainer = new PopulationTrainer(settings);
+        URDFModel model = leg();
+        assertTrue(trainer.populate(env -> env.initialize(model), new RLEnvironmentCore.Config()));
+        assertEquals(POPULATION, trainer.getPopulationSize());
+
+        float[][][] before = new float[POPULATION][][];
+        for (int i = 0; i < POPULATION; i++) before[i] = weights(trainer, i);
+        assertFalse(Arrays.deepEquals(before[0], before[3]));
+
+        // 적합도 오름차순으로 게시하면 각자 게시 시점에는 최상위라 복사 없음 (0이 최고, 3이 최저)
+        double[] fitness = {100, 50, 40, 10};
+        for (int i = POPULATION - 1; i >= 0; i--) {
+            assertEquals(-1, trainer.evaluate(i, fitness[i]), "member " + i);
+        }
+        Map<String, Float> donorHyper = hyperparameters(trainer, 0);
+
+        // 다음 평가에서 최하위(하위 25% = 1명)는 상위 25%(멤버 0)를 복사
+        assertEquals(0, trainer.evaluate(3, fitness[3]));
+        assertTrue(Arrays.deepEquals(before[0], weights(trainer, 3)), "bottom member did not copy the top weights");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Arrays.deepEquals(before[i], weights(trainer, i)), "member " + i + " changed");
+        }
+
+        // 복사한 하이퍼파라미터에서 ×0.8 또는 ×1.2 (범위 밖이면 경계로 잘림)
+        Map<String, Float> copied = hyperparameters(trainer, 3);
+        assertEquals(donorHyper.keySet(), copied.keySet());
+        for (Map.Entry<String, Float> e : donorHyper.entrySet()) {
+            float ratio = copied.get(e.getKey()) / e.getValue();
+            assertTrue(Math.abs(ratio - (1f - settings.perturbFactor)) < 1e-4f
+                    || Math.abs(ratio - (1f + settings.perturbFactor)) < 1e-4f,
+                    e.getKey() + ": " + e.getValue() + " -> " + copied.get(e.getKey()));
+        }
+
+        // 복사 직후 적합도는 원본 것 → 곧바로 다시 복사되지 않음
+        PopulationTrainer.MemberResult bottom = trainer.getResults().stream()
+                .filter(r -> r.index() == 3).findFirst().orElseThrow();
+        assertEquals(fitness[0], bottom.fitness());
+        assertEquals(1, bottom.exploits());
+    }
+
+    private static float[][] weights(PopulationTrainer trainer, int member) {
+        float[][] w = trainer.getMemberEnvironment(member).getAgent().weights();
+        float[][] copy = new float[w.length][];
+        for (int i = 0; i < w.length; i++) copy[i] = w[i].clone();
+        return copy;
+    }
+
+    private static Map<String, Float> hyperparameters(PopulationTrainer trainer, int member) {
+        return trainer.getResults().stream()
+                .filter(r -> r.index() == member).findFirst().orElseThrow().hyperparameters();
+    }
+
+    /** base ─hip─ thigh ─knee─ shin, 링크는 부모 -z 방향 0.4m, 회전축 y, 한계 ±1.5 */
+    private static URDFModel leg() {
+        URDFModel model = new URDFModel("leg");
+        model.addLink(new URDFLink("base"));
+        String[] links = {"thigh", "shin"};
+        String[] joints = {"hip", "knee"};
+        for (int i = 0; i < links.length; i++) {
+            model.addLink(new URDFLink(links[i]));
+            URDFJoint joint = new URDFJoint(joints[i], URDFJoint.JointType.REVOLUTE);
+            joint.parentLinkName = i == 0 ? "base" : links[i - 1];
+            joint.childLinkName = links[i];
+            joint.origin.xyz.set(0f, 0f, i == 0 ? 0f : -0.4f);
+            joint.axis.xyz.set(0f, 1f, 0f);
+            joint.limit = new URDFJoint.Limit();
+            joint.limit.lower = -1.5f;
+            joint.limit.upper = 1.5f;
+            model.addJoint(joint);
+        }
+        model.buildHierarchy();
+        return model;
+    }
+}
@@ -0,0 +1,133 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * int8 정책이 float 정책(floatPolicyAction)과 오차 한도 안에서 일치하는지, 추론 경로가 같은 결과를 내는지 확인
+ */
+class QuantizedPolicyTest {
+    private static final int OBS_DIM = 48;
+    private static final int ACTION_DIM = 12;
+    private static final float MAX_ACTION_ERROR = 0.03f;
+
+    @Test
+    void matchesFloatPolicyWithinTolerance() {
+        for (boolean normalize : new boolean[]{false, true}) {
+            RLEnvironmentCore.SimpleAgent agent = trainedAgent(normalize);
+            float[][] observations = observations(new Random(11), 500);
+
+            // 원본 관측은 입력 텐서 하나의 스케일을 큰 차원이 정하므로 작은 차원의 양자화 오차가 큼
+            float bound = normalize ? MAX_ACTION_ERROR : 2 * MAX_ACTION_ERROR;
+
+            QuantizedPolicy.Report report = QuantizedPolicy.check(agent, agent.getQuantizedPolicy(), observations, 1);
+            assertEquals(observations.length, report.samples());
+            assertTrue(report.maxAbsError() < bound,
+                    "normalize=" + normalize + " max error " + report.maxAbsError());
+            assertTrue(report.meanAbsError() < bound / 4,
+                    "normalize=" + normalize + " mean error " + report.meanAbsError());
+        }
+    }
+
+    @Test
+    void inferencePathsAgreeWithQuantizedPolicy() {
+        RLEnvironmentCore.SimpleAgent agent = trainedAgent(true);
+        agent.setQuantizedInference(true);
+        QuantizedPolicy q = agent.getQuantizedPolicy();
+        float[][] observations = observations(new Random(5), 64);
+
+        // 단일 추론(selectAction) / act / actBatch 출력 체크섬이 같아야 함
+        float[] flat = new float[observations.length * OBS_DIM];
+        float[] single = new float[ACTION_DIM];
+        CRC32 viaAgent = new CRC32(), viaAct = new CRC32();
+        for (int r = 0; r < observations.length; r++) {
+            System.arraycopy(observations[r], 0, flat, r * OBS_DIM, OBS_DIM);
+            float[] a = agent.selectAction(observations[r], RLEnvironmentCore.AgentMode.INFERENCE);
+            q.act(observations[r], 0, single, 0);
+            assertArrayEquals(single, a, "row " + r);
+            update(viaAgent, a);
+            update(viaAct, single);
+        }
+        float[] batch = new float[observations.length * ACTION_DIM];
+        q.actBatch(flat, batch, observations.length);
+        CRC32 viaBatch = new CRC32();
+        update(viaBatch, batch);
+        assertEquals(viaAct.getValue(), viaAgent.getValue());
+        assertEquals(viaAct.getValue(), viaBatch.getValue());
+
+        // float 정책과의 부호 체크섬: 오차 한도보다 큰 행동은 부호가 같아야 함
+        CRC32 floatSigns = new CRC32(), quantSigns = new CRC32();
+        for (int r = 0; r < observations.length; r++) {
+            float[] fa = agent.floatPolicyAction(observations[r]);
+            for (int j = 0; j < ACTION_DIM; j++) {
+                if (Math.abs(fa[j]) <= MAX_ACTION_ERROR) continue;
+                floatSigns.update(fa[j] > 0 ? 1 : 0);
+                quantSigns.update(batch[r * ACTION_DIM + j] > 0 ? 1 : 0);
+            }
+        }
+        assertEquals(floatSigns.getValue(), quantSigns.getValue());
+    }
+
+    @Test
+    void requantizesAfterPolicyUpdate() {
+        RLEnvironmentCore.SimpleAgent agent = trainedAgent(true);
+        QuantizedPolicy before = agent.getQuantizedPolicy();
+        long checksum = agent.policyChecksum();
+
+        Random random = new Random(2);
+        for (float[] obs : observations(random, 64)) {
+            float[] action = agent.selectAction(obs, RLEnvironmentCore.AgentMode.LEARNING);
+            agent.storeExperience(obs, action, random.nextFloat(), obs, false);
+        }
+        agent.update();
+
+        assertTrue(agent.policyChecksum() != checksum, "update should change the float policy");
+        QuantizedPolicy after = agent.getQuantizedPolicy();
+        assertTrue(after != before, "quantized policy should be rebuilt after an update");
+        QuantizedPolicy.Report report = QuantizedPolicy.check(agent, after, observations(random, 200), 1);
+        assertTrue(report.maxAbsError() < MAX_ACTION_ERROR, "max error " + report.maxAbsError());
+    }
+
+    /** 고정 시드 가중치 + 정규화 통계를 채운 에이전트 (관측 스케일이 차원마다 다름) */
+    private static RLEnvironmentCore.SimpleAgent trainedAgent(boolean normalize) {
+        RLEnvironmentCore.SimpleAgent agent = new RLEnvironmentCore.SimpleAgent(ACTION_DIM, () -> OBS_DIM);
+        agent.reseed(1);
+        Random random = new Random(7);
+        float scale = (float) Math.sqrt(2.0 / (OBS_DIM + ACTION_DIM));
+        for (float[] row : agent.weights()) {
+            for (int j = 0; j < ACTION_DIM; j++) row[j] = (random.nextFloat() - 0.5f) * 2 * scale;
+        }
+        float[] action = new float[ACTION_DIM];
+        for (float[] obs : observations(random, 300)) {
+            agent.storeExperience(obs, action, 0f, obs, false);
+        }
+        agent.setNormalizeObservations(normalize);
+        return agent;
+    }
+
+    private static float[][] observations(Random random, int count) {
+        float[][] out = new float[count][OBS_DIM];
+        for (float[] obs : out) {
+            for (int i = 0; i < OBS_DIM; i++) {
+                obs[i] = (float) (random.nextGaussian() * (1 + i % 4)) + (i % 3 == 0 ? 0.5f : 0f);
+            }
+        }
+        return out;
+    }
+
+    private static void update(CRC32 crc, float[] values) {
+        for (float v : values) {
+            int bits = Float.floatToIntBits(v);
+            crc.update(bits >>> 24);
+            crc.update(bits >>> 16);
+            crc.update(bits >>> 8);
+            crc.update(bits);
+        }
+    }
+}
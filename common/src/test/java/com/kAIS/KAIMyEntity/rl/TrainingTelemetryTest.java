@@ -0,0 +1,105 @@
+package com.kAIS.KAIMyEntity.rl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * TrainingTelemetry가 쓴 이벤트 파일을 TFRecord 형식(길이/CRC 프레이밍)대로 다시 읽어 값이 그대로인지 확인
+ */
+class TrainingTelemetryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void scalarsReadBackInOrder() throws IOException {
+        Path file;
+        try (TrainingTelemetry telemetry = TrainingTelemetry.open(dir)) {
+            int reward = telemetry.tag("episode/reward");
+            int length = telemetry.tag("episode/length");
+            for (int step = 0; step < 100; step++) {
+                telemetry.scalar(reward, step, step * 0.5 - 3.25);
+                telemetry.scalar(length, step, 200 + step);
+            }
+            file = telemetry.getFile();
+        }
+
+        List<TrainingTelemetry.ScalarRecord> scalars = TrainingTelemetry.readScalars(file);
+        assertEquals(200, scalars.size());
+        for (int step = 0; step < 100; step++) {
+            TrainingTelemetry.ScalarRecord r = scalars.get(step * 2);
+            assertEquals("episode/reward", r.tag());
+            assertEquals(step, r.step());
+            assertEquals((float) (step * 0.5 - 3.25), r.value());
+
+            TrainingTelemetry.ScalarRecord l = scalars.get(step * 2 + 1);
+            assertEquals("episode/length", l.tag());
+            assertEquals(step, l.step());
+            assertEquals(200f + step, l.value());
+        }
+    }
+
+    @Test
+    void recordsUseTfRecordFraming() throws IOException {
+        Path file;
+        try (TrainingTelemetry telemetry = TrainingTelemetry.open(dir)) {
+            telemetry.scalar(telemetry.tag("loss"), 7, 1.5);
+            file = telemetry.getFile();
+        }
+
+        // 독립 구현으로 프레이밍 확인: [len u64][masked crc32c(len)][data][masked crc32c(data)]
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        List<byte[]> records = TrainingTelemetry.readRecords(file);
+        assertEquals(2, records.size()); // file_version + 스칼라 1개
+        for (byte[] expected : records) {
+            int start = buf.position();
+            long len = buf.getLong();
+            assertEquals(maskedCrc(bytes, start, 8), buf.getInt());
+            assertEquals(expected.length, len);
+            byte[] data = new byte[(int) len];
+            buf.get(data);
+            assertEquals(Arrays.toString(expected), Arrays.toString(data));
+            assertEquals(maskedCrc(data, 0, data.length), buf.getInt());
+        }
+        assertEquals(0, buf.remaining());
+    }
+
+    @Test
+    void corruptOrTruncatedRecordsAreRejected() throws IOException {
+        Path file;
+        try (TrainingTelemetry telemetry = TrainingTelemetry.open(dir)) {
+            telemetry.scalar(telemetry.tag("loss"), 1, 2.0);
+            file = telemetry.getFile();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length - 6] ^= 0x40; // 마지막 레코드 데이터
+        Path corrupt = dir.resolve("corrupt");
+        Files.write(corrupt, flipped);
+        assertThrows(IOException.class, () -> TrainingTelemetry.readRecords(corrupt));
+
+        Path truncated = dir.resolve("truncated");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> TrainingTelemetry.readRecords(truncated));
+    }
+
+    private static int maskedCrc(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        int c = (int) crc.getValue();
+        return ((c >>> 15) | (c << 17)) + 0xa282ead8;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BatchForwardKinematics가 자세마다 KinematicTree.forward() 결과(3x4 부분)와 비트 단위로 같은지 확인
+ * (청크 크기보다 많은 자세 → ForkJoin 분할 경로 포함)
+ */
+class BatchForwardKinematicsTest {
+    private static final URDFJoint.JointType[] TYPES = {
+            URDFJoint.JointType.REVOLUTE, URDFJoint.JointType.PRISMATIC, URDFJoint.JointType.FIXED
+    };
+
+    @Test
+    void matchesKinematicTreeForwardForEveryPose() {
+        Random random = new Random(5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 20; trial++) {
+                KinematicTree tree = randomTree(random, 2 + random.nextInt(30));
+                BatchForwardKinematics batch = new BatchForwardKinematics(tree, pool);
+                int joints = tree.getJointCount();
+                int links = tree.getLinkCount();
+                int poses = batch.getChunkSize() * 3 + random.nextInt(17);
+
+                float[] q = new float[poses * joints];
+                for (int i = 0; i < q.length; i++) q[i] = random.nextFloat() * 4f - 2f;
+                float[] out = batch.newOutput(poses);
+                batch.compute(q, poses, out);
+
+                float[] pose = new float[joints];
+                float[] world = tree.newTransformBuffer();
+                for (int p = 0; p < poses; p++) {
+                    System.arraycopy(q, p * joints, pose, 0, joints);
+                    tree.forward(pose, world);
+                    for (int l = 0; l < links; l++) {
+                        int o = (p * links + l) * BatchForwardKinematics.STRIDE;
+                        int w = l * KinematicTree.STRIDE;
+                        for (int c = 0; c < 4; c++) {
+                            for (int r = 0; r < 3; r++) {
+                                assertEquals(world[w + c * 4 + r], out[o + c * 3 + r], 0f,
+                                        "trial " + trial + ", pose " + p + ", link " + l);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rangeMatchesFullBatch() {
+        KinematicTree tree = randomTree(new Random(8), 12);
+        BatchForwardKinematics batch = new BatchForwardKinematics(tree);
+        int poses = 40;
+        float[] q = new float[poses * tree.getJointCount()];
+        Random random = new Random(2);
+        for (int i = 0; i < q.length; i++) q[i] = random.nextFloat() * 4f - 2f;
+
+        float[] full = batch.newOutput(poses);
+        batch.compute(q, poses, full);
+        float[] part = batch.newOutput(poses);
+        batch.computeRange(q, 10, 25, part);
+
+        int perPose = tree.getLinkCount() * BatchForwardKinematics.STRIDE;
+        for (int i = 0; i < part.length; i++) {
+            int p = i / perPose;
+            if (p >= 10 && p < 25) assertEquals(full[i], part[i], 0f);
+            else assertTrue(part[i] == 0f, "pose " + p + " outside the range was written");
+        }
+    }
+
+    @Test
+    void rejectsShortBuffers() {
+        KinematicTree tree = randomTree(new Random(1), 6);
+        BatchForwardKinematics batch = new BatchForwardKinematics(tree);
+        float[] q = new float[3 * tree.getJointCount()];
+        assertThrows(IllegalArgumentException.class, () -> batch.compute(q, 4, batch.newOutput(4)));
+        assertThrows(IllegalArgumentException.class, () -> batch.compute(q, 3, batch.newOutput(2)));
+    }
+
+    /** 링크 i의 부모는 0..i-1 중 무작위 (DFS 순서와 무관하게 섞인 트리) */
+    private static KinematicTree randomTree(Random random, int links) {
+        URDFModel model = new URDFModel("random");
+        model.addLink(new URDFLink("l0"));
+        for (int i = 1; i < links; i++) {
+            model.addLink(new URDFLink("l" + i));
+            URDFJoint joint = new URDFJoint("j" + i, TYPES[random.nextInt(TYPES.length)]);
+            joint.parentLinkName = "l" + random.nextInt(i);
+            joint.childLinkName = "l" + i;
+            joint.origin.xyz.set(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            joint.origin.rpy.set(random.nextFloat() * 3f, random.nextFloat(), random.nextFloat());
+            joint.axis.xyz.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            model.addJoint(joint);
+        }
+        model.buildHierarchy();
+        return model.getKinematicTree();
+    }
+}
@@ -0,0 +1,144 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import com.kAIS.KAIMyEntity.urdf.control.URDFMotion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 3관절 평면 팔(링크 0.3m, y축 회전)에서 도달 가능한 목표를 허용 오차 안에 풀고 관절 한계를 지키는지 확인
+ */
+class DampedLeastSquaresIKTest {
+    private static final float LINK = 0.3f;
+    private static final float LIMIT = 2.0f;
+
+    @Test
+    void solvesReachableTargetsWithinTolerance() {
+        KinematicTree tree = arm(LIMIT);
+        DampedLeastSquaresIK.Settings settings = new DampedLeastSquaresIK.Settings();
+        DampedLeastSquaresIK ik = new DampedLeastSquaresIK(tree, settings);
+        int tip = tree.indexOfLink("tip");
+        float[] world = tree.newTransformBuffer();
+        Random random = new Random(4);
+
+        for (int trial = 0; trial < 50; trial++) {
+            // 한계 안의 무작위 자세로 만든 목표 → 도달 가능
+            float[] goal = pose(tree, (random.nextFloat() * 2f - 1f) * LIMIT * 0.9f,
+                    (random.nextFloat() * 2f - 1f) * LIMIT * 0.9f, (random.nextFloat() * 2f - 1f) * LIMIT * 0.9f);
+            tree.forward(goal, world);
+            float[] target = position(world, tip);
+
+            float[] q = pose(tree, 0.2f, 0.2f, 0.2f);
+            float err = ik.solve(q, new int[]{tip}, target, 0);
+            assertTrue(err <= settings.tolerance, "trial " + trial + " error " + err);
+            assertWithinLimits(q, LIMIT);
+
+            tree.forward(q, world);
+            float[] reached = position(world, tip);
+            for (int k = 0; k < 3; k++) assertEquals(target[k], reached[k], settings.tolerance);
+        }
+    }
+
+    @Test
+    void respectsJointLimits() {
+        float limit = 0.3f;
+        KinematicTree tree = arm(limit);
+        DampedLeastSquaresIK ik = new DampedLeastSquaresIK(tree, new DampedLeastSquaresIK.Settings());
+        int tip = tree.indexOfLink("tip");
+
+        // 팔을 수평으로 뻗은 목표 (각 관절 π/6 이상 필요) → 한계에 걸려 멈춰야 함
+        float[] target = {3 * LINK * 0.95f, 0f, -0.1f};
+        float[] q = new float[tree.getJointCount()];
+        float err = ik.solve(q, new int[]{tip}, target, 0);
+        assertTrue(err > 0.05f, "target should be out of reach, error " + err);
+        assertWithinLimits(q, limit);
+        assertEquals(limit, q[tree.indexOfJoint("j1")], 1e-6f);
+    }
+
+    @Test
+    void trajectoryWarmStartsAndWritesMotionKeys() {
+        KinematicTree tree = arm(LIMIT);
+        int tip = tree.indexOfLink("tip");
+        float[] world = tree.newTransformBuffer();
+
+        // 관절값을 조금씩 움직인 자세들의 말단 궤적
+        int frames = 20;
+        float[] targets = new float[frames * 3];
+        for (int f = 0; f < frames; f++) {
+            float s = f / (float) frames;
+            tree.forward(pose(tree, 0.3f + s, -0.5f * s, 0.4f), world);
+            System.arraycopy(position(world, tip), 0, targets, f * 3, 3);
+        }
+        DampedLeastSquaresIK.Trajectory trajectory =
+                new DampedLeastSquaresIK.Trajectory("arc", new String[]{"tip"}, targets, 30f, false);
+        DampedLeastSquaresIK.Settings settings = new DampedLeastSquaresIK.Settings();
+
+        DampedLeastSquaresIK.TrajectoryResult result = DampedLeastSquaresIK.solveTrajectories(
+                tree, settings, List.of(trajectory, trajectory), pose(tree, 0.3f, 0f, 0.4f), ForkJoinPool.commonPool()).get(1);
+        assertTrue(result.maxError() <= settings.tolerance, "max error " + result.maxError());
+        // 이전 프레임 해에서 시작하므로 프레임당 반복이 적음
+        assertTrue(result.iterations() < frames * 8, "iterations " + result.iterations());
+
+        URDFMotion motion = result.motion();
+        assertEquals(frames, motion.keys.size());
+        for (int f = 0; f < frames; f++) {
+            URDFMotion.Key key = motion.keys.get(f);
+            assertEquals(f / 30f, key.t, 1e-6f);
+            assertEquals(3, key.pose.size());
+            for (float v : key.pose.values()) assertTrue(Math.abs(v) <= LIMIT);
+        }
+    }
+
+    private static void assertWithinLimits(float[] q, float limit) {
+        for (int j = 0; j < q.length; j++) {
+            assertTrue(q[j] >= -limit && q[j] <= limit, "joint " + j + " = " + q[j]);
+        }
+    }
+
+    /** j1..j3 값을 트리 조인트 순서 배열로 (고정 조인트는 0) */
+    private static float[] pose(KinematicTree tree, float... values) {
+        float[] q = new float[tree.getJointCount()];
+        for (int i = 0; i < values.length; i++) q[tree.indexOfJoint("j" + (i + 1))] = values[i];
+        return q;
+    }
+
+    private static float[] position(float[] world, int link) {
+        int t = link * KinematicTree.STRIDE + 12;
+        return new float[]{world[t], world[t + 1], world[t + 2]};
+    }
+
+    /** l0 ─j1─ l1 ─j2─ l2 ─j3─ l3 ─(고정)─ tip, 각 링크는 부모 -z 방향 LINK, 회전축 y, 한계 ±limit */
+    private static KinematicTree arm(float limit) {
+        URDFModel model = new URDFModel("arm");
+        model.addLink(new URDFLink("l0"));
+        for (int i = 1; i <= 3; i++) {
+            model.addLink(new URDFLink("l" + i));
+            URDFJoint joint = new URDFJoint("j" + i, URDFJoint.JointType.REVOLUTE);
+            joint.parentLinkName = "l" + (i - 1);
+            joint.childLinkName = "l" + i;
+            joint.origin.xyz.set(0f, 0f, i == 1 ? 0f : -LINK);
+            joint.axis.xyz.set(0f, 1f, 0f);
+            joint.limit = new URDFJoint.Limit();
+            joint.limit.lower = -limit;
+            joint.limit.upper = limit;
+            model.addJoint(joint);
+        }
+        // 말단 링크 원점이 팔 끝이 되도록 고정 조인트로 한 마디 더
+        model.addLink(new URDFLink("tip"));
+        URDFJoint fixed = new URDFJoint("tip_joint", URDFJoint.JointType.FIXED);
+        fixed.parentLinkName = "l3";
+        fixed.childLinkName = "tip";
+        fixed.origin.xyz.set(0f, 0f, -LINK);
+        model.addJoint(fixed);
+        model.buildHierarchy();
+        return model.getKinematicTree();
+    }
+}
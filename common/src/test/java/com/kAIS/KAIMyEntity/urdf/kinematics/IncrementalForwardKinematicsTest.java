@@ -0,0 +1,90 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * IncrementalForwardKinematics가 무작위 부분 갱신 후에도 KinematicTree.forward() 전체 계산과 비트 단위로 같은지 확인
+ */
+class IncrementalForwardKinematicsTest {
+    private static final URDFJoint.JointType[] TYPES = {
+            URDFJoint.JointType.REVOLUTE, URDFJoint.JointType.PRISMATIC, URDFJoint.JointType.FIXED
+    };
+
+    @Test
+    void matchesFullForwardAfterRandomPartialUpdates() {
+        Random random = new Random(9);
+        for (int trial = 0; trial < 100; trial++) {
+            KinematicTree tree = randomTree(random, 2 + random.nextInt(25));
+            IncrementalForwardKinematics inc = new IncrementalForwardKinematics(tree);
+            float[] q = new float[tree.getJointCount()];
+            float[] full = tree.newTransformBuffer();
+
+            for (int frame = 0; frame < 50; frame++) {
+                // 일부 조인트만 변경 (0~2개) → setJoint / markDirty / syncFromJoints 중 하나로 무효화
+                int changes = random.nextInt(3);
+                for (int c = 0; c < changes; c++) {
+                    int j = random.nextInt(tree.getJointCount());
+                    tree.getJoint(j).setPosition(random.nextFloat() * 4f - 2f);
+                }
+                switch (random.nextInt(3)) {
+                    case 0 -> inc.syncFromJoints();
+                    case 1 -> {
+                        for (int j = 0; j < tree.getJointCount(); j++) {
+                            inc.setJoint(j, tree.getJoint(j).getPosition());
+                        }
+                    }
+                    default -> {
+                        inc.syncFromJoints();
+                        inc.markDirty(random.nextInt(tree.getJointCount()));
+                    }
+                }
+                inc.update();
+
+                tree.readJointPositions(q);
+                tree.forward(q, full);
+                assertArrayEquals(full, inc.getTransforms(), "trial " + trial + ", frame " + frame);
+            }
+        }
+    }
+
+    @Test
+    void recomputesOnlyTheChangedSubtree() {
+        KinematicTree tree = randomTree(new Random(3), 16);
+        IncrementalForwardKinematics inc = new IncrementalForwardKinematics(tree);
+        inc.update();
+
+        // 변경 없음 → 재계산 없음
+        inc.syncFromJoints();
+        assertEquals(0, inc.update());
+
+        int j = tree.getJointCount() - 1;
+        inc.setJoint(j, 0.5f);
+        assertEquals(tree.getSubtreeEnd(j) - j, inc.update());
+    }
+
+    /** 링크 i의 부모는 0..i-1 중 무작위 (DFS 순서와 무관하게 섞인 트리) */
+    private static KinematicTree randomTree(Random random, int links) {
+        URDFModel model = new URDFModel("random");
+        model.addLink(new URDFLink("l0"));
+        for (int i = 1; i < links; i++) {
+            model.addLink(new URDFLink("l" + i));
+            URDFJoint joint = new URDFJoint("j" + i, TYPES[random.nextInt(TYPES.length)]);
+            joint.parentLinkName = "l" + random.nextInt(i);
+            joint.childLinkName = "l" + i;
+            joint.origin.xyz.set(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            joint.origin.rpy.set(random.nextFloat() * 3f, random.nextFloat(), random.nextFloat());
+            joint.axis.xyz.set(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            model.addJoint(joint);
+        }
+        model.buildHierarchy();
+        return model.getKinematicTree();
+    }
+}
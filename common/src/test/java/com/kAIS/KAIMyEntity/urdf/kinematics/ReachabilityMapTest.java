@@ -0,0 +1,102 @@
+package com.kAIS.KAIMyEntity.urdf.kinematics;
+
+import com.kAIS.KAIMyEntity.urdf.URDFJoint;
+import com.kAIS.KAIMyEntity.urdf.URDFLink;
+import com.kAIS.KAIMyEntity.urdf.URDFModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 2관절 평면 팔(0.4m + 0.3m, y축 회전, 한계 ±π)의 도달 맵: 고리(반지름 0.1~0.7, xz 평면)만 도달 가능
+ */
+class ReachabilityMapTest {
+    private static final float UPPER = 0.4f;
+    private static final float LOWER = 0.3f;
+
+    @Test
+    void classifiesKnownReachableAndUnreachablePoints() {
+        ReachabilityMap map = build();
+
+        // 고리 안 (다양한 방향)
+        for (float r : new float[]{0.2f, 0.45f, 0.6f}) {
+            for (int a = 0; a < 8; a++) {
+                double angle = a * Math.PI / 4;
+                float x = (float) (r * Math.cos(angle));
+                float z = (float) (r * Math.sin(angle));
+                assertTrue(map.isReachable(x, 0f, z), "r " + r + ", angle " + a);
+                assertTrue(map.getScore(x, 0f, z) > 0f);
+            }
+        }
+
+        // 고리 밖 (바깥 반지름 초과 / 안쪽 구멍 / 평면 밖 / 격자 밖)
+        assertFalse(map.isReachable(0.85f, 0f, 0f));
+        assertFalse(map.isReachable(0f, 0f, -0.8f));
+        assertFalse(map.isReachable(0.02f, 0f, 0.02f));
+        assertFalse(map.isReachable(0.3f, 0.2f, -0.3f));
+        assertFalse(map.isReachable(5f, 0f, 0f));
+        assertTrue(map.getScore(0.85f, 0f, 0f) == 0f);
+    }
+
+    @Test
+    void seedReachesTheQueriedVoxel() {
+        ReachabilityMap map = build();
+        KinematicTree tree = arm();
+        int tip = tree.indexOfLink("tip");
+        float[] world = tree.newTransformBuffer();
+        float tolerance = map.getVoxelSize() * (float) Math.sqrt(3);
+
+        float[][] queries = {{0.5f, 0f, 0f}, {-0.3f, 0f, -0.4f}, {0.1f, 0f, 0.5f}, {0f, 0f, -0.65f}};
+        for (float[] p : queries) {
+            float[] q = new float[tree.getJointCount()];
+            assertTrue(map.getSeed(p[0], p[1], p[2], q));
+            tree.forward(q, world);
+            int t = tip * KinematicTree.STRIDE + 12;
+            float dx = world[t] - p[0], dy = world[t + 1] - p[1], dz = world[t + 2] - p[2];
+            float dist = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            assertTrue(dist <= tolerance, "seed lands " + dist + " m from the query");
+        }
+
+        float[] q = new float[tree.getJointCount()];
+        assertFalse(map.getSeed(0.85f, 0f, 0f, q));
+        for (float v : q) assertTrue(v == 0f);
+    }
+
+    private static ReachabilityMap build() {
+        ReachabilityMap.Settings settings = new ReachabilityMap.Settings();
+        settings.samples = 1 << 18;
+        ReachabilityMap map = ReachabilityMap.build(arm(), "tip", settings, ForkJoinPool.commonPool());
+        assertNotNull(map);
+        return map;
+    }
+
+    /** base ─j1─ upper ─j2─ lower ─(고정)─ tip, 링크는 부모 -z 방향 */
+    private static KinematicTree arm() {
+        URDFModel model = new URDFModel("arm");
+        model.addLink(new URDFLink("base"));
+        String[] links = {"upper", "lower", "tip"};
+        float[] offsets = {0f, UPPER, LOWER};
+        for (int i = 0; i < links.length; i++) {
+            model.addLink(new URDFLink(links[i]));
+            boolean fixed = i == links.length - 1;
+            URDFJoint joint = new URDFJoint(links[i] + "_joint",
+                    fixed ? URDFJoint.JointType.FIXED : URDFJoint.JointType.REVOLUTE);
+            joint.parentLinkName = i == 0 ? "base" : links[i - 1];
+            joint.childLinkName = links[i];
+            joint.origin.xyz.set(0f, 0f, -offsets[i]);
+            joint.axis.xyz.set(0f, 1f, 0f);
+            if (!fixed) {
+                joint.limit = new URDFJoint.Limit();
+                joint.limit.lower = (float) -Math.PI;
+                joint.limit.upper = (float) Math.PI;
+            }
+            model.addJoint(joint);
+        }
+        model.buildHierarchy();
+        return model.getKinematicTree();
+    }
+}
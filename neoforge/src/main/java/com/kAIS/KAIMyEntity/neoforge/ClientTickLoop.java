@@ -1,10 +1,13 @@
 // neoforge/src/main/java/com/kAIS/KAIMyEntity/neoforge/ClientTickLoop.java
 package com.kAIS.KAIMyEntity.neoforge;
 
+import com.kAIS.KAIMyEntity.rl.MultiAgentEnvironment;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore;
 import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
 import com.kAIS.KAIMyEntity.urdf.control.MotionEditorScreen;
 import com.kAIS.KAIMyEntity.webots.WebotsController; // ✅ 추가
 
+import net.minecraft.client.Minecraft;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
@@ -18,6 +21,7 @@ import java.util.List;
  * - 매 틱(20Hz)마다 URDF 모델 업데이트
  * - URDFModelOpenGLWithSTL.tickUpdate(dt) 호출
  * - VMC 데이터 처리 (MotionEditorScreen.tick)
+ * - 멀티 에이전트 학습 (toggleMultiAgent: 틱 모델마다 에이전트 하나, 공유 월드 step 후 tick)
  * 
  * ✅ 2025.11.21 Webots 연동 추가
  * - URDF 업데이트 후 자동으로 Webots 전송
@@ -31,6 +35,10 @@ public final class ClientTickLoop {
 
     public static URDFModelOpenGLWithSTL renderer;              // 단일 모델
     public static final List<URDFModelOpenGLWithSTL> renderers = new ArrayList<>();
+    private static final List<URDFModelOpenGLWithSTL> tickModels = new ArrayList<>();
+
+    // 멀티 에이전트 학습 (toggleMultiAgent로 생성/해제)
+    private static MultiAgentEnvironment multiAgent;
     
     // ✅ Webots 컨트롤러 (지연 초기화)
     private static WebotsController webots;
@@ -45,13 +53,27 @@ public final class ClientTickLoop {
         float dt = 1.0f / 20.0f;
 
         // ✅ 기존 로직: URDF 업데이트 + VMC 처리
-        if (renderer != null) {
-            renderer.tickUpdate(dt);
-            MotionEditorScreen.tick(renderer); // ★ VMC 데이터 처리
+        // 모든 모델이 한 물리 월드를 공유하므로 step은 틱당 1회
+        tickModels.clear();
+        if (renderer != null) tickModels.add(renderer);
+        for (URDFModelOpenGLWithSTL r : renderers) {
+            if (r != null && r != renderer) tickModels.add(r);
+        }
+        URDFModelOpenGLWithSTL.tickUpdateShared(tickModels, dt);
+
+        // 멀티 에이전트: 월드 step은 위에서 1회, 여기서는 에이전트별 행동/보상만
+        if (multiAgent != null) {
+            var player = Minecraft.getInstance().player;
+            if (player != null) {
+                for (int i = 0; i < multiAgent.getAgentCount(); i++) {
+                    multiAgent.setAgentAnchor(i, player.getX(), player.getY(), player.getZ());
+                }
+                multiAgent.updateSharedCollision(player.level());
+            }
+            multiAgent.tick(dt);
         }
         
-        for (URDFModelOpenGLWithSTL r : renderers) {
-            r.tickUpdate(dt);
+        for (URDFModelOpenGLWithSTL r : tickModels) {
             MotionEditorScreen.tick(r); // ★ VMC 데이터 처리
         }
         
@@ -66,6 +88,34 @@ public final class ClientTickLoop {
         }
     }
     
+    /**
+     * 틱 모델 전체(renderer + renderers)로 멀티 에이전트 환경을 만들어 내장 에이전트 학습 시작,
+     * 이미 돌고 있으면 중지하고 해제.
+     * 에디터의 단일 환경(RLEnvironmentCore.getInstance())이 학습 중이면 같은 관절을 두 환경이 움직이므로 시작하지 않음
+     * @return 시작한 에이전트 수 (중지했거나 시작하지 못했으면 0)
+     */
+    public static int toggleMultiAgent(RLEnvironmentCore.AgentMode mode) {
+        if (multiAgent != null) {
+            multiAgent.cleanup();
+            multiAgent = null;
+            return 0;
+        }
+        if (RLEnvironmentCore.getInstance().isTraining()) return 0;
+
+        List<URDFModelOpenGLWithSTL> models = new ArrayList<>();
+        if (renderer != null) models.add(renderer);
+        models.addAll(renderers);
+        MultiAgentEnvironment multi = MultiAgentEnvironment.fromRenderers(models);
+        if (multi.getAgentCount() == 0) return 0;
+        multi.startTraining(mode);
+        multiAgent = multi;
+        return multi.getAgentCount();
+    }
+
+    public static boolean isMultiAgentRunning() {
+        return multiAgent != null;
+    }
+    
     // ✅ 새로운 메서드: Webots 컨트롤러 초기화 (지연 로딩)
     /**
      * Webots 컨트롤러를 지연 초기화
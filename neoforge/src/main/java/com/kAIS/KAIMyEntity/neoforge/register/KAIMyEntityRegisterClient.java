@@ -5,6 +5,7 @@ import com.kAIS.KAIMyEntity.renderer.MMDModelManager;
 
 // URDF 쪽
 import com.kAIS.KAIMyEntity.neoforge.ClientTickLoop;
+import com.kAIS.KAIMyEntity.rl.RLEnvironmentCore;
 import com.kAIS.KAIMyEntity.urdf.URDFModelOpenGLWithSTL;
 import com.kAIS.KAIMyEntity.urdf.control.MotionEditorScreen;
 import com.kAIS.KAIMyEntity.webots.WebotsController;
@@ -40,6 +41,7 @@ import java.util.Objects;
  * - V/B/N/M: 기존 커스텀 애니메이션
  * - G: RL Control 패널 열기 (없으면 URDF 자동 로드 시도)
  *   - Ctrl + G: URDF 모델 리로드
+ *   - Shift + G: 멀티 에이전트 학습 시작/중지 (ClientTickLoop의 모든 모델)
  * - H: URDF 물리 리셋
  * - T: Webots 통계 출력
  * - Y: Webots T-Pose 테스트
@@ -98,11 +100,13 @@ class KAIMyEntityKeyHandler {
         // ==== 커스텀 애니메이션 ====
         handleCustomAnim(player);
 
-        // ==== G: RL Control 패널 열기 / Ctrl+G: URDF 리로드 ====
+        // ==== G: RL Control 패널 열기 / Ctrl+G: URDF 리로드 / Shift+G: 멀티 에이전트 학습 ====
         if (KAIMyEntityRegisterClient.keyMotionGuiOrReload.consumeClick()) {
             long win = MC.getWindow().getWindow();
             boolean ctrl = GLFW.glfwGetKey(win, GLFW.GLFW_KEY_LEFT_CONTROL) == GLFW.GLFW_PRESS
                         || GLFW.glfwGetKey(win, GLFW.GLFW_KEY_RIGHT_CONTROL) == GLFW.GLFW_PRESS;
+            boolean shift = GLFW.glfwGetKey(win, GLFW.GLFW_KEY_LEFT_SHIFT) == GLFW.GLFW_PRESS
+                         || GLFW.glfwGetKey(win, GLFW.GLFW_KEY_RIGHT_SHIFT) == GLFW.GLFW_PRESS;
 
             if (ctrl) {
                 // URDF 모델 리로드
@@ -113,6 +117,15 @@ class KAIMyEntityKeyHandler {
                     MC.gui.getChat().addMessage(Component.literal("[URDF] reload failed: " + t.getMessage()));
                 }
                 ensureActiveRenderer(MC);
+            } else if (shift) {
+                // 멀티 에이전트 학습 토글
+                if (ClientTickLoop.renderer == null) ensureActiveRenderer(MC);
+                boolean wasRunning = ClientTickLoop.isMultiAgentRunning();
+                int agents = ClientTickLoop.toggleMultiAgent(RLEnvironmentCore.AgentMode.LEARNING);
+                String msg = wasRunning ? "[RL] Multi-agent training stopped"
+                        : agents > 0 ? "[RL] Multi-agent training started: " + agents + " agents"
+                        : "[RL] Multi-agent training not started (no models, or editor training is running)";
+                MC.gui.getChat().addMessage(Component.literal(msg));
             } else {
                 // RL 패널 열기
                 if (ClientTickLoop.renderer == null) ensureActiveRenderer(MC);